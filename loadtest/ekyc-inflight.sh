@@ -0,0 +1,60 @@
+#!/usr/bin/env bash
+# Max concurrent in-flight eKYC calls with platform vs virtual request threads.
+# Starts the application twice against FakeEKycServer (500 ms per call), fires the same burst of
+# streamed uploads at /api/idCardExtraction/uploadFileStream and prints what the stub observed.
+#
+# Usage: loadtest/ekyc-inflight.sh [concurrency] [requests]
+# Needs compiled main and test classes (mvn test-compile): the stub lives on the test classpath and is never
+# packaged in the war. Also needs the usual datasource / jwt settings (environment or external config).
+set -euo pipefail
+
+CONCURRENCY=${1:-400}
+REQUESTS=${2:-2000}
+APP_PORT=${APP_PORT:-8082}
+STUB_PORT=${STUB_PORT:-18090}
+STUB_LATENCY_MILLIS=${STUB_LATENCY_MILLIS:-500}
+
+# Small PNG-signed payload: passes the magic number check, content is irrelevant to the stub
+IMAGE=$(mktemp)
+printf '\x89PNG\r\n\x1a\n' > "$IMAGE"
+head -c 200000 /dev/urandom >> "$IMAGE"
+
+# Main classes, test classes (FakeEKycServer) and every dependency
+CLASSPATH_FILE=$(mktemp)
+trap 'rm -f "$IMAGE" "$CLASSPATH_FILE"' EXIT
+mvn -q dependency:build-classpath -Dmdep.outputFile="$CLASSPATH_FILE"
+APP_CLASSPATH="target/classes:target/test-classes:$(cat "$CLASSPATH_FILE")"
+
+run_mode() {
+    local virtual=$1
+    java -cp "$APP_CLASSPATH" com.example.onlinebankingapp.OnlineBankingAppApplication \
+        --server.port="$APP_PORT" \
+        --spring.threads.virtual.enabled="$virtual" \
+        --ekyc.fake-server.enabled=true \
+        --ekyc.fake-server.port="$STUB_PORT" \
+        --ekyc.fake-server.latency-millis="$STUB_LATENCY_MILLIS" \
+        --spring.eKyc.baseUrl="http://localhost:$STUB_PORT" \
+        --spring.eKyc.max-concurrent-requests=100000 \
+        > "loadtest-ekyc-virtual-$virtual.log" 2>&1 &
+    local app_pid=$!
+
+    # Ready once Tomcat answers anything
+    until [ "$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$APP_PORT/")" != "000" ]; do
+        sleep 1
+    done
+    curl -s -o /dev/null "http://localhost:$STUB_PORT/stats?reset"
+
+    local started_at=$(date +%s%N)
+    seq "$REQUESTS" | xargs -P "$CONCURRENCY" -I{} curl -s -o /dev/null -X POST \
+        -H 'Content-Type: image/png' --data-binary @"$IMAGE" \
+        "http://localhost:$APP_PORT/api/idCardExtraction/uploadFileStream?title=LOADTEST&description=load&clientSession=load-{}"
+    local elapsed_millis=$(( ($(date +%s%N) - started_at) / 1000000 ))
+
+    echo "virtual-threads=$virtual elapsed_ms=$elapsed_millis stub=$(curl -s "http://localhost:$STUB_PORT/stats")"
+
+    kill "$app_pid"
+    wait "$app_pid" 2>/dev/null || true
+}
+
+run_mode false
+run_mode true
@@ -0,0 +1,61 @@
+#!/usr/bin/env bash
+# Successful customer logins per second, and per core, for each bcrypt strength.
+# Starts the application once per strength, fires the same burst of POST /api/customers/login and prints the rate.
+# Raising the strength between runs also exercises rehash-on-login: the first login upgrades the stored hash.
+#
+# Usage: LOGIN_EMAIL=... LOGIN_PASSWORD=... loadtest/login-throughput.sh [concurrency] [requests] [strengths]
+# Needs a built war (mvn package), the usual datasource / jwt settings (environment or external config)
+# and an active customer account. Run strengths in ascending order: hashes are never downgraded.
+set -euo pipefail
+
+CONCURRENCY=${1:-64}
+REQUESTS=${2:-2000}
+STRENGTHS=${3:-"10 12"}
+WAR=${WAR:-target/OnlineBankingApp-0.0.1-SNAPSHOT.war}
+APP_PORT=${APP_PORT:-8082}
+CORES=${CORES:-$(nproc)}
+: "${LOGIN_EMAIL:?set LOGIN_EMAIL to an active customer}"
+: "${LOGIN_PASSWORD:?set LOGIN_PASSWORD to its password}"
+
+BODY="{\"email\":\"$LOGIN_EMAIL\",\"password\":\"$LOGIN_PASSWORD\"}"
+
+run_strength() {
+    local strength=$1
+    java -jar "$WAR" \
+        --server.port="$APP_PORT" \
+        --security.password.bcrypt-strength="$strength" \
+        --login.queue-capacity=100000 \
+        > "loadtest-login-strength-$strength.log" 2>&1 &
+    local app_pid=$!
+
+    # Ready once Tomcat answers anything
+    until [ "$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$APP_PORT/")" != "000" ]; do
+        sleep 1
+    done
+
+    # Warm up the JIT; the first login also rehashes the stored password to this strength
+    for _ in $(seq 20); do
+        curl -s -o /dev/null -X POST -H 'Content-Type: application/json' -d "$BODY" \
+            "http://localhost:$APP_PORT/api/customers/login"
+    done
+    sleep 2
+
+    local started_at=$(date +%s%N)
+    local ok_count=$(seq "$REQUESTS" | xargs -P "$CONCURRENCY" -I{} curl -s -o /dev/null -w '%{http_code}\n' \
+        -X POST -H 'Content-Type: application/json' -d "$BODY" \
+        "http://localhost:$APP_PORT/api/customers/login" | grep -c '^200$' || true)
+    local elapsed_millis=$(( ($(date +%s%N) - started_at) / 1000000 ))
+
+    awk -v s="$strength" -v ok="$ok_count" -v n="$REQUESTS" -v ms="$elapsed_millis" -v cores="$CORES" 'BEGIN {
+        rate = ok * 1000 / ms
+        printf "bcrypt-strength=%s ok=%d/%d elapsed_ms=%d logins_per_sec=%.1f logins_per_sec_per_core=%.1f\n",
+            s, ok, n, ms, rate, rate / cores
+    }'
+
+    kill "$app_pid"
+    wait "$app_pid" 2>/dev/null || true
+}
+
+for strength in $STRENGTHS; do
+    run_strength "$strength"
+done
@@ -0,0 +1,203 @@
+package com.example.onlinebankingapp.components;
+
+import com.example.onlinebankingapp.entities.BatchJobCheckpointEntity;
+import com.example.onlinebankingapp.enums.BatchJobStatus;
+import com.example.onlinebankingapp.repositories.BatchJobCheckpointRepository;
+import com.example.onlinebankingapp.utils.DateTimeUtils;
+import com.example.onlinebankingapp.utils.ThreadUtils;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Chunk-oriented batch runner: one reader thread pages keys, worker threads process and commit each chunk
+// Progress is checkpointed per committed chunk in batch_job_checkpoints (one row per job and day)
+// An interrupted or failed run of the day resumes reading after the last key of its committed prefix
+// Writers should make a committed item invisible to the reader (e.g. flip its status in the same transaction),
+// so items committed past a failed chunk are not processed twice on resume
+@Component
+public class ChunkedBatchRunner {
+    // Logger for logging events
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedBatchRunner.class);
+
+    private final BatchJobCheckpointRepository batchJobCheckpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService workerPool;
+    private final int workerCount;
+
+    public ChunkedBatchRunner(
+            BatchJobCheckpointRepository batchJobCheckpointRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${batch.workers:4}") int workerCount,
+            @Value("${spring.threads.virtual.enabled:false}") boolean isVirtualThreadsEnabled
+    ) {
+        this.batchJobCheckpointRepository = batchJobCheckpointRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workerCount = Math.max(1, workerCount);
+        this.workerPool = Executors.newFixedThreadPool(this.workerCount,
+                ThreadUtils.newThreadFactory("batch-worker-", isVirtualThreadsEnabled));
+    }
+
+    // Reads the next chunk of keys strictly greater than lastKey (null for the first chunk)
+    @FunctionalInterface
+    public interface ChunkReader {
+        List<Long> read(Long lastKey, int chunkSize);
+    }
+
+    // Processes and writes one chunk in its own transaction, returns the number of items written
+    @FunctionalInterface
+    public interface ChunkWriter {
+        int write(List<Long> keys);
+    }
+
+    public BatchJobCheckpointEntity run(
+            String jobName,
+            int chunkSize,
+            ChunkReader reader,
+            ChunkWriter writer
+    ) {
+        BatchJobCheckpointEntity checkpoint = startCheckpoint(jobName);
+        Long checkpointId = checkpoint.getId();
+        CommittedPrefix committedPrefix = new CommittedPrefix();
+
+        long startNanos = System.nanoTime();
+        AtomicLong processedCount = new AtomicLong();
+        AtomicLong failedChunkCount = new AtomicLong();
+
+        // Bound chunks in flight so the reader never runs far ahead of the workers
+        Semaphore inFlight = new Semaphore(workerCount * 2);
+        List<Future<?>> futures = new ArrayList<>();
+
+        Long lastKey = checkpoint.getLastReadKey();
+        List<Long> keys = reader.read(lastKey, chunkSize);
+        while (!keys.isEmpty()) {
+            List<Long> chunk = List.copyOf(keys);
+            Long chunkLastKey = chunk.get(chunk.size() - 1);
+            int chunkIndex = committedPrefix.add(chunkLastKey);
+
+            inFlight.acquireUninterruptibly();
+            futures.add(workerPool.submit(() -> {
+                try {
+                    int written = writer.write(chunk);
+                    processedCount.addAndGet(written);
+                    recordProgress(checkpointId, written, 0, committedPrefix.commit(chunkIndex));
+                } catch (RuntimeException e) {
+                    // Items of a failed chunk were rolled back and stay eligible: the committed prefix stops before it
+                    failedChunkCount.incrementAndGet();
+                    recordProgress(checkpointId, 0, 1, null);
+                    logger.error("Batch job {} failed a chunk ending at key {}", jobName, chunkLastKey, e);
+                } finally {
+                    inFlight.release();
+                }
+            }));
+
+            lastKey = chunkLastKey;
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+            keys = reader.read(lastKey, chunkSize);
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                // Already counted and logged by the worker
+            }
+        }
+
+        double elapsedSeconds = Math.max((System.nanoTime() - startNanos) / 1_000_000_000.0, 0.001);
+        double itemsPerSecond = processedCount.get() / elapsedSeconds;
+        BatchJobStatus jobStatus = failedChunkCount.get() == 0 ? BatchJobStatus.COMPLETED : BatchJobStatus.FAILED;
+
+        logger.info("Batch job {} {}: {} items, {} failed chunks, {} s, {} items/s",
+                jobName, jobStatus, processedCount.get(), failedChunkCount.get(),
+                String.format("%.3f", elapsedSeconds), String.format("%.1f", itemsPerSecond));
+
+        return finishCheckpoint(checkpointId, jobStatus, itemsPerSecond);
+    }
+
+    private BatchJobCheckpointEntity startCheckpoint(String jobName) {
+        return transactionTemplate.execute(status -> {
+            BatchJobCheckpointEntity checkpoint = batchJobCheckpointRepository
+                    .findByJobNameAndRunDate(jobName, DateTimeUtils.getVietnamCurrentDateTime().toLocalDate())
+                    .orElse(null);
+
+            if (checkpoint == null) {
+                checkpoint = BatchJobCheckpointEntity.builder()
+                        .jobName(jobName)
+                        .runDate(DateTimeUtils.getVietnamCurrentDateTime().toLocalDate())
+                        .processedCount(0L)
+                        .failedChunkCount(0L)
+                        .startedAt(DateTimeUtils.getVietnamCurrentDateTime())
+                        .build();
+            } else if (checkpoint.getJobStatus() == BatchJobStatus.COMPLETED) {
+                // Run again after a completed run of the day: read everything again
+                checkpoint.setLastReadKey(null);
+            } else {
+                logger.warn("Batch job {} was {} after {} items, resuming after key {}", jobName,
+                        checkpoint.getJobStatus() == BatchJobStatus.RUNNING ? "interrupted" : "failed",
+                        checkpoint.getProcessedCount(), checkpoint.getLastReadKey());
+            }
+
+            checkpoint.setJobStatus(BatchJobStatus.RUNNING);
+            checkpoint.setFinishedAt(null);
+            return batchJobCheckpointRepository.save(checkpoint);
+        });
+    }
+
+    private void recordProgress(Long checkpointId, long processed, long failedChunks, Long lastReadKey) {
+        transactionTemplate.executeWithoutResult(status ->
+                batchJobCheckpointRepository.addChunkProgress(checkpointId, processed, failedChunks, lastReadKey));
+    }
+
+    private BatchJobCheckpointEntity finishCheckpoint(Long checkpointId, BatchJobStatus jobStatus, double itemsPerSecond) {
+        return transactionTemplate.execute(status -> {
+            BatchJobCheckpointEntity checkpoint = batchJobCheckpointRepository.findById(checkpointId).orElseThrow();
+            checkpoint.setJobStatus(jobStatus);
+            checkpoint.setItemsPerSecond(itemsPerSecond);
+            checkpoint.setFinishedAt(DateTimeUtils.getVietnamCurrentDateTime());
+            return batchJobCheckpointRepository.save(checkpoint);
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workerPool.shutdown();
+    }
+
+    // Chunks of one run in reading order; they commit out of order on the workers, but a resumed run
+    // may only skip keys when every chunk up to them has committed
+    private static final class CommittedPrefix {
+        private final List<Long> chunkLastKeys = new ArrayList<>();
+        private final BitSet committedChunks = new BitSet();
+        private int prefixLength;
+
+        private synchronized int add(Long chunkLastKey) {
+            chunkLastKeys.add(chunkLastKey);
+            return chunkLastKeys.size() - 1;
+        }
+
+        // Returns the last key of the committed prefix, null when this chunk does not extend it
+        private synchronized Long commit(int chunkIndex) {
+            committedChunks.set(chunkIndex);
+            int previousLength = prefixLength;
+            while (committedChunks.get(prefixLength)) {
+                prefixLength++;
+            }
+            return prefixLength == previousLength ? null : chunkLastKeys.get(prefixLength - 1);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.onlinebankingapp.components;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Bounded TTL cache of validated access tokens -> principal
+// A hit skips JWT parsing, loadUserByUsername and the token lookup in the database
+// Entries are evicted by TokenRevocationService whenever a token is revoked, replaced or deleted, one token at a time
+@Component
+public class JwtAuthenticationCache {
+    private final Map<String, CachedAuthentication> cache = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private record CachedAuthentication(UserDetails principal, long expiresAtMillis) {
+        boolean isExpired(long nowMillis) {
+            return expiresAtMillis <= nowMillis;
+        }
+    }
+
+    public JwtAuthenticationCache(
+            @Value("${jwt.validation-cache.max-size:10000}") int maxSize,
+            @Value("${jwt.validation-cache.ttl-seconds:60}") long ttlSeconds
+    ) {
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlMillis = ttlSeconds * 1000L;
+    }
+
+    // Method to get the principal of a validated token, null on miss or expiry
+    public UserDetails get(String token) {
+        CachedAuthentication cachedAuthentication = cache.get(token);
+        if (cachedAuthentication == null) {
+            return null;
+        }
+        if (cachedAuthentication.isExpired(System.currentTimeMillis())) {
+            cache.remove(token, cachedAuthentication);
+            return null;
+        }
+        return cachedAuthentication.principal();
+    }
+
+    // Method to cache a validated token, never past the token's own expiration
+    public void put(String token, UserDetails principal, Date tokenExpiration) {
+        if (ttlMillis <= 0) {
+            return;
+        }
+        long nowMillis = System.currentTimeMillis();
+        long expiresAtMillis = Math.min(nowMillis + ttlMillis, tokenExpiration.getTime());
+        if (expiresAtMillis <= nowMillis) {
+            return;
+        }
+
+        if (cache.size() >= maxSize) {
+            makeRoom(nowMillis);
+        }
+        cache.put(token, new CachedAuthentication(principal, expiresAtMillis));
+    }
+
+    public void evictToken(String token) {
+        if (token != null) {
+            evictNowAndAfterCommit(() -> cache.remove(token));
+        }
+    }
+
+    // Evict again after commit: a request running before the commit still sees the token row
+    // in the database and may have cached it again
+    private void evictNowAndAfterCommit(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        }
+    }
+
+    // Drop expired entries first; if still full, drop entries until back under the bound
+    private void makeRoom(long nowMillis) {
+        cache.values().removeIf(cachedAuthentication -> cachedAuthentication.isExpired(nowMillis));
+        var iterator = cache.keySet().iterator();
+        while (cache.size() >= maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+}
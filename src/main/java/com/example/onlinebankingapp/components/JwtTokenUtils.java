@@ -7,10 +7,12 @@ import com.example.onlinebankingapp.exceptions.AppException;
 import com.example.onlinebankingapp.exceptions.ErrorCode;
 import com.example.onlinebankingapp.repositories.TokenCustomerRepository;
 import com.example.onlinebankingapp.repositories.TokenEmployeeRepository;
+import com.example.onlinebankingapp.services.TokenRevocation.TokenRevocationService;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.io.Encoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,6 +43,19 @@ public class JwtTokenUtils {
     // Repository for token-related operations
     private final TokenCustomerRepository tokenCustomerRepository;
     private final TokenEmployeeRepository tokenEmployeeRepository;
+    private final TokenRevocationService tokenRevocationService;
+
+    // Decoded once at startup instead of on every sign/parse
+    private Key signInKey;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    void initSignInKey() {
+        signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signInKey)
+                .build();
+    }
 
     // CUSTOMER
     // Method to generate a JWT token for a given customer
@@ -86,15 +101,7 @@ public class JwtTokenUtils {
     // Method to validate a JWT token for customer
     public boolean validateTokenForCustomer(String token, CustomerEntity customer) {
         try {
-            String subject = extractClaim(token, Claims::getSubject);
-            //subject is phoneNumber or email
-            TokenCustomerEntity existingToken = tokenCustomerRepository.findByToken(token);
-            if(existingToken == null || existingToken.isRevoked() == true
-//                    !customer.isActive()
-            ) {
-                return false;
-            }
-            return (subject.equals(customer.getEmail())) && !isTokenExpired(token);
+            return validateTokenForCustomer(token, extractAllClaims(token), customer);
         } catch (MalformedJwtException e) {
             logger.error("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
@@ -108,6 +115,26 @@ public class JwtTokenUtils {
         return false;
     }
 
+    // Method to validate a JWT token for customer with claims already parsed by the caller
+    public boolean validateTokenForCustomer(String token, Claims claims, CustomerEntity customer) {
+        //subject is phoneNumber or email
+        if (tokenRevocationService.isCoveredByIndex(claims.getExpiration())) {
+            // Every revocation of this token went through the in-memory index, no token table lookup
+            if (tokenRevocationService.isRevoked(token)) {
+                return false;
+            }
+        } else {
+            // Issued before the index was built: it may have been deleted while this node was down
+            TokenCustomerEntity existingToken = tokenCustomerRepository.findByToken(token);
+            if(existingToken == null || existingToken.isRevoked() == true
+//                    !customer.isActive()
+            ) {
+                return false;
+            }
+        }
+        return (claims.getSubject().equals(customer.getEmail())) && !isTokenExpired(claims);
+    }
+
     // EMPLOYEE
     // Method to generate a JWT token for a given employee
     public String generateTokenForEmployee(com.example.onlinebankingapp.entities.EmployeeEntity employee) {
@@ -152,15 +179,7 @@ public class JwtTokenUtils {
     // Method to validate a JWT token for employee
     public boolean validateTokenForEmployee(String token, EmployeeEntity employee) {
         try {
-            String subject = extractClaim(token, Claims::getSubject);
-            //subject is phoneNumber or email
-            TokenEmployeeEntity existingToken = tokenEmployeeRepository.findByToken(token);
-            if(existingToken == null || existingToken.isRevoked() == true
-//                    !customer.isActive()
-            ) {
-                return false;
-            }
-            return (subject.equals(employee.getEmail())) && !isTokenExpired(token);
+            return validateTokenForEmployee(token, extractAllClaims(token), employee);
         } catch (MalformedJwtException e) {
             logger.error("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
@@ -174,11 +193,30 @@ public class JwtTokenUtils {
         return false;
     }
 
+    // Method to validate a JWT token for employee with claims already parsed by the caller
+    public boolean validateTokenForEmployee(String token, Claims claims, EmployeeEntity employee) {
+        //subject is phoneNumber or email
+        if (tokenRevocationService.isCoveredByIndex(claims.getExpiration())) {
+            // Every revocation of this token went through the in-memory index, no token table lookup
+            if (tokenRevocationService.isRevoked(token)) {
+                return false;
+            }
+        } else {
+            // Issued before the index was built: it may have been deleted while this node was down
+            TokenEmployeeEntity existingToken = tokenEmployeeRepository.findByToken(token);
+            if(existingToken == null || existingToken.isRevoked() == true
+//                    !customer.isActive()
+            ) {
+                return false;
+            }
+        }
+        return (claims.getSubject().equals(employee.getEmail())) && !isTokenExpired(claims);
+    }
+
     // UTILS
     // Method to retrieve the signing key used for JWT tokens
     private Key getSignInKey() {
-        byte[] bytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(bytes);
+        return signInKey;
     }
 
     // Method to generate a secret key
@@ -190,11 +228,9 @@ public class JwtTokenUtils {
         return secretKey;
     }
 
-    // Method to extract all claims from a JWT token
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
+    // Method to extract all claims from a JWT token, verifying its signature (one parse)
+    public Claims extractAllClaims(String token) {
+        return jwtParser
                 .parseClaimsJws(token)
                 .getBody();
     }
@@ -207,8 +243,11 @@ public class JwtTokenUtils {
 
     // Method to check if a JWT token is expired
     public boolean isTokenExpired(String token) {
-        Date expirationDate = this.extractClaim(token, Claims::getExpiration);
-        return expirationDate.before(new Date());
+        return isTokenExpired(extractAllClaims(token));
+    }
+
+    private boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
     }
 
     // Method to get the subject from a JWT token
@@ -0,0 +1,71 @@
+package com.example.onlinebankingapp.components;
+
+import com.example.onlinebankingapp.exceptions.AppException;
+import com.example.onlinebankingapp.exceptions.ErrorCode;
+import jakarta.persistence.OptimisticLockException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+@Component
+public class RetryOnConflictExecutor {
+    // Logger for logging events
+    private static final Logger logger = LoggerFactory.getLogger(RetryOnConflictExecutor.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+
+    public RetryOnConflictExecutor(
+            PlatformTransactionManager transactionManager,
+            @Value("${retry.conflict.max-attempts:3}") int maxAttempts,
+            @Value("${retry.conflict.base-backoff-millis:20}") long baseBackoffMillis,
+            @Value("${retry.conflict.max-backoff-millis:200}") long maxBackoffMillis
+    ) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    // Method to run an action in its own transaction, retried when a @Version conflict is detected
+    // Each attempt re-reads the entities, so the action must not reuse entities loaded before the call
+    public <T> T execute(Supplier<T> action) {
+        // Already inside a transaction: the outer caller owns commit and retry
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                if (attempt >= maxAttempts) {
+                    logger.warn("Optimistic lock conflict not resolved after {} attempts", attempt);
+                    throw new AppException(ErrorCode.CONFLICT);
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    // Full jitter: sleep a random time up to base * 2^(attempt - 1), capped by max backoff
+    private void backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt - 1, 16));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppException(ErrorCode.CONFLICT);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.onlinebankingapp.config;
+
+import com.example.onlinebankingapp.services.Idempotency.IdempotencyStore;
+import com.example.onlinebankingapp.services.Idempotency.IdempotentRequest;
+import com.example.onlinebankingapp.services.Idempotency.LocalIdempotencyStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+// Idempotency store of this node; replace this bean with a shared store implementation when running several nodes
+@Configuration
+public class IdempotencyStoreConfig {
+    @Value("${idempotency.store.max-size:100000}")
+    private int maxSize;
+
+    @Bean
+    public IdempotencyStore<IdempotentRequest> idempotencyStore() {
+        return new LocalIdempotencyStore<>(maxSize);
+    }
+}
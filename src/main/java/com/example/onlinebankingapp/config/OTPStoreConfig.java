@@ -0,0 +1,26 @@
+package com.example.onlinebankingapp.config;
+
+import com.example.onlinebankingapp.dtos.requests.EmailandSMS.EmailOTPRequest;
+import com.example.onlinebankingapp.dtos.requests.EmailandSMS.SMSOTPRequest;
+import com.example.onlinebankingapp.services.VerificationServices.LocalOTPStore;
+import com.example.onlinebankingapp.services.VerificationServices.OTPStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// OTP stores of this node; replace these beans with shared store implementations when running several nodes
+@Configuration
+public class OTPStoreConfig {
+    @Value("${otp.store.max-size:100000}")
+    private int maxSize;
+
+    @Bean
+    public OTPStore<EmailOTPRequest> emailOTPStore() {
+        return new LocalOTPStore<>(maxSize);
+    }
+
+    @Bean
+    public OTPStore<SMSOTPRequest> smsOTPStore() {
+        return new LocalOTPStore<>(maxSize);
+    }
+}
@@ -5,6 +5,7 @@ import com.example.onlinebankingapp.entities.EmployeeEntity;
 import com.example.onlinebankingapp.repositories.CustomerRepository;
 import com.example.onlinebankingapp.repositories.EmployeeRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -36,6 +37,11 @@ import java.util.Optional;
 public class SecurityConfig {
     private final CustomerRepository customerRepository;
     private final EmployeeRepository employeeRepository;
+
+    // bcrypt cost factor of new hashes; raising it rehashes existing passwords at their next login
+    @Value("${security.password.bcrypt-strength:10}")
+    private int bcryptStrength;
+
     // Define a bean for UserDetailsService
     @Bean
     public UserDetailsService userDetailsService() {
@@ -66,7 +72,7 @@ public class SecurityConfig {
     // Define a bean for PasswordEncoder
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 
     // Define a bean for AuthenticationProvider
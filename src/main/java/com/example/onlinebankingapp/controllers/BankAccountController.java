@@ -6,7 +6,6 @@ import com.example.onlinebankingapp.dtos.responses.Bank.BankListResponse;
 import com.example.onlinebankingapp.dtos.responses.Bank.BankResponse;
 import com.example.onlinebankingapp.dtos.responses.BankAccount.BankAccountListResponse;
 import com.example.onlinebankingapp.dtos.responses.BankAccount.BankAccountsOfPAResponse;
-import com.example.onlinebankingapp.dtos.responses.SMSOTPResponse;
 import com.example.onlinebankingapp.entities.BankAccountEntity;
 import com.example.onlinebankingapp.dtos.responses.BankAccount.BankAccountResponse;
 import com.example.onlinebankingapp.dtos.responses.ResponseObject;
@@ -15,11 +14,10 @@ import com.example.onlinebankingapp.enums.OTPPurpose;
 import com.example.onlinebankingapp.exceptions.AppException;
 import com.example.onlinebankingapp.exceptions.ErrorCode;
 import com.example.onlinebankingapp.services.BankAccount.BankAccountService;
+import com.example.onlinebankingapp.services.Notification.NotificationService;
 import com.example.onlinebankingapp.services.VerificationServices.OTPService;
-import com.example.onlinebankingapp.services.VerificationServices.SMSService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -34,9 +32,7 @@ import java.util.Map;
 public class BankAccountController {
     private final BankAccountService bankAccountService;
     private final OTPService otpService;
-
-    @Autowired
-    private SMSService smsService;
+    private final NotificationService notificationService;
 
     // End point for send OTP and check bank account exist
     @PostMapping("/checkBankAccountExist/{bankName}")
@@ -64,10 +60,7 @@ public class BankAccountController {
         String content = "DO NOT share your OTP to avoid fraud. Your OTP to link your bank account and e-wallet payment account is: "
                 + OTP
                 + ". This number is only valid for 4 minutes.";
-        SMSOTPResponse smsotpResponse = smsService.sendSMSOTP(existingBankAccount.getPhoneNumber(), content);
-        if(!smsotpResponse.getStatus().equals("success")){
-            throw new AppException(ErrorCode.SMS_OTP_FAIL);
-        }
+        notificationService.enqueueSMS(existingBankAccount.getPhoneNumber(), content);
 
         //return response
         return ResponseEntity.ok(ResponseObject.builder()
@@ -3,7 +3,6 @@ package com.example.onlinebankingapp.controllers;
 import com.example.onlinebankingapp.dtos.requests.Customer.*;
 import com.example.onlinebankingapp.dtos.requests.LoginRequest;
 import com.example.onlinebankingapp.dtos.requests.RefreshTokenRequest;
-import com.example.onlinebankingapp.dtos.responses.SMSOTPResponse;
 import com.example.onlinebankingapp.entities.CustomerEntity;
 import com.example.onlinebankingapp.entities.TokenCustomerEntity;
 import com.example.onlinebankingapp.dtos.responses.Customer.CustomerListResponse;
@@ -14,15 +13,14 @@ import com.example.onlinebankingapp.enums.OTPPurpose;
 import com.example.onlinebankingapp.exceptions.AppException;
 import com.example.onlinebankingapp.exceptions.ErrorCode;
 import com.example.onlinebankingapp.services.Customer.CustomerService;
+import com.example.onlinebankingapp.services.Notification.NotificationService;
 import com.example.onlinebankingapp.services.PaymentAccount.PaymentAccountService;
 import com.example.onlinebankingapp.services.Token.TokenCustomerService;
-import com.example.onlinebankingapp.services.VerificationServices.EmailService;
 import com.example.onlinebankingapp.services.VerificationServices.OTPService;
-import com.example.onlinebankingapp.services.VerificationServices.SMSService;
+import com.example.onlinebankingapp.filters.PublicEndpoint;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.checkerframework.checker.units.qual.C;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -39,12 +37,10 @@ public class CustomerController {
     private final PaymentAccountService paymentAccountService;
     private final TokenCustomerService tokenCustomerService;
     private final OTPService otpService;
-    private final EmailService emailService;
-
-    @Autowired
-    private SMSService smsService;
+    private final NotificationService notificationService;
 
     // Fetch data for viewing when sign-up (ID card info) via clientSession
+    @PublicEndpoint
     @GetMapping("/getDataSignup")
     public ResponseEntity<?> getDataSignup(
             @Valid @RequestParam String clientSession
@@ -60,6 +56,7 @@ public class CustomerController {
     }
 
     // Insert a new customer into the system/ register account
+    @PublicEndpoint
     @PostMapping("/insertCustomer")
     public ResponseEntity<?> insertCustomer(
             @Valid @RequestBody CustomerRequest customerRequest
@@ -71,10 +68,7 @@ public class CustomerController {
                 OTPPurpose.SMS_CUSTOMER_SIGN_UP);
         String content = "Welcome to DNN e-wallet! Your OTP for account activation is: " + OTP + ". This number is only valid for 4 minutes.";
 
-        SMSOTPResponse smsotpResponse = smsService.sendSMSOTP(customerRequest.getPhoneNumber(), content);
-        if(!smsotpResponse.getStatus().equals("success")){
-            throw new AppException(ErrorCode.SMS_OTP_FAIL);
-        }
+        notificationService.enqueueSMS(customerRequest.getPhoneNumber(), content);
 
         // Insert a customer
         CustomerEntity customerEntityResponse = customerService.insertCustomer(customerRequest);
@@ -88,6 +82,7 @@ public class CustomerController {
     }
 
     // Require verify OTP to enable account
+    @PublicEndpoint
     @PostMapping("/insertCustomer/activeCustomerAccount")
     public ResponseEntity<?> activeCustomerAccount(
             @Valid @RequestBody CustomerActiveRequest customerActiveRequest
@@ -119,6 +114,7 @@ public class CustomerController {
     }
 
     // This endpoint perform login action
+    @PublicEndpoint
     @PostMapping("/login")
     public ResponseEntity<?> login (
             @Valid @RequestBody LoginRequest loginRequest,
@@ -150,6 +146,7 @@ public class CustomerController {
     }
 
     // Refresh an expired access token using a valid refresh token
+    @PublicEndpoint
     @PostMapping("/refreshToken")
     public ResponseEntity<?> refreshToken (
             @Valid @RequestBody RefreshTokenRequest refreshTokenRequest
@@ -267,7 +264,7 @@ public class CustomerController {
                 "DNN E-wallet Customer Support Team";
 
         // Activate email sending function
-        emailService.sendEmail(customerRequest.getEmail(), subject, emailBody);
+        notificationService.enqueueEmail(customerRequest.getEmail(), subject, emailBody);
 
         // Return response indicating OTP was sent
         return ResponseEntity.ok(ResponseObject.builder()
@@ -10,8 +10,9 @@ import com.example.onlinebankingapp.dtos.responses.Employee.EmployeeListResponse
 import com.example.onlinebankingapp.dtos.responses.Employee.EmployeeResponse;
 import com.example.onlinebankingapp.dtos.responses.ResponseObject;
 import com.example.onlinebankingapp.services.Employee.EmployeeServiceImpl;
+import com.example.onlinebankingapp.services.Notification.NotificationService;
 import com.example.onlinebankingapp.services.Token.TokenEmployeeService;
-import com.example.onlinebankingapp.services.VerificationServices.EmailService;
+import com.example.onlinebankingapp.filters.PublicEndpoint;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -28,9 +29,10 @@ import java.util.List;
 public class EmployeeController {
     private final EmployeeServiceImpl employeeService;
     private final TokenEmployeeService tokenEmployeeService;
-    private final EmailService emailService;
+    private final NotificationService notificationService;
 
     // Insert a new employee into the system/ register account (admin)
+    @PublicEndpoint
     @PostMapping("/insertEmployee")
     public ResponseEntity<?> insertEmployee(
             @Valid @RequestBody EmployeeRequest employeeRequest
@@ -54,7 +56,7 @@ public class EmployeeController {
                 "DNN E-wallet Human Resource Management Team";
 
         // Activate email sending function
-        emailService.sendEmail(employeeRequest.getEmail(), subject, emailBody);
+        notificationService.enqueueEmail(employeeRequest.getEmail(), subject, emailBody);
 
         // Return data in response
         return ResponseEntity.ok(ResponseObject.builder()
@@ -65,6 +67,7 @@ public class EmployeeController {
     }
 
     // Login as employee (admin/ staff)
+    @PublicEndpoint
     @PostMapping("/login")
     public ResponseEntity<?> login (
             @Valid @RequestBody LoginRequest loginRequest,
@@ -103,6 +106,7 @@ public class EmployeeController {
     }
 
     // Refresh an expired access token using a valid refresh token
+    @PublicEndpoint
     @PostMapping("/refreshToken")
     public ResponseEntity<?> refreshToken (
             @Valid @RequestBody RefreshTokenRequest refreshTokenRequest
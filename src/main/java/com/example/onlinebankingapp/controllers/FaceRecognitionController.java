@@ -11,6 +11,7 @@ import com.example.onlinebankingapp.repositories.CustomerRepository;
 import com.example.onlinebankingapp.services.Customer.CustomerService;
 import com.example.onlinebankingapp.services.IDCardExtraction.IDCardExtractionService;
 import com.example.onlinebankingapp.services.Token.TokenCustomerService;
+import com.example.onlinebankingapp.filters.PublicEndpoint;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -28,6 +29,7 @@ public class FaceRecognitionController {
 
     // Endpoint for login using FACE ID
     // Use clientSession (use to find existingCustomer with clientSession)
+    @PublicEndpoint
     @PostMapping("/uploadFile/loginFaceId")
     public ResponseEntity<?> loginFaceId(
             @RequestParam("file") MultipartFile file,
@@ -58,12 +58,15 @@ public class FirebaseImageController {
                 .build());
     }
 
+    // Optional size (SMALL = 64px, MEDIUM = 256px, LARGE = 1024px) returns a resized copy, for lists and thumbnails
+    // Without size, the original image is returned
     @GetMapping("/getCustomerAvatar/{customerId}")
     public ResponseEntity<?> getCustomerAvatar(
-            @PathVariable("customerId") long customerId
+            @PathVariable("customerId") long customerId,
+            @RequestParam(value = "size", required = false) String size
     ) {
         // Get customer avatar
-        FirebaseImageResponse firebaseImageResponse = firebaseImageService.getCustomerAvatar(customerId);
+        FirebaseImageResponse firebaseImageResponse = firebaseImageService.getCustomerAvatar(customerId, size);
 
         // Return data in response
         return ResponseEntity.ok(ResponseObject.builder()
@@ -75,10 +78,11 @@ public class FirebaseImageController {
 
     @GetMapping("/getRewardImage/{rewardId}")
     public ResponseEntity<?> getRewardImage(
-            @PathVariable("rewardId") long rewardId
+            @PathVariable("rewardId") long rewardId,
+            @RequestParam(value = "size", required = false) String size
     ) {
         // get reward image
-        FirebaseImageResponse firebaseImageResponse = firebaseImageService.getRewardImage(rewardId);
+        FirebaseImageResponse firebaseImageResponse = firebaseImageService.getRewardImage(rewardId, size);
 
         // Return data in response
         return ResponseEntity.ok(ResponseObject.builder()
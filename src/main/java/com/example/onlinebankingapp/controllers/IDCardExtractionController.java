@@ -3,18 +3,24 @@ package com.example.onlinebankingapp.controllers;
 import com.example.onlinebankingapp.dtos.responses.IDCardExtraction.AddFileResponse;
 import com.example.onlinebankingapp.dtos.responses.ResponseObject;
 import com.example.onlinebankingapp.services.IDCardExtraction.IDCardExtractionService;
+import com.example.onlinebankingapp.filters.PublicEndpoint;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+
 @RestController
 @RequestMapping("/api/idCardExtraction")
 @RequiredArgsConstructor
 public class IDCardExtractionController {
     private final IDCardExtractionService idCardExtractionService;
 
+    @PublicEndpoint
     @PostMapping("/uploadFile")
     public ResponseEntity<?> handleFileUpload(
             @RequestParam("file") MultipartFile file,
@@ -34,4 +40,30 @@ public class IDCardExtractionController {
                 .result(addFileResponse)
                 .build());
     }
+
+    // Same as uploadFile, but the image is the raw request body (Content-Type image/* or application/octet-stream)
+    // and the other fields are query parameters, so the image is streamed to eKYC without being buffered
+    @PublicEndpoint
+    @PostMapping(value = "/uploadFileStream", consumes = {
+            MediaType.IMAGE_JPEG_VALUE,
+            MediaType.IMAGE_PNG_VALUE,
+            "image/webp",
+            MediaType.APPLICATION_OCTET_STREAM_VALUE
+    })
+    public ResponseEntity<?> handleFileStreamUpload(
+            @RequestParam("title") String title,
+            @RequestParam("description") String description,
+            @RequestParam("clientSession") String clientSession,
+            @RequestParam(value = "fileName", required = false) String fileName,
+            HttpServletRequest request
+    ) throws IOException {
+        AddFileResponse addFileResponse = idCardExtractionService.addFileStream(request.getInputStream(),
+                request.getContentLengthLong(), fileName, title, description, clientSession);
+
+        return ResponseEntity.ok(ResponseObject.builder()
+                .status(HttpStatus.OK)
+                .message("Enable the customer account successfully. Now can login")
+                .result(addFileResponse)
+                .build());
+    }
 }
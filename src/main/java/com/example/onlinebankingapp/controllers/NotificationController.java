@@ -0,0 +1,29 @@
+package com.example.onlinebankingapp.controllers;
+
+import com.example.onlinebankingapp.dtos.responses.Notification.NotificationStatsResponse;
+import com.example.onlinebankingapp.dtos.responses.ResponseObject;
+import com.example.onlinebankingapp.services.Notification.NotificationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/notifications")
+@RequiredArgsConstructor
+public class NotificationController {
+    private final NotificationService notificationService;
+
+    // Endpoint for getting metric of the SMS/email dispatcher (queue depth, retries, dead letters)
+    @GetMapping("/getNotificationStats")
+    public ResponseEntity<?> getNotificationStats() {
+        NotificationStatsResponse notificationStatsResponse = notificationService.getNotificationStats();
+
+        // Return the response
+        return ResponseEntity.ok(ResponseObject.builder()
+                .status(HttpStatus.OK)
+                .message("Get notification stats successfully")
+                .result(notificationStatsResponse)
+                .build());
+    }
+}
@@ -2,7 +2,6 @@ package com.example.onlinebankingapp.controllers;
 
 import com.example.onlinebankingapp.dtos.requests.PaymentAccount.MoneyFlowRequest;
 import com.example.onlinebankingapp.dtos.requests.PaymentAccount.PaymentAccountRequest;
-import com.example.onlinebankingapp.dtos.responses.SMSOTPResponse;
 import com.example.onlinebankingapp.dtos.responses.Transaction.TransactionResponse;
 import com.example.onlinebankingapp.dtos.responses.TransactionCustomer.TransactionCustomerResponse;
 import com.example.onlinebankingapp.entities.*;
@@ -14,13 +13,13 @@ import com.example.onlinebankingapp.enums.OTPPurpose;
 import com.example.onlinebankingapp.exceptions.AppException;
 import com.example.onlinebankingapp.exceptions.ErrorCode;
 import com.example.onlinebankingapp.services.BankAccount.BankAccountService;
+import com.example.onlinebankingapp.services.Idempotency.IdempotencyService;
+import com.example.onlinebankingapp.services.Notification.NotificationService;
 import com.example.onlinebankingapp.services.PaymentAccount.PaymentAccountService;
 import com.example.onlinebankingapp.services.Transaction.TransactionService;
 import com.example.onlinebankingapp.services.VerificationServices.OTPService;
-import com.example.onlinebankingapp.services.VerificationServices.SMSService;
 import lombok.RequiredArgsConstructor;
 import jakarta.validation.Valid;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -37,9 +36,8 @@ public class PaymentAccountController {
     private final BankAccountService bankAccountService;
     private final TransactionService transactionService;
     private final OTPService otpService;
-
-    @Autowired
-    private SMSService smsService;
+    private final NotificationService notificationService;
+    private final IdempotencyService idempotencyService;
 
     // End point for inserting a payment account -> already has DEFAULT
     @PostMapping("/insertPaymentAccount/{customerId}")
@@ -205,10 +203,10 @@ public class PaymentAccountController {
             @Valid @PathVariable("bankName") String bankName,
             @Valid @RequestBody MoneyFlowRequest moneyFlowRequest
     ) {
-        double amountTopUp = moneyFlowRequest.getAmountOperationRequest().getAmount();
-        if(amountTopUp < 10000){
+        Money amountTopUp = moneyFlowRequest.getAmountOperationRequest().getAmount();
+        if(amountTopUp.isLessThan(Money.of(10000))){
             throw new AppException(ErrorCode.MINIMUM_ADD_MONEY);
-        } else if (amountTopUp > 50000000) {
+        } else if (amountTopUp.isGreaterThan(Money.of(50000000))) {
             throw new AppException(ErrorCode.MAXIMUM_ADD_MONEY);
         }
 
@@ -231,10 +229,7 @@ public class PaymentAccountController {
         String content = "DO NOT share your OTP with others to avoid fraud. The OTP for the transaction with the amount of "
                 + amountTopUp + "VND on bank " + bankName + " is: " + OTP;
 
-        SMSOTPResponse smsotpResponse = smsService.sendSMSOTP(existingBankAccount.getPhoneNumber(), content);
-        if(!smsotpResponse.getStatus().equals("success")){
-            throw new AppException(ErrorCode.SMS_OTP_FAIL);
-        }
+        notificationService.enqueueSMS(existingBankAccount.getPhoneNumber(), content);
 
         // Return a successful response
         return ResponseEntity.ok().body(ResponseObject.builder()
@@ -251,95 +246,99 @@ public class PaymentAccountController {
             @Valid @PathVariable("bankName") String bankName,
             @Valid @PathVariable("transactionId") Long transactionId,
             @Valid @RequestBody MoneyFlowRequest moneyFlowRequest,
-            @Valid @RequestParam Integer failTime
+            @Valid @RequestParam Integer failTime,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey
     ) {
-        double amountTopUp = moneyFlowRequest.getAmountOperationRequest().getAmount();
-
-        // Check existing bank account
-        BankAccountEntity existingBankAccount = bankAccountService
-                .checkBankAccountExist(moneyFlowRequest.getBankAccountRequest(), bankName);
-
-        // Call service layer to verify OTP via SMS
-        boolean isValid = otpService.verifyOTP("",
-                moneyFlowRequest.getBankAccountRequest().getPhoneNumber(),
-                moneyFlowRequest.getAmountOperationRequest().getOtp(),
-                OTPPurpose.SMS_PAYMENT_ACCOUNT_ADD_MONEY);
-
-        // Find existingPaymentAccount
-        PaymentAccountEntity existingPaymentAccount = existingBankAccount.getPaymentAccount();
-        CustomerEntity existingCustomer = existingPaymentAccount.getCustomer();
-        TransactionEntity existingTransaction = transactionService.getTransactionById(transactionId);
-
-        // Return response based on validation result
-        if (isValid) {
-            // Compare request top-up money with current balance in bankAcc
-            if(amountTopUp > existingBankAccount.getCurrentBalance()){
-                // Set transaction to FAIL
-                TransactionEntity failTransaction = transactionService
-                        .failAddMoneyToPA(existingCustomer, existingTransaction);
+        return idempotencyService.execute(idempotencyKey, "addMoneyToPaymentAccount/" + transactionId,
+                List.of(paymentAccountId, bankName, failTime, moneyFlowRequest), () -> {
+            Money amountTopUp = moneyFlowRequest.getAmountOperationRequest().getAmount();
+
+            // Check existing bank account
+            BankAccountEntity existingBankAccount = bankAccountService
+                    .checkBankAccountExist(moneyFlowRequest.getBankAccountRequest(), bankName);
+
+            // Call service layer to verify OTP via SMS
+            boolean isValid = otpService.verifyOTP("",
+                    moneyFlowRequest.getBankAccountRequest().getPhoneNumber(),
+                    moneyFlowRequest.getAmountOperationRequest().getOtp(),
+                    OTPPurpose.SMS_PAYMENT_ACCOUNT_ADD_MONEY);
+
+            // Find existingPaymentAccount
+            PaymentAccountEntity existingPaymentAccount = existingBankAccount.getPaymentAccount();
+            CustomerEntity existingCustomer = existingPaymentAccount.getCustomer();
+            TransactionEntity existingTransaction = transactionService.getTransactionById(transactionId);
+
+            // Return response based on validation result
+            if (isValid) {
+                // Compare request top-up money with current balance in bankAcc
+                if(amountTopUp.isGreaterThan(existingBankAccount.getCurrentBalance())){
+                    // Set transaction to FAIL
+                    TransactionEntity failTransaction = transactionService
+                            .failAddMoneyToPA(existingCustomer, existingTransaction);
+
+                    // Build response
+                    Map<String, Object> failedAddMoneyFromBAToPA = new HashMap<>();
+                    failedAddMoneyFromBAToPA.put("failTransaction", TransactionResponse.fromTransaction(failTransaction));
+                    failedAddMoneyFromBAToPA.put("paymentAccount", PaymentAccountResponse.fromPaymentAccount(existingPaymentAccount));
+
+                    return ResponseEntity.badRequest().body(ResponseObject.builder()
+                            .status(HttpStatus.BAD_REQUEST)
+                            .message("Verify wrong OTP for transaction exceed 3 times")
+                            .result("Fail to add money from BA to PA")
+                            .multiResult(failedAddMoneyFromBAToPA)
+                            .build());
+                }
+
+                // Perform the add money operation to specified PA from BA
+                PaymentAccountEntity paymentAccountResponse = paymentAccountService
+                        .addMoneyToPaymentAccount(paymentAccountId,
+                                bankName,
+                                moneyFlowRequest.getBankAccountRequest(),
+                                moneyFlowRequest.getAmountOperationRequest());
+
+                // Transaction
+                TransactionEntity completeAddMoneyFromBAToPA = transactionService
+                        .completeAddMoneyFromBAToPA(existingCustomer, existingTransaction);
 
                 // Build response
-                Map<String, Object> failedAddMoneyFromBAToPA = new HashMap<>();
-                failedAddMoneyFromBAToPA.put("failTransaction", TransactionResponse.fromTransaction(failTransaction));
-                failedAddMoneyFromBAToPA.put("paymentAccount", PaymentAccountResponse.fromPaymentAccount(existingPaymentAccount));
+                Map<String, Object> addMoneyFromBAToPA = new HashMap<>();
+                addMoneyFromBAToPA.put("completeTransaction", TransactionResponse.fromTransaction(completeAddMoneyFromBAToPA));
+                addMoneyFromBAToPA.put("paymentAccount", PaymentAccountResponse.fromPaymentAccount(paymentAccountResponse));
 
-                return ResponseEntity.badRequest().body(ResponseObject.builder()
-                        .status(HttpStatus.BAD_REQUEST)
-                        .message("Verify wrong OTP for transaction exceed 3 times")
-                        .result("Fail to add money from BA to PA")
-                        .multiResult(failedAddMoneyFromBAToPA)
+                // Return a successful response
+                return ResponseEntity.ok().body(ResponseObject.builder()
+                        .status(HttpStatus.OK)
+                        .message("Add money from bank account to payment account successfully")
+                        .multiResult(addMoneyFromBAToPA)
                         .build());
             }
-
-            // Perform the add money operation to specified PA from BA
-            PaymentAccountEntity paymentAccountResponse = paymentAccountService
-                    .addMoneyToPaymentAccount(paymentAccountId,
-                            bankName,
-                            moneyFlowRequest.getBankAccountRequest(),
-                            moneyFlowRequest.getAmountOperationRequest());
-
-            // Transaction
-            TransactionEntity completeAddMoneyFromBAToPA = transactionService
-                    .completeAddMoneyFromBAToPA(existingCustomer, existingTransaction);
-
-            // Build response
-            Map<String, Object> addMoneyFromBAToPA = new HashMap<>();
-            addMoneyFromBAToPA.put("completeTransaction", TransactionResponse.fromTransaction(completeAddMoneyFromBAToPA));
-            addMoneyFromBAToPA.put("paymentAccount", PaymentAccountResponse.fromPaymentAccount(paymentAccountResponse));
-
-            // Return a successful response
-            return ResponseEntity.ok().body(ResponseObject.builder()
-                    .status(HttpStatus.OK)
-                    .message("Add money from bank account to payment account successfully")
-                    .multiResult(addMoneyFromBAToPA)
-                    .build());
-        }
-        else {
-            // Check OTP verification 3 fails
-            if(failTime == 3){
-                // Set transaction to FAIL
-                TransactionEntity failTransaction = transactionService
-                        .failAddMoneyToPA(existingCustomer, existingTransaction);
-
-                // Build response
-                Map<String, Object> failedAddMoneyFromBAToPA = new HashMap<>();
-                failedAddMoneyFromBAToPA.put("failTransaction", TransactionResponse.fromTransaction(failTransaction));
-                failedAddMoneyFromBAToPA.put("paymentAccount", PaymentAccountResponse.fromPaymentAccount(existingPaymentAccount));
+            else {
+                // Check OTP verification 3 fails
+                if(failTime == 3){
+                    // Set transaction to FAIL
+                    TransactionEntity failTransaction = transactionService
+                            .failAddMoneyToPA(existingCustomer, existingTransaction);
+
+                    // Build response
+                    Map<String, Object> failedAddMoneyFromBAToPA = new HashMap<>();
+                    failedAddMoneyFromBAToPA.put("failTransaction", TransactionResponse.fromTransaction(failTransaction));
+                    failedAddMoneyFromBAToPA.put("paymentAccount", PaymentAccountResponse.fromPaymentAccount(existingPaymentAccount));
+
+                    return ResponseEntity.badRequest().body(ResponseObject.builder()
+                            .status(HttpStatus.BAD_REQUEST)
+                            .message("Verify wrong OTP for transaction exceed 3 times")
+                            .result("Fail to add money from BA to PA")
+                            .multiResult(failedAddMoneyFromBAToPA)
+                            .build());
+                }
 
                 return ResponseEntity.badRequest().body(ResponseObject.builder()
-                        .status(HttpStatus.BAD_REQUEST)
-                        .message("Verify wrong OTP for transaction exceed 3 times")
-                        .result("Fail to add money from BA to PA")
-                        .multiResult(failedAddMoneyFromBAToPA)
+                        .status(HttpStatus.UNAUTHORIZED)
+                        .message("Invalid OTP")
+                        .result("Invalid input OTP: " + moneyFlowRequest.getAmountOperationRequest().getOtp())
                         .build());
             }
-
-            return ResponseEntity.badRequest().body(ResponseObject.builder()
-                    .status(HttpStatus.UNAUTHORIZED)
-                    .message("Invalid OTP")
-                    .result("Invalid input OTP: " + moneyFlowRequest.getAmountOperationRequest().getOtp())
-                    .build());
-        }
+        });
     }
 
     // End point for withdrawing money from a payment account
@@ -348,26 +347,31 @@ public class PaymentAccountController {
     public ResponseEntity<?> withdrawFromPaymentAccount(
             @Valid @PathVariable("paymentAccountId") Long paymentAccountId,
             @Valid @PathVariable("bankName") String bankName,
-            @Valid @RequestBody MoneyFlowRequest moneyFlowRequest
+            @Valid @RequestBody MoneyFlowRequest moneyFlowRequest,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey
     ) {
-        if(moneyFlowRequest.getAmountOperationRequest().getAmount() < 50000){
-            throw new AppException(ErrorCode.MINIMUM_WITHDRAW_MONEY);
-        } else if (moneyFlowRequest.getAmountOperationRequest().getAmount() > 50000000) {
-            throw new AppException(ErrorCode.MAXIMUM_WITHDRAW_MONEY);
-        }
+        return idempotencyService.execute(idempotencyKey, "withdrawFromPaymentAccount/" + paymentAccountId,
+                List.of(bankName, moneyFlowRequest), () -> {
+            Money amountWithdraw = moneyFlowRequest.getAmountOperationRequest().getAmount();
+            if(amountWithdraw.isLessThan(Money.of(50000))){
+                throw new AppException(ErrorCode.MINIMUM_WITHDRAW_MONEY);
+            } else if (amountWithdraw.isGreaterThan(Money.of(50000000))) {
+                throw new AppException(ErrorCode.MAXIMUM_WITHDRAW_MONEY);
+            }
 
-        // Perform the withdrawal money operation from specified payment account
-        Map<String, Object> completedWithdrawMoneyFromPAToBA  = paymentAccountService
-                .withdrawFromPaymentAccount(paymentAccountId, bankName,
-                        moneyFlowRequest.getBankAccountRequest(),
-                        moneyFlowRequest.getAmountOperationRequest());
+            // Perform the withdrawal money operation from specified payment account
+            Map<String, Object> completedWithdrawMoneyFromPAToBA  = paymentAccountService
+                    .withdrawFromPaymentAccount(paymentAccountId, bankName,
+                            moneyFlowRequest.getBankAccountRequest(),
+                            moneyFlowRequest.getAmountOperationRequest());
 
-        // Return a successful response
-        return ResponseEntity.ok().body(ResponseObject.builder()
-                .status(HttpStatus.OK)
-                .message("Withdraw money from payment account to bank account successfully")
-                .result(completedWithdrawMoneyFromPAToBA)
-                .build());
+            // Return a successful response
+            return ResponseEntity.ok().body(ResponseObject.builder()
+                    .status(HttpStatus.OK)
+                    .message("Withdraw money from payment account to bank account successfully")
+                    .result(completedWithdrawMoneyFromPAToBA)
+                    .build());
+        });
     }
 
     // End point for update a payment account by id
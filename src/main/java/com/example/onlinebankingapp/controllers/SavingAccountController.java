@@ -1,7 +1,6 @@
 package com.example.onlinebankingapp.controllers;
 
 import com.example.onlinebankingapp.dtos.requests.SavingAccountRequest;
-import com.example.onlinebankingapp.dtos.responses.SMSOTPResponse;
 import com.example.onlinebankingapp.dtos.responses.Transaction.TransactionResponse;
 import com.example.onlinebankingapp.dtos.responses.TransactionCustomer.TransactionCustomerResponse;
 import com.example.onlinebankingapp.entities.*;
@@ -11,14 +10,14 @@ import com.example.onlinebankingapp.dtos.responses.SavingAccount.SavingAccountRe
 import com.example.onlinebankingapp.enums.OTPPurpose;
 import com.example.onlinebankingapp.exceptions.AppException;
 import com.example.onlinebankingapp.exceptions.ErrorCode;
+import com.example.onlinebankingapp.services.Idempotency.IdempotencyService;
+import com.example.onlinebankingapp.services.Notification.NotificationService;
 import com.example.onlinebankingapp.services.PaymentAccount.PaymentAccountService;
 import com.example.onlinebankingapp.services.SavingAccount.SavingAccountService;
 import com.example.onlinebankingapp.services.Transaction.TransactionService;
 import com.example.onlinebankingapp.services.VerificationServices.OTPService;
-import com.example.onlinebankingapp.services.VerificationServices.SMSService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 
@@ -34,9 +33,8 @@ public class SavingAccountController {
     private final PaymentAccountService paymentAccountService;
     private final TransactionService transactionService;
     private final OTPService otpService;
-
-    @Autowired
-    private SMSService smsService;
+    private final NotificationService notificationService;
+    private final IdempotencyService idempotencyService;
 
     // Endpoint for inserting a new saving account
     @PostMapping("/insertSavingAccount")
@@ -113,10 +111,7 @@ public class SavingAccountController {
                 + ". The transaction authentication number for the wallet is valid for only 4 minutes. "
                 + "DO NOT share your OTP with others to avoid fraud";
 
-        SMSOTPResponse smsotpResponse = smsService.sendSMSOTP(phoneTo, content);
-        if(!smsotpResponse.getStatus().equals("success")){
-            throw new AppException(ErrorCode.SMS_OTP_FAIL);
-        }
+        notificationService.enqueueSMS(phoneTo, content);
 
         // Return response
         return ResponseEntity.ok(ResponseObject.builder()
@@ -132,88 +127,96 @@ public class SavingAccountController {
             @Valid @PathVariable("savingAccountId") Long savingAccountId,
             @Valid @PathVariable("transactionId") Long transactionId,
             @Valid @RequestParam Integer failTime,
-            @Valid @RequestParam String otpTransfer
+            @Valid @RequestParam String otpTransfer,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey
     ) {
-        // Find customer phone number by payment account using PA id
-        SavingAccountEntity existingSavingAccount = savingAccountService.getSavingAccountById(savingAccountId);
-        PaymentAccountEntity existingPaymentAccount = paymentAccountService.getPaymentAccountById(existingSavingAccount.getPaymentAccount().getId());
-        CustomerEntity existingCustomer = existingPaymentAccount.getCustomer();
-
-        // Check transaction exist suitable for transfer money
-        TransactionEntity existingTransaction = transactionService.getTransactionById(transactionId);
-
-        // Call service layer to verify OTP via SMS
-        boolean isValid = otpService.verifyOTP("",
-                existingCustomer.getPhoneNumber(),
-                otpTransfer,
-                OTPPurpose.SMS_SAVING_ACCOUNT_ADD_MONEY);
-
-        // Return response based on validation result
-        if (isValid) {
-            // Perform the add money operation to specified SA from PA
-            SavingAccountEntity savingAccountResponse = savingAccountService
-                    .addMoneyToSavingAccount(savingAccountId, existingTransaction);
-
-            // Complete and update transfer money data
-            TransactionEntity completeAddMoneyFromPAToSA = transactionService
-                    .completeAddMoneyFromPAToSA(existingCustomer, existingTransaction);
-
-            // Build response
-            Map<String, Object> addMoneyFromPAToSA = new HashMap<>();
-            addMoneyFromPAToSA.put("completeTransaction", TransactionResponse.fromTransaction(completeAddMoneyFromPAToSA));
-            addMoneyFromPAToSA.put("savingAccount", SavingAccountResponse.fromSavingAccount(savingAccountResponse));
-
-            // Return a successful response
-            return ResponseEntity.ok().body(ResponseObject.builder()
-                    .status(HttpStatus.OK)
-                    .message("Add money from payment account to saving account successfully")
-                    .multiResult(addMoneyFromPAToSA)
-                    .build());
-        }
-        else {
-            // Check OTP verification 3 fails
-            if(failTime == 3){
-                // Set transaction to FAIL
-                TransactionEntity failTransaction = transactionService
-                        .failAddMoneyToSA(existingCustomer, existingTransaction);
+        return idempotencyService.execute(idempotencyKey, "verifyOTPForAddMoneyToSA/" + transactionId,
+                List.of(savingAccountId, failTime, otpTransfer), () -> {
+            // Find customer phone number by payment account using PA id
+            SavingAccountEntity existingSavingAccount = savingAccountService.getSavingAccountById(savingAccountId);
+            PaymentAccountEntity existingPaymentAccount = paymentAccountService.getPaymentAccountById(existingSavingAccount.getPaymentAccount().getId());
+            CustomerEntity existingCustomer = existingPaymentAccount.getCustomer();
+
+            // Check transaction exist suitable for transfer money
+            TransactionEntity existingTransaction = transactionService.getTransactionById(transactionId);
+
+            // Call service layer to verify OTP via SMS
+            boolean isValid = otpService.verifyOTP("",
+                    existingCustomer.getPhoneNumber(),
+                    otpTransfer,
+                    OTPPurpose.SMS_SAVING_ACCOUNT_ADD_MONEY);
+
+            // Return response based on validation result
+            if (isValid) {
+                // Perform the add money operation to specified SA from PA
+                SavingAccountEntity savingAccountResponse = savingAccountService
+                        .addMoneyToSavingAccount(savingAccountId, existingTransaction);
+
+                // Complete and update transfer money data
+                TransactionEntity completeAddMoneyFromPAToSA = transactionService
+                        .completeAddMoneyFromPAToSA(existingCustomer, existingTransaction);
 
                 // Build response
-                Map<String, Object> failedAddMoneyFromPAToSA = new HashMap<>();
-                failedAddMoneyFromPAToSA.put("failTransaction", TransactionResponse.fromTransaction(failTransaction));
-                failedAddMoneyFromPAToSA.put("savingAccount", SavingAccountResponse.fromSavingAccount(existingSavingAccount));
+                Map<String, Object> addMoneyFromPAToSA = new HashMap<>();
+                addMoneyFromPAToSA.put("completeTransaction", TransactionResponse.fromTransaction(completeAddMoneyFromPAToSA));
+                addMoneyFromPAToSA.put("savingAccount", SavingAccountResponse.fromSavingAccount(savingAccountResponse));
+
+                // Return a successful response
+                return ResponseEntity.ok().body(ResponseObject.builder()
+                        .status(HttpStatus.OK)
+                        .message("Add money from payment account to saving account successfully")
+                        .multiResult(addMoneyFromPAToSA)
+                        .build());
+            }
+            else {
+                // Check OTP verification 3 fails
+                if(failTime == 3){
+                    // Set transaction to FAIL
+                    TransactionEntity failTransaction = transactionService
+                            .failAddMoneyToSA(existingCustomer, existingTransaction);
+
+                    // Build response
+                    Map<String, Object> failedAddMoneyFromPAToSA = new HashMap<>();
+                    failedAddMoneyFromPAToSA.put("failTransaction", TransactionResponse.fromTransaction(failTransaction));
+                    failedAddMoneyFromPAToSA.put("savingAccount", SavingAccountResponse.fromSavingAccount(existingSavingAccount));
+
+                    return ResponseEntity.badRequest().body(ResponseObject.builder()
+                            .status(HttpStatus.BAD_REQUEST)
+                            .message("Verify wrong OTP for transaction exceed 3 times")
+                            .result("Fail to add money from PA to SA")
+                            .multiResult(failedAddMoneyFromPAToSA)
+                            .build());
+                }
 
                 return ResponseEntity.badRequest().body(ResponseObject.builder()
-                        .status(HttpStatus.BAD_REQUEST)
-                        .message("Verify wrong OTP for transaction exceed 3 times")
-                        .result("Fail to add money from PA to SA")
-                        .multiResult(failedAddMoneyFromPAToSA)
+                        .status(HttpStatus.UNAUTHORIZED)
+                        .message("Invalid OTP")
+                        .result("Invalid input OTP: " + otpTransfer)
                         .build());
             }
-
-            return ResponseEntity.badRequest().body(ResponseObject.builder()
-                    .status(HttpStatus.UNAUTHORIZED)
-                    .message("Invalid OTP")
-                    .result("Invalid input OTP: " + otpTransfer)
-                    .build());
-        }
+        });
     }
 
     // Endpoint for withdrawing money from a saving account to associated payment account
     // TRANSACTION for WITHDRAW_FROM_SA_TO_PA (Trans 10)
     @PutMapping("/withdrawSavingAccountToPA/{savingAccountId}")
     public ResponseEntity<?> withdrawSavingAccountToPA(
-            @Valid @PathVariable("savingAccountId") Long savingAccountId
-    ){
-        // Call service layer to withdraw a saving account
-        SavingAccountEntity existingSavingAccount = savingAccountService
-                .withdrawFromSavingAccount(savingAccountId);
+            @Valid @PathVariable("savingAccountId") Long savingAccountId,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey
+    ) {
+        return idempotencyService.execute(idempotencyKey, "withdrawSavingAccountToPA/" + savingAccountId,
+                List.of(), () -> {
+            // Call service layer to withdraw a saving account
+            SavingAccountEntity existingSavingAccount = savingAccountService
+                    .withdrawFromSavingAccount(savingAccountId);
 
-        // Return response
-        return ResponseEntity.ok().body(ResponseObject.builder()
-                .status(HttpStatus.OK)
-                .message("Withdraw SA with ID: " + savingAccountId + " to PA with ID: " + existingSavingAccount.getPaymentAccount().getId() + " successfully")
-                .result(SavingAccountResponse.fromSavingAccount(existingSavingAccount))
-                .build());
+            // Return response
+            return ResponseEntity.ok().body(ResponseObject.builder()
+                    .status(HttpStatus.OK)
+                    .message("Withdraw SA with ID: " + savingAccountId + " to PA with ID: " + existingSavingAccount.getPaymentAccount().getId() + " successfully")
+                    .result(SavingAccountResponse.fromSavingAccount(existingSavingAccount))
+                    .build());
+        });
     }
 
     // Endpoint for getting a saving account by its ID
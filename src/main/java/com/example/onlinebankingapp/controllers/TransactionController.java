@@ -6,29 +6,39 @@ import com.example.onlinebankingapp.dtos.requests.Transaction.TransactionToBA.Tr
 import com.example.onlinebankingapp.dtos.requests.Transaction.TransactionToBA.TransactionToBAFromPARequest;
 import com.example.onlinebankingapp.dtos.requests.Transaction.TransactionToPA.TransactionToPAFromBARequest;
 import com.example.onlinebankingapp.dtos.requests.Transaction.TransactionToPA.TransactionToPAFromPARequest;
-import com.example.onlinebankingapp.dtos.responses.SMSOTPResponse;
 import com.example.onlinebankingapp.dtos.responses.TransactionCustomer.TransactionCustomerListResponse;
 import com.example.onlinebankingapp.dtos.responses.TransactionCustomer.TransactionCustomerResponse;
+import com.example.onlinebankingapp.entities.BatchJobCheckpointEntity;
 import com.example.onlinebankingapp.entities.CustomerEntity;
+import com.example.onlinebankingapp.entities.EmployeeEntity;
+import com.example.onlinebankingapp.entities.Money;
 import com.example.onlinebankingapp.entities.TransactionCustomerEntity;
 import com.example.onlinebankingapp.entities.TransactionEntity;
 import com.example.onlinebankingapp.dtos.responses.ResponseObject;
+import com.example.onlinebankingapp.dtos.responses.Transaction.PendingSweepStatsResponse;
+import com.example.onlinebankingapp.dtos.responses.Transaction.TransactionHistoryPageResponse;
 import com.example.onlinebankingapp.dtos.responses.Transaction.TransactionListResponse;
 import com.example.onlinebankingapp.dtos.responses.Transaction.TransactionResponse;
+import com.example.onlinebankingapp.dtos.responses.TransferLock.StripeContentionResponse;
 import com.example.onlinebankingapp.enums.*;
 import com.example.onlinebankingapp.exceptions.AppException;
 import com.example.onlinebankingapp.exceptions.ErrorCode;
 import com.example.onlinebankingapp.services.Customer.CustomerService;
+import com.example.onlinebankingapp.services.Idempotency.IdempotencyService;
+import com.example.onlinebankingapp.services.Notification.NotificationService;
+import com.example.onlinebankingapp.services.PendingTransactionSweeper.PendingTransactionSweeperService;
+import com.example.onlinebankingapp.services.CustomerMonthlyTotal.CustomerMonthlyTotalService;
 import com.example.onlinebankingapp.services.Transaction.TransactionServiceImpl;
 import com.example.onlinebankingapp.services.VerificationServices.OTPService;
 import com.example.onlinebankingapp.services.Transaction.TransactionService;
-import com.example.onlinebankingapp.services.VerificationServices.SMSService;
+import com.example.onlinebankingapp.services.TransferLock.TransferLockService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -41,9 +51,11 @@ public class TransactionController {
     private final TransactionService transactionService;
     private final CustomerService customerService;
     private final OTPService otpService;
-
-    @Autowired
-    private SMSService smsService;
+    private final NotificationService notificationService;
+    private final IdempotencyService idempotencyService;
+    private final TransferLockService transferLockService;
+    private final CustomerMonthlyTotalService customerMonthlyTotalService;
+    private final PendingTransactionSweeperService pendingTransactionSweeperService;
 
     // OBJECTIVE for TRANSACTIONS TRACK HISTORY
     // TRANSACTION for ADD_FROM_BA_TO_SA (Trans 8)
@@ -98,9 +110,9 @@ public class TransactionController {
             @Valid @RequestBody TransactionRequest transactionRequest
     ) {
         // Ensure check transaction amount once again
-        if (transactionRequest.getAmount() < 2000) {
+        if (transactionRequest.getAmount().isLessThan(Money.of(2000))) {
             throw new AppException(ErrorCode.MINIMUM_OUT_TRANSFER_MONEY);
-        } else if (transactionRequest.getAmount() > 99999999) {
+        } else if (transactionRequest.getAmount().isGreaterThan(Money.of(99999999))) {
             throw new AppException(ErrorCode.MAXIMUM_OUT_TRANSFER_MONEY);
         }
 
@@ -243,10 +255,7 @@ public class TransactionController {
                 + ". The transaction authentication number for the wallet is valid for only 4 minutes. "
                 + "DO NOT share your OTP with others to avoid fraud";
 
-        SMSOTPResponse smsotpResponse = smsService.sendSMSOTP(existingCustomer.getPhoneNumber(), content);
-        if(!smsotpResponse.getStatus().equals("success")){
-            throw new AppException(ErrorCode.SMS_OTP_FAIL);
-        }
+        notificationService.enqueueSMS(existingCustomer.getPhoneNumber(), content);
 
         return ResponseEntity.ok(ResponseObject.builder()
                 .status(HttpStatus.OK)
@@ -274,53 +283,57 @@ public class TransactionController {
             @Valid @PathVariable("customerId") Long customerId,
             @Valid @PathVariable("transactionId") Long transactionId,
             @Valid @RequestParam Integer failTime,
-            @Valid @RequestParam String otpTransfer
+            @Valid @RequestParam String otpTransfer,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey
     ) {
-        // Check customer for phone number
-        CustomerEntity existingCustomer = customerService.getCustomerById(customerId);
-
-        // Check transaction exist suitable for transfer money
-        TransactionEntity existingTransaction = transactionService.getTransactionById(transactionId);
-
-        // Check transfer to WHO
-        OTPPurpose otpPurpose = OTPPurpose.SMS_TRANSFER_MONEY_TO_PA;
-        if(existingTransaction.getTransactionReceiverType().equals(TransactionReceiverType.BANK_ACCOUNT)){
-            otpPurpose = OTPPurpose.SMS_TRANSFER_MONEY_TO_BA;
-        }
-
-        // Call service layer to verify OTP via SMS
-        boolean isValid = otpService.verifyOTP("",
-                existingCustomer.getPhoneNumber(),
-                otpTransfer,
-                otpPurpose);
-
-        // Return response based on validation result
-        if (isValid) {
-            // Complete and update transfer money data
-            TransactionCustomerEntity transactionCustomerResponse = transactionService.completeTransferMoney(existingCustomer, existingTransaction);
-            String message = getMessageForVerification(transactionCustomerResponse);
-
-            // Return a successful response
-            return ResponseEntity.ok().body(ResponseObject.builder()
-                    .status(HttpStatus.OK)
-                    .message(message)
-                    .result(TransactionCustomerResponse.fromTransactionCustomer(transactionCustomerResponse))
-                    .build());
-        }
-        else {
-            // Check OTP verification 3 fails
-            if(failTime == 3){
-                // Set transaction to FAIL
-                transactionService.failTransferMoney(existingCustomer, existingTransaction);
-                throw new AppException(ErrorCode.TRANSACTION_FAIL);
+        return idempotencyService.execute(idempotencyKey, "verifyOTPForTransferMoney/" + transactionId,
+                List.of(customerId, failTime, otpTransfer), () -> {
+            // Check customer for phone number
+            CustomerEntity existingCustomer = customerService.getCustomerById(customerId);
+
+            // Check transaction exist suitable for transfer money
+            TransactionEntity existingTransaction = transactionService.getTransactionById(transactionId);
+
+            // Check transfer to WHO
+            OTPPurpose otpPurpose = OTPPurpose.SMS_TRANSFER_MONEY_TO_PA;
+            if(existingTransaction.getTransactionReceiverType().equals(TransactionReceiverType.BANK_ACCOUNT)){
+                otpPurpose = OTPPurpose.SMS_TRANSFER_MONEY_TO_BA;
             }
 
-            return ResponseEntity.badRequest().body(ResponseObject.builder()
-                    .status(HttpStatus.UNAUTHORIZED)
-                    .message("Invalid OTP. Failed to transfer money")
-                    .result("Invalid input OTP: " + otpTransfer)
-                    .build());
-        }
+            // Call service layer to verify OTP via SMS
+            boolean isValid = otpService.verifyOTP("",
+                    existingCustomer.getPhoneNumber(),
+                    otpTransfer,
+                    otpPurpose);
+
+            // Return response based on validation result
+            if (isValid) {
+                // Complete and update transfer money data
+                TransactionCustomerEntity transactionCustomerResponse = transactionService.completeTransferMoney(existingCustomer, existingTransaction);
+                String message = getMessageForVerification(transactionCustomerResponse);
+
+                // Return a successful response
+                return ResponseEntity.ok().body(ResponseObject.builder()
+                        .status(HttpStatus.OK)
+                        .message(message)
+                        .result(TransactionCustomerResponse.fromTransactionCustomer(transactionCustomerResponse))
+                        .build());
+            }
+            else {
+                // Check OTP verification 3 fails
+                if(failTime == 3){
+                    // Set transaction to FAIL
+                    transactionService.failTransferMoney(existingCustomer, existingTransaction);
+                    throw new AppException(ErrorCode.TRANSACTION_FAIL);
+                }
+
+                return ResponseEntity.badRequest().body(ResponseObject.builder()
+                        .status(HttpStatus.UNAUTHORIZED)
+                        .message("Invalid OTP. Failed to transfer money")
+                        .result("Invalid input OTP: " + otpTransfer)
+                        .build());
+            }
+        });
     }
 
     // Endpoint for getting a transaction by its ID
@@ -360,6 +373,54 @@ public class TransactionController {
                 .build());
     }
 
+    // Endpoint for getting lock contention of transfer stripes (hot accounts first)
+    @GetMapping("/getTransferLockContention")
+    public ResponseEntity<?> getTransferLockContention() {
+        List<StripeContentionResponse> stripeContentionResponseList = transferLockService.getStripeContention();
+
+        // Return the response
+        return ResponseEntity.ok(ResponseObject.builder()
+                .status(HttpStatus.OK)
+                .message("Get transfer lock contention successfully")
+                .result(stripeContentionResponseList)
+                .build());
+    }
+
+    // Endpoint for getting metric of the expired pending transaction sweeper
+    @GetMapping("/getPendingSweepStats")
+    public ResponseEntity<?> getPendingSweepStats() {
+        PendingSweepStatsResponse pendingSweepStatsResponse = pendingTransactionSweeperService.getSweepStats();
+
+        // Return the response
+        return ResponseEntity.ok(ResponseObject.builder()
+                .status(HttpStatus.OK)
+                .message("Get pending sweep stats successfully")
+                .result(pendingSweepStatsResponse)
+                .build());
+    }
+
+    // Endpoint for recomputing monthly totals of every customer from the transaction history
+    // It rewrites the rollup of every customer: employees only, a customer token gets FORBIDDEN
+    @PostMapping("/rebuildMonthlyTotals")
+    public ResponseEntity<?> rebuildMonthlyTotals() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof EmployeeEntity)) {
+            throw new AppException(ErrorCode.FORBIDDEN);
+        }
+
+        BatchJobCheckpointEntity checkpoint = customerMonthlyTotalService.rebuildMonthlyTotals();
+
+        // Return the response
+        return ResponseEntity.ok(ResponseObject.builder()
+                .status(HttpStatus.OK)
+                .message("Rebuild monthly totals " + checkpoint.getJobStatus())
+                .result(Map.of(
+                        "jobStatus", checkpoint.getJobStatus(),
+                        "processedCount", checkpoint.getProcessedCount(),
+                        "failedChunkCount", checkpoint.getFailedChunkCount()))
+                .build());
+    }
+
     // Endpoint for getting all transactions with pagination
     @GetMapping("/getPaginationListTransaction")
     public ResponseEntity<?> getPaginationListTransaction(
@@ -415,6 +476,32 @@ public class TransactionController {
                 .build());
     }
 
+    // Endpoint for retrieving transactions history page by page, pass next_cursor of a page to get the next one
+    @GetMapping("/getTransactionHistoryByCursor/{id}")
+    public ResponseEntity<?> getTransactionHistoryByCursor(
+            @Valid @PathVariable("id") Long customerId,
+            @RequestParam(value = "transactionTypes", required = false) List<TransactionType> transactionTypes,
+            @RequestParam(value = "transactionReceiverType", required = false) TransactionReceiverType transactionReceiverType,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor
+    ) {
+        // Check customer exist
+        CustomerEntity existingCustomer = customerService.getCustomerById(customerId);
+        if(!existingCustomer.isActive()){
+            throw new AppException(ErrorCode.USER_INACTIVE);
+        }
+
+        TransactionHistoryPageResponse transactionHistoryPage = transactionService
+                .getTransactionHistoryByCursor(existingCustomer, transactionTypes, transactionReceiverType, size, cursor);
+
+        // Return response
+        return ResponseEntity.ok(ResponseObject.builder()
+                .status(HttpStatus.OK)
+                .message("Get transactions history successfully")
+                .result(transactionHistoryPage)
+                .build());
+    }
+
     @NotNull
     private static String getMessageForVerification(
             TransactionCustomerEntity transactionCustomerResponse
@@ -523,16 +610,20 @@ public class TransactionController {
 
     @PostMapping("/insertRewardTransaction")
     public ResponseEntity<?> insertRewardTransaction(
-            @Valid @RequestBody AccountRewardRequest accountRewardDTO
+            @Valid @RequestBody AccountRewardRequest accountRewardDTO,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey
     ) {
-        // Use the requested reward
-        TransactionEntity transactionEntity = transactionService.insertRewardTransaction(accountRewardDTO);
+        return idempotencyService.execute(idempotencyKey, "insertRewardTransaction/" + accountRewardDTO.getPaymentAccountId(),
+                List.of(accountRewardDTO), () -> {
+            // Use the requested reward
+            TransactionEntity transactionEntity = transactionService.insertRewardTransaction(accountRewardDTO);
 
-        // Return the result in response
-        return ResponseEntity.ok(ResponseObject.builder()
-                .status(HttpStatus.OK)
-                .message("Insert reward transaction successfully")
-                .result(TransactionResponse.fromTransaction(transactionEntity))
-                .build());
+            // Return the result in response
+            return ResponseEntity.ok(ResponseObject.builder()
+                    .status(HttpStatus.OK)
+                    .message("Insert reward transaction successfully")
+                    .result(TransactionResponse.fromTransaction(transactionEntity))
+                    .build());
+        });
     }
 }
@@ -1,5 +1,6 @@
 package com.example.onlinebankingapp.dtos.requests.BankAccount;
 
+import com.example.onlinebankingapp.entities.Money;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 
@@ -22,7 +23,7 @@ public class BankAccountRequest {
     private String phoneNumber;
 
     @JsonProperty("current_balance")
-    private Double currentBalance;
+    private Money currentBalance;
 
     @JsonProperty("bank_id")
     private Long bankId;
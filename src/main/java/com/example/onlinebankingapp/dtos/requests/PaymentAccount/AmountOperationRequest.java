@@ -1,5 +1,6 @@
 package com.example.onlinebankingapp.dtos.requests.PaymentAccount;
 
+import com.example.onlinebankingapp.entities.Money;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 
@@ -9,7 +10,7 @@ import lombok.*;
 @NoArgsConstructor
 public class AmountOperationRequest {
     @JsonProperty("amount")
-    private double amount;
+    private Money amount;
 
     @JsonProperty("otp")
     private String otp;
@@ -1,6 +1,7 @@
 package com.example.onlinebankingapp.dtos.requests.PaymentAccount;
 
 import com.example.onlinebankingapp.dtos.requests.AbstractAccountRequest;
+import com.example.onlinebankingapp.entities.Money;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 
@@ -11,7 +12,7 @@ import lombok.*;
 @NoArgsConstructor
 public class PaymentAccountRequest extends AbstractAccountRequest {
     @JsonProperty("current_balance")
-    private Double currentBalance;
+    private Money currentBalance;
 
     @JsonProperty("reward_point")
     private Integer rewardPoint;
@@ -1,5 +1,6 @@
 package com.example.onlinebankingapp.dtos.requests;
 
+import com.example.onlinebankingapp.entities.Money;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 
@@ -10,10 +11,10 @@ import lombok.*;
 @NoArgsConstructor
 public class SavingAccountRequest extends AbstractAccountRequest {
     @JsonProperty("saving_current_amount")
-    private Double savingCurrentAmount;
+    private Money savingCurrentAmount;
 
     @JsonProperty("saving_initial_amount")
-    private Double savingInitialAmount;
+    private Money savingInitialAmount;
 
     @JsonProperty("payment_account_id")
     private Long paymentAccountId;
@@ -1,5 +1,6 @@
 package com.example.onlinebankingapp.dtos.requests.Transaction;
 
+import com.example.onlinebankingapp.entities.Money;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 
@@ -17,7 +18,7 @@ public class TransactionRequest {
     @JsonProperty("amount_type")
     private String amountType;
 
-    private Double amount;
+    private Money amount;
 
     @JsonProperty("transaction_date_time")
     private LocalDateTime transactionDateTime;
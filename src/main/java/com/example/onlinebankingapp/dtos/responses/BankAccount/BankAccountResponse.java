@@ -1,6 +1,7 @@
 package com.example.onlinebankingapp.dtos.responses.BankAccount;
 
 import com.example.onlinebankingapp.entities.BankAccountEntity;
+import com.example.onlinebankingapp.entities.Money;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 
@@ -25,7 +26,7 @@ public class BankAccountResponse {
     private String phoneNumber;
 
     @JsonProperty("current_balance")
-    private Double currentBalance;
+    private Money currentBalance;
 
     @JsonProperty("bank_id")
     private Long bankId;
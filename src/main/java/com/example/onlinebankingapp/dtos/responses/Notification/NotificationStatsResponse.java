@@ -0,0 +1,25 @@
+package com.example.onlinebankingapp.dtos.responses.Notification;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+@AllArgsConstructor
+@Data
+@Builder
+@NoArgsConstructor
+public class NotificationStatsResponse {
+    @JsonProperty("queued_count")
+    private Integer queuedCount;
+
+    @JsonProperty("sent_count")
+    private Long sentCount;
+
+    @JsonProperty("retried_count")
+    private Long retriedCount;
+
+    @JsonProperty("dead_letter_count")
+    private Long deadLetterCount;
+
+    @JsonProperty("rejected_count")
+    private Long rejectedCount;
+}
@@ -1,6 +1,7 @@
 package com.example.onlinebankingapp.dtos.responses.PaymentAccount;
 
 import com.example.onlinebankingapp.entities.PaymentAccountEntity;
+import com.example.onlinebankingapp.entities.Money;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 
@@ -30,7 +31,7 @@ public class PaymentAccountResponse {
     private LocalDateTime dateOpened;
 
     @JsonProperty("current_balance")
-    private Double currentBalance;
+    private Money currentBalance;
 
     @JsonProperty("reward_point")
     private Integer rewardPoint;
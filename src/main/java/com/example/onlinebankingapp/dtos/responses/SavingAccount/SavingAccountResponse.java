@@ -1,6 +1,7 @@
 package com.example.onlinebankingapp.dtos.responses.SavingAccount;
 
 import com.example.onlinebankingapp.entities.SavingAccountEntity;
+import com.example.onlinebankingapp.entities.Money;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 
@@ -30,10 +31,10 @@ public class SavingAccountResponse {
     private LocalDateTime dateOpened;
 
     @JsonProperty("saving_current_amount")
-    private Double savingCurrentAmount;
+    private Money savingCurrentAmount;
 
     @JsonProperty("saving_initial_amount")
-    private Double savingInitialAmount;
+    private Money savingInitialAmount;
 
     @JsonProperty("payment_account_id")
     private Long paymentAccountId;
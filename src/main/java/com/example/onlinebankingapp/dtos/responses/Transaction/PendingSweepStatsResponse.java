@@ -0,0 +1,30 @@
+package com.example.onlinebankingapp.dtos.responses.Transaction;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@AllArgsConstructor
+@Data
+@Builder
+@NoArgsConstructor
+public class PendingSweepStatsResponse {
+    @JsonProperty("run_count")
+    private Long runCount;
+
+    @JsonProperty("total_swept_count")
+    private Long totalSweptCount;
+
+    @JsonProperty("last_swept_count")
+    private Long lastSweptCount;
+
+    @JsonProperty("last_batch_count")
+    private Long lastBatchCount;
+
+    @JsonProperty("last_run_millis")
+    private Long lastRunMillis;
+
+    @JsonProperty("last_run_at")
+    private LocalDateTime lastRunAt;
+}
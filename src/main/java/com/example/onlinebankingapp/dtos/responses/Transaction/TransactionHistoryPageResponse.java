@@ -0,0 +1,21 @@
+package com.example.onlinebankingapp.dtos.responses.Transaction;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Data
+@Builder
+@NoArgsConstructor
+public class TransactionHistoryPageResponse {
+    private List<TransactionResponse> transactions;
+
+    // Opaque token to pass back as "cursor" for the next page, null on the last page
+    @JsonProperty("next_cursor")
+    private String nextCursor;
+
+    @JsonProperty("has_more")
+    private boolean hasMore;
+}
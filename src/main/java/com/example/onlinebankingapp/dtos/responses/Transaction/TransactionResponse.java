@@ -1,6 +1,7 @@
 package com.example.onlinebankingapp.dtos.responses.Transaction;
 
 import com.example.onlinebankingapp.entities.TransactionEntity;
+import com.example.onlinebankingapp.entities.Money;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 
@@ -20,7 +21,7 @@ public class TransactionResponse {
     @JsonProperty("amount_type")
     private String amountType;
 
-    private Double amount;
+    private Money amount;
 
     @JsonProperty("transaction_date_time")
     private LocalDateTime transactionDateTime;
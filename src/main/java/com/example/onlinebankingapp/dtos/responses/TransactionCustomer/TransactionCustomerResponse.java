@@ -1,6 +1,7 @@
 package com.example.onlinebankingapp.dtos.responses.TransactionCustomer;
 
 import com.example.onlinebankingapp.entities.*;
+import com.example.onlinebankingapp.entities.Money;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 
@@ -24,7 +25,7 @@ public class TransactionCustomerResponse {
     @JsonProperty("amount_type")
     private String amountType;
 
-    private Double amount;
+    private Money amount;
 
     @JsonProperty("transaction_date_time")
     private LocalDateTime transactionDateTime;
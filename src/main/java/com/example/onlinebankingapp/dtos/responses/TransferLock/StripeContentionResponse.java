@@ -0,0 +1,24 @@
+package com.example.onlinebankingapp.dtos.responses.TransferLock;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+@AllArgsConstructor
+@Data
+@Builder
+@NoArgsConstructor
+public class StripeContentionResponse {
+    private Integer stripe;
+
+    @JsonProperty("acquired_count")
+    private Long acquiredCount;
+
+    @JsonProperty("contended_count")
+    private Long contendedCount;
+
+    @JsonProperty("timeout_count")
+    private Long timeoutCount;
+
+    @JsonProperty("total_wait_millis")
+    private Long totalWaitMillis;
+}
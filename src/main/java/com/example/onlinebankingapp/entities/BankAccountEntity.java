@@ -17,6 +17,11 @@ public class BankAccountEntity {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Optimistic locking: concurrent updates of the same account fail instead of overwriting each other
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     @Column(name = "bank_account_number", nullable = false)
     private String bankAccountNumber;
 
@@ -29,8 +34,8 @@ public class BankAccountEntity {
     @Column(name="phone_number", length = 10, nullable = false)
     private String phoneNumber;
 
-    @Column(name = "current_balance", nullable = false)
-    private Double currentBalance;
+    @Column(name = "current_balance", nullable = false, precision = 19, scale = Money.SCALE)
+    private Money currentBalance;
 
     @ManyToOne(cascade = CascadeType.DETACH, fetch = FetchType.LAZY)
     @JoinColumn(name = "bank_id")
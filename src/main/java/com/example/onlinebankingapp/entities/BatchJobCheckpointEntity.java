@@ -0,0 +1,52 @@
+package com.example.onlinebankingapp.entities;
+
+import com.example.onlinebankingapp.enums.BatchJobStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@SuperBuilder
+@Table(name ="batch_job_checkpoints",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"job_name", "run_date"}))
+public class BatchJobCheckpointEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_name", length = 100, nullable = false)
+    private String jobName;
+
+    @Column(name = "run_date", nullable = false)
+    private LocalDate runDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "job_status", nullable = false)
+    private BatchJobStatus jobStatus;
+
+    // Last key of the committed prefix: every chunk up to it has committed, an interrupted run resumes after it
+    @Column(name = "last_read_key")
+    private Long lastReadKey;
+
+    @Column(name = "processed_count", nullable = false)
+    private Long processedCount;
+
+    @Column(name = "failed_chunk_count", nullable = false)
+    private Long failedChunkCount;
+
+    @Column(name = "items_per_second")
+    private Double itemsPerSecond;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,53 @@
+package com.example.onlinebankingapp.entities;
+
+import com.example.onlinebankingapp.enums.MonthlyTotalDirection;
+import com.example.onlinebankingapp.enums.TransactionType;
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+// Rollup of COMPLETED transactions per customer, month, direction and type
+// EXPENSE rows belong to the sender customer, INCOME rows to the receiver customer
+// Category is the reward type of REDEEM_REWARD transactions, NONE otherwise
+@Getter
+@Setter
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@SuperBuilder
+@Table(name ="customer_monthly_totals",
+        uniqueConstraints = @UniqueConstraint(columnNames = {
+                "customer_id", "total_year", "total_month", "direction", "transaction_type", "category"}))
+public class CustomerMonthlyTotalEntity {
+    public static final String CATEGORY_NONE = "NONE";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "customer_id", nullable = false)
+    private Long customerId;
+
+    @Column(name = "total_year", nullable = false)
+    private Integer totalYear;
+
+    @Column(name = "total_month", nullable = false)
+    private Integer totalMonth;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "direction", nullable = false)
+    private MonthlyTotalDirection direction;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "transaction_type", nullable = false)
+    private TransactionType transactionType;
+
+    @Column(name = "category", length = 50, nullable = false)
+    private String category;
+
+    @Column(name = "total_amount", nullable = false, precision = 19, scale = Money.SCALE)
+    private Money totalAmount;
+
+    @Column(name = "transaction_count", nullable = false)
+    private Long transactionCount;
+}
@@ -0,0 +1,33 @@
+package com.example.onlinebankingapp.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+// One stored image file, addressed by the SHA-256 of its content
+// Customers and rewards uploading identical bytes share the file, it is deleted when the last of them lets go
+@Getter
+@Setter
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@SuperBuilder
+@Table(name ="image_blobs",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"content_key"}))
+public class ImageBlobEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Bucket folder + content hash + file extension, e.g. rewardImages/<sha256>.png
+    @Column(name = "content_key", length = 300, nullable = false)
+    private String contentKey;
+
+    // Name of the stored file in the bucket folder, null until the content is first stored
+    @Column(name = "file_name", length = 300)
+    private String fileName;
+
+    // 0 means the file is not stored (never, or deleted with its last reference); the row is kept for reuse
+    @Column(name = "reference_count", nullable = false)
+    private Long referenceCount;
+}
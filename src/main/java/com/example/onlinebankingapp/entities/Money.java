@@ -0,0 +1,159 @@
+package com.example.onlinebankingapp.entities;
+
+import com.example.onlinebankingapp.exceptions.AppException;
+import com.example.onlinebankingapp.exceptions.ErrorCode;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Fixed-point amount of VND kept as a long number of minor units (1/100 VND)
+// Exact addition/subtraction, no boxing of Double in balance arithmetic
+@JsonSerialize(using = Money.MoneyJsonSerializer.class)
+@JsonDeserialize(using = Money.MoneyJsonDeserializer.class)
+public final class Money implements Comparable<Money>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int SCALE = 2;
+    private static final long MINOR_UNITS_PER_UNIT = 100L;
+
+    public static final Money ZERO = new Money(0L);
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    public static Money ofMinorUnits(long minorUnits) {
+        return minorUnits == 0L ? ZERO : new Money(minorUnits);
+    }
+
+    public static Money of(long units) {
+        return ofMinorUnits(Math.multiplyExact(units, MINOR_UNITS_PER_UNIT));
+    }
+
+    public static Money of(BigDecimal amount) {
+        return ofMinorUnits(amount.setScale(SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact());
+    }
+
+    // Only for values coming from floating point sources (rates, legacy inputs)
+    public static Money of(double amount) {
+        return of(BigDecimal.valueOf(amount));
+    }
+
+    // Method to read a SUM/aggregate column, which may come back converted or as a raw number
+    public static Money fromAggregate(Object value) {
+        if (value == null) {
+            return ZERO;
+        }
+        if (value instanceof Money money) {
+            return money;
+        }
+        if (value instanceof BigDecimal decimal) {
+            return of(decimal);
+        }
+        return of(new BigDecimal(value.toString()));
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    public double doubleValue() {
+        return (double) minorUnits / MINOR_UNITS_PER_UNIT;
+    }
+
+    public Money plus(Money other) {
+        return ofMinorUnits(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return ofMinorUnits(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    // Method to multiply by a rate given as a fraction (daily interest: annual rate (%) / (100 * days in year))
+    // Exact decimal arithmetic, rounded half-even to a minor unit; the bulk accrual in SQL rounds the same way
+    public Money multiply(BigDecimal numerator, BigDecimal denominator) {
+        return ofMinorUnits(BigDecimal.valueOf(minorUnits)
+                .multiply(numerator)
+                .divide(denominator, 0, RoundingMode.HALF_EVEN)
+                .longValueExact());
+    }
+
+    public boolean isZero() {
+        return minorUnits == 0L;
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0L;
+    }
+
+    public boolean isPositive() {
+        return minorUnits > 0L;
+    }
+
+    public boolean isLessThan(Money other) {
+        return minorUnits < other.minorUnits;
+    }
+
+    public boolean isGreaterThan(Money other) {
+        return minorUnits > other.minorUnits;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money other && minorUnits == other.minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+
+    // Written as a plain JSON number (e.g. 150000.50), same shape as the old Double fields
+    public static class MoneyJsonSerializer extends JsonSerializer<Money> {
+        @Override
+        public void serialize(Money value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeNumber(value.toBigDecimal());
+        }
+    }
+
+    // Accepts a JSON number or a numeric string; anything else, or an amount too large, is INVALID_AMOUNT (400)
+    public static class MoneyJsonDeserializer extends JsonDeserializer<Money> {
+        @Override
+        public Money deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            try {
+                BigDecimal amount = parser.currentToken().isNumeric()
+                        ? parser.getDecimalValue()
+                        : new BigDecimal(parser.getText().trim());
+                return Money.of(amount);
+            } catch (NumberFormatException | ArithmeticException e) {
+                throw new AppException(ErrorCode.INVALID_AMOUNT);
+            }
+        }
+    }
+}
@@ -16,8 +16,13 @@ public class PaymentAccountEntity extends AbstractAccount {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name = "current_balance", nullable = false)
-    private Double currentBalance;
+    // Optimistic locking: concurrent updates of the same account fail instead of overwriting each other
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
+    @Column(name = "current_balance", nullable = false, precision = 19, scale = Money.SCALE)
+    private Money currentBalance;
 
     @Column(name = "reward_point", nullable = false)
     private Integer rewardPoint;
@@ -28,7 +33,7 @@ public class PaymentAccountEntity extends AbstractAccount {
 
     protected void onCreate() {
         super.onCreate();
-        currentBalance = (double) 0;
+        currentBalance = Money.ZERO;
         rewardPoint = 0;
     }
 }
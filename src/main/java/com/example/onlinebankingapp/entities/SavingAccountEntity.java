@@ -10,17 +10,23 @@ import lombok.experimental.SuperBuilder;
 @NoArgsConstructor
 @AllArgsConstructor
 @SuperBuilder
-@Table(name ="saving_accounts")
+@Table(name ="saving_accounts",
+        indexes = @Index(name = "idx_saving_accounts_status_date_closed", columnList = "account_status, date_closed"))
 public class SavingAccountEntity extends AbstractAccount{
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name="saving_current_amount", nullable = false)
-    private Double savingCurrentAmount;
+    // Optimistic locking: concurrent updates of the same account fail instead of overwriting each other
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
 
-    @Column(name="saving_initial_amount", nullable = false)
-    private Double savingInitialAmount;
+    @Column(name="saving_current_amount", nullable = false, precision = 19, scale = Money.SCALE)
+    private Money savingCurrentAmount;
+
+    @Column(name="saving_initial_amount", nullable = false, precision = 19, scale = Money.SCALE)
+    private Money savingInitialAmount;
 
     @ManyToOne(cascade = CascadeType.DETACH, fetch = FetchType.LAZY)
     @JoinColumn(name = "payment_account_id")
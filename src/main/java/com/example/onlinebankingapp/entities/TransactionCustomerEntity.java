@@ -12,7 +12,11 @@ import java.io.Serializable;
 @NoArgsConstructor
 @AllArgsConstructor
 @SuperBuilder
-@Table(name ="transactions_of_customers")
+@Table(name ="transactions_of_customers",
+        indexes = {
+                @Index(name = "idx_transactions_of_customers_customer_transaction", columnList = "customer_id, transaction_id"),
+                @Index(name = "idx_transactions_of_customers_receiver_transaction", columnList = "receiver_id, transaction_id")
+        })
 public class TransactionCustomerEntity {
     @EmbeddedId
     private TransactionCustomer transactionCustomerKey;
@@ -14,7 +14,11 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @SuperBuilder
-@Table(name ="transactions")
+@Table(name ="transactions",
+        indexes = {
+                @Index(name = "idx_transactions_date_time_id", columnList = "transaction_date_time DESC, id DESC"),
+                @Index(name = "idx_transactions_status_date_time", columnList = "transaction_status, transaction_date_time")
+        })
 public class TransactionEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -28,8 +32,8 @@ public class TransactionEntity {
     @Column(name = "amount_type", nullable = false)
     private AmountType amountType;
 
-    @Column(name = "amount", nullable = false)
-    private Double amount;
+    @Column(name = "amount", nullable = false, precision = 19, scale = Money.SCALE)
+    private Money amount;
 
     @Column(name="transaction_date_time", nullable = false)
     private LocalDateTime transactionDateTime;
@@ -55,6 +59,11 @@ public class TransactionEntity {
     @Column(name = "transaction_receiver_type", nullable = false)
     private TransactionReceiverType transactionReceiverType;
 
+    // Customer owning the receiver account, resolved once when the transaction is created
+    // 0 when the receiver is not a customer account, null for transactions created before this column
+    @Column(name = "receiver_customer_id")
+    private Long receiverCustomerId;
+
     @PrePersist
     protected void onCreate() {
         transactionDateTime = DateTimeUtils.getVietnamCurrentDateTime();
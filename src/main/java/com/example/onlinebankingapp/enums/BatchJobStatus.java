@@ -0,0 +1,7 @@
+package com.example.onlinebankingapp.enums;
+
+public enum BatchJobStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
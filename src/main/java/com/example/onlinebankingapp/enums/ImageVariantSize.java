@@ -0,0 +1,18 @@
+package com.example.onlinebankingapp.enums;
+
+// Resized copies stored next to every uploaded image, by the length of their longest side in pixels
+public enum ImageVariantSize {
+    SMALL(64),
+    MEDIUM(256),
+    LARGE(1024);
+
+    private final int maxDimension;
+
+    ImageVariantSize(int maxDimension) {
+        this.maxDimension = maxDimension;
+    }
+
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.onlinebankingapp.enums;
+
+public enum MonthlyTotalDirection {
+    EXPENSE,
+    INCOME
+}
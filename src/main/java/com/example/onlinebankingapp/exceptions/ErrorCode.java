@@ -50,6 +50,7 @@ public enum ErrorCode {
     IMAGE_CUSTOM_NAME_INVALID(400, "Cannot create custom name for image file", HttpStatus.BAD_REQUEST),
     IMAGE_UPLOAD_FAILED(400, "Failed to upload image file to Firebase", HttpStatus.BAD_REQUEST),
     IMAGE_RETRIEVE_FAILED(400, "Failed to retrieve image file from Firebase", HttpStatus.BAD_REQUEST),
+    IMAGE_VARIANT_SIZE_INVALID(400, "The size of image must be in: SMALL, MEDIUM, LARGE", HttpStatus.BAD_REQUEST),
 
     //Custom Not Found
     USER_NOT_FOUND(404, "User does not exists", HttpStatus.NOT_FOUND),
@@ -73,6 +74,8 @@ public enum ErrorCode {
 
     //Custom Unauthorized
     PASSWORD_INCORRECT(401, "Username or password is incorrect", HttpStatus.UNAUTHORIZED),
+    LOGIN_TOO_MANY_ATTEMPTS(429, "Too many failed login attempts, please try again later", HttpStatus.TOO_MANY_REQUESTS),
+    LOGIN_BUSY(503, "Too many logins in progress, please try again later", HttpStatus.SERVICE_UNAVAILABLE),
     TOKEN_EXPIRED(401, "Token is expired", HttpStatus.UNAUTHORIZED),
 
     //Custom Exists
@@ -127,6 +130,13 @@ public enum ErrorCode {
     SENDER_INVALID(400, "A sender account must be provided", HttpStatus.BAD_REQUEST),
     RECEIVER_INVALID(400, "A receiver account must be provided", HttpStatus.BAD_REQUEST),
     TRANSACTION_FAIL(403, "Verify wrong OTP for transaction exceed 3 times", HttpStatus.FORBIDDEN),
+    ACCOUNT_BUSY(409, "Account is busy with another transfer, please try again", HttpStatus.CONFLICT),
+    TRANSACTION_CURSOR_INVALID(400, "Invalid transaction history cursor", HttpStatus.BAD_REQUEST),
+    TRANSACTION_NOT_PENDING(409, "Transaction has already been completed, failed or expired", HttpStatus.CONFLICT),
+    IDEMPOTENCY_KEY_INVALID(400, "Idempotency-Key must be at most 255 characters", HttpStatus.BAD_REQUEST),
+    IDEMPOTENCY_REQUEST_IN_PROGRESS(409, "A request with this Idempotency-Key is still being processed, please try again", HttpStatus.CONFLICT),
+    IDEMPOTENCY_KEY_REUSED(422, "Idempotency-Key was already used for a different request", HttpStatus.UNPROCESSABLE_ENTITY),
+    IDEMPOTENCY_STORE_FULL(429, "Too many requests in progress, please try again later", HttpStatus.TOO_MANY_REQUESTS),
 
     // Beneficiary
     BENEFICIARY_SELF_PA_FORBIDDEN(403, "Cannot insert new beneficiary with your own Payment Account", HttpStatus.FORBIDDEN),
@@ -153,6 +163,10 @@ public enum ErrorCode {
     OTP_INVALID(400, "Invalid OTP", HttpStatus.BAD_REQUEST),
     OTP_EXPIRED(400, "OTP has been expired", HttpStatus.BAD_REQUEST),
     OTP_PURPOSE_MISMATCH(400, "OTP purpose does not match", HttpStatus.BAD_REQUEST),
+    OTP_STORE_FULL(429, "Too many pending OTPs, please try again later", HttpStatus.TOO_MANY_REQUESTS),
+    EKYC_BUSY(503, "Identity verification service is busy, please try again later", HttpStatus.SERVICE_UNAVAILABLE),
+    NOTIFICATION_QUEUE_FULL(503, "Too many notifications waiting to be sent, please try again later", HttpStatus.SERVICE_UNAVAILABLE),
+    IMAGE_PROCESSING_BUSY(503, "Too many images being processed, please try again later", HttpStatus.SERVICE_UNAVAILABLE),
 
     // 5xx Server Errors
     INTERNAL_SERVER_ERROR(500, "Internal Server Error", HttpStatus.INTERNAL_SERVER_ERROR),
@@ -161,6 +175,7 @@ public enum ErrorCode {
     // 6xx Custom Errors
     INVALID_TRANSACTION_TYPE(600, "Invalid transaction type", HttpStatus.BAD_REQUEST),
     INVALID_AMOUNT_TYPE(600, "Invalid amount type", HttpStatus.BAD_REQUEST),
+    INVALID_AMOUNT(600, "Invalid amount", HttpStatus.BAD_REQUEST),
     INVALID_TRANSACTION_SENDER_TYPE(600, "Invalid transaction sender type", HttpStatus.BAD_REQUEST),
     INVALID_TRANSACTION_RECEIVER_TYPE(600, "Invalid transaction receiver type", HttpStatus.BAD_REQUEST),
     INVALID_INPUT(600, "Invalid Input", HttpStatus.BAD_REQUEST);
@@ -59,6 +59,10 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(value = HttpMessageNotReadableException.class)
     public ResponseEntity<ResponseObject> handleHttpMessageNotReadable(HttpMessageNotReadableException ex) {
+        // A deserializer refusing a value (e.g. Money) reports its own error code, wrapped by Jackson
+        if (ex.getMostSpecificCause() instanceof AppException appException) {
+            return handlingAppException(appException);
+        }
         String customMessage = "Invalid input format";
 
 
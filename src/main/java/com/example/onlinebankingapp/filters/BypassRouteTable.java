@@ -0,0 +1,130 @@
+package com.example.onlinebankingapp.filters;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.*;
+
+// Route table of endpoints reachable without a JWT token, compiled once at startup
+// Literal paths go to a hash set per HTTP method, paths with variables or wildcards to precompiled PathPatterns
+@Component
+public class BypassRouteTable implements SmartInitializingSingleton {
+    // Key for mappings declared without a method, they match every method
+    private static final String ANY_METHOD = "*";
+
+    private final RequestMappingHandlerMapping requestMappingHandlerMapping;
+    private final PathPatternParser pathPatternParser = new PathPatternParser();
+
+    @Value("${api.prefix}")
+    private String apiPrefix;
+
+    private volatile Map<String, Set<String>> exactRoutes = Map.of();
+    private volatile Map<String, List<PathPattern>> patternRoutes = Map.of();
+
+    public BypassRouteTable(
+            @Qualifier("requestMappingHandlerMapping") RequestMappingHandlerMapping requestMappingHandlerMapping
+    ) {
+        this.requestMappingHandlerMapping = requestMappingHandlerMapping;
+    }
+
+    // Public routes not served by our controllers
+    private List<Map.Entry<String, String>> staticRoutes() {
+        return List.of(
+                Map.entry(String.format("%s/rewards/image/**", apiPrefix), "GET"),
+
+                // Swagger
+                Map.entry("/api-docs", "GET"),
+                Map.entry("/api-docs/**", "GET"),
+                Map.entry("/swagger-resources", "GET"),
+                Map.entry("/swagger-resources/**", "GET"),
+                Map.entry("/configuration/ui", "GET"),
+                Map.entry("/configuration/security", "GET"),
+                Map.entry("/swagger-ui/**", "GET"),
+                Map.entry("/swagger-ui.html", "GET"),
+                Map.entry("/swagger-ui/index.html", "GET")
+        );
+    }
+
+    // Handler methods are registered by now, collect every @PublicEndpoint mapping
+    @Override
+    public void afterSingletonsInstantiated() {
+        Map<String, Set<String>> exactRouteMap = new HashMap<>();
+        Map<String, List<PathPattern>> patternRouteMap = new HashMap<>();
+
+        for (Map.Entry<String, String> route : staticRoutes()) {
+            addRoute(route.getValue(), route.getKey(), exactRouteMap, patternRouteMap);
+        }
+
+        for (Map.Entry<RequestMappingInfo, HandlerMethod> handlerMethod : requestMappingHandlerMapping.getHandlerMethods().entrySet()) {
+            if (!handlerMethod.getValue().hasMethodAnnotation(PublicEndpoint.class)) {
+                continue;
+            }
+            RequestMappingInfo mappingInfo = handlerMethod.getKey();
+            Set<RequestMethod> requestMethods = mappingInfo.getMethodsCondition().getMethods();
+            for (String path : mappingInfo.getPatternValues()) {
+                if (requestMethods.isEmpty()) {
+                    addRoute(ANY_METHOD, path, exactRouteMap, patternRouteMap);
+                }
+                for (RequestMethod requestMethod : requestMethods) {
+                    addRoute(requestMethod.name(), path, exactRouteMap, patternRouteMap);
+                }
+            }
+        }
+
+        exactRoutes = exactRouteMap;
+        patternRoutes = patternRouteMap;
+    }
+
+    // Method to check if a request (servlet path + method) targets a public endpoint
+    public boolean isPublic(String method, String path) {
+        String requestMethod = method.toUpperCase(Locale.ROOT);
+        if (containsExact(requestMethod, path) || containsExact(ANY_METHOD, path)) {
+            return true;
+        }
+
+        List<PathPattern> methodPatterns = patternRoutes.getOrDefault(requestMethod, List.of());
+        List<PathPattern> anyMethodPatterns = patternRoutes.getOrDefault(ANY_METHOD, List.of());
+        if (methodPatterns.isEmpty() && anyMethodPatterns.isEmpty()) {
+            return false;
+        }
+
+        PathContainer pathContainer = PathContainer.parsePath(path);
+        return matchesAny(methodPatterns, pathContainer) || matchesAny(anyMethodPatterns, pathContainer);
+    }
+
+    private boolean containsExact(String method, String path) {
+        Set<String> paths = exactRoutes.get(method);
+        return paths != null && paths.contains(path);
+    }
+
+    private static boolean matchesAny(List<PathPattern> patterns, PathContainer pathContainer) {
+        for (PathPattern pattern : patterns) {
+            if (pattern.matches(pathContainer)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addRoute(
+            String method,
+            String path,
+            Map<String, Set<String>> exactRouteMap,
+            Map<String, List<PathPattern>> patternRouteMap
+    ) {
+        if (path.contains("*") || path.contains("{")) {
+            patternRouteMap.computeIfAbsent(method, key -> new ArrayList<>()).add(pathPatternParser.parse(path));
+        } else {
+            exactRouteMap.computeIfAbsent(method, key -> new HashSet<>()).add(path);
+        }
+    }
+}
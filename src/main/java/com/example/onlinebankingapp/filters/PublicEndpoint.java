@@ -0,0 +1,10 @@
+package com.example.onlinebankingapp.filters;
+
+import java.lang.annotation.*;
+
+// Marks a controller method as public: JwtTokenFilter lets its requests through without a token
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface PublicEndpoint {
+}
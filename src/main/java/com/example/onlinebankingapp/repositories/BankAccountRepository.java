@@ -2,8 +2,14 @@ package com.example.onlinebankingapp.repositories;
 
 import com.example.onlinebankingapp.entities.BankAccountEntity;
 import com.example.onlinebankingapp.entities.BankEntity;
+import com.example.onlinebankingapp.entities.Money;
 import com.example.onlinebankingapp.entities.PaymentAccountEntity;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -17,6 +23,36 @@ public interface BankAccountRepository extends JpaRepository<BankAccountEntity,
 
     List<BankAccountEntity> findByPaymentAccount(PaymentAccountEntity paymentAccountEntity);
 
-
     List<BankAccountEntity> findByPaymentAccountId(Long paymentAccountId);
+
+    // Ledger posting: debit balance in one statement
+    // Only applied when balance is enough, return number of updated rows (0 or 1)
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE BankAccountEntity b " +
+            "SET b.version = b.version + 1, " +
+            "b.currentBalance = b.currentBalance - :amount " +
+            "WHERE b.id = :bankAccountId " +
+            "AND b.currentBalance >= :amount")
+    int debitBalance(
+            @Param("bankAccountId") Long bankAccountId,
+            @Param("amount") Money amount);
+
+    // Ledger posting: credit balance, return number of updated rows (0 or 1)
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE BankAccountEntity b " +
+            "SET b.version = b.version + 1, " +
+            "b.currentBalance = b.currentBalance + :amount " +
+            "WHERE b.id = :bankAccountId")
+    int creditBalance(
+            @Param("bankAccountId") Long bankAccountId,
+            @Param("amount") Money amount);
+
+    // Ledger posting: PA linked with a BA, which gets the reward point of a transfer sent from the BA
+    @Query("SELECT b.paymentAccount.id FROM BankAccountEntity b WHERE b.id = :bankAccountId")
+    Optional<Long> findPaymentAccountIdById(@Param("bankAccountId") Long bankAccountId);
+
+    // Ledger posting: lock account row (SELECT ... FOR UPDATE) until the transfer commits
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM BankAccountEntity b WHERE b.id = :bankAccountId")
+    Optional<BankAccountEntity> findByIdForUpdate(@Param("bankAccountId") Long bankAccountId);
 }
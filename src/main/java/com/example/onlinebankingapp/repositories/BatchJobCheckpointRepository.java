@@ -0,0 +1,31 @@
+package com.example.onlinebankingapp.repositories;
+
+import com.example.onlinebankingapp.entities.BatchJobCheckpointEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+@Repository
+public interface BatchJobCheckpointRepository extends JpaRepository<BatchJobCheckpointEntity, Long> {
+    Optional<BatchJobCheckpointEntity> findByJobNameAndRunDate(String jobName, LocalDate runDate);
+
+    // Called by worker threads after each chunk, counters are incremented in place
+    // lastReadKey only moves forward, a null one (chunk did not extend the committed prefix) keeps it
+    @Modifying
+    @Query("UPDATE BatchJobCheckpointEntity c " +
+            "SET c.processedCount = c.processedCount + :processedCount, " +
+            "c.failedChunkCount = c.failedChunkCount + :failedChunkCount, " +
+            "c.lastReadKey = CASE WHEN :lastReadKey IS NOT NULL AND (c.lastReadKey IS NULL OR c.lastReadKey < :lastReadKey) " +
+            "THEN :lastReadKey ELSE c.lastReadKey END " +
+            "WHERE c.id = :checkpointId")
+    int addChunkProgress(
+            @Param("checkpointId") Long checkpointId,
+            @Param("processedCount") long processedCount,
+            @Param("failedChunkCount") long failedChunkCount,
+            @Param("lastReadKey") Long lastReadKey);
+}
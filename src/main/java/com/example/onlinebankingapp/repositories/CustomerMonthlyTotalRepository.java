@@ -0,0 +1,105 @@
+package com.example.onlinebankingapp.repositories;
+
+import com.example.onlinebankingapp.entities.CustomerMonthlyTotalEntity;
+import com.example.onlinebankingapp.enums.MonthlyTotalDirection;
+import com.example.onlinebankingapp.enums.TransactionStatus;
+import com.example.onlinebankingapp.enums.TransactionType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CustomerMonthlyTotalRepository extends JpaRepository<CustomerMonthlyTotalEntity, Long> {
+    // Incremental maintenance: add one completed transaction to its rollup row, the first one creates the row
+    // One statement in the caller's transaction: concurrent first transactions of a group end up in the same row
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO customer_monthly_totals " +
+            "(customer_id, total_year, total_month, direction, transaction_type, category, total_amount, transaction_count) " +
+            "VALUES (:customerId, :year, :month, :direction, :transactionType, :category, :amount, 1) " +
+            "ON CONFLICT (customer_id, total_year, total_month, direction, transaction_type, category) " +
+            "DO UPDATE SET total_amount = customer_monthly_totals.total_amount + EXCLUDED.total_amount, " +
+            "transaction_count = customer_monthly_totals.transaction_count + 1",
+            nativeQuery = true)
+    int addToTotal(
+            @Param("customerId") Long customerId,
+            @Param("year") int year,
+            @Param("month") int month,
+            @Param("direction") String direction,
+            @Param("transactionType") String transactionType,
+            @Param("category") String category,
+            @Param("amount") BigDecimal amount);
+
+    // Dashboard: at most 12 groups, same shape as the live monthly queries (month, totalAmount)
+    @Query("SELECT c.totalMonth AS month, SUM(c.totalAmount) AS totalAmount " +
+            "FROM CustomerMonthlyTotalEntity c " +
+            "WHERE c.customerId = :customerId " +
+            "AND c.direction = :direction " +
+            "AND c.transactionType = :transactionType " +
+            "AND c.totalYear = :year " +
+            "GROUP BY c.totalMonth " +
+            "ORDER BY c.totalMonth ASC")
+    List<Object[]> findMonthlyTotalAmountForCustomer(
+            @Param("customerId") Long customerId,
+            @Param("direction") MonthlyTotalDirection direction,
+            @Param("transactionType") TransactionType transactionType,
+            @Param("year") int year);
+
+    // Dashboard: same shape as the live reward query (rewardType, totalAmount)
+    @Query("SELECT c.category AS rewardType, SUM(c.totalAmount) AS totalAmount " +
+            "FROM CustomerMonthlyTotalEntity c " +
+            "WHERE c.customerId = :customerId " +
+            "AND c.direction = :direction " +
+            "AND c.transactionType = :transactionType " +
+            "AND c.totalYear = :year " +
+            "AND c.category <> '" + CustomerMonthlyTotalEntity.CATEGORY_NONE + "' " +
+            "GROUP BY c.category " +
+            "ORDER BY c.category ASC")
+    List<Object[]> findTotalAmountByCategoryForCustomer(
+            @Param("customerId") Long customerId,
+            @Param("direction") MonthlyTotalDirection direction,
+            @Param("transactionType") TransactionType transactionType,
+            @Param("year") int year);
+
+    Optional<CustomerMonthlyTotalEntity> findFirstBy();
+
+    // Rebuild: current rows of a chunk of customers, read once their customers are locked
+    List<CustomerMonthlyTotalEntity> findByCustomerIdIn(Collection<Long> customerIds);
+
+    // Rebuild: expense side recomputed from history
+    // (customerId, year, month, transactionType, rewardType, totalAmount, transactionCount)
+    @Query("SELECT c.id, EXTRACT(YEAR FROM t.transactionDateTime), EXTRACT(MONTH FROM t.transactionDateTime), " +
+            "t.transactionType, r.rewardType, SUM(t.amount), COUNT(t) " +
+            "FROM TransactionEntity t " +
+            "JOIN TransactionCustomerEntity tce ON t = tce.transactionCustomerKey.transaction " +
+            "JOIN tce.transactionCustomerKey.customer c " +
+            "LEFT JOIN RewardEntity r ON t.transactionType = :rewardTransactionType AND r.id = t.receiverId " +
+            "WHERE c.id IN :customerIds " +
+            "AND t.transactionStatus = :transactionStatus " +
+            "GROUP BY c.id, EXTRACT(YEAR FROM t.transactionDateTime), EXTRACT(MONTH FROM t.transactionDateTime), " +
+            "t.transactionType, r.rewardType")
+    List<Object[]> aggregateExpenseForCustomers(
+            @Param("customerIds") Collection<Long> customerIds,
+            @Param("transactionStatus") TransactionStatus transactionStatus,
+            @Param("rewardTransactionType") TransactionType rewardTransactionType);
+
+    // Rebuild: income side recomputed from history
+    // (customerId, year, month, transactionType, totalAmount, transactionCount)
+    @Query("SELECT tce.transactionCustomerKey.receiverId, EXTRACT(YEAR FROM t.transactionDateTime), " +
+            "EXTRACT(MONTH FROM t.transactionDateTime), t.transactionType, SUM(t.amount), COUNT(t) " +
+            "FROM TransactionEntity t " +
+            "JOIN TransactionCustomerEntity tce ON t = tce.transactionCustomerKey.transaction " +
+            "WHERE tce.transactionCustomerKey.receiverId IN :customerIds " +
+            "AND t.transactionStatus = :transactionStatus " +
+            "GROUP BY tce.transactionCustomerKey.receiverId, EXTRACT(YEAR FROM t.transactionDateTime), " +
+            "EXTRACT(MONTH FROM t.transactionDateTime), t.transactionType")
+    List<Object[]> aggregateIncomeForCustomers(
+            @Param("customerIds") Collection<Long> customerIds,
+            @Param("transactionStatus") TransactionStatus transactionStatus);
+}
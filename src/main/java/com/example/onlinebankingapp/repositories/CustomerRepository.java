@@ -4,8 +4,14 @@ import com.example.onlinebankingapp.entities.CustomerEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 @Repository
 public interface CustomerRepository extends JpaRepository<CustomerEntity, Long> {
@@ -17,4 +23,27 @@ public interface CustomerRepository extends JpaRepository<CustomerEntity, Long>
     Optional<CustomerEntity> findByEmail(String email);
     Optional<CustomerEntity> findByClientSession(String clientSession);
     Page<CustomerEntity> findByNameContainingIgnoreCase(String name, Pageable pageable);
+
+    // Keyset page of customer ids for batch jobs
+    @Query("SELECT c.id FROM CustomerEntity c WHERE c.id > :lastId ORDER BY c.id ASC")
+    List<Long> findIdsAfter(@Param("lastId") Long lastId, Pageable pageable);
+
+    // Monthly totals: a live increment shares the lock of its customers, a rebuild of the customers takes it alone
+    // Increments of a customer being rebuilt wait for the rebuilt rows, so they are neither lost nor counted twice
+    // Ordered by id, so two transactions never take the same locks in opposite order
+    @Query(value = "SELECT id FROM customers WHERE id IN (:customerIds) ORDER BY id FOR SHARE", nativeQuery = true)
+    List<Long> lockForMonthlyTotalIncrement(@Param("customerIds") Collection<Long> customerIds);
+
+    // FOR NO KEY UPDATE does not block inserts referencing these customers (foreign key checks)
+    @Query(value = "SELECT id FROM customers WHERE id IN (:customerIds) ORDER BY id FOR NO KEY UPDATE", nativeQuery = true)
+    List<Long> lockForMonthlyTotalRebuild(@Param("customerIds") Collection<Long> customerIds);
+
+    // Rehash on login: replace the hash only if the password was not changed meanwhile, return 0 otherwise
+    @Transactional
+    @Modifying
+    @Query("UPDATE CustomerEntity c SET c.password = :newPassword WHERE c.id = :customerId AND c.password = :oldPassword")
+    int updatePasswordHash(
+            @Param("customerId") Long customerId,
+            @Param("oldPassword") String oldPassword,
+            @Param("newPassword") String newPassword);
 }
@@ -5,7 +5,11 @@ import com.example.onlinebankingapp.enums.EmployeeRole;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -20,4 +24,13 @@ public interface EmployeeRepository extends JpaRepository<EmployeeEntity, Long>
     Optional<EmployeeEntity> findByEmail(String email);
     List<EmployeeEntity> getAllByRole(String role);
     Page<EmployeeEntity> findByNameContainingIgnoreCase(String name, Pageable pageable);
+
+    // Rehash on login: replace the hash only if the password was not changed meanwhile, return 0 otherwise
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmployeeEntity e SET e.password = :newPassword WHERE e.id = :employeeId AND e.password = :oldPassword")
+    int updatePasswordHash(
+            @Param("employeeId") Long employeeId,
+            @Param("oldPassword") String oldPassword,
+            @Param("newPassword") String newPassword);
 }
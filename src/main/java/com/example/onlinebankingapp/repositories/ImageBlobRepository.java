@@ -0,0 +1,42 @@
+package com.example.onlinebankingapp.repositories;
+
+import com.example.onlinebankingapp.entities.ImageBlobEntity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ImageBlobRepository extends JpaRepository<ImageBlobEntity, Long> {
+    // Scalar reads: no entity lands in the persistence context, which may outlive the transaction (open-in-view)
+    boolean existsByContentKey(String contentKey);
+
+    @Query("SELECT b.fileName FROM ImageBlobEntity b WHERE b.contentKey = :contentKey")
+    Optional<String> findFileNameByContentKey(@Param("contentKey") String contentKey);
+
+    // Store or delete the file of a blob (SELECT ... FOR UPDATE): identical concurrent uploads wait for each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM ImageBlobEntity b WHERE b.contentKey = :contentKey")
+    Optional<ImageBlobEntity> findByContentKeyForUpdate(@Param("contentKey") String contentKey);
+
+    // Duplicate upload: one more reference to a stored file, return 0 when the file is not stored
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ImageBlobEntity b " +
+            "SET b.referenceCount = b.referenceCount + 1 " +
+            "WHERE b.contentKey = :contentKey " +
+            "AND b.referenceCount > 0")
+    int addReference(@Param("contentKey") String contentKey);
+
+    // Replaced image: one reference less, return 0 when it is the last one (the file must be deleted, under lock)
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ImageBlobEntity b " +
+            "SET b.referenceCount = b.referenceCount - 1 " +
+            "WHERE b.contentKey = :contentKey " +
+            "AND b.referenceCount > 1")
+    int removeReference(@Param("contentKey") String contentKey);
+}
@@ -1,11 +1,16 @@
 package com.example.onlinebankingapp.repositories;
 
 import com.example.onlinebankingapp.enums.AccountStatus;
+import com.example.onlinebankingapp.entities.Money;
 import com.example.onlinebankingapp.entities.PaymentAccountEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -32,4 +37,55 @@ public interface PaymentAccountRepository extends JpaRepository<PaymentAccountEn
     PaymentAccountEntity getPaymentAccountByAccountNumber(String accountNumber);
 
     Page<PaymentAccountEntity> findByAccountNumberContainingIgnoreCase(String accountNumber, Pageable pageable);
+
+    // Ledger posting: debit balance and add reward point in one statement
+    // Only applied when balance is enough, return number of updated rows (0 or 1)
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE PaymentAccountEntity p " +
+            "SET p.version = p.version + 1, " +
+            "p.currentBalance = p.currentBalance - :amount, " +
+            "p.rewardPoint = p.rewardPoint + :rewardPoint " +
+            "WHERE p.id = :paymentAccountId " +
+            "AND p.currentBalance >= :amount")
+    int debitBalance(
+            @Param("paymentAccountId") Long paymentAccountId,
+            @Param("amount") Money amount,
+            @Param("rewardPoint") Integer rewardPoint);
+
+    // Ledger posting: credit balance, return number of updated rows (0 or 1)
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE PaymentAccountEntity p " +
+            "SET p.version = p.version + 1, " +
+            "p.currentBalance = p.currentBalance + :amount " +
+            "WHERE p.id = :paymentAccountId")
+    int creditBalance(
+            @Param("paymentAccountId") Long paymentAccountId,
+            @Param("amount") Money amount);
+
+    // Saving account maturity: credit balance and reward point in one statement
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE PaymentAccountEntity p " +
+            "SET p.version = p.version + 1, " +
+            "p.currentBalance = p.currentBalance + :amount, " +
+            "p.rewardPoint = p.rewardPoint + :rewardPoint " +
+            "WHERE p.id = :paymentAccountId")
+    int creditBalanceAndRewardPoint(
+            @Param("paymentAccountId") Long paymentAccountId,
+            @Param("amount") Money amount,
+            @Param("rewardPoint") Integer rewardPoint);
+
+    // Ledger posting: add reward point to PA linked with a sender BA
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE PaymentAccountEntity p " +
+            "SET p.version = p.version + 1, " +
+            "p.rewardPoint = p.rewardPoint + :rewardPoint " +
+            "WHERE p.id = (SELECT b.paymentAccount.id FROM BankAccountEntity b WHERE b.id = :bankAccountId)")
+    int addRewardPointByBankAccountId(
+            @Param("bankAccountId") Long bankAccountId,
+            @Param("rewardPoint") Integer rewardPoint);
+
+    // Ledger posting: lock account row (SELECT ... FOR UPDATE) until the transfer commits
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM PaymentAccountEntity p WHERE p.id = :paymentAccountId")
+    Optional<PaymentAccountEntity> findByIdForUpdate(@Param("paymentAccountId") Long paymentAccountId);
 }
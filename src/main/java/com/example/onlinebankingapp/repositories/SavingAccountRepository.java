@@ -5,8 +5,12 @@ import com.example.onlinebankingapp.entities.SavingAccountEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -15,4 +19,45 @@ public interface SavingAccountRepository extends JpaRepository<SavingAccountEnti
     List<SavingAccountEntity> findSavingAccountEntitiesByPaymentAccount(PaymentAccountEntity paymentAccount);
 
     Page<SavingAccountEntity> findByAccountNumberContainingIgnoreCase(String accountNumber, Pageable pageable);
+
+    // Daily interest accrual of every ACTIVE saving account whose term has not ended, in one statement
+    // Formula: current amount = current amount + current amount * annual interest rate (%) / 100 / days in year
+    // Exact NUMERIC arithmetic: the interest in minor units (current amount * rate / days) is rounded half-even,
+    // as Money.multiply does for a single account
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE saving_accounts s " +
+            "SET version = s.version + 1, " +
+            "saving_current_amount = s.saving_current_amount + (CASE " +
+            "WHEN a.interest_minor_units - FLOOR(a.interest_minor_units) = 0.5 " +
+            "THEN FLOOR(a.interest_minor_units) + ABS(MOD(FLOOR(a.interest_minor_units), 2)) " +
+            "ELSE ROUND(a.interest_minor_units) END) / 100 " +
+            "FROM (SELECT sa.id, sa.saving_current_amount * CAST(i.interest_rate AS NUMERIC) / :daysInYear AS interest_minor_units " +
+            "FROM saving_accounts sa JOIN interest_rates i ON i.id = sa.interest_rate_id " +
+            "WHERE sa.account_status = 'ACTIVE' AND sa.date_closed >= :nextDayStart) a " +
+            "WHERE s.id = a.id",
+            nativeQuery = true)
+    int accrueDailyInterest(
+            @Param("daysInYear") int daysInYear,
+            @Param("nextDayStart") LocalDateTime nextDayStart);
+
+    // Maturity batch reader: ids of ACTIVE saving accounts whose term ends before nextDayStart, keyset by id
+    // Served by index (account_status, date_closed)
+    @Query("SELECT s.id FROM SavingAccountEntity s " +
+            "WHERE s.accountStatus = com.example.onlinebankingapp.enums.AccountStatus.ACTIVE " +
+            "AND s.dateClosed < :nextDayStart " +
+            "AND s.id > :lastId " +
+            "ORDER BY s.id ASC")
+    List<Long> findActiveSavingAccountIdsClosingBefore(
+            @Param("nextDayStart") LocalDateTime nextDayStart,
+            @Param("lastId") Long lastId,
+            Pageable pageable);
+
+    // Maturity batch chunk: still ACTIVE accounts with their payment account and customer in one query
+    @Query("SELECT s FROM SavingAccountEntity s " +
+            "JOIN FETCH s.paymentAccount p " +
+            "JOIN FETCH p.customer " +
+            "WHERE s.id IN :savingAccountIds " +
+            "AND s.accountStatus = com.example.onlinebankingapp.enums.AccountStatus.ACTIVE")
+    List<SavingAccountEntity> findActiveSavingAccountsByIdIn(
+            @Param("savingAccountIds") List<Long> savingAccountIds);
 }
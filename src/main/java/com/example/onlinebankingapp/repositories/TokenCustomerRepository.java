@@ -2,9 +2,13 @@ package com.example.onlinebankingapp.repositories;
 
 import com.example.onlinebankingapp.entities.TokenCustomerEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import com.example.onlinebankingapp.entities.CustomerEntity;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -15,4 +19,57 @@ public interface TokenCustomerRepository extends JpaRepository<TokenCustomerEnti
     TokenCustomerEntity findByToken(String token);
     // Find a token by its refresh token string
     TokenCustomerEntity findByRefreshToken(String refreshToken);
+    // Revoked tokens not expired yet, loaded into the revocation index at startup
+    List<TokenCustomerEntity> findByRevokedTrueAndExpirationDateAfter(LocalDateTime dateTime);
+
+    // Login: evict the oldest non-mobile token (oldest token when all are mobile) once the customer holds maxTokens,
+    // and insert the new token, in one statement
+    // Returns one row: (new token id, evicted token or null, evicted token expiration date or null)
+    // FOR UPDATE only locks the evicted row: concurrent logins of one account each count the committed tokens,
+    // so a burst of logins can leave the account above maxTokens
+    @Transactional
+    @Query(value = "WITH evicted AS ( " +
+            "DELETE FROM tokens_customer " +
+            "WHERE id = (SELECT t.id FROM tokens_customer t WHERE t.customer_id = :customerId " +
+            "ORDER BY t.is_mobile ASC, t.id ASC LIMIT 1 FOR UPDATE) " +
+            "AND (SELECT COUNT(*) FROM tokens_customer c WHERE c.customer_id = :customerId) >= :maxTokens " +
+            "RETURNING token, expiration_date), " +
+            "inserted AS ( " +
+            "INSERT INTO tokens_customer (customer_id, token, refresh_token, token_type, expiration_date, " +
+            "refresh_expiration_date, is_mobile, revoked, expired) " +
+            "VALUES (:customerId, :token, :refreshToken, :tokenType, :expirationDate, " +
+            ":refreshExpirationDate, :isMobile, false, false) " +
+            "RETURNING id) " +
+            "SELECT inserted.id, evicted.token, evicted.expiration_date " +
+            "FROM inserted LEFT JOIN evicted ON true",
+            nativeQuery = true)
+    List<Object[]> insertTokenEvictingOldest(
+            @Param("customerId") Long customerId,
+            @Param("token") String token,
+            @Param("refreshToken") String refreshToken,
+            @Param("tokenType") String tokenType,
+            @Param("expirationDate") LocalDateTime expirationDate,
+            @Param("refreshExpirationDate") LocalDateTime refreshExpirationDate,
+            @Param("isMobile") boolean isMobile,
+            @Param("maxTokens") int maxTokens);
+
+    // Refresh: replace the tokens of a refresh token not expired yet, in one statement
+    // Returns no row when the refresh token does not exist or has expired, otherwise one row:
+    // (token id, token type, is mobile, replaced token, replaced token expiration date)
+    @Transactional
+    @Query(value = "UPDATE tokens_customer t " +
+            "SET token = :token, refresh_token = :newRefreshToken, " +
+            "expiration_date = :expirationDate, refresh_expiration_date = :refreshExpirationDate " +
+            "FROM (SELECT o.id, o.token, o.expiration_date FROM tokens_customer o " +
+            "WHERE o.refresh_token = :refreshToken AND o.refresh_expiration_date >= :now FOR UPDATE) replaced " +
+            "WHERE t.id = replaced.id " +
+            "RETURNING t.id, t.token_type, t.is_mobile, replaced.token, replaced.expiration_date",
+            nativeQuery = true)
+    List<Object[]> replaceTokenByRefreshToken(
+            @Param("refreshToken") String refreshToken,
+            @Param("now") LocalDateTime now,
+            @Param("token") String token,
+            @Param("newRefreshToken") String newRefreshToken,
+            @Param("expirationDate") LocalDateTime expirationDate,
+            @Param("refreshExpirationDate") LocalDateTime refreshExpirationDate);
 }
@@ -7,10 +7,13 @@ import jakarta.transaction.Transactional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface TransactionCustomerRepository extends JpaRepository<TransactionCustomerEntity, TransactionCustomerEntity.TransactionCustomer> {
     boolean existsTransactionCustomerEntityByTransactionCustomerKey(TransactionCustomerEntity.TransactionCustomer transactionCustomerKey);
@@ -18,6 +21,12 @@ public interface TransactionCustomerRepository extends JpaRepository<Transaction
     @Transactional
     void deleteTransactionCustomerEntityByTransactionCustomerKey(TransactionCustomerEntity.TransactionCustomer transactionCustomerKey);
 
+    // Sweeper: unlink a page of expired transactions before they are deleted
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM TransactionCustomerEntity tce " +
+            "WHERE tce.transactionCustomerKey.transaction.id IN :transactionIds")
+    int deleteByTransactionIdIn(@Param("transactionIds") List<Long> transactionIds);
+
     @Query("SELECT tce FROM TransactionCustomerEntity tce " +
             "WHERE tce.transactionCustomerKey.transaction.id = :transactionId")
     TransactionCustomerEntity findByTransactionCustomerKey_Transaction_transactionId(@Param("transactionId") Long transactionId);
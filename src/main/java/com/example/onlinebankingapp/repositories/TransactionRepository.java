@@ -5,16 +5,29 @@ import com.example.onlinebankingapp.entities.TransactionEntity;
 import com.example.onlinebankingapp.enums.TransactionReceiverType;
 import com.example.onlinebankingapp.enums.TransactionStatus;
 import com.example.onlinebankingapp.enums.TransactionType;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.domain.Pageable;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<TransactionEntity, Long> {
+    // Ids of transactions where the customer is sender or receiver
+    // UNION of two lookups, each served by its own index, instead of an OR across both columns
+    String TRANSACTION_IDS_OF_CUSTOMER =
+            "SELECT tcs.transactionCustomerKey.transaction.id FROM TransactionCustomerEntity tcs " +
+            "WHERE tcs.transactionCustomerKey.customer = :existingCustomer " +
+            "UNION " +
+            "SELECT tcr.transactionCustomerKey.transaction.id FROM TransactionCustomerEntity tcr " +
+            "WHERE tcr.transactionCustomerKey.receiverId = :receiverId";
+
     // Find unexpired pending transaction for TRANSFER_MONEY
     @Query("SELECT t FROM TransactionEntity t " +
             "WHERE t.transactionType = :transactionType " +
@@ -26,24 +39,56 @@ public interface TransactionRepository extends JpaRepository<TransactionEntity,
             @Param("dateTimeThreshold") LocalDateTime dateTimeThreshold
     );
 
-    // Find expired pending transaction for TRANSFER_MONEY
+    // Sweeper: keyset page of ids of PENDING transactions older than the threshold
+    @Query("SELECT t.id FROM TransactionEntity t " +
+            "WHERE t.transactionStatus = :transactionStatus " +
+            "AND t.transactionDateTime < :dateTimeThreshold " +
+            "AND t.id > :lastId " +
+            "ORDER BY t.id ASC")
+    List<Long> findExpiredPendingTransactionIds(
+            @Param("transactionStatus") TransactionStatus transactionStatus,
+            @Param("dateTimeThreshold") LocalDateTime dateTimeThreshold,
+            @Param("lastId") Long lastId,
+            Pageable pageable
+    );
+
+    // Sweeper: lock the transactions of a page which are still expired PENDING (SELECT ... FOR UPDATE)
+    // A concurrent completion waits and then finds the row gone, instead of completing a half-deleted transaction
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT t FROM TransactionEntity t " +
-            "WHERE t.transactionType = :transactionType " +
+            "WHERE t.id IN :transactionIds " +
             "AND t.transactionStatus = :transactionStatus " +
             "AND t.transactionDateTime < :dateTimeThreshold")
-    List<TransactionEntity> findExpiredPendingTransactions(
-            @Param("transactionType") TransactionType transactionType,
+    List<TransactionEntity> findExpiredPendingTransactionsForUpdate(
+            @Param("transactionIds") List<Long> transactionIds,
             @Param("transactionStatus") TransactionStatus transactionStatus,
             @Param("dateTimeThreshold") LocalDateTime dateTimeThreshold
     );
 
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM TransactionEntity t WHERE t.id IN :transactionIds")
+    int deleteByIdIn(@Param("transactionIds") List<Long> transactionIds);
+
+    // Ledger posting: move a PENDING transaction to a final status
+    // Return 0 when transaction has already been completed or failed, or deleted by the expiry sweeper
+    // Joins the caller's transaction, or runs in its own when called outside one (failing a transfer)
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE TransactionEntity t " +
+            "SET t.transactionStatus = :transactionStatus, " +
+            "t.transactionDateTime = :transactionDateTime " +
+            "WHERE t.id = :transactionId " +
+            "AND t.transactionStatus = com.example.onlinebankingapp.enums.TransactionStatus.PENDING")
+    int closePendingTransaction(
+            @Param("transactionId") Long transactionId,
+            @Param("transactionStatus") TransactionStatus transactionStatus,
+            @Param("transactionDateTime") LocalDateTime transactionDateTime);
+
     // Find transactions of a customer
     // Check status from return above (get COMPLETED, FAILED)
     // Sort by date time
     @Query("SELECT t FROM TransactionEntity t " +
-            "JOIN TransactionCustomerEntity tce ON t = tce.transactionCustomerKey.transaction " +
-            "WHERE (tce.transactionCustomerKey.customer = :existingCustomer " +
-            "OR tce.transactionCustomerKey.receiverId = :receiverId) " +
+            "WHERE t.id IN (" + TRANSACTION_IDS_OF_CUSTOMER + ") " +
             "AND t.transactionStatus IN :transactionStatusList " +
             "AND t.transactionType IN :transactionTypes " +
             "AND (:transactionReceiverType IS NULL OR t.transactionReceiverType = :transactionReceiverType) " +
@@ -57,9 +102,7 @@ public interface TransactionRepository extends JpaRepository<TransactionEntity,
             Pageable pageable);
 
     @Query("SELECT t FROM TransactionEntity t " +
-            "JOIN TransactionCustomerEntity tce ON t = tce.transactionCustomerKey.transaction " +
-            "WHERE tce.transactionCustomerKey.customer = :existingCustomer " +
-            "OR tce.transactionCustomerKey.receiverId = :receiverId " +
+            "WHERE t.id IN (" + TRANSACTION_IDS_OF_CUSTOMER + ") " +
             "AND t.transactionStatus IN :transactionStatusList " +
             "ORDER BY t.transactionDateTime DESC")
     List<TransactionEntity> findNotPendingTransactionsOfCustomer(
@@ -68,6 +111,42 @@ public interface TransactionRepository extends JpaRepository<TransactionEntity,
             @Param("receiverId") Long receiverId,
             Pageable pageable);
 
+    // Keyset history, first page: newest first, ties on date time broken by id
+    @Query("SELECT t FROM TransactionEntity t " +
+            "WHERE t.id IN (" + TRANSACTION_IDS_OF_CUSTOMER + ") " +
+            "AND t.transactionStatus IN :transactionStatusList " +
+            "AND t.transactionType IN :transactionTypes " +
+            "AND (:transactionReceiverType IS NULL OR t.transactionReceiverType = :transactionReceiverType) " +
+            "ORDER BY t.transactionDateTime DESC, t.id DESC")
+    List<TransactionEntity> findTransactionHistoryFirstPage(
+            @Param("transactionStatusList") List<TransactionStatus> transactionStatusList,
+            @Param("existingCustomer") CustomerEntity existingCustomer,
+            @Param("receiverId") Long receiverId,
+            @Param("transactionTypes") List<TransactionType> transactionTypes,
+            @Param("transactionReceiverType") TransactionReceiverType transactionReceiverType,
+            Pageable pageable);
+
+    // Keyset history, next pages: seek strictly after the last (date time, id) returned, no OFFSET
+    @Query("SELECT t FROM TransactionEntity t " +
+            "WHERE t.id IN (" + TRANSACTION_IDS_OF_CUSTOMER + ") " +
+            "AND t.transactionStatus IN :transactionStatusList " +
+            "AND t.transactionType IN :transactionTypes " +
+            "AND (:transactionReceiverType IS NULL OR t.transactionReceiverType = :transactionReceiverType) " +
+            "AND (t.transactionDateTime < :cursorDateTime " +
+            "OR (t.transactionDateTime = :cursorDateTime AND t.id < :cursorId)) " +
+            "ORDER BY t.transactionDateTime DESC, t.id DESC")
+    List<TransactionEntity> findTransactionHistoryAfterCursor(
+            @Param("transactionStatusList") List<TransactionStatus> transactionStatusList,
+            @Param("existingCustomer") CustomerEntity existingCustomer,
+            @Param("receiverId") Long receiverId,
+            @Param("transactionTypes") List<TransactionType> transactionTypes,
+            @Param("transactionReceiverType") TransactionReceiverType transactionReceiverType,
+            @Param("cursorDateTime") LocalDateTime cursorDateTime,
+            @Param("cursorId") Long cursorId,
+            Pageable pageable);
+
+    boolean existsByTransactionStatus(TransactionStatus transactionStatus);
+
     @Query("SELECT EXTRACT(MONTH FROM t.transactionDateTime) AS month, SUM(t.amount) AS totalAmount " +
             "FROM TransactionEntity t " +
             "JOIN TransactionCustomerEntity tce ON t = tce.transactionCustomerKey.transaction " +
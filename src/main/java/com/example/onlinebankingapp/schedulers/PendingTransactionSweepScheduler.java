@@ -0,0 +1,33 @@
+package com.example.onlinebankingapp.schedulers;
+
+import com.example.onlinebankingapp.services.PendingTransactionSweeper.PendingTransactionSweeperService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class PendingTransactionSweepScheduler {
+    private final PendingTransactionSweeperService pendingTransactionSweeperService;
+
+    @Autowired
+    public PendingTransactionSweepScheduler(
+            PendingTransactionSweeperService pendingTransactionSweeperService
+    ) {
+        this.pendingTransactionSweeperService = pendingTransactionSweeperService;
+    }
+
+    // Scheduled task to delete expired PENDING transactions off the request path
+    // Fixed delay: a slow run is never overlapped by the next one
+    @Scheduled(fixedDelayString = "${transaction.pending.sweep.interval-millis:60000}",
+            initialDelayString = "${transaction.pending.sweep.interval-millis:60000}")
+    public void sweepExpiredPendingTransactions() {
+        try {
+            pendingTransactionSweeperService.sweepExpiredPendingTransactions();
+        } catch (RuntimeException e) {
+            // Next run picks up what this one left
+            log.error("Expired pending transaction sweep failed", e);
+        }
+    }
+}
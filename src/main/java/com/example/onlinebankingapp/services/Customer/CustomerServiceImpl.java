@@ -11,14 +11,14 @@ import com.example.onlinebankingapp.entities.TokenCustomerEntity;
 import com.example.onlinebankingapp.exceptions.*;
 import com.example.onlinebankingapp.repositories.CustomerRepository;
 import com.example.onlinebankingapp.repositories.TokenCustomerRepository;
+import com.example.onlinebankingapp.services.PasswordVerification.PasswordVerificationService;
+import com.example.onlinebankingapp.services.TokenRevocation.TokenRevocationService;
 import com.example.onlinebankingapp.dtos.responses.IDCardExtraction.IDCardExtractionResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -33,9 +33,10 @@ import static com.example.onlinebankingapp.utils.ValidationUtils.*;
 public class CustomerServiceImpl implements CustomerService {
     private final CustomerRepository customerRepository;
     private final PasswordEncoder passwordEncoder;
-    private final AuthenticationManager authenticationManager;
+    private final PasswordVerificationService passwordVerificationService;
     private final JwtTokenUtils jwtTokenUtil;
     private final TokenCustomerRepository tokenCustomerRepository;
+    private final TokenRevocationService tokenRevocationService;
 
     // Implementation of the login functionality
     @Override
@@ -43,7 +44,6 @@ public class CustomerServiceImpl implements CustomerService {
             LoginRequest loginRequest
     ) {
         Optional <CustomerEntity> optionalCustomer = Optional.empty();
-        String subject = null;
 
         // Check if the email is in a valid format
         if (!isValidEmail(loginRequest.getEmail())){
@@ -53,7 +53,6 @@ public class CustomerServiceImpl implements CustomerService {
         // Retrieve customer by email if available
         if (optionalCustomer.isEmpty() && loginRequest.getEmail() != null) {
             optionalCustomer = customerRepository.findByEmail(loginRequest.getEmail());
-            subject = loginRequest.getEmail();
         }
 
         // Check if the customer exists and the password matches
@@ -64,16 +63,14 @@ public class CustomerServiceImpl implements CustomerService {
             throw new DataIntegrityViolationException("Customer account is inactive. Cannot login");
         }
 
-        if(!passwordEncoder.matches(loginRequest.getPassword(), existingUser.getPassword())) {
-            throw new AppException(ErrorCode.PASSWORD_INCORRECT);
-        }
-        // Authenticate user and generate JWT token
-        UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
-                subject, loginRequest.getPassword(),
-                existingUser.getAuthorities()
-        );
+        // Check password on the hash workers, throttled per email
+        // The password is checked once: AuthenticationManager would run bcrypt a second time for the same result
+        String encodedPassword = existingUser.getPassword();
+        passwordVerificationService.verifyPassword("customer:" + loginRequest.getEmail(),
+                loginRequest.getPassword(), encodedPassword,
+                rehashedPassword -> customerRepository.updatePasswordHash(existingUser.getId(), encodedPassword, rehashedPassword));
 
-        authenticationManager.authenticate(authenticationToken);
+        // Generate JWT token
         return jwtTokenUtil.generateTokenForCustomer(existingUser);
     }
 
@@ -455,6 +452,7 @@ public class CustomerServiceImpl implements CustomerService {
         List<TokenCustomerEntity> tokens = tokenCustomerRepository.findByCustomer(customerChangePassword);
         for (TokenCustomerEntity token : tokens) {
             tokenCustomerRepository.delete(token);
+            tokenRevocationService.revokeToken(token.getToken(), token.getExpirationDate());
         }
     }
 
@@ -0,0 +1,19 @@
+package com.example.onlinebankingapp.services.CustomerMonthlyTotal;
+
+import com.example.onlinebankingapp.entities.BatchJobCheckpointEntity;
+import com.example.onlinebankingapp.entities.TransactionEntity;
+import com.example.onlinebankingapp.enums.MonthlyTotalDirection;
+import com.example.onlinebankingapp.enums.TransactionType;
+
+import java.util.List;
+
+public interface CustomerMonthlyTotalService {
+    void recordCompletedTransaction(TransactionEntity completedTransaction, Long customerId, Long receiverCustomerId);
+
+    List<Object[]> getMonthlyTotalAmountForCustomer(Long customerId, MonthlyTotalDirection direction,
+                                                    TransactionType transactionType, int year);
+
+    List<Object[]> getTotalRewardAmountForCustomer(Long customerId, int year);
+
+    BatchJobCheckpointEntity rebuildMonthlyTotals();
+}
@@ -0,0 +1,244 @@
+package com.example.onlinebankingapp.services.CustomerMonthlyTotal;
+
+import com.example.onlinebankingapp.components.ChunkedBatchRunner;
+import com.example.onlinebankingapp.entities.BatchJobCheckpointEntity;
+import com.example.onlinebankingapp.entities.CustomerMonthlyTotalEntity;
+import com.example.onlinebankingapp.entities.Money;
+import com.example.onlinebankingapp.entities.TransactionEntity;
+import com.example.onlinebankingapp.enums.MonthlyTotalDirection;
+import com.example.onlinebankingapp.enums.TransactionStatus;
+import com.example.onlinebankingapp.enums.TransactionType;
+import com.example.onlinebankingapp.repositories.CustomerMonthlyTotalRepository;
+import com.example.onlinebankingapp.repositories.CustomerRepository;
+import com.example.onlinebankingapp.repositories.RewardRepository;
+import com.example.onlinebankingapp.repositories.TransactionRepository;
+import com.example.onlinebankingapp.utils.ThreadUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class CustomerMonthlyTotalServiceImpl implements CustomerMonthlyTotalService {
+    // Logger for logging events
+    private static final Logger logger = LoggerFactory.getLogger(CustomerMonthlyTotalServiceImpl.class);
+
+    private static final String JOB_NAME = "customer-monthly-totals-rebuild";
+
+    private final CustomerMonthlyTotalRepository customerMonthlyTotalRepository;
+    private final CustomerRepository customerRepository;
+    private final RewardRepository rewardRepository;
+    private final TransactionRepository transactionRepository;
+    private final ChunkedBatchRunner chunkedBatchRunner;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final boolean isBackfillOnStartup;
+
+    public CustomerMonthlyTotalServiceImpl(
+            CustomerMonthlyTotalRepository customerMonthlyTotalRepository,
+            CustomerRepository customerRepository,
+            RewardRepository rewardRepository,
+            TransactionRepository transactionRepository,
+            ChunkedBatchRunner chunkedBatchRunner,
+            PlatformTransactionManager transactionManager,
+            @Value("${monthly-totals.rebuild.chunk-size:200}") int chunkSize,
+            @Value("${monthly-totals.backfill-on-startup:false}") boolean isBackfillOnStartup
+    ) {
+        this.customerMonthlyTotalRepository = customerMonthlyTotalRepository;
+        this.customerRepository = customerRepository;
+        this.rewardRepository = rewardRepository;
+        this.transactionRepository = transactionRepository;
+        this.chunkedBatchRunner = chunkedBatchRunner;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.isBackfillOnStartup = isBackfillOnStartup;
+    }
+
+    // Method to add a transaction which has just turned COMPLETED to the rollup
+    // Joins the caller's transaction, so the rollup commits or rolls back together with the status change
+    @Override
+    public void recordCompletedTransaction(
+            TransactionEntity completedTransaction,
+            Long customerId,
+            Long receiverCustomerId
+    ) {
+        LocalDateTime completedDateTime = completedTransaction.getTransactionDateTime();
+        String category = categoryOf(completedTransaction);
+
+        List<Long> customerIds = new ArrayList<>(List.of(customerId));
+        // Receiver id is 0 when the receiver is not a customer (reward system, own saving account)
+        boolean hasReceiverCustomer = receiverCustomerId != null && receiverCustomerId > 0;
+        if (hasReceiverCustomer) {
+            customerIds.add(receiverCustomerId);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            customerRepository.lockForMonthlyTotalIncrement(customerIds);
+            addToTotal(new RollupKey(customerId, completedDateTime.getYear(), completedDateTime.getMonthValue(),
+                    MonthlyTotalDirection.EXPENSE, completedTransaction.getTransactionType(), category),
+                    completedTransaction.getAmount());
+
+            if (hasReceiverCustomer) {
+                addToTotal(new RollupKey(receiverCustomerId, completedDateTime.getYear(), completedDateTime.getMonthValue(),
+                        MonthlyTotalDirection.INCOME, completedTransaction.getTransactionType(), category),
+                        completedTransaction.getAmount());
+            }
+        });
+    }
+
+    // Method to get totals of COMPLETED transactions of a year as (month, totalAmount), at most 12 rows
+    @Override
+    public List<Object[]> getMonthlyTotalAmountForCustomer(
+            Long customerId,
+            MonthlyTotalDirection direction,
+            TransactionType transactionType,
+            int year
+    ) {
+        return customerMonthlyTotalRepository.findMonthlyTotalAmountForCustomer(customerId, direction, transactionType, year);
+    }
+
+    // Method to get totals of COMPLETED reward redemptions of a year as (rewardType, totalAmount)
+    @Override
+    public List<Object[]> getTotalRewardAmountForCustomer(
+            Long customerId,
+            int year
+    ) {
+        return customerMonthlyTotalRepository.findTotalAmountByCategoryForCustomer(
+                customerId, MonthlyTotalDirection.EXPENSE, TransactionType.REDEEM_REWARD, year);
+    }
+
+    // Method to recompute the rollup of every customer from the transaction history
+    // Customers are paged by id, each chunk replaces the rows of its customers in one transaction
+    // Replacing (not adding) makes the job safe to re-run and to resume after a crash
+    @Override
+    public BatchJobCheckpointEntity rebuildMonthlyTotals() {
+        return chunkedBatchRunner.run(
+                JOB_NAME,
+                chunkSize,
+                (lastKey, size) -> customerRepository.findIdsAfter(
+                        lastKey == null ? 0L : lastKey, PageRequest.of(0, size)),
+                customerIds -> transactionTemplate.execute(status -> rebuildChunk(customerIds))
+        );
+    }
+
+    // Opt-in (monthly-totals.backfill-on-startup): backfill history once, when the rollup is deployed on a database
+    // which already has transactions; otherwise an employee calls POST /api/transactions/rebuildMonthlyTotals
+    // Runs on its own thread: the application serves requests meanwhile instead of waiting for the whole history
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillMonthlyTotalsIfEmpty() {
+        if (!isBackfillOnStartup) {
+            return;
+        }
+        ThreadUtils.newThreadFactory("monthly-totals-backfill-", false).newThread(() -> {
+            if (customerMonthlyTotalRepository.findFirstBy().isPresent()
+                    || !transactionRepository.existsByTransactionStatus(TransactionStatus.COMPLETED)) {
+                return;
+            }
+            logger.info("Customer monthly totals are empty, backfilling from transaction history");
+            try {
+                rebuildMonthlyTotals();
+            } catch (RuntimeException e) {
+                logger.error("Failed to backfill customer monthly totals: {}", e.toString());
+            }
+        }).start();
+    }
+
+    // Method to rebuild the rollup rows of one chunk of customers, runs inside the chunk transaction
+    private int rebuildChunk(List<Long> customerIds) {
+        // Lock the customers first: a live increment either committed before (and is in the history read below)
+        // or waits for this chunk and is added on top of the rebuilt total; no increment creates a row meanwhile
+        customerRepository.lockForMonthlyTotalRebuild(customerIds);
+        List<CustomerMonthlyTotalEntity> existingTotalList = customerMonthlyTotalRepository.findByCustomerIdIn(customerIds);
+
+        Map<RollupKey, CustomerMonthlyTotalEntity> rebuiltTotalMap = new HashMap<>();
+        for (Object[] result : customerMonthlyTotalRepository.aggregateExpenseForCustomers(
+                customerIds, TransactionStatus.COMPLETED, TransactionType.REDEEM_REWARD)) {
+            String category = result[4] == null ? CustomerMonthlyTotalEntity.CATEGORY_NONE : result[4].toString();
+            mergeAggregate(rebuiltTotalMap, new RollupKey((Long) result[0], ((Number) result[1]).intValue(),
+                    ((Number) result[2]).intValue(), MonthlyTotalDirection.EXPENSE, (TransactionType) result[3], category),
+                    result[5], result[6]);
+        }
+        for (Object[] result : customerMonthlyTotalRepository.aggregateIncomeForCustomers(
+                customerIds, TransactionStatus.COMPLETED)) {
+            mergeAggregate(rebuiltTotalMap, new RollupKey((Long) result[0], ((Number) result[1]).intValue(),
+                    ((Number) result[2]).intValue(), MonthlyTotalDirection.INCOME, (TransactionType) result[3],
+                    CustomerMonthlyTotalEntity.CATEGORY_NONE),
+                    result[4], result[5]);
+        }
+
+        // Rows without history are zeroed, not deleted: a waiting live increment still finds its row
+        for (CustomerMonthlyTotalEntity existingTotal : existingTotalList) {
+            CustomerMonthlyTotalEntity rebuiltTotal = rebuiltTotalMap.remove(RollupKey.of(existingTotal));
+            existingTotal.setTotalAmount(rebuiltTotal != null ? rebuiltTotal.getTotalAmount() : Money.ZERO);
+            existingTotal.setTransactionCount(rebuiltTotal != null ? rebuiltTotal.getTransactionCount() : 0L);
+        }
+        customerMonthlyTotalRepository.saveAll(rebuiltTotalMap.values());
+
+        return customerIds.size();
+    }
+
+    private void mergeAggregate(
+            Map<RollupKey, CustomerMonthlyTotalEntity> rebuiltTotalMap,
+            RollupKey rollupKey,
+            Object totalAmount,
+            Object transactionCount
+    ) {
+        CustomerMonthlyTotalEntity rebuiltTotal = rebuiltTotalMap.computeIfAbsent(rollupKey, RollupKey::newTotal);
+        rebuiltTotal.setTotalAmount(rebuiltTotal.getTotalAmount().plus(Money.fromAggregate(totalAmount)));
+        rebuiltTotal.setTransactionCount(rebuiltTotal.getTransactionCount() + ((Number) transactionCount).longValue());
+    }
+
+    private void addToTotal(RollupKey rollupKey, Money amount) {
+        customerMonthlyTotalRepository.addToTotal(rollupKey.customerId(), rollupKey.year(), rollupKey.month(),
+                rollupKey.direction().name(), rollupKey.transactionType().name(), rollupKey.category(),
+                amount.toBigDecimal());
+    }
+
+    // Reward type of a redeemed reward, NONE for every other transaction
+    private String categoryOf(TransactionEntity transaction) {
+        if (transaction.getTransactionType() != TransactionType.REDEEM_REWARD) {
+            return CustomerMonthlyTotalEntity.CATEGORY_NONE;
+        }
+        return rewardRepository.findById(transaction.getReceiverId())
+                .map(reward -> reward.getRewardType().name())
+                .orElse(CustomerMonthlyTotalEntity.CATEGORY_NONE);
+    }
+
+    private record RollupKey(
+            Long customerId,
+            int year,
+            int month,
+            MonthlyTotalDirection direction,
+            TransactionType transactionType,
+            String category
+    ) {
+        static RollupKey of(CustomerMonthlyTotalEntity total) {
+            return new RollupKey(total.getCustomerId(), total.getTotalYear(), total.getTotalMonth(),
+                    total.getDirection(), total.getTransactionType(), total.getCategory());
+        }
+
+        CustomerMonthlyTotalEntity newTotal() {
+            return CustomerMonthlyTotalEntity.builder()
+                    .customerId(customerId)
+                    .totalYear(year)
+                    .totalMonth(month)
+                    .direction(direction)
+                    .transactionType(transactionType)
+                    .category(category)
+                    .totalAmount(Money.ZERO)
+                    .transactionCount(0L)
+                    .build();
+        }
+    }
+}
@@ -11,14 +11,13 @@ import com.example.onlinebankingapp.entities.EmployeeEntity;
 import com.example.onlinebankingapp.enums.EmployeeRole;
 import com.example.onlinebankingapp.repositories.EmployeeRepository;
 import com.example.onlinebankingapp.repositories.TokenEmployeeRepository;
+import com.example.onlinebankingapp.services.PasswordVerification.PasswordVerificationService;
 import com.example.onlinebankingapp.services.Token.TokenEmployeeServiceImpl;
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -33,7 +32,7 @@ import java.util.Optional;
 public class EmployeeServiceImpl implements EmployeeService {
     private final EmployeeRepository employeeRepository;
     private final PasswordEncoder passwordEncoder;
-    private final AuthenticationManager authenticationManager;
+    private final PasswordVerificationService passwordVerificationService;
     private final JwtTokenUtils jwtTokenUtil;
     private final TokenEmployeeRepository tokenEmployeeRepository;
     private final TokenEmployeeServiceImpl tokenEmployeeService;
@@ -43,7 +42,6 @@ public class EmployeeServiceImpl implements EmployeeService {
             LoginRequest loginRequest
     ) {
         Optional<EmployeeEntity> optionalEmployee = Optional.empty();
-        String subject = null;
 
         // Check if the email is in a valid format
         if (!isValidEmail(loginRequest.getEmail())){
@@ -53,23 +51,19 @@ public class EmployeeServiceImpl implements EmployeeService {
         // Retrieve employee by email if available
         if (loginRequest.getEmail() != null) {
             optionalEmployee = employeeRepository.findByEmail(loginRequest.getEmail());
-            subject = loginRequest.getEmail();
         }
 
         // Check if the employee exists and the password matches
         EmployeeEntity existingEmployee = optionalEmployee.get();
 
-        if(!passwordEncoder.matches(loginRequest.getPassword(), existingEmployee.getPassword())) {
-            throw new AppException(ErrorCode.PASSWORD_INCORRECT);
-        }
-
-        // Authenticate user and generate JWT token -> chua lien ket bang token voi Employee
-        UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
-                subject, loginRequest.getPassword(),
-                existingEmployee.getAuthorities()
-        );
+        // Check password on the hash workers, throttled per email
+        // The password is checked once: AuthenticationManager would run bcrypt a second time for the same result
+        String encodedPassword = existingEmployee.getPassword();
+        passwordVerificationService.verifyPassword("employee:" + loginRequest.getEmail(),
+                loginRequest.getPassword(), encodedPassword,
+                rehashedPassword -> employeeRepository.updatePasswordHash(existingEmployee.getId(), encodedPassword, rehashedPassword));
 
-        authenticationManager.authenticate(authenticationToken);
+        // Generate JWT token -> chua lien ket bang token voi Employee
         return jwtTokenUtil.generateTokenForEmployee(existingEmployee);
     }
 
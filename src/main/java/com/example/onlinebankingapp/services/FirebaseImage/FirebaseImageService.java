@@ -6,6 +6,6 @@ import org.springframework.web.multipart.MultipartFile;
 public interface FirebaseImageService {
     FirebaseImageResponse uploadCustomerAvatar(long customerId, MultipartFile file, boolean updateAvatar);
     FirebaseImageResponse uploadRewardImage(long rewardId, MultipartFile file, boolean updateImage);
-    FirebaseImageResponse getCustomerAvatar(long customerId);
-    FirebaseImageResponse getRewardImage(long rewardId);
+    FirebaseImageResponse getCustomerAvatar(long customerId, String size);
+    FirebaseImageResponse getRewardImage(long rewardId, String size);
 }
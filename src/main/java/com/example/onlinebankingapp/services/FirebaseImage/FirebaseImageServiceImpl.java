@@ -3,44 +3,99 @@ package com.example.onlinebankingapp.services.FirebaseImage;
 import com.example.onlinebankingapp.dtos.responses.FirebaseImageResponse;
 import com.example.onlinebankingapp.entities.CustomerEntity;
 import com.example.onlinebankingapp.entities.RewardEntity;
+import com.example.onlinebankingapp.enums.ImageVariantSize;
 import com.example.onlinebankingapp.exceptions.AppException;
 import com.example.onlinebankingapp.exceptions.ErrorCode;
 import com.example.onlinebankingapp.repositories.CustomerRepository;
 import com.example.onlinebankingapp.repositories.RewardRepository;
 import com.example.onlinebankingapp.services.Customer.CustomerService;
 import com.example.onlinebankingapp.services.Reward.RewardService;
+import com.example.onlinebankingapp.utils.ExpiringMap;
 import com.example.onlinebankingapp.utils.ImageUtils;
-import com.google.cloud.storage.*;
-import com.google.firebase.cloud.StorageClient;
-import lombok.RequiredArgsConstructor;
+import com.example.onlinebankingapp.utils.ValidationUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.util.UUID;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
 
 @Service
-@RequiredArgsConstructor
 public class FirebaseImageServiceImpl implements FirebaseImageService {
     private final CustomerService customerService;
     private final RewardService rewardService;
 
     private final CustomerRepository customerRepository;
     private final RewardRepository rewardRepository;
-
-    @Value("${firebase.bucket}")
-    private String bucket;
-
-    @Value("${firebase.public-retrieve-url}")
-    private String publicRetrieveUrl;
+    private final ImageStorage imageStorage;
+    private final ImageVariantGenerator imageVariantGenerator;
+    private final ImageBlobRegistry imageBlobRegistry;
+    private final TransactionTemplate transactionTemplate;
+
+    private final String bucket;
+    private final String publicRetrieveUrl;
+    private final boolean isSignedUrlEnabled;
+    private final Duration signedUrlValidity;
+
+    // Metadata of stored images, filled on upload: replacing an image usually needs no lookup of the old one
+    // Missing files are not cached, so a file uploaded by another node is found on the next lookup
+    private final ExpiringMap<ImageStorage.ImageMetadata> metadataCache;
+    private final Duration metadataTtl;
+    // Signed URLs are reused for half their validity instead of being signed on every read
+    private final ExpiringMap<String> signedUrlCache;
+
+    public FirebaseImageServiceImpl(
+            CustomerService customerService,
+            RewardService rewardService,
+            CustomerRepository customerRepository,
+            RewardRepository rewardRepository,
+            ImageStorage imageStorage,
+            ImageVariantGenerator imageVariantGenerator,
+            ImageBlobRegistry imageBlobRegistry,
+            PlatformTransactionManager transactionManager,
+            @Value("${firebase.bucket}") String bucket,
+            @Value("${firebase.public-retrieve-url}") String publicRetrieveUrl,
+            @Value("${firebase.signed-url.enabled:false}") boolean isSignedUrlEnabled,
+            @Value("${firebase.signed-url.validity-minutes:60}") long signedUrlValidityMinutes,
+            @Value("${firebase.cache.max-size:10000}") int cacheMaxSize,
+            @Value("${firebase.cache.metadata-ttl-seconds:600}") long metadataTtlSeconds
+    ) {
+        this.customerService = customerService;
+        this.rewardService = rewardService;
+        this.customerRepository = customerRepository;
+        this.rewardRepository = rewardRepository;
+        this.imageStorage = imageStorage;
+        this.imageVariantGenerator = imageVariantGenerator;
+        this.imageBlobRegistry = imageBlobRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bucket = bucket;
+        this.publicRetrieveUrl = publicRetrieveUrl;
+        this.isSignedUrlEnabled = isSignedUrlEnabled;
+        this.signedUrlValidity = Duration.ofMinutes(Math.max(2, signedUrlValidityMinutes));
+        this.metadataCache = ExpiringMap.evictingWhenFull(cacheMaxSize);
+        this.metadataTtl = Duration.ofSeconds(metadataTtlSeconds);
+        this.signedUrlCache = ExpiringMap.evictingWhenFull(cacheMaxSize);
+    }
 
     private static final String CUSTOMER_NOT_FOUND_DEFAULT = "customer_avatar_NOTFOUND.jpg";
     private static final String REWARD_NOT_FOUND_DEFAULT = "reward_image_NOTFOUND.jpg";
     private static final String CUSTOMER_AVATAR_BUCKET = "customerAvatars/";
     private static final String REWARD_IMAGE_BUCKET = "rewardImages/";
+    // Size variants of an image live in <bucket>variants/<size>/ under the same file name as the original
+    private static final String VARIANT_FOLDER = "variants/";
+    // Part of the stored name of images uploaded with size variants; older images and WebP images have none
+    private static final String VARIANTS_NAME_MARKER = "_sized";
+    private static final int CONTENT_HASH_BUFFER_SIZE = 8192;
 
     @Override
     public FirebaseImageResponse uploadCustomerAvatar(
@@ -54,34 +109,31 @@ public class FirebaseImageServiceImpl implements FirebaseImageService {
             throw new AppException(ErrorCode.USER_NOT_FOUND);
         }
 
-        String nameFileCustom = customImageName(file, "CUSTOMER_AVATAR", customerId);
+        String nameFileCustom = customImageName(file);
         if(nameFileCustom.isEmpty() || nameFileCustom.isBlank()){
             throw new AppException(ErrorCode.IMAGE_CUSTOM_NAME_INVALID);
         }
+        String fileExtension = getFileExtension(file);
 
-        // Set image hashed name for existingCustomer
-        String customerAvatarHashedName = nameFileCustom + getFileExtension(file);
-
-        // Create filePath to store in folder CUSTOMER_AVATAR_BUCKET
-        String newFilePath = CUSTOMER_AVATAR_BUCKET + customerAvatarHashedName;
-        String oldFilePath = null;
+        // Old image to replace in folder CUSTOMER_AVATAR_BUCKET
+        String oldFileName = null;
         if(updateAvatar){
             // Check not default NOTFOUND of system for avoid delete
             if(!existingCustomer.getAvatarHashedName().equals(CUSTOMER_NOT_FOUND_DEFAULT)) {
-                oldFilePath = CUSTOMER_AVATAR_BUCKET + existingCustomer.getAvatarHashedName();
+                oldFileName = existingCustomer.getAvatarHashedName();
             }
         }
 
-        // Upload to firebase
-        FirebaseImageResponse uploadedRewardImage = uploadFileToFirebase(file, newFilePath, oldFilePath);
-        if(!uploadedRewardImage.getStatus().equals("success")){
-            throw new AppException(ErrorCode.IMAGE_UPLOAD_FAILED);
-        }
+        // Upload to firebase, the stored name is the image hashed name for existingCustomer
+        String customerAvatarHashedName = uploadFileToFirebase(
+                file, CUSTOMER_AVATAR_BUCKET, nameFileCustom, fileExtension, oldFileName);
 
         existingCustomer.setAvatarHashedName(customerAvatarHashedName);
-        customerRepository.save(existingCustomer);
+        saveImageName(CUSTOMER_AVATAR_BUCKET, customerAvatarHashedName, oldFileName,
+                () -> customerRepository.save(existingCustomer));
 
-        return uploadedRewardImage;
+        // Get URL for viewing image
+        return new FirebaseImageResponse("success", "Image uploaded successfully", getImageUrl(CUSTOMER_AVATAR_BUCKET + customerAvatarHashedName));
     }
 
     // When to use?
@@ -102,39 +154,37 @@ public class FirebaseImageServiceImpl implements FirebaseImageService {
             throw new AppException(ErrorCode.REWARD_NOT_FOUND);
         }
 
-        String nameFileCustom = customImageName(file, "REWARD_IMAGE", rewardId);
+        String nameFileCustom = customImageName(file);
         if(nameFileCustom.isEmpty() || nameFileCustom.isBlank()){
             throw new AppException(ErrorCode.IMAGE_CUSTOM_NAME_INVALID);
         }
+        String fileExtension = getFileExtension(file);
 
-        // Set image hashed name for existingReward
-        String rewardImageHashedName = nameFileCustom + getFileExtension(file);
-
-        // Create filePath to store in folder REWARD_IMAGE_BUCKET
-        String newFilePath = REWARD_IMAGE_BUCKET + rewardImageHashedName;
-        String oldFilePath = null;
+        // Old image to replace in folder REWARD_IMAGE_BUCKET
+        String oldFileName = null;
         if(updateImage){
             // Check not default NOTFOUND of system for avoid delete
             if(!existingReward.getImageHashedName().equals(REWARD_NOT_FOUND_DEFAULT)){
-                oldFilePath = REWARD_IMAGE_BUCKET + existingReward.getImageHashedName();
+                oldFileName = existingReward.getImageHashedName();
             }
         }
 
-        // Upload to firebase
-        FirebaseImageResponse uploadedRewardImage = uploadFileToFirebase(file, newFilePath, oldFilePath);
-        if(!uploadedRewardImage.getStatus().equals("success")){
-            throw new AppException(ErrorCode.IMAGE_UPLOAD_FAILED);
-        }
+        // Upload to firebase, the stored name is the image hashed name for existingReward
+        String rewardImageHashedName = uploadFileToFirebase(
+                file, REWARD_IMAGE_BUCKET, nameFileCustom, fileExtension, oldFileName);
 
         existingReward.setImageHashedName(rewardImageHashedName);
-        rewardRepository.save(existingReward);
+        saveImageName(REWARD_IMAGE_BUCKET, rewardImageHashedName, oldFileName,
+                () -> rewardRepository.save(existingReward));
 
-        return uploadedRewardImage;
+        // Get URL for viewing image
+        return new FirebaseImageResponse("success", "Image uploaded successfully", getImageUrl(REWARD_IMAGE_BUCKET + rewardImageHashedName));
     }
 
     @Override
     public FirebaseImageResponse getCustomerAvatar(
-            long customerId
+            long customerId,
+            String size
     ) {
         // Find existingCustomer
         CustomerEntity existingCustomer = customerService.getCustomerById(customerId);
@@ -142,18 +192,14 @@ public class FirebaseImageServiceImpl implements FirebaseImageService {
             throw new AppException(ErrorCode.USER_NOT_FOUND);
         }
 
-        // Get from firebase
-        FirebaseImageResponse customerAvatar = getFileFromFirebase(CUSTOMER_AVATAR_BUCKET, existingCustomer.getAvatarHashedName());
-        if(!customerAvatar.getStatus().equals("success")){
-            throw new AppException(ErrorCode.IMAGE_RETRIEVE_FAILED);
-        }
-
-        return customerAvatar;
+        // URL built from the stored name: the upload already made sure the file exists
+        return getFileFromFirebase(CUSTOMER_AVATAR_BUCKET, existingCustomer.getAvatarHashedName(), size);
     }
 
     @Override
     public FirebaseImageResponse getRewardImage(
-            long rewardId
+            long rewardId,
+            String size
     ) {
         // Find existingReward
         RewardEntity existingReward = rewardService.getRewardById(rewardId);
@@ -161,108 +207,178 @@ public class FirebaseImageServiceImpl implements FirebaseImageService {
             throw new AppException(ErrorCode.REWARD_NOT_FOUND);
         }
 
-        // Get from firebase
-        FirebaseImageResponse rewardImage = getFileFromFirebase(REWARD_IMAGE_BUCKET, existingReward.getImageHashedName());
-        if(!rewardImage.getStatus().equals("success")){
-            throw new AppException(ErrorCode.IMAGE_RETRIEVE_FAILED);
+        // URL built from the stored name: the upload already made sure the file exists
+        return getFileFromFirebase(REWARD_IMAGE_BUCKET, existingReward.getImageHashedName(), size);
+    }
+
+    // Upload or update image of customer/ reward, return the name of the stored file, already referenced
+    // Files are named by the hash of their content: identical images are stored once and referenced again
+    // The old image stays referenced here, saveImageName releases it
+    private String uploadFileToFirebase(
+            MultipartFile file,
+            String bucketType,
+            String contentHash,
+            String fileExtension,
+            String oldFileName
+    ) {
+        // Check if existingCustomer or existingReward already has image
+        if(oldFileName != null){
+            ImageStorage.ImageMetadata oldImage = metadataCache.getOrLoad(bucketType + oldFileName,
+                    filePath -> imageStorage.getMetadata(filePath).orElse(null), metadataTtl);
+            if (oldImage == null) {
+                throw new AppException(ErrorCode.IMAGE_UPLOAD_FAILED);
+            }
         }
 
-        return rewardImage;
+        // Same content already stored: only its reference count changes, nothing is transcoded or uploaded
+        String contentKey = bucketType + contentHash + fileExtension;
+        String newFileName = imageBlobRegistry.acquireExisting(contentKey).orElseGet(() -> {
+            // Decode once and resize into every variant size, on the transcode workers, before the blob is locked
+            Map<ImageVariantSize, byte[]> variants = imageVariantGenerator.generateVariants(file, fileExtension);
+            String fileName = contentHash + (variants.isEmpty() ? "" : VARIANTS_NAME_MARKER) + fileExtension;
+            return imageBlobRegistry.acquire(contentKey, () -> storeImage(file, variants, bucketType, fileName));
+        });
+
+        return newFileName;
     }
 
-    // Upload or update image of customer/ reward
-    private FirebaseImageResponse uploadFileToFirebase(
-            MultipartFile file,
-            String newFilePath,
-            String oldFilePath
+    // Method to save the new image name of customer/ reward, whose reference is already counted
+    // The old image is released only once the save is committed, a failed save gives the new reference back:
+    // the DB never points at a released file and no reference is left behind
+    private void saveImageName(
+            String bucketType,
+            String newFileName,
+            String oldFileName,
+            Runnable save
     ) {
         try {
-            // Get the storage bucket using the bucket name from properties
-            Bucket storageBucket = StorageClient.getInstance().bucket(bucket);
-
-            // Check if existingCustomer or existingReward already has image
-            // Delete to update new image
-            if(oldFilePath != null){
-                Blob oldBlob = storageBucket.get(oldFilePath);
-                // Check if blob exists and delete it
-                if (oldBlob != null && oldBlob.exists()) {
-                    oldBlob.delete();
-                } else {
-                    return new FirebaseImageResponse("fail", "Firebase does not have this file path for the image", oldFilePath);
-                }
-            }
+            transactionTemplate.executeWithoutResult(status -> save.run());
+        } catch (RuntimeException e) {
+            releaseImage(bucketType, newFileName);
+            throw e;
+        }
+
+        if(oldFileName != null){
+            releaseImage(bucketType, oldFileName);
+        }
+    }
 
-            // Create a blob and upload the file to Firebase Storage
-            storageBucket.create(newFilePath, file.getInputStream(), file.getContentType());
+    // Delete an image, with its size variants, once no other customer/ reward uses it
+    private void releaseImage(
+            String bucketType,
+            String fileName
+    ) {
+        imageBlobRegistry.release(getContentKey(bucketType, fileName), () -> deleteImage(bucketType, fileName));
+    }
 
-            // Get public URL for viewing image
-            String publicUrl = getPublicUrl(newFilePath);
+    // Upload the size variants first, then the original which the DB will point at
+    // All files exist from here on, reads no longer check them
+    private String storeImage(
+            MultipartFile file,
+            Map<ImageVariantSize, byte[]> variants,
+            String bucketType,
+            String fileName
+    ) {
+        try {
+            // Variants are encoded as PNG or JPEG by the file extension, whatever the original content is
+            String variantContentType = fileName.toLowerCase().endsWith(".png") ? "image/png" : "image/jpeg";
+            for (Map.Entry<ImageVariantSize, byte[]> variant : variants.entrySet()) {
+                String variantPath = getVariantPath(bucketType, fileName, variant.getKey());
+                ImageStorage.ImageMetadata variantImage = imageStorage.upload(
+                        variantPath, new ByteArrayInputStream(variant.getValue()), variantContentType);
+                invalidateCachedImage(variantPath);
+                metadataCache.put(variantPath, variantImage, metadataTtl);
+            }
 
-            // Return success response
-            return new FirebaseImageResponse("success", "Image uploaded successfully", publicUrl);
+            String filePath = bucketType + fileName;
+            ImageStorage.ImageMetadata newImage = imageStorage.upload(filePath, file.getInputStream(), file.getContentType());
+            invalidateCachedImage(filePath);
+            metadataCache.put(filePath, newImage, metadataTtl);
+            return fileName;
         } catch (IOException e) {
-            // Return fail response
-            return new FirebaseImageResponse("fail", "Failed to upload image to Firebase", e.toString());
+            throw new AppException(ErrorCode.IMAGE_UPLOAD_FAILED);
+        }
+    }
+
+    private void deleteImage(
+            String bucketType,
+            String fileName
+    ) {
+        String filePath = bucketType + fileName;
+        imageStorage.delete(filePath);
+        invalidateCachedImage(filePath);
+
+        if (hasVariants(fileName)) {
+            for (ImageVariantSize size : ImageVariantSize.values()) {
+                String variantPath = getVariantPath(bucketType, fileName, size);
+                imageStorage.delete(variantPath);
+                invalidateCachedImage(variantPath);
+            }
         }
     }
 
-    // Method to retrieve a file from Firebase Storage
+    // Method to build the URL of a stored file, without any call to Firebase
+    // size picks a variant (SMALL, MEDIUM, LARGE); no size, or an image without variants, gives the original
     private FirebaseImageResponse getFileFromFirebase(
             String bucketType,
-            String fileNameInDB
+            String fileNameInDB,
+            String size
     ) {
-        try {
-            // Construct the filePath using bucketType and fileName
-            String filePath = bucketType + fileNameInDB;
-
-            // Check if the blob exists
-            Bucket storageBucket = StorageClient.getInstance().bucket(bucket);
-            Blob blob = storageBucket.get(filePath); // Use filePath directly
-            if (blob == null || !blob.exists()) {
-                if(bucketType.equals(CUSTOMER_AVATAR_BUCKET)){
-                    throw new AppException(ErrorCode.IMAGE_CUSTOMER_NOT_FOUND);
-                }
-                else{
-                    throw new AppException(ErrorCode.IMAGE_REWARD_NOT_FOUND);
-                }
+        // Construct the filePath using bucketType and fileName
+        String filePath = bucketType + fileNameInDB;
+        if (size != null && !size.isBlank()) {
+            if (!ValidationUtils.isValidEnum(size.toUpperCase(), ImageVariantSize.class)) {
+                throw new AppException(ErrorCode.IMAGE_VARIANT_SIZE_INVALID);
             }
+            if (hasVariants(fileNameInDB)) {
+                filePath = getVariantPath(bucketType, fileNameInDB, ImageVariantSize.valueOf(size.toUpperCase()));
+            }
+        }
 
-            // Get public URL for viewing image
-            String publicUrl = getPublicUrl(filePath);
+        // Return success response
+        return new FirebaseImageResponse("success", "Image retrieved successfully", getImageUrl(filePath));
+    }
 
-            // Return success response
-            return new FirebaseImageResponse("success", "Image retrieved successfully", publicUrl);
-        } catch (Exception e) {
-            // Return fail response
-            return new FirebaseImageResponse("fail", "Failed to retrieve image from Firebase", e.toString());
-        }
+    // Reference counts are kept per content: the same name with or without size variants
+    private String getContentKey(String bucketType, String fileName) {
+        return bucketType + fileName.replace(VARIANTS_NAME_MARKER, "");
     }
 
-    // Method to custom the image file name to be unique
+    private boolean hasVariants(String fileNameInDB) {
+        return fileNameInDB.contains(VARIANTS_NAME_MARKER + ".");
+    }
+
+    // Display: customerAvatars/variants/small/<fileName>
+    private String getVariantPath(String bucketType, String fileName, ImageVariantSize size) {
+        return bucketType + VARIANT_FOLDER + size.name().toLowerCase() + "/" + fileName;
+    }
+
+    private void invalidateCachedImage(String filePath) {
+        metadataCache.remove(filePath);
+        signedUrlCache.remove(filePath);
+    }
+
+    // Method to name the image file by the SHA-256 of its content, read in chunks, never whole in memory
+    // Identical images get the same name, so they are stored only once
     private String customImageName(
-            MultipartFile file,
-            String imageFor,
-            Long id
+            MultipartFile file
     ) {
         // Bypass all check but extension file is return false
         if(!ImageUtils.isValidImage(file)){
             throw new AppException(ErrorCode.IMAGE_EXTENSION_INVALID);
         }
 
-        // Add UUID at beginning of fileName to ensure unique
-        String uniqueFileName = UUID.randomUUID().toString() + "_";
-
-        if(imageFor.equals("CUSTOMER_AVATAR")){
-            uniqueFileName += "customer_id_" + id;
-        }
-        else if(imageFor.equals("REWARD_IMAGE")) {
-            uniqueFileName += "reward_id_" + id;
-        }
-        else{
-            throw new AppException(ErrorCode.IMAGE_PURPOSE_INVALID);
+        try (InputStream inputStream = file.getInputStream()) {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[CONTENT_HASH_BUFFER_SIZE];
+            int readCount;
+            while ((readCount = inputStream.read(buffer)) != -1) {
+                messageDigest.update(buffer, 0, readCount);
+            }
+            return HexFormat.of().formatHex(messageDigest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new AppException(ErrorCode.IMAGE_CUSTOM_NAME_INVALID);
         }
-
-        return uniqueFileName;
     }
 
     // Method to get file extension from MultipartFile
@@ -271,6 +387,15 @@ public class FirebaseImageServiceImpl implements FirebaseImageService {
         return originalFilename != null ? originalFilename.substring(originalFilename.lastIndexOf('.')) : "";
     }
 
+    // Method to get the URL for viewing an image: signed when firebase.signed-url.enabled, public otherwise
+    private String getImageUrl(String exitingFirebaseFilePath) {
+        if (!isSignedUrlEnabled) {
+            return getPublicUrl(exitingFirebaseFilePath);
+        }
+        return signedUrlCache.getOrLoad(exitingFirebaseFilePath,
+                filePath -> imageStorage.getSignedUrl(filePath, signedUrlValidity), signedUrlValidity.dividedBy(2));
+    }
+
     // Method to construct the public URL using the specified pattern
     private String getPublicUrl(String exitingFirebaseFilePath){
         return String.format(publicRetrieveUrl + "%s/o/%s?alt=media",
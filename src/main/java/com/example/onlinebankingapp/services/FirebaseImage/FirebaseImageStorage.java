@@ -0,0 +1,66 @@
+package com.example.onlinebankingapp.services.FirebaseImage;
+
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Bucket;
+import com.google.cloud.storage.Storage;
+import com.google.firebase.cloud.StorageClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Firebase Storage bucket, every call except getSignedUrl is a remote round trip
+@Component
+@ConditionalOnProperty(name = "firebase.storage.fake", havingValue = "false", matchIfMissing = true)
+public class FirebaseImageStorage implements ImageStorage {
+    @Value("${firebase.bucket}")
+    private String bucket;
+
+    @Override
+    public ImageMetadata upload(String filePath, InputStream content, String contentType) throws IOException {
+        Blob blob = storageBucket().create(filePath, content, contentType);
+        if (blob == null) {
+            throw new IOException("Firebase did not store " + filePath);
+        }
+        return toMetadata(blob);
+    }
+
+    @Override
+    public Optional<ImageMetadata> getMetadata(String filePath) {
+        Blob blob = storageBucket().get(filePath);
+        if (blob == null || !blob.exists()) {
+            return Optional.empty();
+        }
+        return Optional.of(toMetadata(blob));
+    }
+
+    // Single call: false when there was nothing to delete
+    @Override
+    public boolean delete(String filePath) {
+        return storageBucket().getStorage().delete(BlobId.of(bucket, filePath));
+    }
+
+    // V4 signature computed locally with the service account key, no request to Google
+    @Override
+    public String getSignedUrl(String filePath, Duration validity) {
+        Storage storage = storageBucket().getStorage();
+        return storage.signUrl(BlobInfo.newBuilder(bucket, filePath).build(),
+                validity.toSeconds(), TimeUnit.SECONDS,
+                Storage.SignUrlOption.withV4Signature()).toString();
+    }
+
+    private Bucket storageBucket() {
+        return StorageClient.getInstance().bucket(bucket);
+    }
+
+    private ImageMetadata toMetadata(Blob blob) {
+        return new ImageMetadata(blob.getName(), blob.getContentType(), blob.getSize() == null ? 0L : blob.getSize());
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.onlinebankingapp.services.FirebaseImage;
+
+import com.example.onlinebankingapp.entities.ImageBlobEntity;
+import com.example.onlinebankingapp.exceptions.AppException;
+import com.example.onlinebankingapp.exceptions.ErrorCode;
+import com.example.onlinebankingapp.repositories.ImageBlobRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+// Reference counts of content-addressed image files, in the image_blobs table
+// Only the first upload of some content stores a file, only the release of its last reference deletes it
+@Component
+public class ImageBlobRegistry {
+    // Logger for logging events
+    private static final Logger logger = LoggerFactory.getLogger(ImageBlobRegistry.class);
+
+    private final ImageBlobRepository imageBlobRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate requiresNewTransactionTemplate;
+
+    public ImageBlobRegistry(
+            ImageBlobRepository imageBlobRepository,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.imageBlobRepository = imageBlobRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.requiresNewTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.requiresNewTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Method to reference an already stored file by its content, without any lock or storage call
+    // Empty when the content is not stored yet: the caller prepares the file and calls acquire
+    public Optional<String> acquireExisting(String contentKey) {
+        return transactionTemplate.execute(status -> {
+            if (imageBlobRepository.addReference(contentKey) == 0) {
+                return Optional.<String>empty();
+            }
+            return imageBlobRepository.findFileNameByContentKey(contentKey);
+        });
+    }
+
+    // Method to reference a file by its content, storing it first when nobody references it
+    // The storer runs with the row locked and returns the stored file name; it is skipped when a concurrent
+    // upload of the same content stored the file meanwhile. A failing storer leaves the count unchanged
+    public String acquire(String contentKey, Supplier<String> storer) {
+        if (!imageBlobRepository.existsByContentKey(contentKey)) {
+            // First upload of this content: create the row in its own transaction, then lock it
+            // A concurrent first upload may create it too, the loser just reuses the committed row
+            try {
+                requiresNewTransactionTemplate.executeWithoutResult(status ->
+                        imageBlobRepository.saveAndFlush(ImageBlobEntity.builder()
+                                .contentKey(contentKey)
+                                .referenceCount(0L)
+                                .build()));
+            } catch (DataIntegrityViolationException e) {
+                logger.debug("Image blob row {} was created concurrently", contentKey);
+            }
+        }
+
+        return transactionTemplate.execute(status -> {
+            ImageBlobEntity imageBlob = lockImageBlob(contentKey)
+                    .orElseThrow(() -> new AppException(ErrorCode.IMAGE_UPLOAD_FAILED));
+            if (imageBlob.getReferenceCount() == 0) {
+                imageBlob.setFileName(storer.get());
+            }
+            imageBlob.setReferenceCount(imageBlob.getReferenceCount() + 1);
+            imageBlobRepository.save(imageBlob);
+            return imageBlob.getFileName();
+        });
+    }
+
+    // Method to drop a reference, the deleter removes the file when it was the last one
+    // The file is deleted only once the release is committed: a rolled back release keeps it, and no storage call
+    // runs inside the caller's transaction
+    // Images uploaded before deduplication have no row: each belongs to a single customer/ reward, deleted right away
+    public void release(String contentKey, Runnable deleter) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (imageBlobRepository.removeReference(contentKey) == 1) {
+                return;
+            }
+
+            Optional<ImageBlobEntity> imageBlob = lockImageBlob(contentKey);
+            if (imageBlob.isEmpty()) {
+                deleteAfterCommit(contentKey, deleter);
+                return;
+            }
+            long referenceCount = imageBlob.get().getReferenceCount();
+            if (referenceCount == 0) {
+                return;
+            }
+
+            imageBlob.get().setReferenceCount(referenceCount - 1);
+            imageBlobRepository.save(imageBlob.get());
+            if (referenceCount == 1) {
+                deleteAfterCommit(contentKey, () -> deleteUnreferenced(contentKey, deleter));
+            }
+        });
+    }
+
+    // Runs after the release committed, with the row locked again: a concurrent upload of the same content may have
+    // stored the file under the same name meanwhile, then it is referenced and must stay
+    private void deleteUnreferenced(String contentKey, Runnable deleter) {
+        requiresNewTransactionTemplate.executeWithoutResult(status -> {
+            Optional<ImageBlobEntity> imageBlob = lockImageBlob(contentKey);
+            if (imageBlob.isEmpty() || imageBlob.get().getReferenceCount() != 0 || imageBlob.get().getFileName() == null) {
+                return;
+            }
+            deleter.run();
+            imageBlob.get().setFileName(null);
+            imageBlobRepository.save(imageBlob.get());
+        });
+    }
+
+    // Method to lock the row of a blob and read its current state
+    // With open-in-view the persistence context outlives the transaction: an instance loaded earlier in the same
+    // request would be returned as is by the locking query, so it is refreshed once the lock is held
+    private Optional<ImageBlobEntity> lockImageBlob(String contentKey) {
+        Optional<ImageBlobEntity> imageBlob = imageBlobRepository.findByContentKeyForUpdate(contentKey);
+        imageBlob.ifPresent(entityManager::refresh);
+        return imageBlob;
+    }
+
+    // The release is already committed: a failing storage call leaves an orphan file, it does not fail the upload
+    private static void deleteAfterCommit(String contentKey, Runnable deletion) {
+        Runnable loggedDeletion = () -> {
+            try {
+                deletion.run();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to delete released image {}: {}", contentKey, e.toString());
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    loggedDeletion.run();
+                }
+            });
+        } else {
+            loggedDeletion.run();
+        }
+    }
+}
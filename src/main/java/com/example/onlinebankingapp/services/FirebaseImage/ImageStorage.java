@@ -0,0 +1,20 @@
+package com.example.onlinebankingapp.services.FirebaseImage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Optional;
+
+// Object storage holding customer avatars and reward images
+public interface ImageStorage {
+    record ImageMetadata(String filePath, String contentType, long size) {
+    }
+
+    ImageMetadata upload(String filePath, InputStream content, String contentType) throws IOException;
+
+    Optional<ImageMetadata> getMetadata(String filePath);
+
+    boolean delete(String filePath);
+
+    String getSignedUrl(String filePath, Duration validity);
+}
@@ -0,0 +1,219 @@
+package com.example.onlinebankingapp.services.FirebaseImage;
+
+import com.example.onlinebankingapp.enums.ImageVariantSize;
+import com.example.onlinebankingapp.exceptions.AppException;
+import com.example.onlinebankingapp.exceptions.ErrorCode;
+import com.example.onlinebankingapp.utils.ThreadUtils;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Resizes uploaded images into every ImageVariantSize on a small pool of transcode workers
+// Decoding is CPU and memory heavy: the pool bounds how many images are decoded at once, whatever the number of uploads
+@Component
+public class ImageVariantGenerator {
+    // Logger for logging events
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantGenerator.class);
+
+    private final ThreadPoolExecutor transcodeExecutor;
+    private final long timeoutMillis;
+    private final long maxPixels;
+    private final float jpegQuality;
+
+    public ImageVariantGenerator(
+            @Value("${image.transcode.worker-threads:2}") int workerThreads,
+            @Value("${image.transcode.queue-capacity:16}") int queueCapacity,
+            @Value("${image.transcode.timeout-millis:30000}") long timeoutMillis,
+            @Value("${image.transcode.max-pixels:50000000}") long maxPixels,
+            @Value("${image.transcode.jpeg-quality:0.85}") float jpegQuality
+    ) {
+        this.timeoutMillis = timeoutMillis;
+        this.maxPixels = maxPixels;
+        this.jpegQuality = jpegQuality;
+
+        // Platform threads on purpose: transcoding is CPU bound, virtual threads would not make it cheaper
+        int threads = Math.max(1, workerThreads);
+        this.transcodeExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                ThreadUtils.newThreadFactory("image-transcode-", false),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        // Uploads are at most 10 MB and already in memory or on disk, ImageIO needs no temporary file of its own
+        ImageIO.setUseCache(false);
+    }
+
+    // Method to create every size variant of an image, encoded in the format of its file extension
+    // Empty when the image has no variants: WebP, or a file ImageIO cannot decode; the original is served instead
+    public Map<ImageVariantSize, byte[]> generateVariants(MultipartFile file, String fileExtension) {
+        String formatName = getVariantFormatName(fileExtension);
+        if (formatName == null) {
+            return Collections.emptyMap();
+        }
+
+        Future<Map<ImageVariantSize, byte[]>> future;
+        try {
+            future = transcodeExecutor.submit(() -> transcode(file, formatName));
+        } catch (RejectedExecutionException e) {
+            throw new AppException(ErrorCode.IMAGE_PROCESSING_BUSY);
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new AppException(ErrorCode.IMAGE_PROCESSING_BUSY);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AppException(ErrorCode.IMAGE_PROCESSING_BUSY);
+        } catch (ExecutionException e) {
+            logger.warn("Failed to create size variants of image {}: {}", file.getOriginalFilename(), e.getCause().toString());
+            return Collections.emptyMap();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        transcodeExecutor.shutdownNow();
+    }
+
+    // Variants keep the format of the original so PNG transparency survives; ImageIO has no WebP codec
+    private static String getVariantFormatName(String fileExtension) {
+        return switch (fileExtension.toLowerCase()) {
+            case ".png" -> "png";
+            case ".jpg", ".jpeg" -> "jpeg";
+            default -> null;
+        };
+    }
+
+    // Runs on a transcode worker: the image is decoded once, each variant is resized from the next larger one
+    private Map<ImageVariantSize, byte[]> transcode(MultipartFile file, String formatName) throws IOException {
+        BufferedImage image = decode(file);
+        if (image == null) {
+            return Collections.emptyMap();
+        }
+
+        boolean hasAlpha = formatName.equals("png");
+        ImageVariantSize[] sizes = ImageVariantSize.values();
+        Map<ImageVariantSize, byte[]> variants = new EnumMap<>(ImageVariantSize.class);
+        for (int i = sizes.length - 1; i >= 0; i--) {
+            image = resize(image, sizes[i].getMaxDimension(), hasAlpha);
+            variants.put(sizes[i], encode(image, formatName));
+        }
+        return variants;
+    }
+
+    private BufferedImage decode(MultipartFile file) throws IOException {
+        try (ImageInputStream imageInputStream = ImageIO.createImageInputStream(file.getInputStream())) {
+            Iterator<ImageReader> imageReaders = ImageIO.getImageReaders(imageInputStream);
+            if (!imageReaders.hasNext()) {
+                return null;
+            }
+
+            ImageReader imageReader = imageReaders.next();
+            try {
+                imageReader.setInput(imageInputStream, true, true);
+
+                // Dimensions come from the header: refuse to allocate for a small file claiming a huge image
+                int width = imageReader.getWidth(0);
+                int height = imageReader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    logger.warn("Image {} of {}x{} pixels is too large to create size variants",
+                            file.getOriginalFilename(), width, height);
+                    return null;
+                }
+
+                // Skip source pixels while decoding a very large photo, keeping at least twice the largest variant
+                ImageReadParam imageReadParam = imageReader.getDefaultReadParam();
+                int subsampling = Math.max(width, height) / (2 * ImageVariantSize.LARGE.getMaxDimension());
+                if (subsampling > 1) {
+                    imageReadParam.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return imageReader.read(0, imageReadParam);
+            } finally {
+                imageReader.dispose();
+            }
+        }
+    }
+
+    // Method to fit an image in maxDimension x maxDimension, never enlarging it
+    private static BufferedImage resize(BufferedImage image, int maxDimension, boolean hasAlpha) {
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(image.getWidth(), image.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        // Halve step by step: a single bilinear pass over a much larger image skips most of its pixels
+        BufferedImage resized = image;
+        do {
+            int width = Math.max(targetWidth, resized.getWidth() / 2);
+            int height = Math.max(targetHeight, resized.getHeight() / 2);
+            resized = draw(resized, width, height, hasAlpha);
+        } while (resized.getWidth() != targetWidth || resized.getHeight() != targetHeight);
+        return resized;
+    }
+
+    private static BufferedImage draw(BufferedImage image, int width, int height, boolean hasAlpha) {
+        BufferedImage target = new BufferedImage(width, height,
+                hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            // JPEG has no transparency: transparent pixels of the original become white, not black
+            if (!hasAlpha) {
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+            }
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encode(BufferedImage image, String formatName) throws IOException {
+        ImageWriter imageWriter = ImageIO.getImageWritersByFormatName(formatName).next();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(outputStream)) {
+            ImageWriteParam imageWriteParam = imageWriter.getDefaultWriteParam();
+            if (formatName.equals("jpeg")) {
+                imageWriteParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                imageWriteParam.setCompressionQuality(jpegQuality);
+            }
+            imageWriter.setOutput(imageOutputStream);
+            imageWriter.write(null, new IIOImage(image, null, null), imageWriteParam);
+        } finally {
+            imageWriter.dispose();
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -11,8 +11,8 @@ import com.example.onlinebankingapp.dtos.responses.IDCardExtraction.AddFileRespo
 import com.example.onlinebankingapp.dtos.responses.IDCardExtraction.CompareIDCardFaceResponse;
 import com.example.onlinebankingapp.dtos.responses.IDCardExtraction.IDCardExtractionResponse;
 import com.example.onlinebankingapp.services.Customer.CustomerServiceImpl;
+import com.example.onlinebankingapp.utils.ImageUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -22,12 +22,18 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
 import java.net.*;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Service
-@RequiredArgsConstructor
 public class IDCardExtractionService {
     private static final Logger logger = LoggerFactory.getLogger(IDCardExtractionService.class);
 
@@ -49,50 +55,129 @@ public class IDCardExtractionService {
     private final ObjectMapper objectMapper;
     private final CustomerRepository customerRepository;
     private final CustomerServiceImpl customerServiceImpl;
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final Semaphore requestPermits;
+    private final long permitTimeoutMillis;
+
+    public IDCardExtractionService(
+            ObjectMapper objectMapper,
+            CustomerRepository customerRepository,
+            CustomerServiceImpl customerServiceImpl,
+            @Value("${spring.eKyc.connect-timeout-millis:5000}") long connectTimeoutMillis,
+            @Value("${spring.eKyc.request-timeout-millis:30000}") long requestTimeoutMillis,
+            @Value("${spring.eKyc.max-concurrent-requests:16}") int maxConcurrentRequests,
+            @Value("${spring.eKyc.permit-timeout-millis:10000}") long permitTimeoutMillis,
+            @Value("${spring.threads.virtual.enabled:false}") boolean isVirtualThreadsEnabled
+    ) {
+        this.objectMapper = objectMapper;
+        this.customerRepository = customerRepository;
+        this.customerServiceImpl = customerServiceImpl;
+
+        // One client for every eKYC call: addFile and the OCR/face calls that follow reuse the same
+        // HTTP/2 (or keep-alive HTTP/1.1) connection instead of paying a new TLS handshake each
+        HttpClient.Builder httpClientBuilder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis));
+        if (isVirtualThreadsEnabled) {
+            // Response handling runs on virtual threads too, instead of the client's default cached pool
+            httpClientBuilder.executor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        this.httpClient = httpClientBuilder.build();
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMillis);
+        this.requestPermits = new Semaphore(Math.max(1, maxConcurrentRequests));
+        this.permitTimeoutMillis = permitTimeoutMillis;
+    }
 
     // Add File to get hash MinIO code
     public AddFileResponse addFile(MultipartFile file, String title, String description, String clientSession) {
-        String url = baseUrl + "/file-service/v1/addFile";
+        String contentType = ImageUtils.detectImageContentType(file);
+        if (contentType == null) {
+            throw new AppException(ErrorCode.IMAGE_INVALID);
+        }
 
+        return addFile(() -> {
+            try {
+                return file.getInputStream();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, file.getSize(), file.getOriginalFilename(), contentType, title, description, clientSession);
+    }
+
+    // Add File to get hash MinIO code, reading the image from a raw request body
+    // The image is piped to eKYC through a small fixed buffer: never held in memory or spooled to disk
+    public AddFileResponse addFileStream(
+            InputStream content,
+            long contentLength,
+            String fileName,
+            String title,
+            String description,
+            String clientSession
+    ) {
+        // Content-Length is required: it is forwarded as the size of the file part
+        if (contentLength <= 0) {
+            throw new AppException(ErrorCode.IMAGE_NULL_INVALID);
+        }
+        if (!ImageUtils.isValidFileSize(contentLength)) {
+            throw new AppException(ErrorCode.IMAGE_SIZE_INVALID);
+        }
+
+        // Format is sniffed from the first bytes, which are then pushed back for the upload
+        PushbackInputStream imageStream = new PushbackInputStream(content, ImageUtils.IMAGE_SIGNATURE_LENGTH);
+        String contentType;
         try {
-            // Create a connection
-            HttpURLConnection conn = createJSONRequest(url, "POST");
+            contentType = ImageUtils.detectImageContentType(imageStream);
+        } catch (IOException e) {
+            throw new AppException(ErrorCode.IMAGE_INVALID);
+        }
+        if (contentType == null) {
+            throw new AppException(ErrorCode.IMAGE_INVALID);
+        }
+
+        String uploadFileName = fileName == null || fileName.isBlank() ? title.toLowerCase() : fileName;
+        return addFile(() -> imageStream, contentLength, uploadFileName, contentType, title, description, clientSession);
+    }
+
+    private AddFileResponse addFile(
+            Supplier<InputStream> content,
+            long contentLength,
+            String fileName,
+            String contentType,
+            String title,
+            String description,
+            String clientSession
+    ) {
+        String url = baseUrl + "/file-service/v1/addFile";
 
+        try {
             // Prepare form-data body
             String boundary = Long.toHexString(System.currentTimeMillis()); // Just random ID
-            conn.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
-            conn.setDoOutput(true);
-
-            // Send multipart request
-            try (OutputStream output = conn.getOutputStream();
-                 PrintWriter writer = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), true)
-            ) {
-
-                // Add title
-                writer.append("--" + boundary).append("\r\n");
-                writer.append("Content-Disposition: form-data; name=\"title\"").append("\r\n");
-                writer.append("\r\n").append(title).append("\r\n").flush();
-
-                // Add description
-                writer.append("--" + boundary).append("\r\n");
-                writer.append("Content-Disposition: form-data; name=\"description\"").append("\r\n");
-                writer.append("\r\n").append(description).append("\r\n").flush();
-
-                // Add file
-                writer.append("--" + boundary).append("\r\n");
-                writer.append("Content-Disposition: form-data; name=\"file\"; filename=\"" + file.getOriginalFilename() + "\"").append("\r\n");
-                writer.append("Content-Type: " + file.getContentType()).append("\r\n");
-                writer.append("\r\n").flush();
-                file.getInputStream().transferTo(output);
-                output.flush(); // Important before continuing with writer!
-
-                writer.append("\r\n").flush(); // End of multipart/form-data.
-                writer.append("--" + boundary + "--").append("\r\n").flush();
-            }
+            String head = "--" + boundary + "\r\n"
+                    + "Content-Disposition: form-data; name=\"title\"\r\n"
+                    + "\r\n" + title + "\r\n"
+                    + "--" + boundary + "\r\n"
+                    + "Content-Disposition: form-data; name=\"description\"\r\n"
+                    + "\r\n" + description + "\r\n"
+                    + "--" + boundary + "\r\n"
+                    + "Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n"
+                    + "Content-Type: " + contentType + "\r\n"
+                    + "\r\n";
+            String tail = "\r\n--" + boundary + "--\r\n"; // End of multipart/form-data.
+
+            // File content is streamed from the upload, not copied into the request body first
+            HttpRequest.BodyPublisher fileContent = HttpRequest.BodyPublishers.fromPublisher(
+                    HttpRequest.BodyPublishers.ofInputStream(content), contentLength);
+            HttpRequest request = newRequest(url)
+                    .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                    .POST(HttpRequest.BodyPublishers.concat(
+                            HttpRequest.BodyPublishers.ofString(head, StandardCharsets.UTF_8),
+                            fileContent,
+                            HttpRequest.BodyPublishers.ofString(tail, StandardCharsets.UTF_8)))
+                    .build();
 
             // Get response
-            String response = getResponse(conn);
-            AddFileResponse addFileResponse = objectMapper.readValue(response, AddFileResponse.class);
+            AddFileResponse addFileResponse = send(request, AddFileResponse.class);
 
             // Hash code
             Map<String, Object> objectAddFile = addFileResponse.getObject();
@@ -194,6 +279,9 @@ public class IDCardExtractionService {
             logger.info("Successfully uploaded file: {}", addFileResponse);
             return addFileResponse;
 
+        } catch (AppException e) {
+            // Busy eKYC service, unknown customer...: keep their own status instead of a 500
+            throw e;
         } catch (Exception e) {
             logger.error("Error uploading file to get hash code: {}", e.getMessage());
             throw new RuntimeException("Failed to upload file to get hash MinIO code", e);
@@ -205,14 +293,8 @@ public class IDCardExtractionService {
         String url = baseUrl + "/ai/v1/ocr/id/front"; // Endpoint to extract front side
 
         try {
-            // Create connection
-            HttpURLConnection conn = createJSONRequest(url, "POST");
-            String jsonRequest = objectMapper.writeValueAsString(frontSideRequest);
-            sendRequest(conn, jsonRequest);
-
-            // Get response
-            String response = getResponse(conn);
-            IDCardExtractionResponse idCardResponse = objectMapper.readValue(response, IDCardExtractionResponse.class);
+            // Send request and read response
+            IDCardExtractionResponse idCardResponse = postJson(url, frontSideRequest, IDCardExtractionResponse.class);
 
             // Access the 'object' field
             Map<String, Object> objectMap = idCardResponse.getObject();
@@ -227,6 +309,8 @@ public class IDCardExtractionService {
 
             logger.info("Successfully extracted ID Card front side: {}", idCardResponse);
             return idCardResponse;
+        } catch (AppException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error extracting ID Card front side: {}", e.getMessage());
             throw new RuntimeException("Failed to extract ID Card front side", e);
@@ -238,14 +322,8 @@ public class IDCardExtractionService {
         String url = baseUrl + "/ai/v1/ocr/id/back"; // Endpoint to extract back side
 
         try {
-            // Create connection
-            HttpURLConnection conn = createJSONRequest(url, "POST");
-            String jsonRequest = objectMapper.writeValueAsString(backSideRequest);
-            sendRequest(conn, jsonRequest);
-
-            // Get response
-            String response = getResponse(conn);
-            IDCardExtractionResponse idCardResponse = objectMapper.readValue(response, IDCardExtractionResponse.class);
+            // Send request and read response
+            IDCardExtractionResponse idCardResponse = postJson(url, backSideRequest, IDCardExtractionResponse.class);
 
             // Access the 'object' field
             Map<String, Object> objectMap = idCardResponse.getObject();
@@ -258,6 +336,8 @@ public class IDCardExtractionService {
 
             logger.info("Successfully extracted ID Card back side: {}", idCardResponse);
             return idCardResponse;
+        } catch (AppException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error extracting ID Card back side: {}", e.getMessage());
             throw new RuntimeException("Failed to extract ID Card back side", e);
@@ -269,14 +349,8 @@ public class IDCardExtractionService {
         String url = baseUrl + "/ai/v1/face/compare"; // Endpoint to compare face and ID card
 
         try {
-            // Create connection
-            HttpURLConnection conn = createJSONRequest(url, "POST");
-            String jsonRequest = objectMapper.writeValueAsString(compareFaceRequest);
-            sendRequest(conn, jsonRequest);
-
-            // Get response
-            String response = getResponse(conn);
-            CompareIDCardFaceResponse compareIDCardFaceResponse = objectMapper.readValue(response, CompareIDCardFaceResponse.class);
+            // Send request and read response
+            CompareIDCardFaceResponse compareIDCardFaceResponse = postJson(url, compareFaceRequest, CompareIDCardFaceResponse.class);
 
             // Access the 'object' field
             Map<String, Object> objectMap = compareIDCardFaceResponse.getObject();
@@ -289,6 +363,8 @@ public class IDCardExtractionService {
 
             logger.info("Successfully compare Face and ID card: {}", compareIDCardFaceResponse);
             return compareIDCardFaceResponse;
+        } catch (AppException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error compare ID Card and FACE: {}", e.getMessage());
             throw new RuntimeException("Failed to compare ID Card and FACE", e);
@@ -300,14 +376,8 @@ public class IDCardExtractionService {
         String url = baseUrl + "/ai/v1/face/compare"; // Endpoint to compare ID card and current FACE for login
 
         try {
-            // Create connection
-            HttpURLConnection conn = createJSONRequest(url, "POST");
-            String jsonRequest = objectMapper.writeValueAsString(compareFaceRequest);
-            sendRequest(conn, jsonRequest);
-
-            // Get response
-            String response = getResponse(conn);
-            CompareIDCardFaceResponse compareIDCardFaceResponse = objectMapper.readValue(response, CompareIDCardFaceResponse.class);
+            // Send request and read response
+            CompareIDCardFaceResponse compareIDCardFaceResponse = postJson(url, compareFaceRequest, CompareIDCardFaceResponse.class);
 
             // Access the 'object' field
             Map<String, Object> objectMap = compareIDCardFaceResponse.getObject();
@@ -318,6 +388,8 @@ public class IDCardExtractionService {
 
             logger.info("Successfully compare ID card and current FACE for login: {}", compareIDCardFaceResponse);
             return compareIDCardFaceResponse;
+        } catch (AppException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error compare ID card and current FACE for login: {}", e.getMessage());
             throw new RuntimeException("Failed to compare ID card and current FACE for login", e);
@@ -329,14 +401,8 @@ public class IDCardExtractionService {
         String url = baseUrl + "/ai/v1/face/compare"; // Endpoint to compare ID card and current FACE for login
 
         try {
-            // Create connection
-            HttpURLConnection conn = createJSONRequest(url, "POST");
-            String jsonRequest = objectMapper.writeValueAsString(compareFaceRequest);
-            sendRequest(conn, jsonRequest);
-
-            // Get response
-            String response = getResponse(conn);
-            CompareIDCardFaceResponse compareIDCardFaceResponse = objectMapper.readValue(response, CompareIDCardFaceResponse.class);
+            // Send request and read response
+            CompareIDCardFaceResponse compareIDCardFaceResponse = postJson(url, compareFaceRequest, CompareIDCardFaceResponse.class);
 
             // Access the 'object' field
             Map<String, Object> objectMap = compareIDCardFaceResponse.getObject();
@@ -347,50 +413,59 @@ public class IDCardExtractionService {
 
             logger.info("Successfully compare ID card and current FACE for login: {}", compareIDCardFaceResponse);
             return compareIDCardFaceResponse;
+        } catch (AppException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error compare ID card and current FACE for transfer: {}", e.getMessage());
             throw new RuntimeException("Failed to compare ID card and current FACE for login", e);
         }
     }
 
-    // Method to create a JSON Request
-    private HttpURLConnection createJSONRequest(String urlString, String method) throws Exception {
-        URL url = new URL(urlString);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod(method);
-        conn.setRequestProperty("Authorization", "Bearer " + accessToken);
-        conn.setRequestProperty("Token-id", tokenId);
-        conn.setRequestProperty("Token-key", tokenKey);
-        conn.setRequestProperty("mac-address", macAddress);
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setDoOutput(true);
-        return conn;
+    // Method to create a request with the eKYC authentication headers
+    private HttpRequest.Builder newRequest(String url) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(requestTimeout)
+                .header("Authorization", "Bearer " + accessToken)
+                .header("Token-id", tokenId)
+                .header("Token-key", tokenKey)
+                .header("mac-address", macAddress);
     }
 
-    // Method to send the request
-    private void sendRequest(HttpURLConnection conn, String json) throws Exception {
-        try (DataOutputStream wr = new DataOutputStream(conn.getOutputStream())) {
-            wr.writeBytes(json);
-            wr.flush();
-        }
+    // Method to POST a JSON body
+    private <T> T postJson(String url, Object body, Class<T> responseType) throws IOException {
+        HttpRequest request = newRequest(url)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+        return send(request, responseType);
     }
 
-    // Helper method to get the response
-    private String getResponse(HttpURLConnection conn) throws Exception {
-        int responseCode = conn.getResponseCode();
-        if (responseCode != HttpURLConnection.HTTP_OK) {
-            InputStream errorStream = conn.getErrorStream();
-            String errorMessage = new BufferedReader(new InputStreamReader(errorStream))
-                    .lines().collect(Collectors.joining("\n"));
-            throw new RuntimeException("Request failed with status code: " + responseCode + ", Error: " + errorMessage);
+    // Method to send a request, the response body is parsed by Jackson while it streams in
+    // At most max-concurrent-requests calls are in flight, so a slow provider cannot tie up every request thread
+    private <T> T send(HttpRequest request, Class<T> responseType) throws IOException {
+        try {
+            if (!requestPermits.tryAcquire(permitTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new AppException(ErrorCode.EKYC_BUSY);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppException(ErrorCode.EKYC_BUSY);
         }
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()))) {
-            StringBuilder response = new StringBuilder();
-            String inputLine;
-            while ((inputLine = in.readLine()) != null) {
-                response.append(inputLine);
+
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream responseBody = response.body()) {
+                if (response.statusCode() != HttpURLConnection.HTTP_OK) {
+                    String errorMessage = new String(responseBody.readAllBytes(), StandardCharsets.UTF_8);
+                    throw new RuntimeException("Request failed with status code: " + response.statusCode() + ", Error: " + errorMessage);
+                }
+                return objectMapper.readValue(responseBody, responseType);
             }
-            return response.toString();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while calling eKYC service", e);
+        } finally {
+            requestPermits.release();
         }
     }
 
@@ -0,0 +1,14 @@
+package com.example.onlinebankingapp.services.Idempotency;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.function.Supplier;
+
+public interface IdempotencyService {
+    String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    // Money-moving endpoints run through here: a retried request with the same Idempotency-Key gets the first result
+    // instead of moving money twice
+    // request holds what the client sent besides the scope (body, parameters), a replay must send the same
+    ResponseEntity<?> execute(String idempotencyKey, String scope, Object request, Supplier<ResponseEntity<?>> action);
+}
@@ -0,0 +1,146 @@
+package com.example.onlinebankingapp.services.Idempotency;
+
+import com.example.onlinebankingapp.entities.CustomerEntity;
+import com.example.onlinebankingapp.entities.EmployeeEntity;
+import com.example.onlinebankingapp.exceptions.AppException;
+import com.example.onlinebankingapp.exceptions.ErrorCode;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private final IdempotencyStore<IdempotentRequest> idempotencyStore;
+    private final ObjectMapper objectMapper;
+    private final Duration resultTimeToLive;
+    private final long waitTimeoutMillis;
+
+    public IdempotencyServiceImpl(
+            IdempotencyStore<IdempotentRequest> idempotencyStore,
+            ObjectMapper objectMapper,
+            @Value("${idempotency.result.ttl-seconds:86400}") long resultTtlSeconds,
+            @Value("${idempotency.wait-timeout-millis:30000}") long waitTimeoutMillis
+    ) {
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
+        this.resultTimeToLive = Duration.ofSeconds(resultTtlSeconds);
+        this.waitTimeoutMillis = waitTimeoutMillis;
+    }
+
+    // Method to run a money-moving request at most once per Idempotency-Key
+    // First request runs the action, a duplicate waits for its result instead of running again
+    // Only successful (2xx) results are kept: a failed attempt moved no money, its retry runs again
+    // The key cannot be reused for a different request: its replay would answer for money that was never moved
+    // Without a key the action simply runs, so old clients keep working
+    @Override
+    public ResponseEntity<?> execute(
+            String idempotencyKey,
+            String scope,
+            Object request,
+            Supplier<ResponseEntity<?>> action
+    ) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new AppException(ErrorCode.IDEMPOTENCY_KEY_INVALID);
+        }
+
+        // Keys of different callers or endpoints never collide
+        String storeKey = callerName() + "|" + scope + "|" + idempotencyKey;
+
+        CompletableFuture<ResponseEntity<?>> result = new CompletableFuture<>();
+        IdempotentRequest inFlight = new IdempotentRequest(hashRequest(request), result);
+        IdempotentRequest existing = idempotencyStore.putIfAbsent(storeKey, inFlight, resultTimeToLive);
+        if (existing != null) {
+            if (!existing.requestHash().equals(inFlight.requestHash())) {
+                throw new AppException(ErrorCode.IDEMPOTENCY_KEY_REUSED);
+            }
+            return replay(awaitResult(existing.result()));
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (Throwable e) {
+            // Released before waiters are woken, so a later retry runs the action again
+            // An Error too: otherwise the key stays in flight and every retry waits and times out
+            idempotencyStore.remove(storeKey, inFlight);
+            result.completeExceptionally(e);
+            throw e;
+        }
+
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            idempotencyStore.remove(storeKey, inFlight);
+        }
+        result.complete(response);
+        return response;
+    }
+
+    private ResponseEntity<?> awaitResult(CompletableFuture<ResponseEntity<?>> result) {
+        try {
+            return result.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // Duplicate of a failed request answers with the same error
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new AppException(ErrorCode.INTERNAL_SERVER_ERROR);
+        } catch (TimeoutException e) {
+            throw new AppException(ErrorCode.IDEMPOTENCY_REQUEST_IN_PROGRESS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppException(ErrorCode.IDEMPOTENCY_REQUEST_IN_PROGRESS);
+        }
+    }
+
+    // Same status and body as the first response, marked so clients can tell a replay
+    private ResponseEntity<?> replay(ResponseEntity<?> response) {
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(REPLAYED_HEADER, "true")
+                .body(response.getBody());
+    }
+
+    // Customers and employees are told apart by principal type and id: neither has a username
+    private String callerName() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            return "anonymous";
+        }
+        if (authentication.getPrincipal() instanceof CustomerEntity customer) {
+            return "customer:" + customer.getId();
+        }
+        if (authentication.getPrincipal() instanceof EmployeeEntity employee) {
+            return "employee:" + employee.getId();
+        }
+        return "principal:" + authentication.getName();
+    }
+
+    // SHA-256 of the request as JSON: kept instead of the request itself, which may hold an OTP
+    private String hashRequest(Object request) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(messageDigest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new AppException(ErrorCode.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
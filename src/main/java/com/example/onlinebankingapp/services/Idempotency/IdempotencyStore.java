@@ -0,0 +1,13 @@
+package com.example.onlinebankingapp.services.Idempotency;
+
+import java.time.Duration;
+
+// Storage of request results keyed by caller, endpoint and Idempotency-Key
+// Backends must drop an entry once its time to live has passed, and must be safe for concurrent use
+public interface IdempotencyStore<V> {
+    // Stores the value only if the key is absent, returns the value already stored otherwise
+    V putIfAbsent(String key, V value, Duration timeToLive);
+
+    // Removes only if the stored value is still the given one
+    boolean remove(String key, V value);
+}
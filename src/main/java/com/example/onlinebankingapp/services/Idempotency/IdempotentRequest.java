@@ -0,0 +1,9 @@
+package com.example.onlinebankingapp.services.Idempotency;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.CompletableFuture;
+
+// What is kept per Idempotency-Key: the hash of the first request and its (possibly still running) result
+public record IdempotentRequest(String requestHash, CompletableFuture<ResponseEntity<?>> result) {
+}
@@ -0,0 +1,38 @@
+package com.example.onlinebankingapp.services.Idempotency;
+
+import com.example.onlinebankingapp.exceptions.ErrorCode;
+import com.example.onlinebankingapp.utils.ExpiringMap;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+
+// In-memory idempotency store of a single node, with a hard size cap and scheduled eviction of expired entries
+// Full: the request is refused rather than forgetting results other clients may retry
+public class LocalIdempotencyStore<V> implements IdempotencyStore<V> {
+    private final ExpiringMap<V> storage;
+
+    public LocalIdempotencyStore(int maxSize) {
+        this.storage = ExpiringMap.refusingWhenFull(maxSize, ErrorCode.IDEMPOTENCY_STORE_FULL);
+    }
+
+    // Atomic per key: of two concurrent duplicates exactly one stores its entry
+    @Override
+    public V putIfAbsent(String key, V value, Duration timeToLive) {
+        return storage.putIfAbsent(key, value, timeToLive);
+    }
+
+    @Override
+    public boolean remove(String key, V value) {
+        return storage.remove(key, value);
+    }
+
+    // Results nobody retries are dropped once expired
+    @Scheduled(fixedDelayString = "${idempotency.store.sweep-interval-millis:60000}")
+    public void evictExpired() {
+        storage.evictExpired();
+    }
+
+    public int size() {
+        return storage.size();
+    }
+}
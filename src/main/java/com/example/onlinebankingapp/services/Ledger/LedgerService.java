@@ -0,0 +1,7 @@
+package com.example.onlinebankingapp.services.Ledger;
+
+import com.example.onlinebankingapp.entities.TransactionEntity;
+
+public interface LedgerService {
+    boolean postTransfer(TransactionEntity pendingTransaction, Long senderCustomerId, Long receiverCustomerId, Integer rewardPoint);
+}
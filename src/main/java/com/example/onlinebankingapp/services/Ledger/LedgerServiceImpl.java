@@ -0,0 +1,140 @@
+package com.example.onlinebankingapp.services.Ledger;
+
+import com.example.onlinebankingapp.entities.Money;
+import com.example.onlinebankingapp.entities.TransactionEntity;
+import com.example.onlinebankingapp.enums.TransactionReceiverType;
+import com.example.onlinebankingapp.enums.TransactionSenderType;
+import com.example.onlinebankingapp.enums.TransactionStatus;
+import com.example.onlinebankingapp.exceptions.AppException;
+import com.example.onlinebankingapp.exceptions.ErrorCode;
+import com.example.onlinebankingapp.repositories.BankAccountRepository;
+import com.example.onlinebankingapp.repositories.PaymentAccountRepository;
+import com.example.onlinebankingapp.repositories.TransactionRepository;
+import com.example.onlinebankingapp.services.CustomerMonthlyTotal.CustomerMonthlyTotalService;
+import com.example.onlinebankingapp.utils.DateTimeUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class LedgerServiceImpl implements LedgerService {
+    private final PaymentAccountRepository paymentAccountRepository;
+    private final BankAccountRepository bankAccountRepository;
+    private final TransactionRepository transactionRepository;
+    private final CustomerMonthlyTotalService customerMonthlyTotalService;
+
+    // Canonical lock order of account rows: BA before PA, then by id
+    private static final Comparator<AccountKey> LOCK_ORDER =
+            Comparator.comparing(AccountKey::accountType).thenComparing(AccountKey::accountId);
+
+    private record AccountKey(String accountType, Long accountId) {
+    }
+
+    // Method to post a PENDING transfer: debit sender, credit receiver, give reward point, complete transaction,
+    // add it to monthly totals
+    // All statements are conditional UPDATEs in one DB transaction -> no read-modify-write on balances
+    // Return false when sender balance is not enough (nothing is applied)
+    // Customer ids of sender and receiver are given by the caller, which has already checked the transaction link
+    @Transactional(rollbackFor = {Exception.class, Throwable.class})
+    @Override
+    public boolean postTransfer(
+            TransactionEntity pendingTransaction,
+            Long senderCustomerId,
+            Long receiverCustomerId,
+            Integer rewardPoint
+    ) {
+        Long senderId = pendingTransaction.getSenderId();
+        Long receiverId = pendingTransaction.getReceiverId();
+        Money amount = pendingTransaction.getAmount();
+        TransactionSenderType senderType = pendingTransaction.getTransactionSenderType();
+        TransactionReceiverType receiverType = pendingTransaction.getTransactionReceiverType();
+
+        // Sender and receiver must not be the same account
+        if(senderId.equals(receiverId) && senderType.name().equals(receiverType.name())){
+            throw new AppException(ErrorCode.TRANSACTION_INVALID);
+        }
+
+        // Step 0: Lock every account row updated below in canonical order (BA before PA, then by id):
+        // sender, receiver, and the PA linked with a sender BA, which gets the reward point
+        // Same order on every instance -> concurrent transfers cannot deadlock in the database
+        List<AccountKey> accountKeyList = new ArrayList<>(List.of(
+                new AccountKey(senderType.name(), senderId),
+                new AccountKey(receiverType.name(), receiverId)));
+        if(senderType.equals(TransactionSenderType.BANK_ACCOUNT)){
+            bankAccountRepository.findPaymentAccountIdById(senderId).ifPresent(paymentAccountId ->
+                    accountKeyList.add(new AccountKey(TransactionReceiverType.PAYMENT_ACCOUNT.name(), paymentAccountId)));
+        }
+        lockAccountsInOrder(accountKeyList);
+
+        // Step 1: Debit sender only if its balance is enough
+        int debitedRows;
+        if(senderType.equals(TransactionSenderType.PAYMENT_ACCOUNT)){
+            // Reward point goes to sender PA together with the debit
+            debitedRows = paymentAccountRepository.debitBalance(senderId, amount, rewardPoint);
+        } else if(senderType.equals(TransactionSenderType.BANK_ACCOUNT)){
+            debitedRows = bankAccountRepository.debitBalance(senderId, amount);
+            if(debitedRows == 1){
+                // Reward point goes to PA linked with sender BA
+                paymentAccountRepository.addRewardPointByBankAccountId(senderId, rewardPoint);
+            }
+        } else {
+            throw new AppException(ErrorCode.SENDER_INVALID);
+        }
+
+        if(debitedRows == 0){
+            return false;
+        }
+
+        // Step 2: Complete transaction only once (PENDING -> COMPLETED)
+        // A concurrent or repeated posting rolls back the debit above
+        LocalDateTime completedDateTime = DateTimeUtils.getVietnamCurrentDateTime();
+        if(transactionRepository.closePendingTransaction(pendingTransaction.getId(),
+                TransactionStatus.COMPLETED, completedDateTime) == 0){
+            throw new AppException(ErrorCode.TRANSACTION_INVALID);
+        }
+
+        // Step 3: Credit receiver
+        int creditedRows;
+        if(receiverType.equals(TransactionReceiverType.PAYMENT_ACCOUNT)){
+            creditedRows = paymentAccountRepository.creditBalance(receiverId, amount);
+        } else if(receiverType.equals(TransactionReceiverType.BANK_ACCOUNT)){
+            creditedRows = bankAccountRepository.creditBalance(receiverId, amount);
+        } else {
+            throw new AppException(ErrorCode.RECEIVER_INVALID);
+        }
+
+        if(creditedRows == 0){
+            throw new AppException(ErrorCode.SENDER_OR_RECEIVER_NOT_FOUND);
+        }
+
+        // Keep the loaded transaction in sync with the posted row
+        pendingTransaction.setTransactionDateTime(completedDateTime);
+        pendingTransaction.setTransactionStatus(TransactionStatus.COMPLETED);
+
+        // Step 4: Add to monthly totals of sender and receiver customers in the same DB transaction
+        customerMonthlyTotalService.recordCompletedTransaction(pendingTransaction, senderCustomerId, receiverCustomerId);
+
+        return true;
+    }
+
+    private void lockAccountsInOrder(List<AccountKey> accountKeyList) {
+        accountKeyList.stream()
+                .distinct()
+                .sorted(LOCK_ORDER)
+                .forEach(accountKey -> lockAccount(accountKey.accountType(), accountKey.accountId()));
+    }
+
+    private void lockAccount(String accountType, Long accountId) {
+        if("PAYMENT_ACCOUNT".equals(accountType)){
+            paymentAccountRepository.findByIdForUpdate(accountId);
+        } else if("BANK_ACCOUNT".equals(accountType)){
+            bankAccountRepository.findByIdForUpdate(accountId);
+        }
+    }
+}
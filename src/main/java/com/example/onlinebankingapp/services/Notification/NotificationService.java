@@ -0,0 +1,11 @@
+package com.example.onlinebankingapp.services.Notification;
+
+import com.example.onlinebankingapp.dtos.responses.Notification.NotificationStatsResponse;
+
+public interface NotificationService {
+    void enqueueSMS(String phoneTo, String content);
+
+    void enqueueEmail(String toEmail, String subject, String emailBody);
+
+    NotificationStatsResponse getNotificationStats();
+}
@@ -0,0 +1,179 @@
+package com.example.onlinebankingapp.services.Notification;
+
+import com.example.onlinebankingapp.dtos.responses.Notification.NotificationStatsResponse;
+import com.example.onlinebankingapp.dtos.responses.SMSOTPResponse;
+import com.example.onlinebankingapp.exceptions.AppException;
+import com.example.onlinebankingapp.exceptions.ErrorCode;
+import com.example.onlinebankingapp.services.VerificationServices.EmailService;
+import com.example.onlinebankingapp.services.VerificationServices.SMSService;
+import com.example.onlinebankingapp.utils.ThreadUtils;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class NotificationServiceImpl implements NotificationService {
+    // Logger for logging events
+    private static final Logger logger = LoggerFactory.getLogger(NotificationServiceImpl.class);
+    // Notifications given up after the last attempt, kept apart so they can be routed to their own appender
+    private static final Logger deadLetterLogger = LoggerFactory.getLogger("notification.dead-letter");
+
+    private final SMSService smsService;
+    private final EmailService emailService;
+    private final ThreadPoolExecutor workerExecutor;
+    private final ScheduledExecutorService retryScheduler;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+
+    // Notification metric
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong retriedCount = new AtomicLong();
+    private final AtomicLong deadLetterCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public NotificationServiceImpl(
+            SMSService smsService,
+            EmailService emailService,
+            @Value("${notification.worker-threads:4}") int workerThreads,
+            @Value("${notification.queue-capacity:1000}") int queueCapacity,
+            @Value("${notification.max-attempts:3}") int maxAttempts,
+            @Value("${notification.base-backoff-millis:1000}") long baseBackoffMillis,
+            @Value("${notification.max-backoff-millis:30000}") long maxBackoffMillis,
+            @Value("${spring.threads.virtual.enabled:false}") boolean isVirtualThreadsEnabled
+    ) {
+        this.smsService = smsService;
+        this.emailService = emailService;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+
+        // Fixed workers over a bounded queue: a slow gateway fills the queue instead of request threads
+        // In virtual-thread mode the workers are virtual, so worker-threads can be raised cheaply
+        int threads = Math.max(1, workerThreads);
+        this.workerExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                ThreadUtils.newThreadFactory("notification-worker-", isVirtualThreadsEnabled),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(
+                ThreadUtils.newThreadFactory("notification-retry-", false));
+    }
+
+    // Method to send an SMS in the background, returns as soon as the message is queued
+    @Override
+    public void enqueueSMS(String phoneTo, String content) {
+        submit(new Notification(NotificationChannel.SMS, phoneTo, null, content, 1));
+    }
+
+    // Method to send an email in the background, returns as soon as the message is queued
+    @Override
+    public void enqueueEmail(String toEmail, String subject, String emailBody) {
+        submit(new Notification(NotificationChannel.EMAIL, toEmail, subject, emailBody, 1));
+    }
+
+    @Override
+    public NotificationStatsResponse getNotificationStats() {
+        return NotificationStatsResponse.builder()
+                .queuedCount(workerExecutor.getQueue().size())
+                .sentCount(sentCount.get())
+                .retriedCount(retriedCount.get())
+                .deadLetterCount(deadLetterCount.get())
+                .rejectedCount(rejectedCount.get())
+                .build();
+    }
+
+    // Let queued notifications (OTPs the customer is waiting for) go out before the application stops
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        retryScheduler.shutdownNow();
+        workerExecutor.shutdown();
+        if (!workerExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+            logger.warn("{} notifications were not sent before shutdown", workerExecutor.getQueue().size());
+            workerExecutor.shutdownNow();
+        }
+    }
+
+    private void submit(Notification notification) {
+        try {
+            workerExecutor.execute(() -> deliver(notification));
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            throw new AppException(ErrorCode.NOTIFICATION_QUEUE_FULL);
+        }
+    }
+
+    // Runs on a worker thread
+    private void deliver(Notification notification) {
+        try {
+            if (notification.channel() == NotificationChannel.SMS) {
+                SMSOTPResponse smsotpResponse = smsService.sendSMSOTP(notification.recipient(), notification.content());
+                if (!"success".equals(smsotpResponse.getStatus())) {
+                    throw new AppException(ErrorCode.SMS_OTP_FAIL);
+                }
+            } else {
+                emailService.sendEmail(notification.recipient(), notification.subject(), notification.content());
+            }
+            sentCount.incrementAndGet();
+        } catch (RuntimeException e) {
+            retryOrDeadLetter(notification, e);
+        }
+    }
+
+    private void retryOrDeadLetter(Notification notification, RuntimeException cause) {
+        if (notification.attempt() >= maxAttempts) {
+            deadLetter(notification, cause);
+            return;
+        }
+
+        // Exponential backoff; the retry waits on the scheduler, not on a worker
+        long backoffMillis = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(notification.attempt() - 1, 20));
+        Notification nextAttempt = notification.nextAttempt();
+        try {
+            retryScheduler.schedule(() -> {
+                try {
+                    workerExecutor.execute(() -> deliver(nextAttempt));
+                } catch (RejectedExecutionException e) {
+                    deadLetter(nextAttempt, e);
+                }
+            }, backoffMillis, TimeUnit.MILLISECONDS);
+            retriedCount.incrementAndGet();
+        } catch (RejectedExecutionException e) {
+            // Scheduler already stopped: the application is shutting down
+            deadLetter(notification, cause);
+        }
+    }
+
+    // Message content is left out of the log: it carries the OTP
+    private void deadLetter(Notification notification, Exception cause) {
+        deadLetterCount.incrementAndGet();
+        deadLetterLogger.error("Dropped {} notification to {} after {} attempt(s): {}",
+                notification.channel(), notification.recipient(), notification.attempt(), cause.toString());
+    }
+
+    private enum NotificationChannel {
+        SMS,
+        EMAIL
+    }
+
+    private record Notification(
+            NotificationChannel channel,
+            String recipient,
+            String subject,
+            String content,
+            int attempt
+    ) {
+        Notification nextAttempt() {
+            return new Notification(channel, recipient, subject, content, attempt + 1);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.onlinebankingapp.services.PasswordVerification;
+
+import java.util.function.Consumer;
+
+public interface PasswordVerificationService {
+    void verifyPassword(String identity, String rawPassword, String encodedPassword, Consumer<String> rehashedPasswordSaver);
+}
@@ -0,0 +1,168 @@
+package com.example.onlinebankingapp.services.PasswordVerification;
+
+import com.example.onlinebankingapp.exceptions.AppException;
+import com.example.onlinebankingapp.exceptions.ErrorCode;
+import com.example.onlinebankingapp.utils.ExpiringMap;
+import com.example.onlinebankingapp.utils.ThreadUtils;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+// Password checks of customer and employee logins
+// bcrypt runs on a fixed pool of hash workers: a login burst waits in a bounded queue instead of taking every CPU
+// from the other endpoints, and identities with too many failed attempts are refused before any hashing
+@Service
+public class PasswordVerificationServiceImpl implements PasswordVerificationService {
+    // Logger for logging events
+    private static final Logger logger = LoggerFactory.getLogger(PasswordVerificationServiceImpl.class);
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor hashExecutor;
+    private final long timeoutMillis;
+    private final int maxFailedAttempts;
+    private final Duration lockoutDuration;
+
+    // Failed attempts per identity on this node, forgotten after the lockout or the next successful login
+    // Full: an arbitrary identity is forgotten rather than growing without bound
+    private final ExpiringMap<Integer> failedAttemptsMap;
+
+    public PasswordVerificationServiceImpl(
+            PasswordEncoder passwordEncoder,
+            @Value("${login.hash-threads:0}") int hashThreads,
+            @Value("${login.queue-capacity:100}") int queueCapacity,
+            @Value("${login.timeout-millis:5000}") long timeoutMillis,
+            @Value("${login.max-failed-attempts:5}") int maxFailedAttempts,
+            @Value("${login.lockout-seconds:900}") long lockoutSeconds,
+            @Value("${login.max-tracked-identities:100000}") int maxTrackedIdentities
+    ) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutMillis = timeoutMillis;
+        this.maxFailedAttempts = Math.max(1, maxFailedAttempts);
+        this.lockoutDuration = Duration.ofSeconds(lockoutSeconds);
+        this.failedAttemptsMap = ExpiringMap.evictingWhenFull(maxTrackedIdentities);
+
+        // One hash worker per core by default (hash-threads=0); platform threads, bcrypt is pure CPU
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        this.hashExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                ThreadUtils.newThreadFactory("password-hash-", false),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Method to check a login password against its stored hash, throws when it does not match
+    // When the stored hash is weaker than the configured bcrypt strength, the password is hashed again in the
+    // background and handed to rehashedPasswordSaver; the login itself does not wait for it
+    @Override
+    public void verifyPassword(
+            String identity,
+            String rawPassword,
+            String encodedPassword,
+            Consumer<String> rehashedPasswordSaver
+    ) {
+        String identityKey = identity.toLowerCase();
+        reserveAttempt(identityKey);
+
+        boolean isPasswordMatched;
+        try {
+            isPasswordMatched = runOnHashWorker(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+        } catch (RuntimeException e) {
+            // Busy or failed before any answer: the attempt tells nothing about the password
+            releaseAttempt(identityKey);
+            throw e;
+        }
+
+        // A wrong password keeps its reserved attempt as a failed one
+        if (!isPasswordMatched) {
+            throw new AppException(ErrorCode.PASSWORD_INCORRECT);
+        }
+        failedAttemptsMap.remove(identityKey);
+
+        if (passwordEncoder.upgradeEncoding(encodedPassword)) {
+            rehashInBackground(identityKey, rawPassword, rehashedPasswordSaver);
+        }
+    }
+
+    // Lockouts are checked on read, this only frees the memory of identities which stopped trying
+    @Scheduled(fixedDelayString = "${login.failed-attempts.sweep-interval-millis:60000}")
+    public void evictExpired() {
+        failedAttemptsMap.evictExpired();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashExecutor.shutdownNow();
+    }
+
+    // Counted as failed before hashing, check and count in one atomic step: parallel guesses of a burst cannot all
+    // pass the check while the first ones are still being hashed. The lockout window starts at the first attempt
+    private void reserveAttempt(String identityKey) {
+        failedAttemptsMap.compute(identityKey, failedAttempts -> {
+            int count = failedAttempts == null ? 0 : failedAttempts;
+            if (count >= maxFailedAttempts) {
+                throw new AppException(ErrorCode.LOGIN_TOO_MANY_ATTEMPTS);
+            }
+            return count + 1;
+        }, lockoutDuration);
+    }
+
+    private void releaseAttempt(String identityKey) {
+        failedAttemptsMap.compute(identityKey,
+                failedAttempts -> failedAttempts == null || failedAttempts <= 1 ? null : failedAttempts - 1,
+                lockoutDuration);
+    }
+
+    private boolean runOnHashWorker(Callable<Boolean> hashTask) {
+        Future<Boolean> future;
+        try {
+            future = hashExecutor.submit(hashTask);
+        } catch (RejectedExecutionException e) {
+            throw new AppException(ErrorCode.LOGIN_BUSY);
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new AppException(ErrorCode.LOGIN_BUSY);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AppException(ErrorCode.LOGIN_BUSY);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new AppException(ErrorCode.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // Best effort: when the workers are saturated or saving fails, the next login tries again
+    private void rehashInBackground(String identityKey, String rawPassword, Consumer<String> rehashedPasswordSaver) {
+        try {
+            hashExecutor.execute(() -> {
+                try {
+                    rehashedPasswordSaver.accept(passwordEncoder.encode(rawPassword));
+                } catch (RuntimeException e) {
+                    logger.warn("Failed to save the rehashed password of {}: {}", identityKey, e.toString());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Rehash of the password of {} postponed, hash workers are busy", identityKey);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.example.onlinebankingapp.dtos.requests.PaymentAccount.AmountOperation
 import com.example.onlinebankingapp.dtos.requests.BankAccount.BankAccountRequest;
 import com.example.onlinebankingapp.dtos.requests.PaymentAccount.PaymentAccountRequest;
 import com.example.onlinebankingapp.dtos.responses.PaymentAccount.PaymentAccountListResponse;
+import com.example.onlinebankingapp.entities.Money;
 import com.example.onlinebankingapp.entities.PaymentAccountEntity;
 import com.example.onlinebankingapp.entities.TransactionCustomerEntity;
 
@@ -20,7 +21,7 @@ public interface PaymentAccountService {
     PaymentAccountEntity getPaymentAccountByAccountNumber(String accountNumber);
     PaymentAccountEntity getDefaultPaymentAccount(Long customerId);
     List<PaymentAccountEntity> getPaymentAccountsByCustomerId(Long customerId);
-    TransactionCustomerEntity insertTransactionForAddMoneyToPA(Long bankAccountId, Long paymentAccountId, Double amount);
+    TransactionCustomerEntity insertTransactionForAddMoneyToPA(Long bankAccountId, Long paymentAccountId, Money amount);
     PaymentAccountEntity addMoneyToPaymentAccount(Long paymentAccountId, String bankName, BankAccountRequest bankAccountRequest, AmountOperationRequest amountDTO);
     Map<String, Object> withdrawFromPaymentAccount(Long paymentAccountId, String bankName, BankAccountRequest bankAccountRequest, AmountOperationRequest amountDTO);
     PaymentAccountEntity updatePaymentAccount(Long paymentAccountId, PaymentAccountRequest paymentAccountRequest);
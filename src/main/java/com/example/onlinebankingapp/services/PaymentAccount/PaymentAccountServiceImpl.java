@@ -1,5 +1,6 @@
 package com.example.onlinebankingapp.services.PaymentAccount;
 
+import com.example.onlinebankingapp.components.RetryOnConflictExecutor;
 import com.example.onlinebankingapp.dtos.requests.PaymentAccount.AmountOperationRequest;
 import com.example.onlinebankingapp.dtos.requests.BankAccount.BankAccountRequest;
 import com.example.onlinebankingapp.dtos.requests.PaymentAccount.PaymentAccountRequest;
@@ -19,6 +20,7 @@ import com.example.onlinebankingapp.repositories.CustomerRepository;
 import com.example.onlinebankingapp.repositories.PaymentAccountRepository;
 import com.example.onlinebankingapp.repositories.TransactionRepository;
 import com.example.onlinebankingapp.services.BankAccount.BankAccountServiceImpl;
+import com.example.onlinebankingapp.services.CustomerMonthlyTotal.CustomerMonthlyTotalService;
 import com.example.onlinebankingapp.services.Transaction.TransactionService;
 import com.example.onlinebankingapp.utils.DateTimeUtils;
 import com.example.onlinebankingapp.utils.ValidationUtils;
@@ -30,7 +32,6 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Date;
 import java.time.LocalDate;
@@ -43,8 +44,10 @@ public class PaymentAccountServiceImpl implements PaymentAccountService {
     private final CustomerRepository customerRepository;
     private final BankAccountRepository bankAccountRepository;
     private final TransactionRepository transactionRepository;
+    private final RetryOnConflictExecutor retryOnConflictExecutor;
 
     private final BankAccountServiceImpl bankAccountServiceImpl;
+    private final CustomerMonthlyTotalService customerMonthlyTotalService;
     private TransactionService transactionService;
 
     @Autowired
@@ -238,7 +241,7 @@ public class PaymentAccountServiceImpl implements PaymentAccountService {
     public TransactionCustomerEntity insertTransactionForAddMoneyToPA(
             Long bankAccountId,
             Long paymentAccountId,
-            Double amount
+            Money amount
     ) {
         // Check paymentAccountId
         PaymentAccountEntity existingPaymentAccountReceiver = getPaymentAccountById(paymentAccountId);
@@ -258,71 +261,79 @@ public class PaymentAccountServiceImpl implements PaymentAccountService {
         transactionAdd.setTransactionReceiverType("PAYMENT_ACCOUNT");
 
         // Find customer own this PA
+        // Receiver is this PA -> receiver customer is its owner, no lookup needed
         CustomerEntity existingCustomer = existingPaymentAccountReceiver.getCustomer();
 
-        Long receiverId = 0L;
-
-        if ("BANK_ACCOUNT".equals(transactionAdd.getTransactionReceiverType().toString())) {
-            CustomerEntity receiver = bankAccountRepository.findById(transactionAdd.getReceiverId()).get().getPaymentAccount().getCustomer();
-            receiverId = receiver != null ? receiver.getId() : 0L;
-        } else if ("PAYMENT_ACCOUNT".equals(transactionAdd.getTransactionReceiverType().toString())) {
-            CustomerEntity receiver = paymentAccountRepository.findById(transactionAdd.getReceiverId()).get().getCustomer();
-            receiverId = receiver != null ? receiver.getId() : 0L;
-        }
-
-
         // Create to get response
-        return transactionService.insertPendingTransaction(transactionAdd, existingCustomer,receiverId);
+        return transactionService.insertPendingTransaction(transactionAdd, existingCustomer,existingCustomer.getId());
     }
 
     // Method to add money from bank account to payment account
-    @Transactional(rollbackFor = {Exception.class, Throwable.class})
     @Override
     public PaymentAccountEntity addMoneyToPaymentAccount(
             Long paymentAccountId,
             String bankName,
             BankAccountRequest bankAccountRequest,
             AmountOperationRequest amountDTO
+    ) {
+        // Each attempt runs in its own transaction and is retried on version conflict
+        return retryOnConflictExecutor.execute(() -> applyAddMoneyToPaymentAccount(paymentAccountId, bankName, bankAccountRequest, amountDTO));
+    }
+
+    private PaymentAccountEntity applyAddMoneyToPaymentAccount(
+            Long paymentAccountId,
+            String bankName,
+            BankAccountRequest bankAccountRequest,
+            AmountOperationRequest amountDTO
     ) {
         // Request top-up money
-        double amountTopUp = amountDTO.getAmount();
+        Money amountTopUp = amountDTO.getAmount();
 
         // Get existing payment account
         PaymentAccountEntity existingPaymentAccountAddMoney = getPaymentAccountById(paymentAccountId);
-        double paCurrentBalance = existingPaymentAccountAddMoney.getCurrentBalance(); // Current balance of PaymentAcc
+        Money paCurrentBalance = existingPaymentAccountAddMoney.getCurrentBalance(); // Current balance of PaymentAcc
 
         // Check if bank account exist
         BankAccountEntity existingBankAccount = bankAccountServiceImpl.checkBankAccountExist(bankAccountRequest, bankName);
-        double baCurrentBalance = existingBankAccount.getCurrentBalance(); // Current balance of BankAcc
+        Money baCurrentBalance = existingBankAccount.getCurrentBalance(); // Current balance of BankAcc
 
         // Decrease current balance in bankAcc
-        double decreaseMoneyInBA = baCurrentBalance - amountTopUp;
+        Money decreaseMoneyInBA = baCurrentBalance.minus(amountTopUp);
         existingBankAccount.setCurrentBalance(decreaseMoneyInBA);
         bankAccountRepository.save(existingBankAccount);
 
         // Increase and update current balance in paymentAcc
-        double increaseMoneyInPA = paCurrentBalance + amountTopUp;
+        Money increaseMoneyInPA = paCurrentBalance.plus(amountTopUp);
         existingPaymentAccountAddMoney.setCurrentBalance(increaseMoneyInPA);
 
         return paymentAccountRepository.save(existingPaymentAccountAddMoney);
     }
 
     // Method to withdraw money from a payment account to bank account
-    @Transactional(rollbackFor = {Exception.class, Throwable.class})
     @Override
     public Map<String, Object> withdrawFromPaymentAccount(
             Long paymentAccountId,
             String bankName,
             BankAccountRequest bankAccountRequest,
             AmountOperationRequest amountDTO
+    ) {
+        // Each attempt runs in its own transaction and is retried on version conflict
+        return retryOnConflictExecutor.execute(() -> applyWithdrawFromPaymentAccount(paymentAccountId, bankName, bankAccountRequest, amountDTO));
+    }
+
+    private Map<String, Object> applyWithdrawFromPaymentAccount(
+            Long paymentAccountId,
+            String bankName,
+            BankAccountRequest bankAccountRequest,
+            AmountOperationRequest amountDTO
     ) {
         // Get existing payment account
         PaymentAccountEntity existingPaymentAccountWithdraw = getPaymentAccountById(paymentAccountId);
-        double paCurrentBalance = existingPaymentAccountWithdraw.getCurrentBalance(); // Current balance of PaymentAcc
+        Money paCurrentBalance = existingPaymentAccountWithdraw.getCurrentBalance(); // Current balance of PaymentAcc
 
         // Check if bank account exist
         BankAccountEntity existingBankAccount = bankAccountServiceImpl.checkBankAccountExist(bankAccountRequest, bankName);
-        double baCurrentBalance = existingBankAccount.getCurrentBalance(); // Current balance of BankAcc
+        Money baCurrentBalance = existingBankAccount.getCurrentBalance(); // Current balance of BankAcc
 
         // Insert new transaction
         TransactionRequest transactionWithdraw = new TransactionRequest();
@@ -337,32 +348,28 @@ public class PaymentAccountServiceImpl implements PaymentAccountService {
 
         // Find customer own this PA
         CustomerEntity existingCustomer = existingPaymentAccountWithdraw.getCustomer();
-        Long receiverId = 0L;
-
-        if ("BANK_ACCOUNT".equals(transactionWithdraw.getTransactionReceiverType().toString())) {
-            CustomerEntity receiver = bankAccountRepository.findById(transactionWithdraw.getReceiverId()).get().getPaymentAccount().getCustomer();
-            receiverId = receiver != null ? receiver.getId() : 0L;
-        } else if ("PAYMENT_ACCOUNT".equals(transactionWithdraw.getTransactionReceiverType().toString())) {
-            CustomerEntity receiver = paymentAccountRepository.findById(transactionWithdraw.getReceiverId()).get().getCustomer();
-            receiverId = receiver != null ? receiver.getId() : 0L;
-        }
+        // Receiver is the associated BA, already loaded -> its owner via the linked PA, no lookup needed
+        Long receiverId = Optional.ofNullable(existingBankAccount.getPaymentAccount())
+                .map(PaymentAccountEntity::getCustomer)
+                .map(CustomerEntity::getId)
+                .orElse(0L);
 
         // Create to get response
         TransactionCustomerEntity insertedTransactionCustomer = transactionService
                 .insertPendingTransaction(transactionWithdraw, existingCustomer,receiverId);
 
         // Compare request withdraw money with current balance in paymentAcc
-        if(amountDTO.getAmount() > paCurrentBalance){
+        if(amountDTO.getAmount().isGreaterThan(paCurrentBalance)){
             throw new AppException(ErrorCode.WITHDRAW_MONEY_EXCEED);
         }
 
         // Increase and update current balance in bankAcc
-        double increaseMoneyInBA = baCurrentBalance + amountDTO.getAmount();
+        Money increaseMoneyInBA = baCurrentBalance.plus(amountDTO.getAmount());
         existingBankAccount.setCurrentBalance(increaseMoneyInBA);
         bankAccountRepository.save(existingBankAccount);
 
         // Decrease current balance in paymentAcc
-        double decreaseMoneyInPA = paCurrentBalance - amountDTO.getAmount();
+        Money decreaseMoneyInPA = paCurrentBalance.minus(amountDTO.getAmount());
         existingPaymentAccountWithdraw.setCurrentBalance(decreaseMoneyInPA);
 
         // Update datetime and status -> save
@@ -370,6 +377,9 @@ public class PaymentAccountServiceImpl implements PaymentAccountService {
         completeWithdraw.setTransactionDateTime(DateTimeUtils.getVietnamCurrentDateTime());
         completeWithdraw.setTransactionStatus(TransactionStatus.COMPLETED);
         transactionRepository.save(completeWithdraw);
+        customerMonthlyTotalService.recordCompletedTransaction(completeWithdraw,
+                insertedTransactionCustomer.getTransactionCustomerKey().getCustomer().getId(),
+                insertedTransactionCustomer.getTransactionCustomerKey().getReceiverId());
 
         // Save existingPaymentAccountWithdraw
         paymentAccountRepository.save(existingPaymentAccountWithdraw);
@@ -445,7 +455,7 @@ public class PaymentAccountServiceImpl implements PaymentAccountService {
         }
 
         // Check balance
-        if(paymentAccountRequest.getCurrentBalance() < 0.0){
+        if(paymentAccountRequest.getCurrentBalance().isNegative()){
             throw new AppException(ErrorCode.PAYMENT_ACCOUNT_INVALID);
         }
 
@@ -0,0 +1,9 @@
+package com.example.onlinebankingapp.services.PendingTransactionSweeper;
+
+import com.example.onlinebankingapp.dtos.responses.Transaction.PendingSweepStatsResponse;
+
+public interface PendingTransactionSweeperService {
+    int sweepExpiredPendingTransactions();
+
+    PendingSweepStatsResponse getSweepStats();
+}
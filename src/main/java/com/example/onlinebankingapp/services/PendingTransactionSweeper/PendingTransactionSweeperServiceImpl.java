@@ -0,0 +1,119 @@
+package com.example.onlinebankingapp.services.PendingTransactionSweeper;
+
+import com.example.onlinebankingapp.dtos.responses.Transaction.PendingSweepStatsResponse;
+import com.example.onlinebankingapp.entities.TransactionEntity;
+import com.example.onlinebankingapp.enums.TransactionStatus;
+import com.example.onlinebankingapp.repositories.TransactionCustomerRepository;
+import com.example.onlinebankingapp.repositories.TransactionRepository;
+import com.example.onlinebankingapp.utils.DateTimeUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@Slf4j
+public class PendingTransactionSweeperServiceImpl implements PendingTransactionSweeperService {
+    private final TransactionRepository transactionRepository;
+    private final TransactionCustomerRepository transactionCustomerRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long expiryMinutes;
+    private final int batchSize;
+
+    // Sweep metric
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong totalSweptCount = new AtomicLong();
+    private final AtomicLong lastSweptCount = new AtomicLong();
+    private final AtomicLong lastBatchCount = new AtomicLong();
+    private final AtomicLong lastRunMillis = new AtomicLong();
+    private volatile LocalDateTime lastRunAt;
+
+    public PendingTransactionSweeperServiceImpl(
+            TransactionRepository transactionRepository,
+            TransactionCustomerRepository transactionCustomerRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${transaction.pending.expiry-minutes:5}") long expiryMinutes,
+            @Value("${transaction.pending.sweep.batch-size:500}") int batchSize
+    ) {
+        this.transactionRepository = transactionRepository;
+        this.transactionCustomerRepository = transactionCustomerRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.expiryMinutes = expiryMinutes;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    // Method to delete every PENDING transaction older than the expiry, for all customers
+    // Ids are paged by keyset, each batch is locked and deleted with two set-based DELETEs in its own transaction
+    // Return the number of deleted transactions
+    @Override
+    public int sweepExpiredPendingTransactions() {
+        long startNanos = System.nanoTime();
+        LocalDateTime dateTimeThreshold = DateTimeUtils.getVietnamCurrentDateTime().minusMinutes(expiryMinutes);
+
+        int sweptCount = 0;
+        int batchCount = 0;
+        long lastId = 0L;
+        List<Long> transactionIds = transactionRepository.findExpiredPendingTransactionIds(
+                TransactionStatus.PENDING, dateTimeThreshold, lastId, PageRequest.of(0, batchSize));
+        while (!transactionIds.isEmpty()) {
+            List<Long> batchIds = transactionIds;
+            sweptCount += transactionTemplate.execute(status -> sweepBatch(batchIds, dateTimeThreshold));
+            batchCount++;
+
+            if (transactionIds.size() < batchSize) {
+                break;
+            }
+            lastId = transactionIds.get(transactionIds.size() - 1);
+            transactionIds = transactionRepository.findExpiredPendingTransactionIds(
+                    TransactionStatus.PENDING, dateTimeThreshold, lastId, PageRequest.of(0, batchSize));
+        }
+
+        long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        runCount.incrementAndGet();
+        totalSweptCount.addAndGet(sweptCount);
+        lastSweptCount.set(sweptCount);
+        lastBatchCount.set(batchCount);
+        lastRunMillis.set(elapsedMillis);
+        lastRunAt = DateTimeUtils.getVietnamCurrentDateTime();
+
+        if (sweptCount > 0) {
+            log.info("Swept {} expired pending transactions in {} batches, {} ms", sweptCount, batchCount, elapsedMillis);
+        }
+        return sweptCount;
+    }
+
+    @Override
+    public PendingSweepStatsResponse getSweepStats() {
+        return PendingSweepStatsResponse.builder()
+                .runCount(runCount.get())
+                .totalSweptCount(totalSweptCount.get())
+                .lastSweptCount(lastSweptCount.get())
+                .lastBatchCount(lastBatchCount.get())
+                .lastRunMillis(lastRunMillis.get())
+                .lastRunAt(lastRunAt)
+                .build();
+    }
+
+    // Method to delete one batch, runs inside the batch transaction
+    private int sweepBatch(List<Long> transactionIds, LocalDateTime dateTimeThreshold) {
+        // Re-check under row lock: transactions completed or failed meanwhile are left alone
+        List<Long> expiredIds = transactionRepository
+                .findExpiredPendingTransactionsForUpdate(transactionIds, TransactionStatus.PENDING, dateTimeThreshold)
+                .stream()
+                .map(TransactionEntity::getId)
+                .toList();
+        if (expiredIds.isEmpty()) {
+            return 0;
+        }
+
+        // Relationship rows reference the transactions, delete them first
+        transactionCustomerRepository.deleteByTransactionIdIn(expiredIds);
+        return transactionRepository.deleteByIdIn(expiredIds);
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.onlinebankingapp.services.Reward;
 
+import com.example.onlinebankingapp.components.RetryOnConflictExecutor;
 import com.example.onlinebankingapp.dtos.requests.AccountRewardRequest;
 import com.example.onlinebankingapp.dtos.requests.RewardRequest;
 import com.example.onlinebankingapp.dtos.responses.Reward.RewardListResponse;
@@ -21,7 +22,6 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.apache.commons.lang3.StringUtils;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -36,6 +36,7 @@ public class RewardServiceImpl implements RewardService {
     private final RewardRepository rewardRepository;
     private final AccountRewardRepository accountRewardRepository;
     private final PaymentAccountRepository paymentAccountRepository;
+    private final RetryOnConflictExecutor retryOnConflictExecutor;
 
     // Manage reward (used by admin/ staff)
     // Method to insert a new reward
@@ -154,10 +155,16 @@ public class RewardServiceImpl implements RewardService {
 
     // Manage reward redeemed by PAs
     // Method to redeem a reward
-    @Transactional(rollbackFor = {Exception.class, Throwable.class})
     @Override
     public AccountRewardEntity redeemReward(
             AccountRewardRequest accountrewardRequest
+    ) {
+        // Each attempt runs in its own transaction and is retried on version conflict
+        return retryOnConflictExecutor.execute(() -> applyRedeemReward(accountrewardRequest));
+    }
+
+    private AccountRewardEntity applyRedeemReward(
+            AccountRewardRequest accountrewardRequest
     ) {
         PaymentAccountEntity queryPaymentAccount = paymentAccountService.getPaymentAccountById(accountrewardRequest.getPaymentAccountId());
         RewardEntity queryReward = getRewardById(accountrewardRequest.getRewardId());
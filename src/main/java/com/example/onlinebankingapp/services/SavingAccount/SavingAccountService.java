@@ -2,6 +2,7 @@ package com.example.onlinebankingapp.services.SavingAccount;
 
 import com.example.onlinebankingapp.dtos.requests.SavingAccountRequest;
 import com.example.onlinebankingapp.dtos.responses.SavingAccount.SavingAccountListResponse;
+import com.example.onlinebankingapp.entities.Money;
 import com.example.onlinebankingapp.entities.SavingAccountEntity;
 import com.example.onlinebankingapp.entities.TransactionCustomerEntity;
 import com.example.onlinebankingapp.entities.TransactionEntity;
@@ -11,7 +12,7 @@ import java.util.List;
 public interface SavingAccountService {
     SavingAccountEntity insertSavingAccount(SavingAccountRequest savingAccountRequest);
     SavingAccountEntity insertSavingAccountByEmployee(SavingAccountRequest savingAccountRequest);
-    TransactionCustomerEntity insertTransactionForAddMoneyToSA(Long paymentAccountId, Long savingAccountId, Double amount);
+    TransactionCustomerEntity insertTransactionForAddMoneyToSA(Long paymentAccountId, Long savingAccountId, Money amount);
     SavingAccountEntity addMoneyToSavingAccount(Long savingAccountId, TransactionEntity existingTransaction);
     SavingAccountEntity withdrawFromSavingAccount(Long savingAccountId);
     SavingAccountEntity getSavingAccountById(Long savingAccountId);
@@ -25,5 +26,6 @@ public interface SavingAccountService {
     // Update via Scheduled -> in SavingAccountScheduler
     boolean isEndOfTerm(SavingAccountEntity savingAccount);
     void updateDailyCurrentBalance(SavingAccountEntity savingAccount);
+    int accrueDailyInterestForActiveAccounts();
     void deactivateAndWithdrawCurrentAmountToPA(SavingAccountEntity savingAccount);
 }
@@ -1,5 +1,6 @@
 package com.example.onlinebankingapp.services.SavingAccount;
 
+import com.example.onlinebankingapp.components.RetryOnConflictExecutor;
 import com.example.onlinebankingapp.dtos.requests.SavingAccountRequest;
 import com.example.onlinebankingapp.dtos.requests.Transaction.TransactionRequest;
 import com.example.onlinebankingapp.dtos.responses.SavingAccount.SavingAccountListResponse;
@@ -15,6 +16,7 @@ import com.example.onlinebankingapp.repositories.PaymentAccountRepository;
 import com.example.onlinebankingapp.repositories.SavingAccountRepository;
 import com.example.onlinebankingapp.repositories.TransactionRepository;
 import com.example.onlinebankingapp.services.InterestRate.InterestRateService;
+import com.example.onlinebankingapp.services.CustomerMonthlyTotal.CustomerMonthlyTotalService;
 import com.example.onlinebankingapp.services.PaymentAccount.PaymentAccountService;
 import com.example.onlinebankingapp.services.Transaction.TransactionService;
 import com.example.onlinebankingapp.utils.DateTimeUtils;
@@ -28,6 +30,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -38,10 +41,12 @@ public class SavingAccountServiceImpl implements SavingAccountService {
     private final SavingAccountRepository savingAccountRepository;
     private final PaymentAccountRepository paymentAccountRepository;
     private final TransactionRepository transactionRepository;
+    private final RetryOnConflictExecutor retryOnConflictExecutor;
 
     private final PaymentAccountService paymentAccountService;
     private final InterestRateService interestRateService;
-    private static final Double zeroAmount = 0.0;
+    private final CustomerMonthlyTotalService customerMonthlyTotalService;
+    private static final Money zeroAmount = Money.ZERO;
 
     private TransactionService transactionService;
 
@@ -103,7 +108,7 @@ public class SavingAccountServiceImpl implements SavingAccountService {
                 .interestRate(existingInterestRate)
                 .build();
 
-        existingPaymentAccount.setCurrentBalance(existingPaymentAccount.getCurrentBalance() - savingAccountRequest.getSavingInitialAmount());
+        existingPaymentAccount.setCurrentBalance(existingPaymentAccount.getCurrentBalance().minus(savingAccountRequest.getSavingInitialAmount()));
         paymentAccountRepository.save(existingPaymentAccount);
 
         return savingAccountRepository.save(newSavingAccountEntity);
@@ -114,7 +119,7 @@ public class SavingAccountServiceImpl implements SavingAccountService {
     public TransactionCustomerEntity insertTransactionForAddMoneyToSA(
             Long paymentAccountId,
             Long savingAccountId,
-            Double amount
+            Money amount
     ) {
         // Check paymentAccountId
         PaymentAccountEntity existingPaymentAccountSender = paymentAccountService.getPaymentAccountById(paymentAccountId);
@@ -141,21 +146,29 @@ public class SavingAccountServiceImpl implements SavingAccountService {
     public SavingAccountEntity addMoneyToSavingAccount(
             Long savingAccountId,
             TransactionEntity existingTransaction
+    ) {
+        // Each attempt runs in its own transaction and is retried on version conflict
+        return retryOnConflictExecutor.execute(() -> applyAddMoneyToSavingAccount(savingAccountId, existingTransaction));
+    }
+
+    private SavingAccountEntity applyAddMoneyToSavingAccount(
+            Long savingAccountId,
+            TransactionEntity existingTransaction
     ) {
         // Get existingSavingAccount
         SavingAccountEntity existingSavingAccount = getSavingAccountById(savingAccountId);
 
         // Get add money to SA
-        double amountAddToSA = existingTransaction.getAmount();
+        Money amountAddToSA = existingTransaction.getAmount();
 
         // Get senderPaymentAccount
         PaymentAccountEntity senderPaymentAccount = existingSavingAccount.getPaymentAccount();
 
-        senderPaymentAccount.setCurrentBalance(senderPaymentAccount.getCurrentBalance() - amountAddToSA);
+        senderPaymentAccount.setCurrentBalance(senderPaymentAccount.getCurrentBalance().minus(amountAddToSA));
         paymentAccountRepository.save(senderPaymentAccount);
 
-        existingSavingAccount.setSavingInitialAmount(existingSavingAccount.getSavingCurrentAmount() + amountAddToSA);
-        existingSavingAccount.setSavingCurrentAmount(existingSavingAccount.getSavingCurrentAmount() + amountAddToSA);
+        existingSavingAccount.setSavingInitialAmount(existingSavingAccount.getSavingCurrentAmount().plus(amountAddToSA));
+        existingSavingAccount.setSavingCurrentAmount(existingSavingAccount.getSavingCurrentAmount().plus(amountAddToSA));
         savingAccountRepository.save(existingSavingAccount);
 
         return existingSavingAccount;
@@ -177,7 +190,7 @@ public class SavingAccountServiceImpl implements SavingAccountService {
 
         // Get existingPaymentAccount
         PaymentAccountEntity existingPaymentAccount = existingSavingAccount.getPaymentAccount();
-        Double transferCurrentAmount = existingSavingAccount.getSavingCurrentAmount();
+        Money transferCurrentAmount = existingSavingAccount.getSavingCurrentAmount();
 
         // Insert new transaction
         TransactionRequest transactionWithdraw = new TransactionRequest();
@@ -197,7 +210,7 @@ public class SavingAccountServiceImpl implements SavingAccountService {
         TransactionCustomerEntity insertedTransactionCustomer = transactionService
                 .insertPendingTransaction(transactionWithdraw, existingCustomer,0L);
 
-        existingPaymentAccount.setCurrentBalance(existingPaymentAccount.getCurrentBalance() + transferCurrentAmount);
+        existingPaymentAccount.setCurrentBalance(existingPaymentAccount.getCurrentBalance().plus(transferCurrentAmount));
         paymentAccountRepository.save(existingPaymentAccount);
 
         // Update account status and balance
@@ -212,6 +225,9 @@ public class SavingAccountServiceImpl implements SavingAccountService {
         completeWithdraw.setTransactionDateTime(DateTimeUtils.getVietnamCurrentDateTime());
         completeWithdraw.setTransactionStatus(TransactionStatus.COMPLETED);
         transactionRepository.save(completeWithdraw);
+        customerMonthlyTotalService.recordCompletedTransaction(completeWithdraw,
+                insertedTransactionCustomer.getTransactionCustomerKey().getCustomer().getId(),
+                insertedTransactionCustomer.getTransactionCustomerKey().getReceiverId());
 
         return existingSavingAccount;
     }
@@ -334,7 +350,7 @@ public class SavingAccountServiceImpl implements SavingAccountService {
         SavingAccountEntity deleteSavingAccountEntity = getSavingAccountById(savingAccountId);
 
         // Check if saving account current amount has been withdrawn all
-        if(deleteSavingAccountEntity.getSavingCurrentAmount() > 0){
+        if(deleteSavingAccountEntity.getSavingCurrentAmount().isPositive()){
             throw new AppException(ErrorCode.SAVING_AMOUNT_GREATER_THAN_ZERO);
         }
 
@@ -368,19 +384,28 @@ public class SavingAccountServiceImpl implements SavingAccountService {
         // Get the current year and determine if it's a leap year (365 or 366 days)
         int yearDays = DateTimeUtils.getDaysInYear(LocalDateTime.now().getYear());
 
-        // Calculate the daily interest rate
-        // Formula: annual interest rate (already in %) / days in year
-        double dailyInterestRate = accountInterestRate.getInterestRate() / 100 / yearDays;
-
         // Calculate the daily earned interest based on the current balance
-        // Formula: daily earned interest = current balance * daily interest rate
-        double dailyEarnedInterest = savingAccount.getSavingCurrentAmount() * dailyInterestRate;
+        // Formula: daily earned interest = current balance * annual interest rate (already in %) / (100 * days in year)
+        Money dailyEarnedInterest = savingAccount.getSavingCurrentAmount().multiply(
+                BigDecimal.valueOf(accountInterestRate.getInterestRate()), BigDecimal.valueOf(100L * yearDays));
 
         // Update the current balance with the daily earned interest
-        savingAccount.setSavingCurrentAmount(savingAccount.getSavingCurrentAmount() + dailyEarnedInterest);
+        savingAccount.setSavingCurrentAmount(savingAccount.getSavingCurrentAmount().plus(dailyEarnedInterest));
         savingAccountRepository.save(savingAccount);
     }
 
+    // Method to accrue daily interest of all active saving accounts with one bulk UPDATE
+    // Accounts at end of term are left out, they are closed by deactivateAndWithdrawCurrentAmountToPA
+    @Transactional(rollbackFor = {Exception.class, Throwable.class})
+    @Override
+    public int accrueDailyInterestForActiveAccounts() {
+        // Same rule as isEndOfTerm: term has ended when dateClosed is today or earlier
+        LocalDateTime nextDayStart = LocalDate.now().plusDays(1).atStartOfDay();
+        int yearDays = DateTimeUtils.getDaysInYear(LocalDateTime.now().getYear());
+
+        return savingAccountRepository.accrueDailyInterest(yearDays, nextDayStart);
+    }
+
     // Method to deactivate a saving account and transfer its balance to a payment account
     @Override
     public void deactivateAndWithdrawCurrentAmountToPA(
@@ -390,10 +415,10 @@ public class SavingAccountServiceImpl implements SavingAccountService {
         PaymentAccountEntity associatedPaymentAccount = savingAccount.getPaymentAccount();
 
         // Get the current balance of the saving account
-        Double transferCurrentAmount = savingAccount.getSavingCurrentAmount();
+        Money transferCurrentAmount = savingAccount.getSavingCurrentAmount();
 
         // Calculate the reward points based on the initial amount (assuming 1 point per 10000 units)
-        int transferRewardPoints = (int) (savingAccount.getSavingInitialAmount() / 10000);
+        int transferRewardPoints = (int) (savingAccount.getSavingInitialAmount().doubleValue() / 10000);
 
         // Set the saving account balance to zero
         savingAccount.setSavingCurrentAmount(zeroAmount);
@@ -417,7 +442,7 @@ public class SavingAccountServiceImpl implements SavingAccountService {
                 .insertPendingTransaction(transactionWithdraw, existingCustomer,0L);
 
         // Transfer the balance and reward points to the payment account
-        associatedPaymentAccount.setCurrentBalance(associatedPaymentAccount.getCurrentBalance() + transferCurrentAmount);
+        associatedPaymentAccount.setCurrentBalance(associatedPaymentAccount.getCurrentBalance().plus(transferCurrentAmount));
         associatedPaymentAccount.setRewardPoint(associatedPaymentAccount.getRewardPoint() + transferRewardPoints);
         paymentAccountRepository.save(associatedPaymentAccount);
 
@@ -432,6 +457,9 @@ public class SavingAccountServiceImpl implements SavingAccountService {
         completeWithdraw.setTransactionDateTime(DateTimeUtils.getVietnamCurrentDateTime());
         completeWithdraw.setTransactionStatus(TransactionStatus.COMPLETED);
         transactionRepository.save(completeWithdraw);
+        customerMonthlyTotalService.recordCompletedTransaction(completeWithdraw,
+                insertedTransactionCustomer.getTransactionCustomerKey().getCustomer().getId(),
+                insertedTransactionCustomer.getTransactionCustomerKey().getReceiverId());
     }
 
     // Method to generate a random saving account number
@@ -467,7 +495,7 @@ public class SavingAccountServiceImpl implements SavingAccountService {
         PaymentAccountEntity chosePaymentAccount = paymentAccountService.getPaymentAccountById(savingAccountRequest.getPaymentAccountId());
 
         // Check if payment account balance has enough money
-        if(chosePaymentAccount.getCurrentBalance() < savingAccountRequest.getSavingInitialAmount()){
+        if(chosePaymentAccount.getCurrentBalance().isLessThan(savingAccountRequest.getSavingInitialAmount())){
             throw new AppException(ErrorCode.BALANCE_AMOUNT_INVALID);
         }
 
@@ -476,15 +504,15 @@ public class SavingAccountServiceImpl implements SavingAccountService {
                 .getInterestRateById(savingAccountRequest.getInterestRateId());
 
         // Get the initial amount from the request
-        Double savingInitialAmount = savingAccountRequest.getSavingInitialAmount();
+        Money savingInitialAmount = savingAccountRequest.getSavingInitialAmount();
 
         // Validate that the initial amount is greater than 0
-        if (savingInitialAmount <= 0) {
+        if (!savingInitialAmount.isPositive()) {
             throw new AppException(ErrorCode.SAVING_AMOUNT_SMALLER_THAN_ZERO);
         }
 
         // Compare required min_balance of interest rate term with saving initial amount
-        if(savingInitialAmount < choseInterestRate.getMinBalance()){
+        if(savingInitialAmount.isLessThan(Money.of(choseInterestRate.getMinBalance()))){
             throw new AppException(ErrorCode.SAVING_AMOUNT_INITIAL_INVALID);
         }
 
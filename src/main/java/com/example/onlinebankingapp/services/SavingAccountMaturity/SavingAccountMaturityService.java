@@ -0,0 +1,7 @@
+package com.example.onlinebankingapp.services.SavingAccountMaturity;
+
+import com.example.onlinebankingapp.entities.BatchJobCheckpointEntity;
+
+public interface SavingAccountMaturityService {
+    BatchJobCheckpointEntity closeSavingAccountsAtEndOfTerm();
+}
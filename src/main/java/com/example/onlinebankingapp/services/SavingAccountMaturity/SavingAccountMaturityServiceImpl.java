@@ -0,0 +1,117 @@
+package com.example.onlinebankingapp.services.SavingAccountMaturity;
+
+import com.example.onlinebankingapp.components.ChunkedBatchRunner;
+import com.example.onlinebankingapp.components.RetryOnConflictExecutor;
+import com.example.onlinebankingapp.entities.*;
+import com.example.onlinebankingapp.enums.*;
+import com.example.onlinebankingapp.repositories.PaymentAccountRepository;
+import com.example.onlinebankingapp.repositories.SavingAccountRepository;
+import com.example.onlinebankingapp.repositories.TransactionCustomerRepository;
+import com.example.onlinebankingapp.repositories.TransactionRepository;
+import com.example.onlinebankingapp.services.CustomerMonthlyTotal.CustomerMonthlyTotalService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+@RequiredArgsConstructor
+public class SavingAccountMaturityServiceImpl implements SavingAccountMaturityService {
+    private static final String JOB_NAME = "saving-account-maturity";
+
+    private final SavingAccountRepository savingAccountRepository;
+    private final PaymentAccountRepository paymentAccountRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionCustomerRepository transactionCustomerRepository;
+    private final ChunkedBatchRunner chunkedBatchRunner;
+    private final RetryOnConflictExecutor retryOnConflictExecutor;
+    private final CustomerMonthlyTotalService customerMonthlyTotalService;
+
+    @Value("${saving.maturity.batch.chunk-size:500}")
+    private int chunkSize;
+
+    // Method to close every ACTIVE saving account whose term has ended and move its balance to the PA
+    // Ids are paged by keyset on the (account_status, date_closed) index, each chunk commits on its own
+    // A closed account turns INACTIVE in its chunk transaction, so a restarted run skips it
+    @Override
+    public BatchJobCheckpointEntity closeSavingAccountsAtEndOfTerm() {
+        // Same rule as isEndOfTerm: term has ended when dateClosed is today or earlier
+        LocalDateTime nextDayStart = LocalDate.now().plusDays(1).atStartOfDay();
+
+        return chunkedBatchRunner.run(
+                JOB_NAME,
+                chunkSize,
+                (lastKey, size) -> savingAccountRepository.findActiveSavingAccountIdsClosingBefore(
+                        nextDayStart, lastKey == null ? 0L : lastKey, PageRequest.of(0, size)),
+                savingAccountIds -> retryOnConflictExecutor.execute(() -> closeChunk(savingAccountIds))
+        );
+    }
+
+    // Method to close one chunk of saving accounts, runs inside the chunk transaction
+    private int closeChunk(List<Long> savingAccountIds) {
+        // Re-read inside the transaction: accounts closed meanwhile are no longer ACTIVE and are skipped
+        List<SavingAccountEntity> savingAccountList = savingAccountRepository.findActiveSavingAccountsByIdIn(savingAccountIds);
+        Money zeroAmount = Money.ZERO;
+
+        List<TransactionEntity> withdrawTransactionList = new ArrayList<>(savingAccountList.size());
+        List<TransactionCustomerEntity> transactionCustomerList = new ArrayList<>(savingAccountList.size());
+        // Credits summed per PA; sorted by PA id so parallel chunks lock PA rows in the same order
+        Map<Long, Money> creditAmountMap = new TreeMap<>();
+        Map<Long, Integer> creditRewardPointMap = new TreeMap<>();
+        for (SavingAccountEntity savingAccount : savingAccountList) {
+            PaymentAccountEntity associatedPaymentAccount = savingAccount.getPaymentAccount();
+
+            // Withdraw transaction is written as COMPLETED directly, no PENDING round trip
+            TransactionEntity withdrawTransaction = TransactionEntity.builder()
+                    .transactionType(TransactionType.WITHDRAW_FROM_SA_TO_PA)
+                    .amountType(AmountType.MONEY)
+                    .amount(savingAccount.getSavingCurrentAmount())
+                    .transactionStatus(TransactionStatus.COMPLETED)
+                    .transactionRemark("Term-ending auto withdraw money from SA to PA")
+                    .senderId(savingAccount.getId())
+                    .transactionSenderType(TransactionSenderType.SAVING_ACCOUNT)
+                    .receiverId(associatedPaymentAccount.getId())
+                    .transactionReceiverType(TransactionReceiverType.PAYMENT_ACCOUNT)
+                    .receiverCustomerId(0L)
+                    .build();
+            withdrawTransactionList.add(withdrawTransaction);
+
+            transactionCustomerList.add(TransactionCustomerEntity.builder()
+                    .transactionCustomerKey(new TransactionCustomerEntity.TransactionCustomer(
+                            withdrawTransaction, associatedPaymentAccount.getCustomer(), 0L))
+                    .build());
+
+            // Transfer the balance and reward points (1 point per 10000 of the initial amount) to the PA
+            int transferRewardPoints = (int) (savingAccount.getSavingInitialAmount().doubleValue() / 10000);
+            creditAmountMap.merge(associatedPaymentAccount.getId(), savingAccount.getSavingCurrentAmount(), Money::plus);
+            creditRewardPointMap.merge(associatedPaymentAccount.getId(), transferRewardPoints, Integer::sum);
+
+            // Deactivate, flushed with the chunk commit
+            savingAccount.setAccountStatus(AccountStatus.INACTIVE);
+            savingAccount.setSavingInitialAmount(zeroAmount);
+            savingAccount.setSavingCurrentAmount(zeroAmount);
+        }
+
+        for (Map.Entry<Long, Money> credit : creditAmountMap.entrySet()) {
+            paymentAccountRepository.creditBalanceAndRewardPoint(
+                    credit.getKey(), credit.getValue(), creditRewardPointMap.get(credit.getKey()));
+        }
+
+        transactionRepository.saveAll(withdrawTransactionList);
+        transactionCustomerRepository.saveAll(transactionCustomerList);
+        for (TransactionCustomerEntity transactionCustomer : transactionCustomerList) {
+            customerMonthlyTotalService.recordCompletedTransaction(
+                    transactionCustomer.getTransactionCustomerKey().getTransaction(),
+                    transactionCustomer.getTransactionCustomerKey().getCustomer().getId(), 0L);
+        }
+
+        return savingAccountList.size();
+    }
+}
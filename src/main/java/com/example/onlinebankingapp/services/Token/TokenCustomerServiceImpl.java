@@ -7,6 +7,8 @@ import com.example.onlinebankingapp.repositories.TokenCustomerRepository;
 import com.example.onlinebankingapp.entities.CustomerEntity;
 import com.example.onlinebankingapp.entities.TokenCustomerEntity;
 import com.example.onlinebankingapp.components.JwtTokenUtils;
+import com.example.onlinebankingapp.services.TokenRevocation.TokenRevocationService;
+import com.example.onlinebankingapp.utils.DateTimeUtils;
 
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -21,6 +23,7 @@ import java.util.UUID;
 public class TokenCustomerServiceImpl implements TokenCustomerService {
     //jwt settings
     private static final int MAX_TOKENS = 3;
+    private static final String TOKEN_TYPE = "Bearer";
     @Value("${jwt.expiration}")
     private int expiration;
     @Value("${jwt.expiration-refresh-token}")
@@ -28,72 +31,82 @@ public class TokenCustomerServiceImpl implements TokenCustomerService {
 
     private final TokenCustomerRepository tokenCustomerRepository;
     private final JwtTokenUtils jwtTokenUtil;
+    private final TokenRevocationService tokenRevocationService;
 
     // Refresh a token
-    @Transactional
+    // TOKEN_EXPIRED must not roll back the delete of the expired token
+    @Transactional(dontRollbackOn = AppException.class)
     @Override
     public TokenCustomerEntity refreshTokenForCustomer(String refreshToken, CustomerEntity customer) {
-        //find the refresh token
-        TokenCustomerEntity existingToken = tokenCustomerRepository.findByRefreshToken(refreshToken);
-        //check if the requested token exists
-        if(existingToken == null) {
-            throw new AppException(ErrorCode.REFRESH_TOKEN_NOT_FOUND);
-        }
-        //check if it has expired
-        if(existingToken.getRefreshExpirationDate().compareTo(LocalDateTime.now()) < 0){
+        //generate new jwt token
+        String token = jwtTokenUtil.generateTokenForCustomer(customer);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expirationDateTime = now.plusSeconds(expiration);
+        String newRefreshToken = UUID.randomUUID().toString();
+        LocalDateTime refreshExpirationDateTime = now.plusSeconds(expirationRefreshToken);
+
+        // Find the refresh token and replace its tokens in one statement, when it exists and has not expired
+        List<Object[]> replacedTokens = tokenCustomerRepository.replaceTokenByRefreshToken(
+                refreshToken, now, token, newRefreshToken, expirationDateTime, refreshExpirationDateTime);
+        if (replacedTokens.isEmpty()) {
+            //check if the requested token exists
+            TokenCustomerEntity existingToken = tokenCustomerRepository.findByRefreshToken(refreshToken);
+            if(existingToken == null || existingToken.getRefreshExpirationDate().compareTo(now) >= 0) {
+                throw new AppException(ErrorCode.REFRESH_TOKEN_NOT_FOUND);
+            }
+            //it has expired
             tokenCustomerRepository.delete(existingToken);
+            tokenRevocationService.revokeToken(existingToken.getToken(), existingToken.getExpirationDate());
             throw new AppException(ErrorCode.TOKEN_EXPIRED);
         }
-        //generate new jwt token
-        String token = jwtTokenUtil.generateTokenForCustomer(customer);
-        LocalDateTime expirationDateTime = LocalDateTime.now().plusSeconds(expiration);
-        existingToken.setExpirationDate(expirationDateTime);
-        existingToken.setToken(token);
-        existingToken.setRefreshToken(UUID.randomUUID().toString());
-        existingToken.setRefreshExpirationDate(LocalDateTime.now().plusSeconds(expirationRefreshToken));
-        return existingToken;
+
+        // Old access token is replaced -> revoke it
+        // Row: (token id, token type, is mobile, replaced token, replaced token expiration date)
+        Object[] replacedToken = replacedTokens.get(0);
+        tokenRevocationService.revokeToken((String) replacedToken[3], DateTimeUtils.toLocalDateTime(replacedToken[4]));
+        return TokenCustomerEntity.builder()
+                .id(((Number) replacedToken[0]).longValue())
+                .customer(customer)
+                .token(token)
+                .refreshToken(newRefreshToken)
+                .tokenType((String) replacedToken[1])
+                .expirationDate(expirationDateTime)
+                .refreshExpirationDate(refreshExpirationDateTime)
+                .isMobile((Boolean) replacedToken[2])
+                .revoked(false)
+                .expired(false)
+                .build();
     }
 
     // Add a new token for a customer
+    // Eviction and insertion are one statement: a login costs one round trip however many devices are logged in
     @Transactional
     @Override
     public TokenCustomerEntity addTokenForCustomer(CustomerEntity customer, String token, boolean isMobileDevice) {
-        List<TokenCustomerEntity> userTokens = tokenCustomerRepository.findByCustomer(customer);
-        int tokenCount = userTokens.size();
-        // Số lượng token vượt quá giới hạn, xóa một token cũ
-        if (tokenCount >= MAX_TOKENS) {
-            //kiểm tra xem trong danh sách userTokens có tồn tại ít nhất
-            //một token không phải là thiết bị di động (non-mobile)
-            boolean hasNonMobileToken = !userTokens.stream().allMatch(TokenCustomerEntity::isMobile);
-            TokenCustomerEntity tokenToDelete;
-            if (hasNonMobileToken) {
-                tokenToDelete = userTokens.stream()
-                        .filter(userToken -> !userToken.isMobile())
-                        .findFirst()
-                        .orElse(userTokens.get(0));
-            } else {
-                //tất cả các token đều là thiết bị di động,
-                //chúng ta sẽ xóa token đầu tiên trong danh sách
-                tokenToDelete = userTokens.get(0);
-            }
-            tokenCustomerRepository.delete(tokenToDelete);
-        }
-        long expirationInSeconds = expiration;
-        LocalDateTime expirationDateTime = LocalDateTime.now().plusSeconds(expirationInSeconds);
+        LocalDateTime expirationDateTime = LocalDateTime.now().plusSeconds(expiration);
+        String refreshToken = UUID.randomUUID().toString();
+        LocalDateTime refreshExpirationDateTime = LocalDateTime.now().plusSeconds(expirationRefreshToken);
+
         // Tạo mới một token cho người dùng
-        TokenCustomerEntity newToken = TokenCustomerEntity.builder()
+        // Số lượng token vượt quá giới hạn: xóa một token cũ, ưu tiên token không phải thiết bị di động (non-mobile)
+        // Row: (new token id, evicted token or null, evicted token expiration date or null)
+        Object[] insertedToken = tokenCustomerRepository.insertTokenEvictingOldest(customer.getId(), token, refreshToken,
+                TOKEN_TYPE, expirationDateTime, refreshExpirationDateTime, isMobileDevice, MAX_TOKENS).get(0);
+        if (insertedToken[1] != null) {
+            tokenRevocationService.revokeToken((String) insertedToken[1], DateTimeUtils.toLocalDateTime(insertedToken[2]));
+        }
+
+        return TokenCustomerEntity.builder()
+                .id(((Number) insertedToken[0]).longValue())
                 .customer(customer)
                 .token(token)
+                .refreshToken(refreshToken)
                 .revoked(false)
                 .expired(false)
-                .tokenType("Bearer")
+                .tokenType(TOKEN_TYPE)
                 .expirationDate(expirationDateTime)
+                .refreshExpirationDate(refreshExpirationDateTime)
                 .isMobile(isMobileDevice)
                 .build();
-
-        newToken.setRefreshToken(UUID.randomUUID().toString());
-        newToken.setRefreshExpirationDate(LocalDateTime.now().plusSeconds(expirationRefreshToken));
-        tokenCustomerRepository.save(newToken);
-        return newToken;
     }
 }
@@ -0,0 +1,25 @@
+package com.example.onlinebankingapp.services.TokenRevocation;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// In-JVM broadcaster: delivers to subscribers of this JVM only (single node, tests)
+@Component
+public class LocalTokenRevocationBroadcaster implements TokenRevocationBroadcaster {
+    private final List<Consumer<RevokedToken>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(RevokedToken revokedToken) {
+        for (Consumer<RevokedToken> listener : listeners) {
+            listener.accept(revokedToken);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<RevokedToken> listener) {
+        listeners.add(listener);
+    }
+}
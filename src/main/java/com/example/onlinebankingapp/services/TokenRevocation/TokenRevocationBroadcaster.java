@@ -0,0 +1,16 @@
+package com.example.onlinebankingapp.services.TokenRevocation;
+
+import java.util.function.Consumer;
+
+// Hook to spread revocations to every node, so each node's in-memory index stays consistent
+// Replace the in-JVM implementation with a message broker backed one when running several nodes
+public interface TokenRevocationBroadcaster {
+    record RevokedToken(String token, long expiresAtMillis) {
+    }
+
+    // Publish a revocation made on this node
+    void publish(RevokedToken revokedToken);
+
+    // Receive revocations, including the ones published by this node
+    void subscribe(Consumer<RevokedToken> listener);
+}
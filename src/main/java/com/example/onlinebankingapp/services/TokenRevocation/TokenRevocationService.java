@@ -0,0 +1,10 @@
+package com.example.onlinebankingapp.services.TokenRevocation;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+
+public interface TokenRevocationService {
+    void revokeToken(String token, LocalDateTime expirationDate);
+    boolean isRevoked(String token);
+    boolean isCoveredByIndex(Date tokenExpiration);
+}
@@ -0,0 +1,157 @@
+package com.example.onlinebankingapp.services.TokenRevocation;
+
+import com.example.onlinebankingapp.components.JwtAuthenticationCache;
+import com.example.onlinebankingapp.entities.TokenCustomerEntity;
+import com.example.onlinebankingapp.entities.TokenEmployeeEntity;
+import com.example.onlinebankingapp.repositories.TokenCustomerRepository;
+import com.example.onlinebankingapp.repositories.TokenEmployeeRepository;
+import com.example.onlinebankingapp.services.TokenRevocation.TokenRevocationBroadcaster.RevokedToken;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// In-memory revocation index: bloom filter in front of an exact set of revoked (or deleted) tokens
+// The common "not revoked" case is answered by the bloom filter without touching the token tables
+// Tokens deleted before this node started are unknown to the index, so tokens issued before the index
+// was built are still checked against the database until they expire (see isCoveredByIndex)
+@Service
+@Slf4j
+public class TokenRevocationServiceImpl implements TokenRevocationService {
+    private final TokenCustomerRepository tokenCustomerRepository;
+    private final TokenEmployeeRepository tokenEmployeeRepository;
+    private final JwtAuthenticationCache jwtAuthenticationCache;
+    private final TokenRevocationBroadcaster tokenRevocationBroadcaster;
+    private final int expectedInsertions;
+    private final double falsePositiveRate;
+    private final long expirationMillis;
+
+    // Revoked token -> its expiration, pruned once expired (an expired JWT is rejected anyway)
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    private volatile RevokedTokenBloomFilter bloomFilter;
+    // Tokens expiring after this instant were issued after the index was built
+    private volatile long coveredExpirationAfterMillis = Long.MAX_VALUE;
+    // Lock instead of synchronized: a virtual thread waiting on it does not pin its carrier thread
+    private final ReentrantLock revocationLock = new ReentrantLock();
+
+    public TokenRevocationServiceImpl(
+            TokenCustomerRepository tokenCustomerRepository,
+            TokenEmployeeRepository tokenEmployeeRepository,
+            JwtAuthenticationCache jwtAuthenticationCache,
+            TokenRevocationBroadcaster tokenRevocationBroadcaster,
+            @Value("${token.revocation.bloom.expected-insertions:100000}") int expectedInsertions,
+            @Value("${token.revocation.bloom.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${jwt.expiration}") int expiration
+    ) {
+        this.tokenCustomerRepository = tokenCustomerRepository;
+        this.tokenEmployeeRepository = tokenEmployeeRepository;
+        this.jwtAuthenticationCache = jwtAuthenticationCache;
+        this.tokenRevocationBroadcaster = tokenRevocationBroadcaster;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.expirationMillis = expiration * 1000L;
+        this.bloomFilter = new RevokedTokenBloomFilter(expectedInsertions, falsePositiveRate);
+    }
+
+    // Build the index from the token tables and start listening to other nodes
+    @PostConstruct
+    void buildIndex() {
+        tokenRevocationBroadcaster.subscribe(this::applyRevocation);
+
+        long builtAtMillis = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        for (TokenCustomerEntity token : tokenCustomerRepository.findByRevokedTrueAndExpirationDateAfter(now)) {
+            applyRevocation(new RevokedToken(token.getToken(), toEpochMillis(token.getExpirationDate())));
+        }
+        for (TokenEmployeeEntity token : tokenEmployeeRepository.findByRevokedTrueAndExpirationDateAfter(now)) {
+            applyRevocation(new RevokedToken(token.getToken(), toEpochMillis(token.getExpirationDate())));
+        }
+        // 1 s of slack: the exp claim is truncated to seconds
+        coveredExpirationAfterMillis = builtAtMillis + expirationMillis + 1000L;
+        log.info("Token revocation index built with {} revoked tokens", revokedTokens.size());
+    }
+
+    // Method to revoke a token which is revoked, replaced or deleted from the token tables
+    // Applied locally right away, published to other nodes once the deletion is committed
+    @Override
+    public void revokeToken(String token, LocalDateTime expirationDate) {
+        if (token == null) {
+            return;
+        }
+        long expiresAtMillis = expirationDate != null
+                ? toEpochMillis(expirationDate)
+                : System.currentTimeMillis() + expirationMillis;
+        RevokedToken revokedToken = new RevokedToken(token, expiresAtMillis);
+
+        applyRevocation(revokedToken);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    tokenRevocationBroadcaster.publish(revokedToken);
+                }
+            });
+        } else {
+            tokenRevocationBroadcaster.publish(revokedToken);
+        }
+    }
+
+    @Override
+    public boolean isRevoked(String token) {
+        // Bloom filter says no -> definitely not revoked
+        if (!bloomFilter.mightContain(token)) {
+            return false;
+        }
+        return revokedTokens.containsKey(token);
+    }
+
+    // A token expiring later than (index build time + token lifetime) was issued after the index was built,
+    // so every revocation of it went through this index
+    @Override
+    public boolean isCoveredByIndex(Date tokenExpiration) {
+        return tokenExpiration.getTime() > coveredExpirationAfterMillis;
+    }
+
+    // Drop expired revocations and rebuild the bloom filter so it does not fill up over time
+    @Scheduled(fixedDelayString = "${token.revocation.prune-interval-millis:3600000}")
+    public void pruneExpiredRevocations() {
+        revocationLock.lock();
+        try {
+            long nowMillis = System.currentTimeMillis();
+            revokedTokens.values().removeIf(expiresAtMillis -> expiresAtMillis <= nowMillis);
+
+            RevokedTokenBloomFilter rebuiltBloomFilter = new RevokedTokenBloomFilter(expectedInsertions, falsePositiveRate);
+            revokedTokens.keySet().forEach(rebuiltBloomFilter::put);
+            bloomFilter = rebuiltBloomFilter;
+        } finally {
+            revocationLock.unlock();
+        }
+    }
+
+    // Exact set first, then bloom filter: a reader seeing the bloom bit always finds the token in the set
+    // Locked with pruning so a revocation is never lost while the bloom filter is rebuilt
+    private void applyRevocation(RevokedToken revokedToken) {
+        revocationLock.lock();
+        try {
+            revokedTokens.merge(revokedToken.token(), revokedToken.expiresAtMillis(), Math::max);
+            bloomFilter.put(revokedToken.token());
+            jwtAuthenticationCache.evictToken(revokedToken.token());
+        } finally {
+            revocationLock.unlock();
+        }
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
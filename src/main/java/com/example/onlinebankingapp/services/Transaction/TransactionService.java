@@ -6,6 +6,7 @@ import com.example.onlinebankingapp.dtos.requests.Transaction.TransactionToBA.Tr
 import com.example.onlinebankingapp.dtos.requests.Transaction.TransactionToBA.TransactionToBAFromPARequest;
 import com.example.onlinebankingapp.dtos.requests.Transaction.TransactionToPA.TransactionToPAFromBARequest;
 import com.example.onlinebankingapp.dtos.requests.Transaction.TransactionToPA.TransactionToPAFromPARequest;
+import com.example.onlinebankingapp.dtos.responses.Transaction.TransactionHistoryPageResponse;
 import com.example.onlinebankingapp.dtos.responses.TransactionCustomer.TransactionCustomerListResponse;
 import com.example.onlinebankingapp.entities.CustomerEntity;
 import com.example.onlinebankingapp.entities.TransactionCustomerEntity;
@@ -33,11 +34,11 @@ public interface TransactionService {
     TransactionEntity failAddMoneyToPA(CustomerEntity existingCustomer, TransactionEntity existingTransaction);
     TransactionEntity completeAddMoneyFromPAToSA(CustomerEntity existingCustomer, TransactionEntity existingTransaction);
     TransactionEntity failAddMoneyToSA(CustomerEntity existingCustomer, TransactionEntity existingTransaction);
-    void deleteExpiredPendingTransaction(CustomerEntity existingCustomer, TransactionType transactionType);
     TransactionEntity getTransactionById(long transactionId);
     List<TransactionCustomerEntity> getAllTransactions();
     TransactionCustomerListResponse getPaginationListTransactionCustomer(Integer page, Integer size, String orderedBy, Boolean isAscending, String keyword);
     List<TransactionEntity> trackTransactionHistory(CustomerEntity existingCustomer, List<TransactionType> transactionTypes, TransactionReceiverType transactionReceiverType, Integer size);
+    TransactionHistoryPageResponse getTransactionHistoryByCursor(CustomerEntity existingCustomer, List<TransactionType> transactionTypes, TransactionReceiverType transactionReceiverType, Integer size, String cursor);
     List<Object[]> getMonthlyTotalExpenseAmountForCustomer(Long customerId, TransactionStatus transactionStatus, TransactionType transactionType, int year);
     List<Object[]> getMonthlyTotalIncomeAmountForCustomer(Long customerId, TransactionStatus transactionStatus, TransactionType transactionType, int year);
     List<Object[]> findTotalRewardAmountForCustomer(Long customerId, TransactionStatus transactionStatus, TransactionType transactionType, int year);
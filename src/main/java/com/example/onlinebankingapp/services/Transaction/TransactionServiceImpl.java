@@ -8,6 +8,7 @@ import com.example.onlinebankingapp.dtos.requests.Transaction.TransactionToPA.Tr
 import com.example.onlinebankingapp.dtos.requests.Transaction.TransactionToPA.TransactionToPAFromPARequest;
 import com.example.onlinebankingapp.dtos.responses.BankAccount.BankAccountResponse;
 import com.example.onlinebankingapp.dtos.responses.PaymentAccount.PaymentAccountResponse;
+import com.example.onlinebankingapp.dtos.responses.Transaction.TransactionHistoryPageResponse;
 import com.example.onlinebankingapp.dtos.responses.Transaction.TransactionResponse;
 import com.example.onlinebankingapp.dtos.responses.TransactionCustomer.TransactionCustomerListResponse;
 import com.example.onlinebankingapp.dtos.responses.TransactionCustomer.TransactionCustomerResponse;
@@ -18,6 +19,9 @@ import com.example.onlinebankingapp.exceptions.ErrorCode;
 import com.example.onlinebankingapp.repositories.*;
 import com.example.onlinebankingapp.services.BankAccount.BankAccountServiceImpl;
 import com.example.onlinebankingapp.services.Customer.CustomerService;
+import com.example.onlinebankingapp.services.CustomerMonthlyTotal.CustomerMonthlyTotalService;
+import com.example.onlinebankingapp.services.Ledger.LedgerService;
+import com.example.onlinebankingapp.services.TransferLock.TransferLockService;
 import com.example.onlinebankingapp.services.PaymentAccount.PaymentAccountServiceImpl;
 import com.example.onlinebankingapp.utils.DateTimeUtils;
 import com.example.onlinebankingapp.utils.ValidationUtils;
@@ -30,8 +34,11 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 
 @Service
@@ -46,11 +53,18 @@ public class TransactionServiceImpl implements TransactionService {
 
     private final PaymentAccountServiceImpl paymentAccountServiceImpl;
     private final BankAccountServiceImpl bankAccountServiceImpl;
+    private final LedgerService ledgerService;
+    private final TransferLockService transferLockService;
+    private final CustomerMonthlyTotalService customerMonthlyTotalService;
 
     public static Boolean defaultPAEnough = true;
 
     private static final Logger logger = LoggerFactory.getLogger(TransactionServiceImpl.class);
 
+    // Transaction history by cursor
+    private static final int DEFAULT_HISTORY_PAGE_SIZE = 20;
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+
     @Override
     public Map<String, Object> getUnexpiredPendingTransferToPA(
             CustomerEntity existingCustomer
@@ -138,27 +152,13 @@ public class TransactionServiceImpl implements TransactionService {
         PaymentAccountEntity defaultPaymentAccount = paymentAccountServiceImpl.getDefaultPaymentAccount(existingCustomer.getId());
 
         // Response for FE to hide default PA option
-        if(transactionRequest.getAmount() > defaultPaymentAccount.getCurrentBalance()){
+        if(transactionRequest.getAmount().isGreaterThan(defaultPaymentAccount.getCurrentBalance())){
             defaultPAEnough = false;
         }
         else {
             defaultPAEnough = true;
         }
 
-        Long receiverId = 0L;
-
-        if ("BANK_ACCOUNT".equals(transactionRequest.getTransactionReceiverType().toString())) {
-            Optional<BankAccountEntity> bankAccountOpt = bankAccountRepository.findById(transactionRequest.getReceiverId());
-            CustomerEntity receiver = bankAccountOpt
-                    .map(BankAccountEntity::getPaymentAccount)
-                    .map(PaymentAccountEntity::getCustomer)
-                    .orElse(null);
-            receiverId = receiver != null ? receiver.getId() : 0L;
-        } else if ("PAYMENT_ACCOUNT".equals(transactionRequest.getTransactionReceiverType().toString())) {
-            CustomerEntity receiver = paymentAccountRepository.findById(transactionRequest.getReceiverId()).get().getCustomer();
-            receiverId = receiver != null ? receiver.getId() : 0L;
-        }
-
         // Get/ Create new aiming transaction
         TransactionCustomerEntity aimTransactionCustomer = new TransactionCustomerEntity();
 
@@ -171,7 +171,8 @@ public class TransactionServiceImpl implements TransactionService {
             transactionRepository.save(oldUnexpiredPendingTransaction);
 
             TransactionCustomerEntity.TransactionCustomer oldTransactionCustomerKey =
-                    new TransactionCustomerEntity.TransactionCustomer(oldUnexpiredPendingTransaction, existingCustomer, receiverId);
+                    new TransactionCustomerEntity.TransactionCustomer(oldUnexpiredPendingTransaction, existingCustomer,
+                            getReceiverCustomerId(oldUnexpiredPendingTransaction));
 
             // Check a transaction of a customer exist
             if(!transactionCustomerRepository.existsTransactionCustomerEntityByTransactionCustomerKey(oldTransactionCustomerKey)){
@@ -182,11 +183,10 @@ public class TransactionServiceImpl implements TransactionService {
         }
         // Check transfer money in newTransaction
         else{
-            // Delete pending transaction of customer
-            // Exceed 5 minutes from initialization
-            deleteExpiredPendingTransaction(existingCustomer, TransactionType.TRANSFER_MONEY);
-
             // Insert a new PENDING transaction from DEFAULT PA
+            // Receiver customer is resolved once here and stored on the transaction
+            Long receiverId = resolveReceiverCustomerId(
+                    transactionRequest.getTransactionReceiverType(), transactionRequest.getReceiverId());
             aimTransactionCustomer = insertPendingTransaction(transactionRequest, existingCustomer,receiverId);
         }
 
@@ -231,6 +231,7 @@ public class TransactionServiceImpl implements TransactionService {
                 .transactionSenderType(transactionSenderType)
                 .receiverId(transactionRequest.getReceiverId())
                 .transactionReceiverType(transactionReceiverType)
+                .receiverCustomerId(receiverId)
                 .build();
         transactionRepository.save(newPendingTransaction);
 
@@ -446,108 +447,7 @@ public class TransactionServiceImpl implements TransactionService {
             CustomerEntity existingCustomer,
             TransactionEntity existingTransaction
     ) {
-        // Change in PA and BA
-        PaymentAccountEntity senderPaymentAccount, receiverPaymentAccount;
-        BankAccountEntity senderBankAccount, receiverBankAccount;
-        Double amountTransfer = existingTransaction.getAmount();
-
-        // From PA to PA
-        // No need to check balance of PA
-        // Front end have implement that
-        if(existingTransaction.getTransactionSenderType().equals(TransactionSenderType.PAYMENT_ACCOUNT)
-                && existingTransaction.getTransactionReceiverType().equals(TransactionReceiverType.PAYMENT_ACCOUNT)){
-            senderPaymentAccount = paymentAccountServiceImpl.getPaymentAccountById(existingTransaction.getSenderId());
-            receiverPaymentAccount = paymentAccountServiceImpl.getPaymentAccountById(existingTransaction.getReceiverId());
-
-            senderPaymentAccount.setCurrentBalance(senderPaymentAccount.getCurrentBalance() - amountTransfer);
-            senderPaymentAccount.setRewardPoint(rewardPointForCompleteTransfer(amountTransfer));
-            paymentAccountRepository.save(senderPaymentAccount);
-
-            receiverPaymentAccount.setCurrentBalance(receiverPaymentAccount.getCurrentBalance() + amountTransfer);
-            paymentAccountRepository.save(receiverPaymentAccount);
-        }
-
-        // From PA to BA
-        if(existingTransaction.getTransactionSenderType().equals(TransactionSenderType.PAYMENT_ACCOUNT)
-                && existingTransaction.getTransactionReceiverType().equals(TransactionReceiverType.BANK_ACCOUNT)){
-            senderPaymentAccount = paymentAccountServiceImpl.getPaymentAccountById(existingTransaction.getSenderId());
-            receiverBankAccount = bankAccountServiceImpl.getBankAccountById(existingTransaction.getReceiverId());
-
-            senderPaymentAccount.setCurrentBalance(senderPaymentAccount.getCurrentBalance() - amountTransfer);
-            senderPaymentAccount.setRewardPoint(rewardPointForCompleteTransfer(amountTransfer));
-            paymentAccountRepository.save(senderPaymentAccount);
-
-            receiverBankAccount.setCurrentBalance(receiverBankAccount.getCurrentBalance() + amountTransfer);
-            bankAccountRepository.save(receiverBankAccount);
-        }
-
-        // From BA to PA
-        if(existingTransaction.getTransactionSenderType().equals(TransactionSenderType.BANK_ACCOUNT)
-                && existingTransaction.getTransactionReceiverType().equals(TransactionReceiverType.PAYMENT_ACCOUNT)){
-            senderBankAccount = bankAccountServiceImpl.getBankAccountById(existingTransaction.getSenderId());
-            receiverPaymentAccount = paymentAccountServiceImpl.getPaymentAccountById(existingTransaction.getReceiverId());
-
-            // Check balance of associated BA
-            if(senderBankAccount.getCurrentBalance() < existingTransaction.getAmount()){
-                // Return error for that transaction
-                failTransferMoney(existingCustomer, existingTransaction);
-                throw new AppException(ErrorCode.BA_BALANCE_NOT_ENOUGH);
-            }
-
-            senderBankAccount.setCurrentBalance(senderBankAccount.getCurrentBalance() - amountTransfer);
-            bankAccountRepository.save(senderBankAccount);
-
-            // Get PA linked with senderBankAccount
-            PaymentAccountEntity updateRewardPoint = senderBankAccount.getPaymentAccount();
-            updateRewardPoint.setRewardPoint(rewardPointForCompleteTransfer(amountTransfer));
-            paymentAccountRepository.save(updateRewardPoint);
-
-            receiverPaymentAccount.setCurrentBalance(receiverPaymentAccount.getCurrentBalance() + amountTransfer);
-            paymentAccountRepository.save(receiverPaymentAccount);
-        }
-
-        // From BA to BA
-        if(existingTransaction.getTransactionSenderType().equals(TransactionSenderType.BANK_ACCOUNT)
-                && existingTransaction.getTransactionReceiverType().equals(TransactionReceiverType.BANK_ACCOUNT)){
-            senderBankAccount = bankAccountServiceImpl.getBankAccountById(existingTransaction.getSenderId());
-            receiverBankAccount = bankAccountServiceImpl.getBankAccountById(existingTransaction.getReceiverId());
-
-            // Check balance of associated BA
-            if(senderBankAccount.getCurrentBalance() < existingTransaction.getAmount()){
-                // Return error for that transaction
-                failTransferMoney(existingCustomer, existingTransaction);
-                throw new AppException(ErrorCode.BA_BALANCE_NOT_ENOUGH);
-            }
-
-            senderBankAccount.setCurrentBalance(senderBankAccount.getCurrentBalance() - amountTransfer);
-            bankAccountRepository.save(senderBankAccount);
-
-            // Get PA linked with senderBankAccount
-            PaymentAccountEntity updateRewardPoint = senderBankAccount.getPaymentAccount();
-            updateRewardPoint.setRewardPoint(rewardPointForCompleteTransfer(amountTransfer));
-            paymentAccountRepository.save(updateRewardPoint);
-
-            receiverBankAccount.setCurrentBalance(receiverBankAccount.getCurrentBalance() + amountTransfer);
-            bankAccountRepository.save(receiverBankAccount);
-        }
-
-        // Delete pending TRANSFER_MONEY transaction of customer
-        // Check pending TRANSFER_MONEY exceed 5 minutes
-        deleteExpiredPendingTransaction(existingCustomer, TransactionType.TRANSFER_MONEY);
-
-        Long receiverId = 0L;
-
-        if ("BANK_ACCOUNT".equals(existingTransaction.getTransactionReceiverType().toString())) {
-            Optional<BankAccountEntity> bankAccountOpt = bankAccountRepository.findById(existingTransaction.getReceiverId());
-            CustomerEntity receiver = bankAccountOpt
-                    .map(BankAccountEntity::getPaymentAccount)
-                    .map(PaymentAccountEntity::getCustomer)
-                    .orElse(null);
-            receiverId = receiver != null ? receiver.getId() : 0L;
-        } else if ("PAYMENT_ACCOUNT".equals(existingTransaction.getTransactionReceiverType().toString())) {
-            CustomerEntity receiver = paymentAccountRepository.findById(existingTransaction.getReceiverId()).get().getCustomer();
-            receiverId = receiver != null ? receiver.getId() : 0L;
-        }
+        Long receiverId = getReceiverCustomerId(existingTransaction);
 
         // Return transaction of customer
         // Create a relationship key for the transaction-customer relationship
@@ -558,15 +458,26 @@ public class TransactionServiceImpl implements TransactionService {
                 .transactionCustomerKey(transactionCustomerKey)
                 .build();
 
-        // Check a transaction of a customer exist
+        // Check a transaction of a customer exist before moving any money
         if(!transactionCustomerRepository.existsTransactionCustomerEntityByTransactionCustomerKey(transactionCustomerKey)){
             throw new AppException(ErrorCode.TRANSACTION_OF_CUSTOMER_NOT_FOUND);
         }
 
-        // Change in transaction
-        existingTransaction.setTransactionDateTime(DateTimeUtils.getVietnamCurrentDateTime());
-        existingTransaction.setTransactionStatus(TransactionStatus.COMPLETED);
-        transactionRepository.save(existingTransaction);
+        // Change in PA and BA + change in transaction
+        // Debit, credit, reward point and COMPLETED status are posted atomically
+        // Balance of sender (PA or BA) is checked by the conditional debit
+        // Locks of sender and receiver are held until the posting commits
+        Integer rewardPoint = rewardPointForCompleteTransfer(existingTransaction.getAmount());
+        boolean isPosted = transferLockService.executeWithAccountLocks(existingTransaction,
+                () -> ledgerService.postTransfer(existingTransaction, existingCustomer.getId(), receiverId, rewardPoint));
+        if(!isPosted){
+            // Return error for that transaction
+            failTransferMoney(existingCustomer, existingTransaction);
+            if(existingTransaction.getTransactionSenderType().equals(TransactionSenderType.BANK_ACCOUNT)){
+                throw new AppException(ErrorCode.BA_BALANCE_NOT_ENOUGH);
+            }
+            throw new AppException(ErrorCode.BALANCE_AMOUNT_INVALID);
+        }
 
         return completeTransactionCustomer;
     }
@@ -580,19 +491,7 @@ public class TransactionServiceImpl implements TransactionService {
             CustomerEntity existingCustomer,
             TransactionEntity existingTransaction
     ) {
-        Long receiverId = 0L;
-
-        if ("BANK_ACCOUNT".equals(existingTransaction.getTransactionReceiverType().toString())) {
-            Optional<BankAccountEntity> bankAccountOpt = bankAccountRepository.findById(existingTransaction.getReceiverId());
-            CustomerEntity receiver = bankAccountOpt
-                    .map(BankAccountEntity::getPaymentAccount)
-                    .map(PaymentAccountEntity::getCustomer)
-                    .orElse(null);
-            receiverId = receiver != null ? receiver.getId() : 0L;
-        } else if ("PAYMENT_ACCOUNT".equals(existingTransaction.getTransactionReceiverType().toString())) {
-            CustomerEntity receiver = paymentAccountRepository.findById(existingTransaction.getReceiverId()).get().getCustomer();
-            receiverId = receiver != null ? receiver.getId() : 0L;
-        }
+        Long receiverId = getReceiverCustomerId(existingTransaction);
         // Return transaction of customer
         // Create a relationship key for the transaction-customer relationship
         TransactionCustomerEntity.TransactionCustomer transactionCustomerKey = new TransactionCustomerEntity.TransactionCustomer(existingTransaction, existingCustomer,receiverId);
@@ -602,34 +501,18 @@ public class TransactionServiceImpl implements TransactionService {
             throw new AppException(ErrorCode.TRANSACTION_OF_CUSTOMER_NOT_FOUND);
         }
 
-        // Change in transaction
-        existingTransaction.setTransactionDateTime(DateTimeUtils.getVietnamCurrentDateTime());
-        existingTransaction.setTransactionStatus(TransactionStatus.FAILED);
-        transactionRepository.save(existingTransaction);
-
-        // Delete pending TRANSFER_MONEY transaction of customer
-        // Check pending TRANSFER_MONEY exceed 5 minutes
-        deleteExpiredPendingTransaction(existingCustomer, TransactionType.TRANSFER_MONEY);
+        // Change in transaction, only while still PENDING
+        closePendingTransaction(existingTransaction, TransactionStatus.FAILED);
     }
 
+    // Status change and monthly totals commit together
     @Override
+    @Transactional(rollbackFor = {Exception.class, Throwable.class})
     public TransactionEntity completeAddMoneyFromBAToPA(
             CustomerEntity existingCustomer,
             TransactionEntity existingTransaction
     ) {
-        Long receiverId = 0L;
-
-        if ("BANK_ACCOUNT".equals(existingTransaction.getTransactionReceiverType().toString())) {
-            Optional<BankAccountEntity> bankAccountOpt = bankAccountRepository.findById(existingTransaction.getReceiverId());
-            CustomerEntity receiver = bankAccountOpt
-                    .map(BankAccountEntity::getPaymentAccount)
-                    .map(PaymentAccountEntity::getCustomer)
-                    .orElse(null);
-            receiverId = receiver != null ? receiver.getId() : 0L;
-        } else if ("PAYMENT_ACCOUNT".equals(existingTransaction.getTransactionReceiverType().toString())) {
-            CustomerEntity receiver = paymentAccountRepository.findById(existingTransaction.getReceiverId()).get().getCustomer();
-            receiverId = receiver != null ? receiver.getId() : 0L;
-        }
+        Long receiverId = getReceiverCustomerId(existingTransaction);
         // Return transaction of customer
         // Create a relationship key for the transaction-customer relationship
         TransactionCustomerEntity.TransactionCustomer transactionCustomerKey = new TransactionCustomerEntity.TransactionCustomer(existingTransaction, existingCustomer,receiverId);
@@ -639,14 +522,9 @@ public class TransactionServiceImpl implements TransactionService {
             throw new AppException(ErrorCode.TRANSACTION_OF_CUSTOMER_NOT_FOUND);
         }
 
-        // Update datetime and status -> save
-        existingTransaction.setTransactionDateTime(DateTimeUtils.getVietnamCurrentDateTime());
-        existingTransaction.setTransactionStatus(TransactionStatus.COMPLETED);
-        transactionRepository.save(existingTransaction);
-
-        // Delete pending ADD_FROM_BA_TO_PA transaction of customer
-        // Check pending ADD_FROM_BA_TO_PA exceed 5 minutes
-        deleteExpiredPendingTransaction(existingCustomer, TransactionType.ADD_FROM_BA_TO_PA);
+        // Update datetime and status, only while still PENDING
+        closePendingTransaction(existingTransaction, TransactionStatus.COMPLETED);
+        customerMonthlyTotalService.recordCompletedTransaction(existingTransaction, existingCustomer.getId(), receiverId);
 
         return existingTransaction;
     }
@@ -656,19 +534,7 @@ public class TransactionServiceImpl implements TransactionService {
             CustomerEntity existingCustomer,
             TransactionEntity existingTransaction
     ) {
-        Long receiverId = 0L;
-
-        if ("BANK_ACCOUNT".equals(existingTransaction.getTransactionReceiverType().toString())) {
-            Optional<BankAccountEntity> bankAccountOpt = bankAccountRepository.findById(existingTransaction.getReceiverId());
-            CustomerEntity receiver = bankAccountOpt
-                    .map(BankAccountEntity::getPaymentAccount)
-                    .map(PaymentAccountEntity::getCustomer)
-                    .orElse(null);
-            receiverId = receiver != null ? receiver.getId() : 0L;
-        } else if ("PAYMENT_ACCOUNT".equals(existingTransaction.getTransactionReceiverType().toString())) {
-            CustomerEntity receiver = paymentAccountRepository.findById(existingTransaction.getReceiverId()).get().getCustomer();
-            receiverId = receiver != null ? receiver.getId() : 0L;
-        }
+        Long receiverId = getReceiverCustomerId(existingTransaction);
         // Return transaction of customer
         // Create a relationship key for the transaction-customer relationship
         TransactionCustomerEntity.TransactionCustomer transactionCustomerKey = new TransactionCustomerEntity.TransactionCustomer(existingTransaction, existingCustomer,receiverId);
@@ -678,36 +544,19 @@ public class TransactionServiceImpl implements TransactionService {
             throw new AppException(ErrorCode.TRANSACTION_OF_CUSTOMER_NOT_FOUND);
         }
 
-        // Change in transaction
-        existingTransaction.setTransactionDateTime(DateTimeUtils.getVietnamCurrentDateTime());
-        existingTransaction.setTransactionStatus(TransactionStatus.FAILED);
-        transactionRepository.save(existingTransaction);
-
-        // Delete pending ADD_FROM_BA_TO_PA transaction of customer
-        // Check pending ADD_FROM_BA_TO_PA exceed 5 minutes
-        deleteExpiredPendingTransaction(existingCustomer, TransactionType.ADD_FROM_BA_TO_PA);
+        // Change in transaction, only while still PENDING
+        closePendingTransaction(existingTransaction, TransactionStatus.FAILED);
 
         return existingTransaction;
     }
 
     @Override
+    @Transactional(rollbackFor = {Exception.class, Throwable.class})
     public TransactionEntity completeAddMoneyFromPAToSA(
             CustomerEntity existingCustomer,
             TransactionEntity existingTransaction
     ) {
-        Long receiverId = 0L;
-
-        if ("BANK_ACCOUNT".equals(existingTransaction.getTransactionReceiverType().toString())) {
-            Optional<BankAccountEntity> bankAccountOpt = bankAccountRepository.findById(existingTransaction.getReceiverId());
-            CustomerEntity receiver = bankAccountOpt
-                    .map(BankAccountEntity::getPaymentAccount)
-                    .map(PaymentAccountEntity::getCustomer)
-                    .orElse(null);
-            receiverId = receiver != null ? receiver.getId() : 0L;
-        } else if ("PAYMENT_ACCOUNT".equals(existingTransaction.getTransactionReceiverType().toString())) {
-            CustomerEntity receiver = paymentAccountRepository.findById(existingTransaction.getReceiverId()).get().getCustomer();
-            receiverId = receiver != null ? receiver.getId() : 0L;
-        }
+        Long receiverId = getReceiverCustomerId(existingTransaction);
         // Return transaction of customer
         // Create a relationship key for the transaction-customer relationship
         TransactionCustomerEntity.TransactionCustomer transactionCustomerKey = new TransactionCustomerEntity.TransactionCustomer(existingTransaction, existingCustomer,receiverId);
@@ -717,14 +566,9 @@ public class TransactionServiceImpl implements TransactionService {
             throw new AppException(ErrorCode.TRANSACTION_OF_CUSTOMER_NOT_FOUND);
         }
 
-        // Change in transaction
-        existingTransaction.setTransactionDateTime(DateTimeUtils.getVietnamCurrentDateTime());
-        existingTransaction.setTransactionStatus(TransactionStatus.COMPLETED);
-        transactionRepository.save(existingTransaction);
-
-        // Delete pending ADD_FROM_PA_TO_SA or ADD_FROM_BA_TO_SA transaction of customer
-        // Check pending ADD_FROM_PA_TO_SA or ADD_FROM_BA_TO_SA exceed 5 minutes
-        deleteExpiredPendingTransaction(existingCustomer, TransactionType.ADD_FROM_PA_TO_SA);
+        // Change in transaction, only while still PENDING
+        closePendingTransaction(existingTransaction, TransactionStatus.COMPLETED);
+        customerMonthlyTotalService.recordCompletedTransaction(existingTransaction, existingCustomer.getId(), receiverId);
 
         return existingTransaction;
     }
@@ -733,19 +577,7 @@ public class TransactionServiceImpl implements TransactionService {
     public TransactionEntity failAddMoneyToSA(
             CustomerEntity existingCustomer,
             TransactionEntity existingTransaction) {
-        Long receiverId = 0L;
-
-        if ("BANK_ACCOUNT".equals(existingTransaction.getTransactionReceiverType().toString())) {
-            Optional<BankAccountEntity> bankAccountOpt = bankAccountRepository.findById(existingTransaction.getReceiverId());
-            CustomerEntity receiver = bankAccountOpt
-                    .map(BankAccountEntity::getPaymentAccount)
-                    .map(PaymentAccountEntity::getCustomer)
-                    .orElse(null);
-            receiverId = receiver != null ? receiver.getId() : 0L;
-        } else if ("PAYMENT_ACCOUNT".equals(existingTransaction.getTransactionReceiverType().toString())) {
-            CustomerEntity receiver = paymentAccountRepository.findById(existingTransaction.getReceiverId()).get().getCustomer();
-            receiverId = receiver != null ? receiver.getId() : 0L;
-        }
+        Long receiverId = getReceiverCustomerId(existingTransaction);
         // Return transaction of customer
         // Create a relationship key for the transaction-customer relationship
         TransactionCustomerEntity.TransactionCustomer transactionCustomerKey = new TransactionCustomerEntity.TransactionCustomer(existingTransaction, existingCustomer,receiverId);
@@ -755,63 +587,12 @@ public class TransactionServiceImpl implements TransactionService {
             throw new AppException(ErrorCode.TRANSACTION_OF_CUSTOMER_NOT_FOUND);
         }
 
-        // Change in transaction
-        existingTransaction.setTransactionDateTime(DateTimeUtils.getVietnamCurrentDateTime());
-        existingTransaction.setTransactionStatus(TransactionStatus.FAILED);
-        transactionRepository.save(existingTransaction);
-
-        // Delete pending ADD_FROM_PA_TO_SA transaction of customer
-        // Check pending ADD_FROM_PA_TO_SA exceed 5 minutes
-        deleteExpiredPendingTransaction(existingCustomer, TransactionType.ADD_FROM_PA_TO_SA);
+        // Change in transaction, only while still PENDING
+        closePendingTransaction(existingTransaction, TransactionStatus.FAILED);
 
         return existingTransaction;
     }
 
-    // Method for deleting all pending transaction of a customer
-    // Expiration time: in 5 minutes from NOW of Vietnam time zone
-    // Must check transaction TYPE
-    @Override
-    public void deleteExpiredPendingTransaction(
-            CustomerEntity existingCustomer,
-            TransactionType transactionType
-    ) {
-        LocalDateTime dateTimeThreshold = DateTimeUtils.getVietnamCurrentDateTime().minusMinutes(5);
-        List<TransactionEntity> pendingTransactions  = transactionRepository
-                .findExpiredPendingTransactions(transactionType, TransactionStatus.PENDING, dateTimeThreshold);
-
-        if(!pendingTransactions.isEmpty()){
-            for (TransactionEntity pendingTransaction : pendingTransactions) {
-                Long customerId = transactionCustomerRepository.findByTransactionCustomerKey_Transaction_transactionId(pendingTransaction.getId()).getTransactionCustomerKey().getCustomer().getId();
-                if(customerId == existingCustomer.getId()){
-                    Long receiverId = 0L;
-
-                    if ("BANK_ACCOUNT".equals(pendingTransaction.getTransactionReceiverType().toString())) {
-                        Optional<BankAccountEntity> bankAccountOpt = bankAccountRepository.findById(pendingTransaction.getReceiverId());
-                        CustomerEntity receiver = bankAccountOpt
-                                .map(BankAccountEntity::getPaymentAccount)
-                                .map(PaymentAccountEntity::getCustomer)
-                                .orElse(null);
-                        receiverId = receiver != null ? receiver.getId() : 0L;
-                    } else if ("PAYMENT_ACCOUNT".equals(pendingTransaction.getTransactionReceiverType().toString())) {
-                        CustomerEntity receiver = paymentAccountRepository.findById(pendingTransaction.getReceiverId()).get().getCustomer();
-                        receiverId = receiver != null ? receiver.getId() : 0L;
-                    }
-
-                    // Create the relationship key for each pending transaction
-                    TransactionCustomerEntity.TransactionCustomer pendingTransactionCustomer =
-                            new TransactionCustomerEntity.TransactionCustomer(pendingTransaction, existingCustomer, receiverId);
-
-                    // Delete the TransactionCustomerEntity first
-                    transactionCustomerRepository.deleteTransactionCustomerEntityByTransactionCustomerKey(pendingTransactionCustomer);
-
-                    // Now delete the TransactionEntity if needed
-                    transactionRepository.delete(pendingTransaction);
-                }
-
-            }
-        }
-    }
-
     // Method to get transaction by ID
     @Override
     public TransactionEntity getTransactionById(long transactionId) {
@@ -893,6 +674,72 @@ public class TransactionServiceImpl implements TransactionService {
         return transactions;
     }
 
+    // Method to get one page of transaction history, newest first, continuing after the given cursor
+    // Keyset on (transactionDateTime, id): page N costs the same as page 1
+    @Override
+    public TransactionHistoryPageResponse getTransactionHistoryByCursor(
+            CustomerEntity existingCustomer,
+            List<TransactionType> transactionTypes,
+            TransactionReceiverType transactionReceiverType,
+            Integer size,
+            String cursor
+    ) {
+        List<TransactionStatus> transactionStatusHistory = List.of(TransactionStatus.COMPLETED, TransactionStatus.FAILED);
+        List<TransactionType> filterTransactionTypes = (transactionTypes != null && !transactionTypes.isEmpty())
+                ? transactionTypes
+                : List.of(TransactionType.values());
+
+        int pageSize = (size != null && size > 0) ? Math.min(size, MAX_HISTORY_PAGE_SIZE) : DEFAULT_HISTORY_PAGE_SIZE;
+        // Fetch one extra row to know whether a next page exists
+        PageRequest pageRequest = PageRequest.of(0, pageSize + 1);
+
+        List<TransactionEntity> transactions;
+        if (cursor == null || cursor.isBlank()) {
+            transactions = transactionRepository.findTransactionHistoryFirstPage(transactionStatusHistory, existingCustomer,
+                    existingCustomer.getId(), filterTransactionTypes, transactionReceiverType, pageRequest);
+        } else {
+            HistoryCursor cursorPosition = decodeHistoryCursor(cursor);
+            transactions = transactionRepository.findTransactionHistoryAfterCursor(transactionStatusHistory, existingCustomer,
+                    existingCustomer.getId(), filterTransactionTypes, transactionReceiverType,
+                    cursorPosition.transactionDateTime(), cursorPosition.id(), pageRequest);
+        }
+
+        boolean hasMore = transactions.size() > pageSize;
+        List<TransactionEntity> pageTransactions = hasMore ? transactions.subList(0, pageSize) : transactions;
+
+        return TransactionHistoryPageResponse.builder()
+                .transactions(pageTransactions.stream()
+                        .map(TransactionResponse::fromTransaction)
+                        .toList())
+                .nextCursor(hasMore ? encodeHistoryCursor(pageTransactions.get(pageSize - 1)) : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    // Cursor = Base64URL("<transactionDateTime>|<id>") of the last transaction of a page
+    private record HistoryCursor(LocalDateTime transactionDateTime, Long id) {
+    }
+
+    private static String encodeHistoryCursor(TransactionEntity lastTransaction) {
+        String position = lastTransaction.getTransactionDateTime() + "|" + lastTransaction.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static HistoryCursor decodeHistoryCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separatorIndex = position.lastIndexOf('|');
+            if (separatorIndex < 0) {
+                throw new AppException(ErrorCode.TRANSACTION_CURSOR_INVALID);
+            }
+            return new HistoryCursor(
+                    LocalDateTime.parse(position.substring(0, separatorIndex)),
+                    Long.parseLong(position.substring(separatorIndex + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new AppException(ErrorCode.TRANSACTION_CURSOR_INVALID);
+        }
+    }
+
     @Override
     public boolean checkTransactionCustomerExist(
             long customerId,
@@ -901,19 +748,7 @@ public class TransactionServiceImpl implements TransactionService {
         TransactionEntity existingTransaction = getTransactionById(transactionId);
         CustomerEntity existingCustomer = customerService.getCustomerById(customerId);
 
-        Long receiverId = 0L;
-
-        if ("BANK_ACCOUNT".equals(existingTransaction.getTransactionReceiverType().toString())) {
-            Optional<BankAccountEntity> bankAccountOpt = bankAccountRepository.findById(existingTransaction.getReceiverId());
-            CustomerEntity receiver = bankAccountOpt
-                    .map(BankAccountEntity::getPaymentAccount)
-                    .map(PaymentAccountEntity::getCustomer)
-                    .orElse(null);
-            receiverId = receiver != null ? receiver.getId() : 0L;
-        } else if ("PAYMENT_ACCOUNT".equals(existingTransaction.getTransactionReceiverType().toString())) {
-            CustomerEntity receiver = paymentAccountRepository.findById(existingTransaction.getReceiverId()).get().getCustomer();
-            receiverId = receiver != null ? receiver.getId() : 0L;
-        }
+        Long receiverId = getReceiverCustomerId(existingTransaction);
 
         // Construct transactionCustomerKey
         TransactionCustomerEntity.TransactionCustomer transactionCustomerKey =
@@ -932,10 +767,46 @@ public class TransactionServiceImpl implements TransactionService {
         return true;
     }
 
+    // Method to move a PENDING transaction to its final status, in the database and on the loaded entity
+    // Conditional update: fails when the transaction was completed or failed concurrently, or deleted by the expiry sweeper
+    private void closePendingTransaction(TransactionEntity existingTransaction, TransactionStatus transactionStatus) {
+        LocalDateTime closedDateTime = DateTimeUtils.getVietnamCurrentDateTime();
+        if(transactionRepository.closePendingTransaction(existingTransaction.getId(), transactionStatus, closedDateTime) == 0){
+            throw new AppException(ErrorCode.TRANSACTION_NOT_PENDING);
+        }
+        existingTransaction.setTransactionDateTime(closedDateTime);
+        existingTransaction.setTransactionStatus(transactionStatus);
+    }
+
+    // Customer owning the receiver account, stored on the transaction when it was created
+    // Transactions created before the column existed fall back to a lookup of the receiver account
+    private Long getReceiverCustomerId(TransactionEntity transaction) {
+        if (transaction.getReceiverCustomerId() != null) {
+            return transaction.getReceiverCustomerId();
+        }
+        return resolveReceiverCustomerId(transaction.getTransactionReceiverType().toString(), transaction.getReceiverId());
+    }
+
+    // Method to find the customer owning a receiver account, 0 when the receiver is not a customer account
+    private Long resolveReceiverCustomerId(String transactionReceiverType, Long receiverAccountId) {
+        CustomerEntity receiver = null;
+        if ("BANK_ACCOUNT".equals(transactionReceiverType)) {
+            receiver = bankAccountRepository.findById(receiverAccountId)
+                    .map(BankAccountEntity::getPaymentAccount)
+                    .map(PaymentAccountEntity::getCustomer)
+                    .orElse(null);
+        } else if ("PAYMENT_ACCOUNT".equals(transactionReceiverType)) {
+            receiver = paymentAccountRepository.findById(receiverAccountId)
+                    .map(PaymentAccountEntity::getCustomer)
+                    .orElse(null);
+        }
+        return receiver != null ? receiver.getId() : 0L;
+    }
+
     // Method to give reward point to PA of customer = 10% of completed transaction amount
-    private Integer rewardPointForCompleteTransfer(Double amountTransfer){
+    private Integer rewardPointForCompleteTransfer(Money amountTransfer){
         // Calculate 10% of the transferred amount
-        double rewardPoints = amountTransfer * 0.1;
+        double rewardPoints = amountTransfer.doubleValue() * 0.1;
 
         // Cast the result to Integer (rounding down if necessary) and return
         return (int) Math.round(rewardPoints);
@@ -943,23 +814,27 @@ public class TransactionServiceImpl implements TransactionService {
 
     @Override
     public List<Object[]> getMonthlyTotalExpenseAmountForCustomer(Long customerId, TransactionStatus transactionStatus, TransactionType transactionType, int year) {
-        List<Object[]> results = transactionRepository.findMonthlyTotalExpenseAmountForCustomer(
-                customerId, transactionStatus, transactionType, year);
+        // COMPLETED totals come from the monthly rollup (at most 12 rows), other statuses from the history
+        List<Object[]> results = transactionStatus == TransactionStatus.COMPLETED
+                ? customerMonthlyTotalService.getMonthlyTotalAmountForCustomer(
+                        customerId, MonthlyTotalDirection.EXPENSE, transactionType, year)
+                : transactionRepository.findMonthlyTotalExpenseAmountForCustomer(
+                        customerId, transactionStatus, transactionType, year);
 
         // Initialize a map with each month and a total of 0
-        Map<Integer, Double> monthlyTotals = new HashMap<>();
+        Map<Integer, Money> monthlyTotals = new HashMap<>();
         for (int i = 1; i <= 12; i++) {
-            monthlyTotals.put(i, 0.0);
+            monthlyTotals.put(i, Money.ZERO);
         }
 
         for (Object[] result : results) {
             Integer month = ((Number) result[0]).intValue();
-            Double totalAmount = ((Number) result[1]).doubleValue();
+            Money totalAmount = Money.fromAggregate(result[1]);
             monthlyTotals.put(month, totalAmount);
         }
 
         List<Object[]> finalResults = new ArrayList<>();
-        for (Map.Entry<Integer, Double> entry : monthlyTotals.entrySet()) {
+        for (Map.Entry<Integer, Money> entry : monthlyTotals.entrySet()) {
             finalResults.add(new Object[]{entry.getKey(), entry.getValue()});
         }
 
@@ -969,23 +844,27 @@ public class TransactionServiceImpl implements TransactionService {
 
     @Override
     public List<Object[]> getMonthlyTotalIncomeAmountForCustomer(Long customerId, TransactionStatus transactionStatus, TransactionType transactionType, int year) {
-        List<Object[]> results = transactionRepository.findMonthlyTotalIncomeAmountForCustomer(
-                customerId, transactionStatus, transactionType, year);
+        // COMPLETED totals come from the monthly rollup (at most 12 rows), other statuses from the history
+        List<Object[]> results = transactionStatus == TransactionStatus.COMPLETED
+                ? customerMonthlyTotalService.getMonthlyTotalAmountForCustomer(
+                        customerId, MonthlyTotalDirection.INCOME, transactionType, year)
+                : transactionRepository.findMonthlyTotalIncomeAmountForCustomer(
+                        customerId, transactionStatus, transactionType, year);
 
         // Initialize a map with each month and a total of 0
-        Map<Integer, Double> monthlyTotals = new HashMap<>();
+        Map<Integer, Money> monthlyTotals = new HashMap<>();
         for (int i = 1; i <= 12; i++) {
-            monthlyTotals.put(i, 0.0);
+            monthlyTotals.put(i, Money.ZERO);
         }
 
         for (Object[] result : results) {
             Integer month = ((Number) result[0]).intValue();
-            Double totalAmount = ((Number) result[1]).doubleValue();
+            Money totalAmount = Money.fromAggregate(result[1]);
             monthlyTotals.put(month, totalAmount);
         }
 
         List<Object[]> finalResults = new ArrayList<>();
-        for (Map.Entry<Integer, Double> entry : monthlyTotals.entrySet()) {
+        for (Map.Entry<Integer, Money> entry : monthlyTotals.entrySet()) {
             finalResults.add(new Object[]{entry.getKey(), entry.getValue()});
         }
 
@@ -995,24 +874,28 @@ public class TransactionServiceImpl implements TransactionService {
     @Override
     public List<Object[]> findTotalRewardAmountForCustomer(Long customerId, TransactionStatus transactionStatus,
                                                            TransactionType transactionType, int year) {
-        List<Object[]> results = transactionRepository.findTotalRewardAmountForCustomer(
-                customerId, transactionStatus, transactionType, year);
+        // Completed reward redemptions come from the monthly rollup, anything else from the history
+        List<Object[]> results = transactionStatus == TransactionStatus.COMPLETED
+                && transactionType == TransactionType.REDEEM_REWARD
+                ? customerMonthlyTotalService.getTotalRewardAmountForCustomer(customerId, year)
+                : transactionRepository.findTotalRewardAmountForCustomer(
+                        customerId, transactionStatus, transactionType, year);
 
         List<String> allRewardTypes = List.of("CULINARY", "ENTERTAINMENT", "SHOPPING");
 
-        Map<String, Double> rewardTypeToAmountMap = new HashMap<>();
+        Map<String, Money> rewardTypeToAmountMap = new HashMap<>();
         for (String rewardType : allRewardTypes) {
-            rewardTypeToAmountMap.put(rewardType, 0.0);
+            rewardTypeToAmountMap.put(rewardType, Money.ZERO);
         }
 
         for (Object[] result : results) {
             String rewardType = result[0].toString();
-            Double totalAmount = ((Number) result[1]).doubleValue();
+            Money totalAmount = Money.fromAggregate(result[1]);
             rewardTypeToAmountMap.put(rewardType, totalAmount);
         }
 
         List<Object[]> finalResults = new ArrayList<>();
-        for (Map.Entry<String, Double> entry : rewardTypeToAmountMap.entrySet()) {
+        for (Map.Entry<String, Money> entry : rewardTypeToAmountMap.entrySet()) {
             finalResults.add(new Object[]{entry.getKey(), entry.getValue()});
         }
 
@@ -1020,6 +903,7 @@ public class TransactionServiceImpl implements TransactionService {
     }
 
     @Override
+    @Transactional(rollbackFor = {Exception.class, Throwable.class})
     public TransactionEntity insertRewardTransaction(AccountRewardRequest accountRewardDTO) {
 
         RewardEntity rewardEntity = rewardRepository.findById(accountRewardDTO.getRewardId())
@@ -1029,7 +913,7 @@ public class TransactionServiceImpl implements TransactionService {
                 .orElseThrow(() -> new AppException(ErrorCode.PAYMENT_ACCOUNT_NOT_FOUND));
 
         TransactionEntity newTransactionEntity = TransactionEntity.builder()
-                .amount(rewardEntity.getCostPoint().doubleValue())
+                .amount(Money.of(rewardEntity.getCostPoint()))
                 .receiverId(accountRewardDTO.getRewardId())
                 .senderId(accountRewardDTO.getPaymentAccountId())
                 .transactionDateTime(DateTimeUtils.getVietnamCurrentDateTime())
@@ -1039,6 +923,7 @@ public class TransactionServiceImpl implements TransactionService {
                 .transactionSenderType(TransactionSenderType.PAYMENT_ACCOUNT)
                 .transactionStatus(TransactionStatus.COMPLETED)
                 .transactionType(TransactionType.REDEEM_REWARD)
+                .receiverCustomerId(0L)
                 .build();
 
         newTransactionEntity = transactionRepository.save(newTransactionEntity);
@@ -1051,6 +936,7 @@ public class TransactionServiceImpl implements TransactionService {
                 .build();
 
         transactionCustomerRepository.save(newTransactionCustomer);
+        customerMonthlyTotalService.recordCompletedTransaction(newTransactionEntity, paymentAccountEntity.getCustomer().getId(), 0L);
 
         return newTransactionEntity;
     }
@@ -0,0 +1,12 @@
+package com.example.onlinebankingapp.services.TransferLock;
+
+import com.example.onlinebankingapp.dtos.responses.TransferLock.StripeContentionResponse;
+import com.example.onlinebankingapp.entities.TransactionEntity;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+public interface TransferLockService {
+    <T> T executeWithAccountLocks(TransactionEntity transaction, Supplier<T> action);
+    List<StripeContentionResponse> getStripeContention();
+}
@@ -0,0 +1,137 @@
+package com.example.onlinebankingapp.services.TransferLock;
+
+import com.example.onlinebankingapp.dtos.responses.TransferLock.StripeContentionResponse;
+import com.example.onlinebankingapp.entities.TransactionEntity;
+import com.example.onlinebankingapp.exceptions.AppException;
+import com.example.onlinebankingapp.exceptions.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+@Service
+@Slf4j
+public class TransferLockServiceImpl implements TransferLockService {
+    private final ReentrantLock[] stripes;
+    private final int stripeMask;
+    private final long lockTimeoutMillis;
+
+    // Contention metric per stripe
+    private final AtomicLongArray acquiredCounts;
+    private final AtomicLongArray contendedCounts;
+    private final AtomicLongArray timeoutCounts;
+    private final AtomicLongArray waitNanos;
+
+    public TransferLockServiceImpl(
+            @Value("${transfer.lock.stripes:256}") int stripeCount,
+            @Value("${transfer.lock.timeout-millis:5000}") long lockTimeoutMillis
+    ) {
+        // Round stripe count up to a power of two so index is a bit mask
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.stripeMask = size - 1;
+        this.lockTimeoutMillis = lockTimeoutMillis;
+        this.acquiredCounts = new AtomicLongArray(size);
+        this.contendedCounts = new AtomicLongArray(size);
+        this.timeoutCounts = new AtomicLongArray(size);
+        this.waitNanos = new AtomicLongArray(size);
+    }
+
+    // Method to run an action while holding the locks of sender and receiver accounts
+    // Locks are taken in ascending stripe order -> two transfers A->B and B->A never deadlock
+    // Transfers on unrelated accounts hit different stripes and run in parallel
+    @Override
+    public <T> T executeWithAccountLocks(
+            TransactionEntity transaction,
+            Supplier<T> action
+    ) {
+        int senderStripe = stripeOf(transaction.getTransactionSenderType().name(), transaction.getSenderId());
+        int receiverStripe = stripeOf(transaction.getTransactionReceiverType().name(), transaction.getReceiverId());
+
+        int firstStripe = Math.min(senderStripe, receiverStripe);
+        int secondStripe = Math.max(senderStripe, receiverStripe);
+
+        acquire(firstStripe);
+        try {
+            if (secondStripe != firstStripe) {
+                acquire(secondStripe);
+            }
+            try {
+                return action.get();
+            } finally {
+                if (secondStripe != firstStripe) {
+                    stripes[secondStripe].unlock();
+                }
+            }
+        } finally {
+            stripes[firstStripe].unlock();
+        }
+    }
+
+    // Method to get contention metric of stripes which have been contended, hottest first
+    @Override
+    public List<StripeContentionResponse> getStripeContention() {
+        List<StripeContentionResponse> stripeContentionList = new ArrayList<>();
+        for (int i = 0; i < stripes.length; i++) {
+            long contended = contendedCounts.get(i);
+            if (contended == 0) {
+                continue;
+            }
+            stripeContentionList.add(StripeContentionResponse.builder()
+                    .stripe(i)
+                    .acquiredCount(acquiredCounts.get(i))
+                    .contendedCount(contended)
+                    .timeoutCount(timeoutCounts.get(i))
+                    .totalWaitMillis(TimeUnit.NANOSECONDS.toMillis(waitNanos.get(i)))
+                    .build());
+        }
+        stripeContentionList.sort(Comparator.comparing(StripeContentionResponse::getContendedCount).reversed());
+        return stripeContentionList;
+    }
+
+    private int stripeOf(String accountType, Long accountId) {
+        int hash = Objects.hash(accountType, accountId);
+        // Spread high bits so sequential ids do not cluster
+        return (hash ^ (hash >>> 16)) & stripeMask;
+    }
+
+    private void acquire(int stripe) {
+        ReentrantLock lock = stripes[stripe];
+
+        // Fast path: free stripe, no contention recorded
+        if (lock.tryLock()) {
+            acquiredCounts.incrementAndGet(stripe);
+            return;
+        }
+
+        contendedCounts.incrementAndGet(stripe);
+        long startWait = System.nanoTime();
+        boolean isLocked;
+        try {
+            isLocked = lock.tryLock(lockTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppException(ErrorCode.ACCOUNT_BUSY);
+        } finally {
+            waitNanos.addAndGet(stripe, System.nanoTime() - startWait);
+        }
+
+        if (!isLocked) {
+            timeoutCounts.incrementAndGet(stripe);
+            log.warn("Timed out waiting for transfer lock stripe {}", stripe);
+            throw new AppException(ErrorCode.ACCOUNT_BUSY);
+        }
+        acquiredCounts.incrementAndGet(stripe);
+    }
+}
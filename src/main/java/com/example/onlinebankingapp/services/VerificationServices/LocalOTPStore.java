@@ -0,0 +1,47 @@
+package com.example.onlinebankingapp.services.VerificationServices;
+
+import com.example.onlinebankingapp.exceptions.ErrorCode;
+import com.example.onlinebankingapp.utils.ExpiringMap;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+
+// In-memory OTP store of a single node, with a hard size cap and scheduled eviction of expired entries
+// Full: new OTPs are refused rather than dropping other recipients' pending ones
+public class LocalOTPStore<V> implements OTPStore<V> {
+    private final ExpiringMap<V> storage;
+
+    public LocalOTPStore(int maxSize) {
+        this.storage = ExpiringMap.refusingWhenFull(maxSize, ErrorCode.OTP_STORE_FULL);
+    }
+
+    @Override
+    public void put(String key, V value, Duration timeToLive) {
+        storage.put(key, value, timeToLive);
+    }
+
+    @Override
+    public V get(String key) {
+        return storage.get(key);
+    }
+
+    @Override
+    public void remove(String key) {
+        storage.remove(key);
+    }
+
+    @Override
+    public boolean remove(String key, V value) {
+        return storage.remove(key, value);
+    }
+
+    // Abandoned OTPs are never verified, drop them once expired
+    @Scheduled(fixedDelayString = "${otp.store.sweep-interval-millis:30000}")
+    public void evictExpired() {
+        storage.evictExpired();
+    }
+
+    public int size() {
+        return storage.size();
+    }
+}
@@ -5,45 +5,71 @@ import com.example.onlinebankingapp.dtos.requests.EmailandSMS.SMSOTPRequest;
 import com.example.onlinebankingapp.enums.OTPPurpose;
 import com.example.onlinebankingapp.exceptions.AppException;
 import com.example.onlinebankingapp.exceptions.ErrorCode;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.text.DecimalFormat;
+import java.security.SecureRandom;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Random;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class OTPService {
+    private static final int OTP_LENGTH = 6;
+    private static final int OTP_BOUND = 1_000_000;
+
+    // Thread-safe, shared by all requests
+    private final SecureRandom secureRandom = new SecureRandom();
+
     // Storage for OTPs mapped to email addresses
-    private final Map<String, EmailOTPRequest> otpEmailStorage = new ConcurrentHashMap<>();
+    private final OTPStore<EmailOTPRequest> otpEmailStorage;
 
     // Storage for OTPs mapped to phone SMS
-    private final Map<String, SMSOTPRequest> otpSMSStorage = new HashMap<>();
+    private final OTPStore<SMSOTPRequest> otpSMSStorage;
+
+    // Expired OTPs are kept a little longer, so verifying one still answers OTP_EXPIRED
+    private final Duration expiredRetention;
+
+    public OTPService(
+            OTPStore<EmailOTPRequest> otpEmailStorage,
+            OTPStore<SMSOTPRequest> otpSMSStorage,
+            @Value("${otp.store.expired-retention-seconds:300}") long expiredRetentionSeconds
+    ) {
+        this.otpEmailStorage = otpEmailStorage;
+        this.otpSMSStorage = otpSMSStorage;
+        this.expiredRetention = Duration.ofSeconds(expiredRetentionSeconds);
+    }
 
     public String generateOTP(String email, String smsPhoneNumber, long expirationMinute, OTPPurpose otpPurpose) {
         // Generate a random 6-digit OTP
-        String otp = new DecimalFormat("000000")
-                .format(new Random().nextInt(999999)); // Generate a 6 digit OTP
+        String otp = nextOTP();
+        Duration timeToLive = Duration.ofMinutes(expirationMinute).plus(expiredRetention);
 
         if(smsPhoneNumber.isEmpty() || smsPhoneNumber.isBlank()) {
-            // Store the OTP in the storage map with the email as the key
+            // Store the OTP in the storage with the email as the key
             EmailOTPRequest emailDTO = new EmailOTPRequest(otp, LocalDateTime.now(), expirationMinute, otpPurpose);
-            System.out.println("Bay gio la: " + LocalDateTime.now());
-            System.out.println("emailDTO vua moi tao: " + emailDTO);
-            otpEmailStorage.put(email, emailDTO);
+            otpEmailStorage.put(email, emailDTO, timeToLive);
         }
         else if (email.isEmpty() || email.isBlank()) {
-            // Store the OTP in the storage map with the smsDTO as the key
+            // Store the OTP in the storage with the phone number as the key
             SMSOTPRequest smsDTO = new SMSOTPRequest(otp, LocalDateTime.now(), expirationMinute, otpPurpose);
-            System.out.println("Bay gio la: " + LocalDateTime.now());
-            System.out.println("smsDTO vua moi tao: " + smsDTO);
-            otpSMSStorage.put(smsPhoneNumber, smsDTO);
+            otpSMSStorage.put(smsPhoneNumber, smsDTO, timeToLive);
         }
         return otp;
     }
 
+    // Method to generate a zero-padded 6-digit OTP, 000000 to 999999
+    private String nextOTP() {
+        int value = secureRandom.nextInt(OTP_BOUND);
+        char[] digits = new char[OTP_LENGTH];
+        for (int i = OTP_LENGTH - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return new String(digits);
+    }
+
+    // Method to consume an OTP, email and SMS alike: false when it is unknown, wrong, for another purpose
+    // or already consumed, OTP_EXPIRED when it has expired
     public boolean verifyOTP(String email, String smsPhoneNumber, String otp, OTPPurpose otpPurpose) {
         if(smsPhoneNumber.isEmpty() || smsPhoneNumber.isBlank()) {
             EmailOTPRequest emailDTO = otpEmailStorage.get(email);
@@ -53,9 +79,8 @@ public class OTPService {
                     if(emailDTO.getOtpPurpose().equals(otpPurpose)){
                         // Check if OTP has expired
                         if (LocalDateTime.now().isBefore(emailDTO.getSendingTime().plusMinutes(emailDTO.getExpirationMinute()))) {
-                            // Remove OTP after successful verification
-                            otpEmailStorage.remove(email);
-                            return true;
+                            // Remove OTP after successful verification, a concurrent verification may have consumed it
+                            return otpEmailStorage.remove(email, emailDTO);
                         } else {
                             // OTP has expired
                             // Remove expired OTP
@@ -64,15 +89,15 @@ public class OTPService {
                         }
                     }
                     else {
-                        throw new AppException(ErrorCode.OTP_PURPOSE_MISMATCH);
+                        return false;
                     }
                 }
                 else{
-                    throw new AppException(ErrorCode.OTP_INVALID);
+                    return false;
                 }
             }
             else{
-                throw new AppException(ErrorCode.EMAIL_OTP_NOT_FOUND);
+                return false;
             }
         }
         else if (email.isEmpty() || email.isBlank()) {
@@ -83,9 +108,8 @@ public class OTPService {
                     if(smsDTO.getOtpPurpose().equals(otpPurpose)){
                         // Check if OTP has expired
                         if (LocalDateTime.now().isBefore(smsDTO.getSendingTime().plusMinutes(smsDTO.getExpirationMinute()))) {
-                            // Remove OTP after successful verification
-                            otpSMSStorage.remove(smsPhoneNumber);
-                            return true;
+                            // Remove OTP after successful verification, a concurrent verification may have consumed it
+                            return otpSMSStorage.remove(smsPhoneNumber, smsDTO);
                         } else {
                             // OTP has expired
                             // Remove expired OTP
@@ -0,0 +1,18 @@
+package com.example.onlinebankingapp.services.VerificationServices;
+
+import java.time.Duration;
+
+// Storage of pending OTPs keyed by recipient (email or phone number)
+// Backends must drop an entry once its time to live has passed, and must be safe for concurrent use
+public interface OTPStore<V> {
+    // Stores (or replaces) the OTP of a recipient
+    void put(String key, V value, Duration timeToLive);
+
+    // Returns the stored OTP, null when absent or evicted
+    V get(String key);
+
+    void remove(String key);
+
+    // Removes only if the stored OTP is still the given one: a verified OTP is consumed exactly once
+    boolean remove(String key, V value);
+}
@@ -4,26 +4,43 @@ import com.example.onlinebankingapp.dtos.responses.SMSOTPResponse;
 import com.example.onlinebankingapp.exceptions.AppException;
 import com.example.onlinebankingapp.exceptions.ErrorCode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
 
 @Service
-@RequiredArgsConstructor
 public class SMSService {
     private final OTPService otpService;
+    private final SpeedSMSAPI api;
+    private final String deviceId; // sender -> Android phone
 
-    @Value("${spring.sms.access.token}")
-    private String accessToken;
+    public SMSService(
+            OTPService otpService,
+            @Value("${spring.sms.access.token}") String accessToken,
+            @Value("${spring.sms.access.deviceId}") String deviceId,
+            @Value("${spring.sms.api-url:" + SpeedSMSAPI.API_URL + "}") String apiUrl,
+            @Value("${spring.sms.connect-timeout-millis:5000}") long connectTimeoutMillis,
+            @Value("${spring.sms.request-timeout-millis:10000}") long requestTimeoutMillis,
+            @Value("${spring.threads.virtual.enabled:false}") boolean isVirtualThreadsEnabled
+    ) {
+        this.otpService = otpService;
+        this.deviceId = deviceId;
 
-    @Value("${spring.sms.access.deviceId}")
-    private String deviceId; // sender -> Android phone
+        // Shared client: keep-alive connections to the gateway are reused instead of opening one per SMS
+        HttpClient.Builder httpClientBuilder = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis));
+        if (isVirtualThreadsEnabled) {
+            httpClientBuilder.executor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        this.api = new SpeedSMSAPI(accessToken, apiUrl, httpClientBuilder.build(), Duration.ofMillis(requestTimeoutMillis));
+    }
 
     // Send OTP -> DO NOT CHANGE anything
     public SMSOTPResponse sendSMSOTP(String phoneTo, String content) {
-        SpeedSMSAPI api = new SpeedSMSAPI(accessToken);
 
         // Convert the phone number from "0911111111" to "+84911111111"
         if (phoneTo.startsWith("0") && phoneTo.length() == 10) {
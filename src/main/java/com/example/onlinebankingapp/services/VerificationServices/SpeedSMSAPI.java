@@ -1,65 +1,66 @@
 package com.example.onlinebankingapp.services.VerificationServices;
 
-import java.io.BufferedReader;
-import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Base64;
 
 public class SpeedSMSAPI {
     public static final String API_URL = "https://api.speedsms.vn/index.php";
     protected String mAccessToken;
+    private final String apiUrl;
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
 
     public SpeedSMSAPI(String accessToken) {
+        this(accessToken, API_URL, HttpClient.newHttpClient(), Duration.ofSeconds(10));
+    }
+
+    // One instance per application: the client keeps connections to the gateway alive between messages
+    public SpeedSMSAPI(String accessToken, String apiUrl, HttpClient httpClient, Duration requestTimeout) {
         this.mAccessToken = accessToken;
+        this.apiUrl = apiUrl;
+        this.httpClient = httpClient;
+        this.requestTimeout = requestTimeout;
     }
 
     public String getUserInfo() throws IOException {
-        URL url = new URL(API_URL + "/user/info");
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("GET");
-        String userCredentials = mAccessToken + ":x";
-        String basicAuth = "Basic " + Base64.getEncoder().encodeToString(userCredentials.getBytes());
-        conn.setRequestProperty("Authorization", basicAuth);
-
-        BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-        String inputLine;
-        StringBuffer buffer = new StringBuffer();
-
-        while ((inputLine = in.readLine()) != null) {
-            buffer.append(inputLine);
-        }
-        in.close();
-        return buffer.toString();
+        HttpRequest request = newRequest("/user/info").GET().build();
+        return send(request);
     }
 
     public String sendSMS(String to, String content, int type, String sender) throws IOException {
         String json = "{\"to\": [\"" + to + "\"], \"content\": \"" + EncodeNonAsciiCharacters(content) + "\", \"type\":" + type + ", \"brandname\":\"" + sender + "\"}";
-        URL url = new URL(API_URL + "/sms/send");
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("POST");
+        HttpRequest request = newRequest("/sms/send")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json, StandardCharsets.US_ASCII))
+                .build();
+        return send(request);
+    }
+
+    private HttpRequest.Builder newRequest(String path) {
         String userCredentials = mAccessToken + ":x";
         String basicAuth = "Basic " + Base64.getEncoder().encodeToString(userCredentials.getBytes());
-        conn.setRequestProperty("Authorization", basicAuth);
-        conn.setRequestProperty("Content-Type", "application/json");
-
-        conn.setDoOutput(true);
-        DataOutputStream wr = new DataOutputStream(conn.getOutputStream());
-        wr.writeBytes(json);
-        wr.flush();
-        wr.close();
-
-        BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-        String inputLine;
-        StringBuffer buffer = new StringBuffer();
+        return HttpRequest.newBuilder(URI.create(apiUrl + path))
+                .timeout(requestTimeout)
+                .header("Authorization", basicAuth);
+    }
 
-        while ((inputLine = in.readLine()) != null) {
-            buffer.append(inputLine);
+    private String send(HttpRequest request) throws IOException {
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() >= 400) {
+                throw new IOException("SMS gateway answered HTTP " + response.statusCode());
+            }
+            return response.body();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while calling SMS gateway", e);
         }
-        in.close();
-        return buffer.toString();
     }
 
     private String EncodeNonAsciiCharacters(String value) {
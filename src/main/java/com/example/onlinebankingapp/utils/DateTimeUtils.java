@@ -1,5 +1,6 @@
 package com.example.onlinebankingapp.utils;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
@@ -23,4 +24,12 @@ public class DateTimeUtils {
             return 365; // Regular year
         }
     }
+
+    // Method to read a timestamp column of a native query result, java.sql.Timestamp or LocalDateTime by Hibernate version
+    public static LocalDateTime toLocalDateTime(Object jdbcDateTime) {
+        if (jdbcDateTime instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) jdbcDateTime;
+    }
 }
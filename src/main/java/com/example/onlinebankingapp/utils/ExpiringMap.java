@@ -0,0 +1,215 @@
+package com.example.onlinebankingapp.utils;
+
+import com.example.onlinebankingapp.exceptions.AppException;
+import com.example.onlinebankingapp.exceptions.ErrorCode;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+// Bounded in-memory map whose entries expire, safe for concurrent use
+// Expired entries are invisible right away and freed on access, when the map is full, or by evictExpired
+// A slot is reserved before a new key is stored, so concurrent writers never push the map over its size
+public class ExpiringMap<V> {
+    private record Entry<V>(V value, long expiresAtMillis) {
+        boolean isExpired(long nowMillis) {
+            return expiresAtMillis <= nowMillis;
+        }
+    }
+
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int maxSize;
+    // null: a full map forgets an arbitrary entry, otherwise it refuses new keys with this error
+    private final ErrorCode fullErrorCode;
+
+    private ExpiringMap(int maxSize, ErrorCode fullErrorCode) {
+        this.maxSize = Math.max(1, maxSize);
+        this.fullErrorCode = fullErrorCode;
+    }
+
+    // For state other clients still rely on (pending OTPs, request results): refuse rather than forget
+    public static <V> ExpiringMap<V> refusingWhenFull(int maxSize, ErrorCode fullErrorCode) {
+        return new ExpiringMap<>(maxSize, fullErrorCode);
+    }
+
+    // For caches and counters, any entry may be forgotten
+    public static <V> ExpiringMap<V> evictingWhenFull(int maxSize) {
+        return new ExpiringMap<>(maxSize, null);
+    }
+
+    // Returns the value, null when absent or expired
+    public V get(String key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            removeEntry(key, entry);
+            return null;
+        }
+        return entry.value();
+    }
+
+    // Returns the value, loading and storing it when absent or expired; the loader runs without any lock
+    // A null loaded value is not stored, so the next lookup loads again
+    public V getOrLoad(String key, Function<String, V> loader, Duration timeToLive) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        value = loader.apply(key);
+        if (value != null) {
+            put(key, value, timeToLive);
+        }
+        return value;
+    }
+
+    // Stores (or replaces) the value, it expires after timeToLive
+    public void put(String key, V value, Duration timeToLive) {
+        Entry<V> newEntry = new Entry<>(value, expiresAtMillis(timeToLive));
+        update(key, liveEntry -> newEntry);
+    }
+
+    // Stores the value only if the key is absent or expired, returns the value already stored otherwise
+    public V putIfAbsent(String key, V value, Duration timeToLive) {
+        Entry<V> newEntry = new Entry<>(value, expiresAtMillis(timeToLive));
+        Entry<V> storedEntry = update(key, liveEntry -> liveEntry != null ? liveEntry : newEntry);
+        return storedEntry == newEntry ? null : storedEntry.value();
+    }
+
+    // Replaces the value atomically: remapping gets the current value (null when absent or expired) and
+    // returns the new one, or null to remove the key
+    // A new entry expires after timeToLive, an updated one keeps its expiry
+    public V compute(String key, UnaryOperator<V> remapping, Duration timeToLive) {
+        Entry<V> storedEntry = update(key, liveEntry -> {
+            V value = remapping.apply(liveEntry != null ? liveEntry.value() : null);
+            if (value == null) {
+                return null;
+            }
+            return new Entry<>(value, liveEntry != null ? liveEntry.expiresAtMillis() : expiresAtMillis(timeToLive));
+        });
+        return storedEntry != null ? storedEntry.value() : null;
+    }
+
+    public void remove(String key) {
+        if (entries.remove(key) != null) {
+            size.decrementAndGet();
+        }
+    }
+
+    // Removes only if the stored value is still the given instance
+    public boolean remove(String key, V value) {
+        Entry<V> entry = entries.get(key);
+        return entry != null && entry.value() == value && removeEntry(key, entry);
+    }
+
+    public void evictExpired() {
+        long nowMillis = System.currentTimeMillis();
+        entries.forEach((key, entry) -> {
+            if (entry.isExpired(nowMillis)) {
+                removeEntry(key, entry);
+            }
+        });
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    // Applies remapping to the live entry of a key under the map's per-key lock
+    // A new key takes a slot before it is stored; the slot is given back when no entry ends up using it
+    private Entry<V> update(String key, UnaryOperator<Entry<V>> remapping) {
+        boolean isSlotReserved = false;
+        if (!entries.containsKey(key)) {
+            reserveSlot();
+            isSlotReserved = true;
+        }
+
+        while (true) {
+            boolean hasSlot = isSlotReserved;
+            boolean[] needsSlot = new boolean[1];
+            int[] sizeChange = new int[1];
+            Entry<V> storedEntry;
+            try {
+                storedEntry = entries.compute(key, (k, entry) -> {
+                    Entry<V> newEntry = remapping.apply(isLive(entry) ? entry : null);
+                    // Removed since the check above: leave it absent, take a slot and try again
+                    if (entry == null && newEntry != null && !hasSlot) {
+                        needsSlot[0] = true;
+                        return null;
+                    }
+                    sizeChange[0] = (newEntry != null ? 1 : 0) - (entry != null ? 1 : 0);
+                    return newEntry;
+                });
+            } catch (RuntimeException e) {
+                if (isSlotReserved) {
+                    size.decrementAndGet();
+                }
+                throw e;
+            }
+
+            if (needsSlot[0]) {
+                reserveSlot();
+                isSlotReserved = true;
+                continue;
+            }
+            int slotChange = sizeChange[0] - (isSlotReserved ? 1 : 0);
+            if (slotChange != 0) {
+                size.addAndGet(slotChange);
+            }
+            return storedEntry;
+        }
+    }
+
+    private void reserveSlot() {
+        if (tryReserveSlot()) {
+            return;
+        }
+        evictExpired();
+        if (tryReserveSlot()) {
+            return;
+        }
+        if (fullErrorCode != null) {
+            throw new AppException(fullErrorCode);
+        }
+        // Still full: forget arbitrary entries until a slot is free
+        do {
+            Optional<String> anyKey = entries.keySet().stream().findAny();
+            if (anyKey.isEmpty()) {
+                // Every slot is held by a concurrent writer: go over the size by one rather than spin
+                size.incrementAndGet();
+                return;
+            }
+            remove(anyKey.get());
+        } while (!tryReserveSlot());
+    }
+
+    private boolean tryReserveSlot() {
+        if (size.incrementAndGet() <= maxSize) {
+            return true;
+        }
+        size.decrementAndGet();
+        return false;
+    }
+
+    private boolean removeEntry(String key, Entry<V> entry) {
+        if (entries.remove(key, entry)) {
+            size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isLive(Entry<?> entry) {
+        return entry != null && !entry.isExpired(System.currentTimeMillis());
+    }
+
+    private static long expiresAtMillis(Duration timeToLive) {
+        return System.currentTimeMillis() + timeToLive.toMillis();
+    }
+}
@@ -4,9 +4,9 @@ import com.example.onlinebankingapp.exceptions.AppException;
 import com.example.onlinebankingapp.exceptions.ErrorCode;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.util.Objects;
 
 public class ImageUtils {
@@ -16,6 +16,9 @@ public class ImageUtils {
     // Maximum file size in bytes (10 MB)
     private static final Long MAX_FILE_SIZE = (long) (10 * 1024 * 1024);
 
+    // Number of leading bytes needed to recognize every allowed format
+    public static final int IMAGE_SIGNATURE_LENGTH = 12;
+
     // Method to check if the image is null or empty
     public static boolean isImageNull(MultipartFile file) {
         return Objects.requireNonNull(file.getOriginalFilename()).isEmpty() || file.isEmpty();
@@ -29,7 +32,46 @@ public class ImageUtils {
 
     // Method to check if the size of the image is valid (10 MB limit)
     public static boolean isValidFileSize(MultipartFile file) {
-        return file.getSize() <= MAX_FILE_SIZE;
+        return isValidFileSize(file.getSize());
+    }
+
+    public static boolean isValidFileSize(long size) {
+        return size <= MAX_FILE_SIZE;
+    }
+
+    // Method to get the image type from its magic number, null when it is not an allowed image format
+    // Only the first IMAGE_SIGNATURE_LENGTH bytes are needed, the image is never decoded
+    public static String detectImageContentType(byte[] header, int length) {
+        if (length >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8 && (header[2] & 0xFF) == 0xFF) {
+            return "image/jpeg";
+        }
+        if (length >= 8 && (header[0] & 0xFF) == 0x89 && header[1] == 'P' && header[2] == 'N' && header[3] == 'G'
+                && header[4] == 0x0D && header[5] == 0x0A && header[6] == 0x1A && header[7] == 0x0A) {
+            return "image/png";
+        }
+        if (length >= 12 && header[0] == 'R' && header[1] == 'I' && header[2] == 'F' && header[3] == 'F'
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return "image/webp";
+        }
+        return null;
+    }
+
+    // Method to sniff the image type of a stream without consuming it: the header bytes are pushed back
+    // The stream must be created with a pushback buffer of at least IMAGE_SIGNATURE_LENGTH
+    public static String detectImageContentType(PushbackInputStream inputStream) throws IOException {
+        byte[] header = inputStream.readNBytes(IMAGE_SIGNATURE_LENGTH);
+        inputStream.unread(header);
+        return detectImageContentType(header, header.length);
+    }
+
+    // Method to sniff the image type of an uploaded file
+    public static String detectImageContentType(MultipartFile file) {
+        try (InputStream inputStream = file.getInputStream()) {
+            byte[] header = inputStream.readNBytes(IMAGE_SIGNATURE_LENGTH);
+            return detectImageContentType(header, header.length);
+        } catch (IOException e) {
+            return null;
+        }
     }
 
     // Method to check if the image is valid
@@ -49,13 +91,8 @@ public class ImageUtils {
             throw new AppException(ErrorCode.IMAGE_SIZE_INVALID);
         }
 
-        // Try to read the image; returns false if it fails
-        try {
-            BufferedImage image = ImageIO.read(file.getInputStream());
-            if (image == null) {
-                return false;
-            }
-        } catch (IOException e) {
+        // Check the content really is an image by its magic number, not by decoding the whole file
+        if (detectImageContentType(file) == null) {
             return false;
         }
 
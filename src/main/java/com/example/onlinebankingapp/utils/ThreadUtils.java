@@ -0,0 +1,21 @@
+package com.example.onlinebankingapp.utils;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ThreadUtils {
+    // Method to create named worker threads: virtual when spring.threads.virtual.enabled is on, daemon platform threads otherwise
+    // Display: notification-worker-1, notification-worker-2, ...
+    public static ThreadFactory newThreadFactory(String prefix, boolean isVirtual) {
+        if (isVirtual) {
+            return Thread.ofVirtual().name(prefix, 1).factory();
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.onlinebankingapp.components;
+
+import com.example.onlinebankingapp.entities.BatchJobCheckpointEntity;
+import com.example.onlinebankingapp.enums.BatchJobStatus;
+import com.example.onlinebankingapp.repositories.BatchJobCheckpointRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// A failed chunk is counted and rolled back; the next run of the day resumes after the committed prefix
+@DataJpaTest
+@Import(ChunkedBatchRunner.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ChunkedBatchRunnerTest {
+    private static final String JOB_NAME = "test-job";
+    private static final int CHUNK_SIZE = 2;
+    private static final List<Long> KEYS = LongStream.rangeClosed(1, 10).boxed().toList();
+
+    @Autowired
+    private ChunkedBatchRunner chunkedBatchRunner;
+
+    @Autowired
+    private BatchJobCheckpointRepository batchJobCheckpointRepository;
+
+    // Keys passed to the reader as lastKey, in order, and the keys the writer committed
+    private final List<Long> readAfterKeys = new ArrayList<>();
+    private final Set<Long> writtenKeys = new ConcurrentSkipListSet<>();
+
+    @BeforeEach
+    void setUp() {
+        batchJobCheckpointRepository.deleteAll();
+    }
+
+    @Test
+    void failedChunkIsCounted() {
+        BatchJobCheckpointEntity checkpoint = run(5L);
+
+        assertEquals(BatchJobStatus.FAILED, checkpoint.getJobStatus());
+        assertEquals(1L, checkpoint.getFailedChunkCount());
+        assertEquals(8L, checkpoint.getProcessedCount());
+        // Chunks after the failed one committed, but the prefix stops before it
+        assertEquals(4L, checkpoint.getLastReadKey());
+        assertEquals(Set.of(1L, 2L, 3L, 4L, 7L, 8L, 9L, 10L), writtenKeys);
+    }
+
+    @Test
+    void nextRunResumesAfterTheCommittedPrefix() {
+        run(5L);
+        readAfterKeys.clear();
+        writtenKeys.clear();
+
+        BatchJobCheckpointEntity checkpoint = run(null);
+
+        assertEquals(BatchJobStatus.COMPLETED, checkpoint.getJobStatus());
+        assertEquals(4L, readAfterKeys.get(0));
+        assertEquals(new TreeSet<>(KEYS.subList(4, KEYS.size())), writtenKeys);
+        assertEquals(10L, checkpoint.getLastReadKey());
+    }
+
+    @Test
+    void runAfterACompletedRunStartsOver() {
+        run(null);
+        readAfterKeys.clear();
+        writtenKeys.clear();
+
+        BatchJobCheckpointEntity checkpoint = run(null);
+
+        assertEquals(BatchJobStatus.COMPLETED, checkpoint.getJobStatus());
+        assertEquals(null, readAfterKeys.get(0));
+        assertEquals(new TreeSet<>(KEYS), writtenKeys);
+        assertEquals(0L, checkpoint.getFailedChunkCount());
+    }
+
+    // Pages KEYS by keyset; the chunk holding failingKey throws instead of writing
+    private BatchJobCheckpointEntity run(Long failingKey) {
+        return chunkedBatchRunner.run(JOB_NAME, CHUNK_SIZE,
+                (lastKey, size) -> {
+                    readAfterKeys.add(lastKey);
+                    return KEYS.stream().filter(key -> lastKey == null || key > lastKey).limit(size).toList();
+                },
+                keys -> {
+                    if (failingKey != null && keys.contains(failingKey)) {
+                        throw new IllegalStateException("chunk failed");
+                    }
+                    writtenKeys.addAll(keys);
+                    return keys.size();
+                });
+    }
+}
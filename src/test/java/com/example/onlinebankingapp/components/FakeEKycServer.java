@@ -0,0 +1,104 @@
+package com.example.onlinebankingapp.components;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Local stand-in for the eKYC file service, for load tests only (see loadtest/ekyc-inflight.sh)
+// Test classpath only, never packaged: the script runs the application from target/classes and target/test-classes
+// Enable with ekyc.fake-server.enabled=true and spring.eKyc.baseUrl=http://localhost:<port>
+// Every call waits latency-millis, so GET /stats reports how many calls the application keeps in flight at once
+@Component
+@ConditionalOnProperty(name = "ekyc.fake-server.enabled", havingValue = "true")
+public class FakeEKycServer {
+    // Logger for logging events
+    private static final Logger logger = LoggerFactory.getLogger(FakeEKycServer.class);
+
+    private static final String ADD_FILE_RESPONSE = "{\"message\":\"IDG-00000000\",\"object\":{\"hash\":\"fake-hash\"}}";
+
+    private final int port;
+    private final long latencyMillis;
+    // One thread per call, so the stub itself never limits the concurrency it measures
+    private final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger inFlightCount = new AtomicInteger();
+    private final AtomicInteger maxInFlightCount = new AtomicInteger();
+    private final AtomicLong callCount = new AtomicLong();
+
+    private HttpServer server;
+
+    public FakeEKycServer(
+            @Value("${ekyc.fake-server.port:18090}") int port,
+            @Value("${ekyc.fake-server.latency-millis:500}") long latencyMillis
+    ) {
+        this.port = port;
+        this.latencyMillis = latencyMillis;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1000);
+        server.createContext("/", this::handleCall);
+        server.createContext("/stats", this::handleStats);
+        server.setExecutor(executorService);
+        server.start();
+        logger.info("Fake eKYC server on port {} started, latency {} ms", port, latencyMillis);
+    }
+
+    @PreDestroy
+    public void stop() {
+        server.stop(0);
+        executorService.shutdownNow();
+    }
+
+    private void handleCall(HttpExchange exchange) throws IOException {
+        int inFlight = inFlightCount.incrementAndGet();
+        maxInFlightCount.accumulateAndGet(inFlight, Math::max);
+        try {
+            exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+            Thread.sleep(latencyMillis);
+            callCount.incrementAndGet();
+            reply(exchange, ADD_FILE_RESPONSE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlightCount.decrementAndGet();
+        }
+    }
+
+    // GET /stats -> counters; GET /stats?reset -> counters, then start a new measurement
+    private void handleStats(HttpExchange exchange) throws IOException {
+        String stats = "{\"call_count\":" + callCount.get()
+                + ",\"in_flight_count\":" + inFlightCount.get()
+                + ",\"max_in_flight_count\":" + maxInFlightCount.get() + "}";
+        if ("reset".equals(exchange.getRequestURI().getQuery())) {
+            callCount.set(0);
+            maxInFlightCount.set(inFlightCount.get());
+        }
+        reply(exchange, stats);
+    }
+
+    private void reply(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.onlinebankingapp.components;
+
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Local stand-in for the SpeedSMS gateway and the SMTP server, for load tests only
+// Test classpath only, never packaged: run the application from target/classes and target/test-classes
+// Enable with notification.fake-server.enabled=true and point the senders at it:
+// spring.sms.api-url=http://localhost:<sms-port>, spring.mail.host=localhost, spring.mail.port=<smtp-port>
+@Component
+@ConditionalOnProperty(name = "notification.fake-server.enabled", havingValue = "true")
+public class FakeNotificationServer {
+    // Logger for logging events
+    private static final Logger logger = LoggerFactory.getLogger(FakeNotificationServer.class);
+
+    private static final String SMS_SUCCESS_RESPONSE =
+            "{\"status\":\"success\",\"code\":\"00\",\"data\":{\"tranId\":1,\"totalSMS\":1,\"totalPrice\":0,\"invalidPhone\":[]}}";
+
+    private final int smsPort;
+    private final int smtpPort;
+    private final long latencyMillis;
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    private final AtomicLong smsCount = new AtomicLong();
+    private final AtomicLong emailCount = new AtomicLong();
+
+    private HttpServer smsServer;
+    private ServerSocket smtpServerSocket;
+
+    public FakeNotificationServer(
+            @Value("${notification.fake-server.sms-port:18080}") int smsPort,
+            @Value("${notification.fake-server.smtp-port:12525}") int smtpPort,
+            @Value("${notification.fake-server.latency-millis:0}") long latencyMillis
+    ) {
+        this.smsPort = smsPort;
+        this.smtpPort = smtpPort;
+        this.latencyMillis = latencyMillis;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        smsServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), smsPort), 0);
+        smsServer.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            simulateLatency();
+            smsCount.incrementAndGet();
+
+            byte[] body = SMS_SUCCESS_RESPONSE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        smsServer.setExecutor(executorService);
+        smsServer.start();
+
+        smtpServerSocket = new ServerSocket(smtpPort, 50, InetAddress.getLoopbackAddress());
+        executorService.execute(this::acceptSmtpConnections);
+
+        logger.info("Fake SMS gateway on port {} and fake SMTP server on port {} started", smsPort, smtpPort);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        smsServer.stop(0);
+        smtpServerSocket.close();
+        executorService.shutdownNow();
+        logger.info("Fake notification server stopped after {} SMS and {} emails", smsCount.get(), emailCount.get());
+    }
+
+    private void acceptSmtpConnections() {
+        while (!smtpServerSocket.isClosed()) {
+            try {
+                Socket socket = smtpServerSocket.accept();
+                executorService.execute(() -> handleSmtpSession(socket));
+            } catch (IOException e) {
+                if (!smtpServerSocket.isClosed()) {
+                    logger.warn("Fake SMTP server failed to accept a connection", e);
+                }
+            }
+        }
+    }
+
+    // Just enough SMTP for JavaMailSender: every command is accepted, message data is discarded
+    private void handleSmtpSession(Socket socket) {
+        try (socket;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             PrintWriter writer = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.US_ASCII)) {
+            reply(writer, "220 localhost fake ESMTP");
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                switch (command) {
+                    case "EHLO", "HELO" -> reply(writer, "250 localhost");
+                    case "DATA" -> {
+                        reply(writer, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = reader.readLine()) != null && !line.equals(".")) {
+                            // Discard message content
+                        }
+                        simulateLatency();
+                        emailCount.incrementAndGet();
+                        reply(writer, "250 OK queued");
+                    }
+                    case "QUIT" -> {
+                        reply(writer, "221 Bye");
+                        return;
+                    }
+                    default -> reply(writer, "250 OK");
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Fake SMTP session closed: {}", e.getMessage());
+        }
+    }
+
+    private void reply(PrintWriter writer, String response) {
+        writer.print(response + "\r\n");
+        writer.flush();
+    }
+
+    private void simulateLatency() {
+        if (latencyMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
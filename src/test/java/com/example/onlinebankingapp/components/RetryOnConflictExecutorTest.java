@@ -0,0 +1,124 @@
+package com.example.onlinebankingapp.components;
+
+import com.example.onlinebankingapp.exceptions.AppException;
+import com.example.onlinebankingapp.exceptions.ErrorCode;
+import jakarta.persistence.OptimisticLockException;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Version conflicts are retried in a fresh transaction a bounded number of times, with capped backoff
+class RetryOnConflictExecutorTest {
+    private final CountingTransactionManager transactionManager = new CountingTransactionManager();
+    private final AtomicInteger attemptCount = new AtomicInteger();
+
+    @Test
+    void optimisticLockingFailureIsRetried() {
+        RetryOnConflictExecutor retryOnConflictExecutor = new RetryOnConflictExecutor(transactionManager, 3, 1, 5);
+
+        assertEquals("done", retryOnConflictExecutor.execute(failingTimes(2, new OptimisticLockingFailureException("stale"))));
+        assertEquals(3, attemptCount.get());
+        assertEquals(2, transactionManager.rollbackCount);
+        assertEquals(1, transactionManager.commitCount);
+    }
+
+    @Test
+    void jpaOptimisticLockExceptionIsRetried() {
+        RetryOnConflictExecutor retryOnConflictExecutor = new RetryOnConflictExecutor(transactionManager, 3, 1, 5);
+
+        assertEquals("done", retryOnConflictExecutor.execute(failingTimes(1, new OptimisticLockException("stale"))));
+        assertEquals(2, attemptCount.get());
+    }
+
+    @Test
+    void conflictAfterMaxAttempts() {
+        RetryOnConflictExecutor retryOnConflictExecutor = new RetryOnConflictExecutor(transactionManager, 3, 1, 5);
+
+        AppException exception = assertThrows(AppException.class, () -> retryOnConflictExecutor.execute(
+                failingTimes(Integer.MAX_VALUE, new OptimisticLockingFailureException("stale"))));
+        assertEquals(ErrorCode.CONFLICT, exception.getErrorCode());
+        assertEquals(3, attemptCount.get());
+        assertEquals(0, transactionManager.commitCount);
+    }
+
+    // Base backoff alone would sleep up to 1 + 2 + 4 + 8 s; max backoff caps each sleep at 10 ms
+    @Test
+    void backoffIsCappedByMaxBackoff() {
+        RetryOnConflictExecutor retryOnConflictExecutor = new RetryOnConflictExecutor(transactionManager, 5, 1000, 10);
+
+        long startNanos = System.nanoTime();
+        assertThrows(AppException.class, () -> retryOnConflictExecutor.execute(
+                failingTimes(Integer.MAX_VALUE, new OptimisticLockingFailureException("stale"))));
+        long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+
+        assertEquals(5, attemptCount.get());
+        assertTrue(elapsedMillis < 1000, elapsedMillis + " ms");
+    }
+
+    @Test
+    void otherExceptionIsNotRetried() {
+        RetryOnConflictExecutor retryOnConflictExecutor = new RetryOnConflictExecutor(transactionManager, 3, 1, 5);
+
+        assertThrows(IllegalStateException.class, () -> retryOnConflictExecutor.execute(
+                failingTimes(1, new IllegalStateException("broken"))));
+        assertEquals(1, attemptCount.get());
+    }
+
+    // Inside an open transaction a retry could not re-read anything: the conflict goes to the outer caller as is
+    @Test
+    void runsInlineInsideATransaction() {
+        RetryOnConflictExecutor retryOnConflictExecutor = new RetryOnConflictExecutor(transactionManager, 3, 1, 5);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> new TransactionTemplate(transactionManager).execute(
+                status -> retryOnConflictExecutor.execute(failingTimes(1, new OptimisticLockingFailureException("stale")))));
+        assertEquals(1, attemptCount.get());
+        assertEquals(1, transactionManager.beginCount);
+    }
+
+    // Action which throws the given exception on its first attempts, then returns "done"
+    private Supplier<String> failingTimes(int failures, RuntimeException exception) {
+        return () -> {
+            if (attemptCount.incrementAndGet() <= failures) {
+                throw exception;
+            }
+            return "done";
+        };
+    }
+
+    // Transaction manager without a resource, it only counts what the executor asks of it
+    private static class CountingTransactionManager extends AbstractPlatformTransactionManager {
+        private int beginCount;
+        private int commitCount;
+        private int rollbackCount;
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            beginCount++;
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            commitCount++;
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+            rollbackCount++;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.onlinebankingapp.entities;
+
+import com.example.onlinebankingapp.dtos.responses.ResponseObject;
+import com.example.onlinebankingapp.exceptions.AppException;
+import com.example.onlinebankingapp.exceptions.ErrorCode;
+import com.example.onlinebankingapp.exceptions.GlobalExceptionHandler;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    record AmountRequest(Money amount) {
+    }
+
+    @Test
+    void readsNumbersAndNumericStrings() throws JsonProcessingException {
+        assertEquals(Money.of(new BigDecimal("150000.50")),
+                objectMapper.readValue("{\"amount\":150000.50}", AmountRequest.class).amount());
+        assertEquals(Money.of(new BigDecimal("150000.50")),
+                objectMapper.readValue("{\"amount\":\" 150000.50 \"}", AmountRequest.class).amount());
+    }
+
+    // A malformed or overflowing amount is a bad request, not an internal error
+    @Test
+    void invalidAmountIsABadRequest() {
+        for (String amount : new String[]{"\"abc\"", "\"\"", "true", "1e30"}) {
+            JsonProcessingException exception = assertThrows(JsonProcessingException.class,
+                    () -> objectMapper.readValue("{\"amount\":" + amount + "}", AmountRequest.class));
+
+            ResponseEntity<ResponseObject> response = new GlobalExceptionHandler().handleHttpMessageNotReadable(
+                    new HttpMessageNotReadableException(exception.getMessage(), exception, new MockHttpInputMessage(new byte[0])));
+            assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), amount);
+            assertEquals(ErrorCode.INVALID_AMOUNT.getCode(), response.getBody().getCode(), amount);
+            assertEquals(AppException.class, exception.getCause().getClass(), amount);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.onlinebankingapp.repositories;
+
+import com.example.onlinebankingapp.entities.CustomerEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.sql.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+class CustomerRepositoryTest {
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    // Rehash after login: must not overwrite a password changed while bcrypt was running
+    @Test
+    void updatePasswordHashOnlyReplacesTheHashItWasComputedFrom() {
+        CustomerEntity customer = customerRepository.saveAndFlush(newCustomer("old-hash"));
+
+        assertEquals(0, customerRepository.updatePasswordHash(customer.getId(), "stale-hash", "rehashed"));
+        assertEquals(1, customerRepository.updatePasswordHash(customer.getId(), "old-hash", "rehashed"));
+        testEntityManager.clear();
+        assertEquals("rehashed", customerRepository.findById(customer.getId()).orElseThrow().getPassword());
+    }
+
+    private static CustomerEntity newCustomer(String password) {
+        return CustomerEntity.builder()
+                .email("someone@example.com")
+                .name("Someone")
+                .password(password)
+                .phoneNumber("0900000000")
+                .address("Somewhere")
+                .citizenId("000000000001")
+                .dateOfBirth(Date.valueOf("1990-01-01"))
+                .active(true)
+                .imgFront("")
+                .imgBack("")
+                .imgFace("")
+                .clientSession("session")
+                .build();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.onlinebankingapp.repositories;
+
+import com.example.onlinebankingapp.PostgresRepositoryTest;
+import com.example.onlinebankingapp.entities.InterestRateEntity;
+import com.example.onlinebankingapp.entities.Money;
+import com.example.onlinebankingapp.entities.SavingAccountEntity;
+import com.example.onlinebankingapp.enums.AccountStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The nightly bulk accrual and the per-account path must give the same balance to the minor unit
+class SavingAccountRepositoryTest extends PostgresRepositoryTest {
+    private static final int DAYS_IN_YEAR = 365;
+    private static final LocalDateTime NEXT_DAY_START = LocalDateTime.of(2024, 6, 2, 0, 0);
+
+    @Autowired
+    private SavingAccountRepository savingAccountRepository;
+
+    @Autowired
+    private InterestRateRepository interestRateRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private int accountCount;
+
+    @BeforeEach
+    void setUp() {
+        savingAccountRepository.deleteAll();
+        interestRateRepository.deleteAll();
+    }
+
+    @Test
+    void bulkAccrualMatchesMoneyMultiply() {
+        Map<Long, Money> expectedBalances = new LinkedHashMap<>();
+        for (double rate : new double[]{5.5, 6.0, 4.75, 7.1, 3.333}) {
+            InterestRateEntity interestRate = saveInterestRate(rate);
+            for (String balance : new String[]{"1000000.00", "123456.79", "0.01", "50000000.37", "99999999.99"}) {
+                Money initialAmount = Money.of(new BigDecimal(balance));
+                SavingAccountEntity savingAccount = saveSavingAccount(interestRate, initialAmount,
+                        AccountStatus.ACTIVE, NEXT_DAY_START.plusMonths(1));
+                expectedBalances.put(savingAccount.getId(), accrued(initialAmount, rate));
+            }
+        }
+
+        assertEquals(expectedBalances.size(), accrue());
+        expectedBalances.forEach((savingAccountId, expectedBalance) -> assertEquals(expectedBalance,
+                savingAccountRepository.findById(savingAccountId).orElseThrow().getSavingCurrentAmount(),
+                "saving account " + savingAccountId));
+    }
+
+    // 125.00 at 7.3% over 365 days earns exactly 2.5 minor units: half-even gives 2, half-up would give 3
+    @Test
+    void halfMinorUnitIsRoundedToEven() {
+        InterestRateEntity interestRate = saveInterestRate(7.3);
+        Long evenId = saveSavingAccount(interestRate, Money.of(125), AccountStatus.ACTIVE, NEXT_DAY_START).getId();
+        Long oddId = saveSavingAccount(interestRate, Money.of(175), AccountStatus.ACTIVE, NEXT_DAY_START).getId();
+
+        assertEquals(Money.of(new BigDecimal("125.02")), accrued(Money.of(125), 7.3));
+        assertEquals(Money.of(new BigDecimal("175.04")), accrued(Money.of(175), 7.3));
+
+        assertEquals(2, accrue());
+        assertEquals(Money.of(new BigDecimal("125.02")), savingAccountRepository.findById(evenId).orElseThrow().getSavingCurrentAmount());
+        assertEquals(Money.of(new BigDecimal("175.04")), savingAccountRepository.findById(oddId).orElseThrow().getSavingCurrentAmount());
+    }
+
+    @Test
+    void inactiveAndEndedAccountsAreLeftOut() {
+        InterestRateEntity interestRate = saveInterestRate(5.5);
+        Long inactiveId = saveSavingAccount(interestRate, Money.of(1000), AccountStatus.INACTIVE, NEXT_DAY_START).getId();
+        Long endedId = saveSavingAccount(interestRate, Money.of(1000), AccountStatus.ACTIVE, NEXT_DAY_START.minusDays(1)).getId();
+
+        assertEquals(0, accrue());
+        assertEquals(Money.of(1000), savingAccountRepository.findById(inactiveId).orElseThrow().getSavingCurrentAmount());
+        assertEquals(Money.of(1000), savingAccountRepository.findById(endedId).orElseThrow().getSavingCurrentAmount());
+    }
+
+    private int accrue() {
+        return new TransactionTemplate(transactionManager).execute(status ->
+                savingAccountRepository.accrueDailyInterest(DAYS_IN_YEAR, NEXT_DAY_START));
+    }
+
+    // Same formula as updateDailyCurrentBalance
+    private static Money accrued(Money balance, double rate) {
+        return balance.plus(balance.multiply(BigDecimal.valueOf(rate), BigDecimal.valueOf(100L * DAYS_IN_YEAR)));
+    }
+
+    private InterestRateEntity saveInterestRate(double rate) {
+        return interestRateRepository.save(InterestRateEntity.builder()
+                .interestRate(rate)
+                .term(6)
+                .minBalance(0.0)
+                .build());
+    }
+
+    private SavingAccountEntity saveSavingAccount(InterestRateEntity interestRate, Money initialAmount,
+                                                  AccountStatus accountStatus, LocalDateTime dateClosed) {
+        return savingAccountRepository.save(SavingAccountEntity.builder()
+                .accountNumber(String.format("%010d", ++accountCount))
+                .accountStatus(accountStatus)
+                .dateClosed(dateClosed)
+                .savingInitialAmount(initialAmount)
+                .interestRate(interestRate)
+                .build());
+    }
+}
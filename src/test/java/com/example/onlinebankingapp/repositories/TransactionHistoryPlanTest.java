@@ -0,0 +1,161 @@
+package com.example.onlinebankingapp.repositories;
+
+import com.example.onlinebankingapp.PostgresRepositoryTest;
+import com.example.onlinebankingapp.entities.CustomerEntity;
+import com.example.onlinebankingapp.enums.TransactionStatus;
+import com.example.onlinebankingapp.enums.TransactionType;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Both sides of the customer history UNION must be index lookups on transactions_of_customers
+// With an OR across customer_id and receiver_id, as before, the plan walked all transactions and filtered each link row
+class TransactionHistoryPlanTest extends PostgresRepositoryTest {
+    private static final int CUSTOMERS = 200;
+    private static final int TRANSACTIONS = 20000;
+    private static final List<TransactionStatus> NOT_PENDING = List.of(TransactionStatus.COMPLETED, TransactionStatus.FAILED);
+
+    private static final List<String> statementList = new CopyOnWriteArrayList<>();
+
+    @TestConfiguration
+    static class StatementRecorderConfiguration {
+        @Bean
+        HibernatePropertiesCustomizer statementRecorder() {
+            StatementInspector statementInspector = sql -> {
+                statementList.add(sql);
+                return sql;
+            };
+            return hibernateProperties -> hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, statementInspector);
+        }
+    }
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionCustomerRepository transactionCustomerRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private CustomerEntity customer;
+
+    @BeforeEach
+    void setUp() {
+        transactionCustomerRepository.deleteAll();
+        transactionRepository.deleteAll();
+        customerRepository.deleteAll();
+
+        List<CustomerEntity> customerList = new ArrayList<>();
+        for (int i = 0; i < CUSTOMERS; i++) {
+            customerList.add(newCustomer(i));
+        }
+        customerList = customerRepository.saveAll(customerList);
+        customer = customerList.get(0);
+        long firstCustomerId = customerList.stream().mapToLong(CustomerEntity::getId).min().orElseThrow();
+
+        // Transfers spread evenly over the customers, so one customer's history is a small slice of the table
+        jdbcTemplate.update("INSERT INTO transactions (transaction_type, amount_type, amount, transaction_date_time, " +
+                "transaction_status, transaction_remark, sender_id, transaction_sender_type, receiver_id, " +
+                "transaction_receiver_type, receiver_customer_id) " +
+                "SELECT 'TRANSFER_MONEY', 'MONEY', 100, TIMESTAMP '2024-01-01' + n * INTERVAL '1 minute', " +
+                "CASE WHEN n % 10 = 0 THEN 'PENDING' ELSE 'COMPLETED' END, 'test', n, 'PAYMENT_ACCOUNT', n, " +
+                "'PAYMENT_ACCOUNT', ? + (n + 1) % ? " +
+                "FROM generate_series(1, ?) AS n", firstCustomerId, CUSTOMERS, TRANSACTIONS);
+        jdbcTemplate.update("INSERT INTO transactions_of_customers (transaction_id, customer_id, receiver_id) " +
+                "SELECT t.id, ? + t.sender_id % ?, t.receiver_customer_id FROM transactions t",
+                firstCustomerId, CUSTOMERS);
+        jdbcTemplate.execute("ANALYZE transactions");
+        jdbcTemplate.execute("ANALYZE transactions_of_customers");
+    }
+
+    @Test
+    void historyFirstPageLooksUpBothSidesByIndex() {
+        String plan = explain(() -> transactionRepository.findTransactionHistoryFirstPage(
+                NOT_PENDING, customer, customer.getId(), List.of(TransactionType.TRANSFER_MONEY), null, PageRequest.of(0, 20)),
+                customer.getId(), customer.getId(), "COMPLETED", "FAILED", "TRANSFER_MONEY", null, null, 0, 20);
+
+        assertUsesBothLookupIndexes(plan);
+    }
+
+    @Test
+    void notPendingHistoryLooksUpBothSidesByIndex() {
+        String plan = explain(() -> transactionRepository.findNotPendingTransactionsOfCustomer(
+                NOT_PENDING, customer, customer.getId(), PageRequest.of(0, 20)),
+                customer.getId(), customer.getId(), "COMPLETED", "FAILED", 0, 20);
+
+        assertUsesBothLookupIndexes(plan);
+    }
+
+    private static void assertUsesBothLookupIndexes(String plan) {
+        assertTrue(plan.contains("idx_transactions_of_customers_customer_transaction"), plan);
+        assertTrue(plan.contains("idx_transactions_of_customers_receiver_transaction"), plan);
+        assertFalse(plan.contains("Seq Scan on transactions_of_customers"), plan);
+    }
+
+    // Runs the query, then asks PostgreSQL for the plan of the SQL Hibernate sent
+    // The bound values are given in the order of the placeholders, and inlined as literals
+    private String explain(Runnable query, Object... parameterValues) {
+        statementList.clear();
+        query.run();
+        String sql = statementList.stream()
+                .filter(statement -> statement.contains("transactions_of_customers"))
+                .findFirst()
+                .orElseThrow();
+
+        StringBuilder explainedSql = new StringBuilder("EXPLAIN ");
+        int parameterIndex = 0;
+        for (char c : sql.toCharArray()) {
+            if (c != '?') {
+                explainedSql.append(c);
+                continue;
+            }
+            Object parameterValue = parameterValues[parameterIndex++];
+            if (parameterValue == null) {
+                explainedSql.append("NULL");
+            } else if (parameterValue instanceof Number) {
+                explainedSql.append(parameterValue);
+            } else {
+                explainedSql.append('\'').append(parameterValue).append('\'');
+            }
+        }
+        assertEquals(parameterValues.length, parameterIndex, sql);
+        return String.join("\n", jdbcTemplate.queryForList(explainedSql.toString(), String.class));
+    }
+
+    private static CustomerEntity newCustomer(int number) {
+        return CustomerEntity.builder()
+                .email("customer" + number + "@example.com")
+                .name("Customer " + number)
+                .password("hash")
+                .phoneNumber(String.format("09%08d", number))
+                .address("Somewhere")
+                .citizenId(String.format("%012d", number))
+                .dateOfBirth(Date.valueOf("1990-01-01"))
+                .active(true)
+                .imgFront("")
+                .imgBack("")
+                .imgFace("")
+                .clientSession("session-" + number)
+                .build();
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.onlinebankingapp.repositories;
+
+import com.example.onlinebankingapp.entities.CustomerEntity;
+import com.example.onlinebankingapp.entities.Money;
+import com.example.onlinebankingapp.entities.TransactionCustomerEntity;
+import com.example.onlinebankingapp.entities.TransactionEntity;
+import com.example.onlinebankingapp.enums.AmountType;
+import com.example.onlinebankingapp.enums.TransactionReceiverType;
+import com.example.onlinebankingapp.enums.TransactionSenderType;
+import com.example.onlinebankingapp.enums.TransactionStatus;
+import com.example.onlinebankingapp.enums.TransactionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.sql.Date;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// History of a customer: transactions it sent or received, in the requested statuses only
+@DataJpaTest
+class TransactionRepositoryTest {
+    private static final List<TransactionStatus> NOT_PENDING = List.of(TransactionStatus.COMPLETED, TransactionStatus.FAILED);
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionCustomerRepository transactionCustomerRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private CustomerEntity alice;
+    private CustomerEntity bob;
+    private List<Long> expectedIds;
+    private LocalDateTime transactionDateTime = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @BeforeEach
+    void setUp() {
+        alice = customerRepository.save(newCustomer("alice", "1"));
+        bob = customerRepository.save(newCustomer("bob", "2"));
+        CustomerEntity carol = customerRepository.save(newCustomer("carol", "3"));
+
+        Long sentId = save(alice, bob, TransactionStatus.COMPLETED);
+        // Sender side PENDING: "sender OR receiver AND status" used to return it
+        save(alice, bob, TransactionStatus.PENDING);
+        Long receivedId = save(bob, alice, TransactionStatus.FAILED);
+        save(bob, alice, TransactionStatus.PENDING);
+        // Matches both sides, listed once
+        Long selfId = save(alice, alice, TransactionStatus.COMPLETED);
+        save(bob, carol, TransactionStatus.COMPLETED);
+
+        // Newest first
+        expectedIds = List.of(selfId, receivedId, sentId);
+    }
+
+    @Test
+    void notPendingHistoryHasOnlyTheCustomersFinishedTransactions() {
+        assertEquals(expectedIds, ids(transactionRepository.findNotPendingTransactionsOfCustomer(
+                NOT_PENDING, alice, alice.getId(), PageRequest.of(0, 10))));
+    }
+
+    @Test
+    void filteredHistoryHasOnlyTheCustomersFinishedTransactions() {
+        assertEquals(expectedIds, ids(transactionRepository.findTransactionsByTypeAndCustomer(
+                NOT_PENDING, alice, alice.getId(), List.of(TransactionType.TRANSFER_MONEY), null, PageRequest.of(0, 10))));
+    }
+
+    @Test
+    void keysetPagesWalkTheSameHistory() {
+        List<TransactionEntity> page = transactionRepository.findTransactionHistoryFirstPage(
+                NOT_PENDING, alice, alice.getId(), List.of(TransactionType.TRANSFER_MONEY), null, PageRequest.of(0, 1));
+        List<Long> walkedIds = new ArrayList<>();
+        while (!page.isEmpty()) {
+            TransactionEntity last = page.get(page.size() - 1);
+            walkedIds.addAll(ids(page));
+            page = transactionRepository.findTransactionHistoryAfterCursor(
+                    NOT_PENDING, alice, alice.getId(), List.of(TransactionType.TRANSFER_MONEY), null,
+                    last.getTransactionDateTime(), last.getId(), PageRequest.of(0, 1));
+        }
+
+        assertEquals(expectedIds, walkedIds);
+    }
+
+    // Completing or failing a transaction only moves it out of PENDING once, and never resurrects a swept one
+    @Test
+    void closePendingTransactionOnlyClosesPendingTransactions() {
+        Long pendingId = save(alice, bob, TransactionStatus.PENDING);
+        LocalDateTime closedDateTime = LocalDateTime.of(2024, 2, 1, 0, 0);
+
+        assertEquals(1, transactionRepository.closePendingTransaction(pendingId, TransactionStatus.COMPLETED, closedDateTime));
+        assertEquals(0, transactionRepository.closePendingTransaction(pendingId, TransactionStatus.FAILED, closedDateTime));
+        testEntityManager.clear();
+        TransactionEntity closedTransaction = transactionRepository.findById(pendingId).orElseThrow();
+        assertEquals(TransactionStatus.COMPLETED, closedTransaction.getTransactionStatus());
+        assertEquals(closedDateTime, closedTransaction.getTransactionDateTime());
+
+        Long sweptId = save(alice, bob, TransactionStatus.PENDING);
+        transactionCustomerRepository.deleteAll(transactionCustomerRepository.findAll().stream()
+                .filter(transactionCustomer -> transactionCustomer.getTransactionCustomerKey().getTransaction().getId().equals(sweptId))
+                .toList());
+        transactionRepository.deleteByIdIn(List.of(sweptId));
+        assertEquals(0, transactionRepository.closePendingTransaction(sweptId, TransactionStatus.COMPLETED, closedDateTime));
+        assertTrue(transactionRepository.findById(sweptId).isEmpty());
+    }
+
+    // Transfer between two customers, linked as the app does: sender customer and receiver id
+    private Long save(CustomerEntity sender, CustomerEntity receiver, TransactionStatus transactionStatus) {
+        TransactionEntity transaction = transactionRepository.save(TransactionEntity.builder()
+                .transactionType(TransactionType.TRANSFER_MONEY)
+                .amountType(AmountType.MONEY)
+                .amount(Money.of(100))
+                .transactionStatus(transactionStatus)
+                .transactionRemark("test")
+                .senderId(sender.getId())
+                .transactionSenderType(TransactionSenderType.PAYMENT_ACCOUNT)
+                .receiverId(receiver.getId())
+                .transactionReceiverType(TransactionReceiverType.PAYMENT_ACCOUNT)
+                .receiverCustomerId(receiver.getId())
+                .build());
+        // Creation stamps the current second: spread the transactions so the newest-first order is defined
+        transactionDateTime = transactionDateTime.plusMinutes(1);
+        transaction.setTransactionDateTime(transactionDateTime);
+        transactionCustomerRepository.save(TransactionCustomerEntity.builder()
+                .transactionCustomerKey(new TransactionCustomerEntity.TransactionCustomer(transaction, sender, receiver.getId()))
+                .build());
+        return transaction.getId();
+    }
+
+    private static List<Long> ids(List<TransactionEntity> transactions) {
+        return transactions.stream().map(TransactionEntity::getId).toList();
+    }
+
+    private static CustomerEntity newCustomer(String name, String suffix) {
+        return CustomerEntity.builder()
+                .email(name + "@example.com")
+                .name(name)
+                .password("hash")
+                .phoneNumber("090000000" + suffix)
+                .address("Somewhere")
+                .citizenId("00000000000" + suffix)
+                .dateOfBirth(Date.valueOf("1990-01-01"))
+                .active(true)
+                .imgFront("")
+                .imgBack("")
+                .imgFace("")
+                .clientSession("session-" + suffix)
+                .build();
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.onlinebankingapp.services.CustomerMonthlyTotal;
+
+import com.example.onlinebankingapp.PostgresRepositoryTest;
+import com.example.onlinebankingapp.components.ChunkedBatchRunner;
+import com.example.onlinebankingapp.entities.CustomerEntity;
+import com.example.onlinebankingapp.entities.Money;
+import com.example.onlinebankingapp.entities.RewardEntity;
+import com.example.onlinebankingapp.entities.TransactionCustomerEntity;
+import com.example.onlinebankingapp.entities.TransactionEntity;
+import com.example.onlinebankingapp.enums.AmountType;
+import com.example.onlinebankingapp.enums.MonthlyTotalDirection;
+import com.example.onlinebankingapp.enums.RewardType;
+import com.example.onlinebankingapp.enums.TransactionReceiverType;
+import com.example.onlinebankingapp.enums.TransactionSenderType;
+import com.example.onlinebankingapp.enums.TransactionStatus;
+import com.example.onlinebankingapp.enums.TransactionType;
+import com.example.onlinebankingapp.repositories.BatchJobCheckpointRepository;
+import com.example.onlinebankingapp.repositories.CustomerMonthlyTotalRepository;
+import com.example.onlinebankingapp.repositories.CustomerRepository;
+import com.example.onlinebankingapp.repositories.RewardRepository;
+import com.example.onlinebankingapp.repositories.TransactionCustomerRepository;
+import com.example.onlinebankingapp.repositories.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The dashboard reads the rollup; it must match the aggregate queries over the transaction history it replaced
+@Import({CustomerMonthlyTotalServiceImpl.class, ChunkedBatchRunner.class})
+class CustomerMonthlyTotalServiceImplTest extends PostgresRepositoryTest {
+    private static final int CONCURRENT_TRANSFERS = 8;
+
+    @Autowired
+    private CustomerMonthlyTotalService customerMonthlyTotalService;
+
+    @Autowired
+    private CustomerMonthlyTotalRepository customerMonthlyTotalRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private RewardRepository rewardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionCustomerRepository transactionCustomerRepository;
+
+    @Autowired
+    private BatchJobCheckpointRepository batchJobCheckpointRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CustomerEntity alice;
+    private CustomerEntity bob;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        transactionCustomerRepository.deleteAll();
+        transactionRepository.deleteAll();
+        customerMonthlyTotalRepository.deleteAll();
+        batchJobCheckpointRepository.deleteAll();
+        rewardRepository.deleteAll();
+        customerRepository.deleteAll();
+
+        alice = customerRepository.save(newCustomer("alice", "1"));
+        bob = customerRepository.save(newCustomer("bob", "2"));
+        now = LocalDateTime.now();
+    }
+
+    @Test
+    void liveTotalsMatchHistory() throws Exception {
+        completeHistory();
+
+        assertDashboardMatchesHistory();
+    }
+
+    // Concurrent first transactions of a month all insert the same rollup row
+    @Test
+    void concurrentFirstIncrementsAreAllCounted() throws Exception {
+        List<TransactionEntity> transferList = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_TRANSFERS; i++) {
+            transferList.add(saveCompleted(TransactionType.TRANSFER_MONEY, alice, bob.getId(), bob.getId(),
+                    Money.of(10 + i), now));
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_TRANSFERS);
+        try {
+            List<Future<?>> futureList = new ArrayList<>();
+            for (TransactionEntity transfer : transferList) {
+                futureList.add(executor.submit(() -> {
+                    start.await();
+                    customerMonthlyTotalService.recordCompletedTransaction(transfer, alice.getId(), bob.getId());
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futureList) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertDashboardMatchesHistory();
+    }
+
+    // Rebuild replaces the rows, whether the rollup is empty, already right, or has drifted
+    @Test
+    void rebuildMatchesHistory() throws Exception {
+        completeHistory();
+
+        customerMonthlyTotalRepository.deleteAll();
+        customerMonthlyTotalService.rebuildMonthlyTotals();
+        assertDashboardMatchesHistory();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                customerMonthlyTotalRepository.addToTotal(alice.getId(), now.getYear(), now.getMonthValue(),
+                        MonthlyTotalDirection.EXPENSE.name(), TransactionType.TRANSFER_MONEY.name(), "NONE",
+                        Money.of(999).toBigDecimal()));
+        batchJobCheckpointRepository.deleteAll();
+        customerMonthlyTotalService.rebuildMonthlyTotals();
+        assertDashboardMatchesHistory();
+    }
+
+    // Transfers both ways across two months, an own account top-up, a reward redemption
+    // and transactions which never completed
+    private void completeHistory() {
+        RewardEntity reward = rewardRepository.save(RewardEntity.builder()
+                .costPoint(100)
+                .rewardName("Voucher")
+                .rewardType(RewardType.SHOPPING)
+                .build());
+        LocalDateTime lastMonth = now.minusMonths(1);
+
+        complete(TransactionType.TRANSFER_MONEY, alice, bob.getId(), bob.getId(), Money.of(100), lastMonth);
+        complete(TransactionType.TRANSFER_MONEY, alice, bob.getId(), bob.getId(), Money.of(new BigDecimal("25.50")), now);
+        complete(TransactionType.TRANSFER_MONEY, bob, alice.getId(), alice.getId(), Money.of(40), now);
+        complete(TransactionType.ADD_FROM_BA_TO_PA, alice, 0L, 0L, Money.of(500), now);
+        complete(TransactionType.REDEEM_REWARD, alice, reward.getId(), 0L, Money.of(100), now);
+
+        TransactionEntity pendingTransfer = saveCompleted(TransactionType.TRANSFER_MONEY, alice, bob.getId(), bob.getId(),
+                Money.of(70), now);
+        pendingTransfer.setTransactionStatus(TransactionStatus.PENDING);
+        transactionRepository.save(pendingTransfer);
+    }
+
+    private void complete(TransactionType transactionType, CustomerEntity sender, Long receiverId,
+                          Long receiverCustomerId, Money amount, LocalDateTime dateTime) {
+        TransactionEntity transaction = saveCompleted(transactionType, sender, receiverId, receiverCustomerId, amount, dateTime);
+        customerMonthlyTotalService.recordCompletedTransaction(transaction, sender.getId(), receiverCustomerId);
+    }
+
+    private TransactionEntity saveCompleted(TransactionType transactionType, CustomerEntity sender, Long receiverId,
+                                            Long receiverCustomerId, Money amount, LocalDateTime dateTime) {
+        TransactionEntity transaction = transactionRepository.save(TransactionEntity.builder()
+                .transactionType(transactionType)
+                .amountType(AmountType.MONEY)
+                .amount(amount)
+                .transactionStatus(TransactionStatus.COMPLETED)
+                .transactionRemark("test")
+                .senderId(sender.getId())
+                .transactionSenderType(TransactionSenderType.PAYMENT_ACCOUNT)
+                .receiverId(receiverId)
+                .transactionReceiverType(transactionType == TransactionType.REDEEM_REWARD
+                        ? TransactionReceiverType.REWARD_SYSTEM
+                        : TransactionReceiverType.PAYMENT_ACCOUNT)
+                .receiverCustomerId(receiverCustomerId)
+                .build());
+        // Creation stamps the current time, history from an earlier month is back-dated afterwards
+        transaction.setTransactionDateTime(dateTime);
+        transaction = transactionRepository.save(transaction);
+
+        transactionCustomerRepository.save(TransactionCustomerEntity.builder()
+                .transactionCustomerKey(new TransactionCustomerEntity.TransactionCustomer(transaction, sender, receiverCustomerId))
+                .build());
+        return transaction;
+    }
+
+    private void assertDashboardMatchesHistory() {
+        boolean hasTotals = false;
+        for (CustomerEntity customer : List.of(alice, bob)) {
+            for (TransactionType transactionType : TransactionType.values()) {
+                Map<String, Money> expenseTotals = toTotals(customerMonthlyTotalService.getMonthlyTotalAmountForCustomer(
+                        customer.getId(), MonthlyTotalDirection.EXPENSE, transactionType, now.getYear()));
+                assertEquals(toTotals(transactionRepository.findMonthlyTotalExpenseAmountForCustomer(
+                        customer.getId(), TransactionStatus.COMPLETED, transactionType, now.getYear())),
+                        expenseTotals, "expense " + transactionType + " of customer " + customer.getName());
+
+                Map<String, Money> incomeTotals = toTotals(customerMonthlyTotalService.getMonthlyTotalAmountForCustomer(
+                        customer.getId(), MonthlyTotalDirection.INCOME, transactionType, now.getYear()));
+                assertEquals(toTotals(transactionRepository.findMonthlyTotalIncomeAmountForCustomer(
+                        customer.getId(), TransactionStatus.COMPLETED, transactionType, now.getYear())),
+                        incomeTotals, "income " + transactionType + " of customer " + customer.getName());
+
+                hasTotals |= !expenseTotals.isEmpty() || !incomeTotals.isEmpty();
+            }
+
+            assertEquals(toTotals(transactionRepository.findTotalRewardAmountForCustomer(
+                    customer.getId(), TransactionStatus.COMPLETED, TransactionType.REDEEM_REWARD, now.getYear())),
+                    toTotals(customerMonthlyTotalService.getTotalRewardAmountForCustomer(customer.getId(), now.getYear())),
+                    "rewards of customer " + customer.getName());
+        }
+        assertTrue(hasTotals, "no totals to compare");
+    }
+
+    // (month or reward type, totalAmount) rows as a map; a zeroed rollup row shows as no row
+    private static Map<String, Money> toTotals(List<Object[]> results) {
+        Map<String, Money> totals = new HashMap<>();
+        for (Object[] result : results) {
+            Money totalAmount = Money.fromAggregate(result[1]);
+            if (!totalAmount.isZero()) {
+                String key = result[0] instanceof Number month ? String.valueOf(month.intValue()) : result[0].toString();
+                totals.put(key, totalAmount);
+            }
+        }
+        return totals;
+    }
+
+    private static CustomerEntity newCustomer(String name, String suffix) {
+        return CustomerEntity.builder()
+                .email(name + "@example.com")
+                .name(name)
+                .password("hash")
+                .phoneNumber("090000000" + suffix)
+                .address("Somewhere")
+                .citizenId("00000000000" + suffix)
+                .dateOfBirth(Date.valueOf("1990-01-01"))
+                .active(true)
+                .imgFront("")
+                .imgBack("")
+                .imgFace("")
+                .clientSession("session-" + suffix)
+                .build();
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.onlinebankingapp.services.FirebaseImage;
+
+import com.example.onlinebankingapp.entities.CustomerEntity;
+import com.example.onlinebankingapp.enums.ImageVariantSize;
+import com.example.onlinebankingapp.repositories.CustomerRepository;
+import com.example.onlinebankingapp.repositories.ImageBlobRepository;
+import com.example.onlinebankingapp.services.Customer.CustomerService;
+import com.example.onlinebankingapp.services.Reward.RewardService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+
+// Upload, dedupe and replace against the in-memory storage: identical images are stored once,
+// a replaced image is deleted with its last reference, and only once the new name is saved
+@DataJpaTest(properties = {
+        "firebase.storage.fake=true",
+        "firebase.bucket=test-bucket",
+        "firebase.public-retrieve-url=http://localhost/"
+})
+@Import({FirebaseImageServiceImpl.class, ImageBlobRegistry.class, ImageVariantGenerator.class, InMemoryImageStorage.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FirebaseImageServiceImplTest {
+    private static final String CUSTOMER_AVATAR_BUCKET = "customerAvatars/";
+
+    @Autowired
+    private FirebaseImageService firebaseImageService;
+
+    @Autowired
+    private InMemoryImageStorage imageStorage;
+
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+
+    @MockBean
+    private CustomerService customerService;
+
+    @MockBean
+    private RewardService rewardService;
+
+    @MockBean
+    private CustomerRepository customerRepository;
+
+    private CustomerEntity alice;
+    private CustomerEntity bob;
+
+    @BeforeEach
+    void setUp() {
+        imageBlobRepository.deleteAll();
+        imageStorage.getFilePaths().forEach(imageStorage::delete);
+        alice = newCustomer(1L);
+        bob = newCustomer(2L);
+    }
+
+    @Test
+    void sameImageIsStoredOnceAndDeletedWithItsLastReference() throws IOException {
+        MockMultipartFile redImage = pngImage(Color.RED);
+        MockMultipartFile blueImage = pngImage(Color.BLUE);
+
+        String redFileName = uploadAvatar(alice, redImage, false);
+        assertEquals(redFileName, uploadAvatar(bob, redImage, false));
+        assertEquals(storedFiles(redFileName), imageStorage.getFilePaths());
+        assertEquals(2L, referenceCount(redFileName));
+
+        // Bob still uses the red image
+        String blueFileName = uploadAvatar(alice, blueImage, true);
+        Set<String> expectedFiles = new HashSet<>(storedFiles(redFileName));
+        expectedFiles.addAll(storedFiles(blueFileName));
+        assertEquals(expectedFiles, imageStorage.getFilePaths());
+        assertEquals(1L, referenceCount(redFileName));
+
+        assertEquals(blueFileName, uploadAvatar(bob, blueImage, true));
+        assertEquals(storedFiles(blueFileName), imageStorage.getFilePaths());
+        assertEquals(0L, referenceCount(redFileName));
+        assertEquals(2L, referenceCount(blueFileName));
+    }
+
+    // The customer row still points at the red image: it must stay, and the blue reference must not leak
+    @Test
+    void failedSaveKeepsTheOldImageAndGivesTheNewReferenceBack() throws IOException {
+        String redFileName = uploadAvatar(alice, pngImage(Color.RED), false);
+        doThrow(new DataIntegrityViolationException("save failed")).when(customerRepository).save(any());
+
+        assertThrows(DataIntegrityViolationException.class, () -> uploadAvatar(alice, pngImage(Color.BLUE), true));
+
+        assertEquals(storedFiles(redFileName), imageStorage.getFilePaths());
+        assertEquals(1L, referenceCount(redFileName));
+        imageBlobRepository.findAll().stream()
+                .filter(imageBlob -> !imageBlob.getContentKey().equals(contentKey(redFileName)))
+                .forEach(imageBlob -> assertEquals(0L, imageBlob.getReferenceCount()));
+    }
+
+    private String uploadAvatar(CustomerEntity customer, MockMultipartFile file, boolean updateAvatar) {
+        firebaseImageService.uploadCustomerAvatar(customer.getId(), file, updateAvatar);
+        return customer.getAvatarHashedName();
+    }
+
+    // The original and each size variant
+    private static Set<String> storedFiles(String fileName) {
+        Set<String> filePaths = new HashSet<>();
+        filePaths.add(CUSTOMER_AVATAR_BUCKET + fileName);
+        for (ImageVariantSize size : ImageVariantSize.values()) {
+            filePaths.add(CUSTOMER_AVATAR_BUCKET + "variants/" + size.name().toLowerCase() + "/" + fileName);
+        }
+        return filePaths;
+    }
+
+    private long referenceCount(String fileName) {
+        return imageBlobRepository.findAll().stream()
+                .filter(imageBlob -> imageBlob.getContentKey().equals(contentKey(fileName)))
+                .findFirst()
+                .orElseThrow()
+                .getReferenceCount();
+    }
+
+    private static String contentKey(String fileName) {
+        return CUSTOMER_AVATAR_BUCKET + fileName.replace("_sized", "");
+    }
+
+    private CustomerEntity newCustomer(Long id) {
+        CustomerEntity customer = CustomerEntity.builder()
+                .id(id)
+                .avatarHashedName("customer_avatar_NOTFOUND.jpg")
+                .build();
+        when(customerService.getCustomerById(id)).thenReturn(customer);
+        return customer;
+    }
+
+    private static MockMultipartFile pngImage(Color color) throws IOException {
+        BufferedImage image = new BufferedImage(300, 200, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, 300, 200);
+        graphics.dispose();
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", outputStream);
+        return new MockMultipartFile("file", "avatar.png", "image/png", outputStream.toByteArray());
+    }
+}
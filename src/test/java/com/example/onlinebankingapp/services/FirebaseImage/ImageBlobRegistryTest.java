@@ -0,0 +1,153 @@
+package com.example.onlinebankingapp.services.FirebaseImage;
+
+import com.example.onlinebankingapp.entities.ImageBlobEntity;
+import com.example.onlinebankingapp.repositories.ImageBlobRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Runs without a test transaction: each registry call commits, as it does in a request
+@DataJpaTest
+@Import(ImageBlobRegistry.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ImageBlobRegistryTest {
+    private static final String CONTENT_KEY = "customerAvatars/abc.png";
+    private static final String FILE_NAME = "abc_sized.png";
+    private static final int UPLOADERS = 8;
+
+    @Autowired
+    private ImageBlobRegistry imageBlobRegistry;
+
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void cleanUp() {
+        imageBlobRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentFirstUploadsStoreOnce() throws Exception {
+        assertConcurrentUploadsStoreOnce();
+    }
+
+    // The row of a deleted file is kept with no reference: each request reads it into its open-in-view
+    // persistence context before locking it
+    @Test
+    void concurrentUploadsOfReleasedContentStoreOnce() throws Exception {
+        imageBlobRepository.saveAndFlush(ImageBlobEntity.builder()
+                .contentKey(CONTENT_KEY)
+                .referenceCount(0L)
+                .build());
+
+        assertConcurrentUploadsStoreOnce();
+    }
+
+    @Test
+    void lastReleaseDeletesTheFileAfterCommit() {
+        AtomicInteger deleteCount = new AtomicInteger();
+        imageBlobRegistry.acquire(CONTENT_KEY, () -> FILE_NAME);
+        imageBlobRegistry.acquireExisting(CONTENT_KEY);
+
+        imageBlobRegistry.release(CONTENT_KEY, deleteCount::incrementAndGet);
+        assertEquals(0, deleteCount.get());
+
+        imageBlobRegistry.release(CONTENT_KEY, deleteCount::incrementAndGet);
+        assertEquals(1, deleteCount.get());
+        ImageBlobEntity imageBlob = imageBlobRepository.findAll().get(0);
+        assertEquals(0L, imageBlob.getReferenceCount());
+        assertNull(imageBlob.getFileName());
+    }
+
+    @Test
+    void rolledBackReleaseKeepsTheFile() {
+        AtomicInteger deleteCount = new AtomicInteger();
+        imageBlobRegistry.acquire(CONTENT_KEY, () -> FILE_NAME);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            imageBlobRegistry.release(CONTENT_KEY, deleteCount::incrementAndGet);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, deleteCount.get());
+        assertEquals(1L, imageBlobRepository.findAll().get(0).getReferenceCount());
+    }
+
+    private void assertConcurrentUploadsStoreOnce() throws Exception {
+        AtomicInteger storeCount = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(UPLOADERS);
+        try {
+            List<Future<String>> fileNames = new ArrayList<>();
+            for (int i = 0; i < UPLOADERS; i++) {
+                fileNames.add(executor.submit(() -> {
+                    start.await();
+                    return withOpenEntityManager(() -> imageBlobRegistry.acquireExisting(CONTENT_KEY)
+                            .orElseGet(() -> imageBlobRegistry.acquire(CONTENT_KEY, () -> {
+                                storeCount.incrementAndGet();
+                                sleep();
+                                return FILE_NAME;
+                            })));
+                }));
+            }
+            start.countDown();
+            for (Future<String> fileName : fileNames) {
+                assertEquals(FILE_NAME, fileName.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, storeCount.get());
+        assertEquals((long) UPLOADERS, imageBlobRepository.findAll().get(0).getReferenceCount());
+    }
+
+    // Same binding as OpenEntityManagerInViewInterceptor: one persistence context for the whole request
+    private String withOpenEntityManager(Supplier<String> request) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+        try {
+            return request.get();
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            entityManager.close();
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
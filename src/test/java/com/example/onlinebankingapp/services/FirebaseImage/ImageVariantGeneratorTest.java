@@ -0,0 +1,89 @@
+package com.example.onlinebankingapp.services.FirebaseImage;
+
+import com.example.onlinebankingapp.enums.ImageVariantSize;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Every variant fits its size without enlarging the original; formats ImageIO cannot handle get no variants
+class ImageVariantGeneratorTest {
+    private final ImageVariantGenerator imageVariantGenerator = new ImageVariantGenerator(1, 4, 30000, 50_000_000, 0.85f);
+
+    @AfterEach
+    void tearDown() {
+        imageVariantGenerator.shutdown();
+    }
+
+    @Test
+    void variantsFitEachSizeAndKeepTheAspectRatio() throws IOException {
+        Map<ImageVariantSize, byte[]> variants = imageVariantGenerator.generateVariants(image(2000, 1000, "png"), ".png");
+
+        assertEquals(ImageVariantSize.values().length, variants.size());
+        for (ImageVariantSize size : ImageVariantSize.values()) {
+            BufferedImage variant = read(variants.get(size));
+            assertEquals(size.getMaxDimension(), variant.getWidth(), size.name());
+            assertEquals(size.getMaxDimension() / 2, variant.getHeight(), size.name());
+        }
+    }
+
+    @Test
+    void smallImageIsNotEnlarged() throws IOException {
+        Map<ImageVariantSize, byte[]> variants = imageVariantGenerator.generateVariants(image(100, 50, "jpeg"), ".jpg");
+
+        assertEquals(64, read(variants.get(ImageVariantSize.SMALL)).getWidth());
+        assertEquals(100, read(variants.get(ImageVariantSize.MEDIUM)).getWidth());
+        assertEquals(100, read(variants.get(ImageVariantSize.LARGE)).getWidth());
+    }
+
+    // Variants are encoded in the format of the file extension
+    @Test
+    void jpegVariantsAreJpeg() throws IOException {
+        Map<ImageVariantSize, byte[]> variants = imageVariantGenerator.generateVariants(image(300, 300, "jpeg"), ".jpeg");
+
+        for (byte[] variant : variants.values()) {
+            assertEquals(0xFF, variant[0] & 0xFF);
+            assertEquals(0xD8, variant[1] & 0xFF);
+        }
+    }
+
+    @Test
+    void unsupportedFormatsHaveNoVariants() throws IOException {
+        // ImageIO has no WebP codec
+        assertTrue(imageVariantGenerator.generateVariants(image(300, 300, "png"), ".webp").isEmpty());
+        // Right extension, content ImageIO cannot decode
+        assertTrue(imageVariantGenerator.generateVariants(
+                new MockMultipartFile("file", "broken.png", "image/png", new byte[]{1, 2, 3}), ".png").isEmpty());
+    }
+
+    // Header claims more pixels than max-pixels: nothing is decoded
+    @Test
+    void oversizedImageHasNoVariants() throws IOException {
+        ImageVariantGenerator smallLimitGenerator = new ImageVariantGenerator(1, 4, 30000, 10_000, 0.85f);
+        try {
+            assertTrue(smallLimitGenerator.generateVariants(image(200, 100, "png"), ".png").isEmpty());
+        } finally {
+            smallLimitGenerator.shutdown();
+        }
+    }
+
+    private static MockMultipartFile image(int width, int height, String formatName) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, formatName, outputStream);
+        return new MockMultipartFile("file", "image." + formatName, "image/" + formatName, outputStream.toByteArray());
+    }
+
+    private static BufferedImage read(byte[] content) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(content));
+    }
+}
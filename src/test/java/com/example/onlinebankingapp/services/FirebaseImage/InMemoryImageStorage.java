@@ -0,0 +1,53 @@
+package com.example.onlinebankingapp.services.FirebaseImage;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Fake storage backend for tests and local runs without network, on the test classpath only
+// Enable with firebase.storage.fake=true
+// Only metadata is kept, image content is read and discarded
+@Component
+@ConditionalOnProperty(name = "firebase.storage.fake", havingValue = "true")
+public class InMemoryImageStorage implements ImageStorage {
+    private final Map<String, ImageMetadata> storage = new ConcurrentHashMap<>();
+
+    @Override
+    public ImageMetadata upload(String filePath, InputStream content, String contentType) throws IOException {
+        long size = content.transferTo(OutputStream.nullOutputStream());
+        ImageMetadata imageMetadata = new ImageMetadata(filePath, contentType, size);
+        storage.put(filePath, imageMetadata);
+        return imageMetadata;
+    }
+
+    @Override
+    public Optional<ImageMetadata> getMetadata(String filePath) {
+        return Optional.ofNullable(storage.get(filePath));
+    }
+
+    @Override
+    public boolean delete(String filePath) {
+        return storage.remove(filePath) != null;
+    }
+
+    // Method to list the stored files, for assertions
+    public Set<String> getFilePaths() {
+        return Set.copyOf(storage.keySet());
+    }
+
+    @Override
+    public String getSignedUrl(String filePath, Duration validity) {
+        return "http://localhost/fake-storage/" + URLEncoder.encode(filePath, StandardCharsets.UTF_8)
+                + "?expires=" + (System.currentTimeMillis() + validity.toMillis());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.onlinebankingapp.services.Idempotency;
+
+import com.example.onlinebankingapp.entities.CustomerEntity;
+import com.example.onlinebankingapp.exceptions.AppException;
+import com.example.onlinebankingapp.exceptions.ErrorCode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IdempotencyServiceImplTest {
+    private final IdempotencyServiceImpl idempotencyService = new IdempotencyServiceImpl(
+            new LocalIdempotencyStore<>(100), new ObjectMapper(), 60, 1000);
+    private final AtomicInteger runCount = new AtomicInteger();
+
+    @AfterEach
+    void clearCaller() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void retryWithSameRequestIsReplayed() {
+        loginAsCustomer(1L);
+        idempotencyService.execute("key", "transfer/1", List.of(1L, "100.00"), this::transfer);
+        ResponseEntity<?> replayed = idempotencyService.execute("key", "transfer/1", List.of(1L, "100.00"), this::transfer);
+
+        assertEquals(1, runCount.get());
+        assertEquals("true", replayed.getHeaders().getFirst("Idempotent-Replayed"));
+    }
+
+    @Test
+    void sameKeyWithDifferentRequestIsRejected() {
+        loginAsCustomer(1L);
+        idempotencyService.execute("key", "transfer/1", List.of(1L, "100.00"), this::transfer);
+
+        AppException exception = assertThrows(AppException.class, () ->
+                idempotencyService.execute("key", "transfer/1", List.of(1L, "900.00"), this::transfer));
+        assertEquals(ErrorCode.IDEMPOTENCY_KEY_REUSED, exception.getErrorCode());
+        assertEquals(1, runCount.get());
+    }
+
+    @Test
+    void sameKeyOfAnotherCustomerRuns() {
+        loginAsCustomer(1L);
+        idempotencyService.execute("key", "transfer/1", List.of(1L, "100.00"), this::transfer);
+        loginAsCustomer(2L);
+        idempotencyService.execute("key", "transfer/1", List.of(1L, "100.00"), this::transfer);
+
+        assertEquals(2, runCount.get());
+    }
+
+    // An Error from the action must release the key too, or every retry would wait for a result that never comes
+    @Test
+    void retryAfterErrorRunsAgain() {
+        loginAsCustomer(1L);
+        assertThrows(StackOverflowError.class, () ->
+                idempotencyService.execute("key", "transfer/1", List.of(1L, "100.00"), () -> {
+                    throw new StackOverflowError();
+                }));
+
+        idempotencyService.execute("key", "transfer/1", List.of(1L, "100.00"), this::transfer);
+        assertEquals(1, runCount.get());
+    }
+
+    private ResponseEntity<?> transfer() {
+        return ResponseEntity.ok(runCount.incrementAndGet());
+    }
+
+    private static void loginAsCustomer(long customerId) {
+        CustomerEntity customer = CustomerEntity.builder().id(customerId).build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(customer, null, List.of()));
+    }
+}
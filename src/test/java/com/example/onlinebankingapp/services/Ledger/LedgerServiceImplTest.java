@@ -0,0 +1,261 @@
+package com.example.onlinebankingapp.services.Ledger;
+
+import com.example.onlinebankingapp.PostgresRepositoryTest;
+import com.example.onlinebankingapp.entities.BankAccountEntity;
+import com.example.onlinebankingapp.entities.BankEntity;
+import com.example.onlinebankingapp.entities.CustomerEntity;
+import com.example.onlinebankingapp.entities.Money;
+import com.example.onlinebankingapp.entities.PaymentAccountEntity;
+import com.example.onlinebankingapp.entities.TransactionEntity;
+import com.example.onlinebankingapp.enums.AmountType;
+import com.example.onlinebankingapp.enums.TransactionReceiverType;
+import com.example.onlinebankingapp.enums.TransactionSenderType;
+import com.example.onlinebankingapp.enums.TransactionStatus;
+import com.example.onlinebankingapp.enums.TransactionType;
+import com.example.onlinebankingapp.exceptions.AppException;
+import com.example.onlinebankingapp.exceptions.ErrorCode;
+import com.example.onlinebankingapp.repositories.BankAccountRepository;
+import com.example.onlinebankingapp.repositories.BankRepository;
+import com.example.onlinebankingapp.repositories.CustomerRepository;
+import com.example.onlinebankingapp.repositories.PaymentAccountRepository;
+import com.example.onlinebankingapp.repositories.TransactionRepository;
+import com.example.onlinebankingapp.services.CustomerMonthlyTotal.CustomerMonthlyTotalService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+// Every posting either applies debit, credit, reward point and COMPLETED together, or nothing
+@Import(LedgerServiceImpl.class)
+class LedgerServiceImplTest extends PostgresRepositoryTest {
+    private static final int REWARD_POINT = 7;
+    private static final int CONCURRENT_ROUNDS = 20;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private PaymentAccountRepository paymentAccountRepository;
+
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    private BankRepository bankRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @MockBean
+    private CustomerMonthlyTotalService customerMonthlyTotalService;
+
+    private CustomerEntity alice;
+    private CustomerEntity bob;
+    private PaymentAccountEntity alicePaymentAccount;
+    private PaymentAccountEntity bobPaymentAccount;
+    private BankAccountEntity aliceBankAccount;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAll();
+        bankAccountRepository.deleteAll();
+        bankRepository.deleteAll();
+        paymentAccountRepository.deleteAll();
+        customerRepository.deleteAll();
+
+        alice = customerRepository.save(newCustomer("alice", "1"));
+        bob = customerRepository.save(newCustomer("bob", "2"));
+        alicePaymentAccount = savePaymentAccount(alice, "1000000001", Money.of(1000));
+        bobPaymentAccount = savePaymentAccount(bob, "1000000002", Money.of(1000));
+        aliceBankAccount = saveBankAccount(alicePaymentAccount, "2000000001", Money.of(1000));
+    }
+
+    @Test
+    void postingMovesMoneyAndCompletesTheTransaction() {
+        TransactionEntity transfer = savePendingTransfer(TransactionSenderType.PAYMENT_ACCOUNT, alicePaymentAccount.getId(),
+                bobPaymentAccount.getId(), Money.of(300));
+
+        assertTrue(ledgerService.postTransfer(transfer, alice.getId(), bob.getId(), REWARD_POINT));
+
+        assertPaymentAccount(alicePaymentAccount, Money.of(700), REWARD_POINT);
+        assertPaymentAccount(bobPaymentAccount, Money.of(1300), 0);
+        assertEquals(TransactionStatus.COMPLETED, statusOf(transfer));
+        verify(customerMonthlyTotalService).recordCompletedTransaction(transfer, alice.getId(), bob.getId());
+    }
+
+    @Test
+    void insufficientBalanceChangesNothing() {
+        TransactionEntity transfer = savePendingTransfer(TransactionSenderType.PAYMENT_ACCOUNT, alicePaymentAccount.getId(),
+                bobPaymentAccount.getId(), Money.of(1001));
+
+        assertFalse(ledgerService.postTransfer(transfer, alice.getId(), bob.getId(), REWARD_POINT));
+
+        assertPaymentAccount(alicePaymentAccount, Money.of(1000), 0);
+        assertPaymentAccount(bobPaymentAccount, Money.of(1000), 0);
+        assertEquals(TransactionStatus.PENDING, statusOf(transfer));
+        verify(customerMonthlyTotalService, never()).recordCompletedTransaction(any(), anyLong(), anyLong());
+    }
+
+    // The second posting debits again before it finds the transaction COMPLETED, and must roll that debit back
+    @Test
+    void secondPostingIsRejectedAndRolledBack() {
+        TransactionEntity transfer = savePendingTransfer(TransactionSenderType.PAYMENT_ACCOUNT, alicePaymentAccount.getId(),
+                bobPaymentAccount.getId(), Money.of(300));
+        assertTrue(ledgerService.postTransfer(transfer, alice.getId(), bob.getId(), REWARD_POINT));
+
+        assertErrorCode(ErrorCode.TRANSACTION_INVALID,
+                () -> ledgerService.postTransfer(transfer, alice.getId(), bob.getId(), REWARD_POINT));
+
+        assertPaymentAccount(alicePaymentAccount, Money.of(700), REWARD_POINT);
+        assertPaymentAccount(bobPaymentAccount, Money.of(1300), 0);
+        verify(customerMonthlyTotalService).recordCompletedTransaction(transfer, alice.getId(), bob.getId());
+    }
+
+    @Test
+    void missingReceiverRollsBackTheDebit() {
+        TransactionEntity transfer = savePendingTransfer(TransactionSenderType.PAYMENT_ACCOUNT, alicePaymentAccount.getId(),
+                bobPaymentAccount.getId() + 1000, Money.of(300));
+
+        assertErrorCode(ErrorCode.SENDER_OR_RECEIVER_NOT_FOUND,
+                () -> ledgerService.postTransfer(transfer, alice.getId(), bob.getId(), REWARD_POINT));
+
+        assertPaymentAccount(alicePaymentAccount, Money.of(1000), 0);
+        assertEquals(TransactionStatus.PENDING, statusOf(transfer));
+    }
+
+    @Test
+    void bankAccountSenderRewardsItsLinkedPaymentAccount() {
+        TransactionEntity transfer = savePendingTransfer(TransactionSenderType.BANK_ACCOUNT, aliceBankAccount.getId(),
+                bobPaymentAccount.getId(), Money.of(300));
+
+        assertTrue(ledgerService.postTransfer(transfer, alice.getId(), bob.getId(), REWARD_POINT));
+
+        assertEquals(Money.of(700), bankAccountRepository.findById(aliceBankAccount.getId()).orElseThrow().getCurrentBalance());
+        assertPaymentAccount(alicePaymentAccount, Money.of(1000), REWARD_POINT);
+        assertPaymentAccount(bobPaymentAccount, Money.of(1300), 0);
+    }
+
+    // BA -> bob's PA rewards alice's PA, while alice's PA pays bob's PA
+    // Both lock alice's PA before bob's PA, so the two postings never wait on each other in a cycle
+    @Test
+    void rewardOfBankAccountSenderDoesNotDeadlockWithTransfersOfItsPaymentAccount() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < CONCURRENT_ROUNDS; round++) {
+                TransactionEntity fromBankAccount = savePendingTransfer(TransactionSenderType.BANK_ACCOUNT,
+                        aliceBankAccount.getId(), bobPaymentAccount.getId(), Money.of(1));
+                TransactionEntity fromPaymentAccount = savePendingTransfer(TransactionSenderType.PAYMENT_ACCOUNT,
+                        alicePaymentAccount.getId(), bobPaymentAccount.getId(), Money.of(1));
+
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Boolean>> futureList = new ArrayList<>();
+                for (TransactionEntity transfer : List.of(fromBankAccount, fromPaymentAccount)) {
+                    futureList.add(executor.submit(() -> {
+                        start.await();
+                        return ledgerService.postTransfer(transfer, alice.getId(), bob.getId(), REWARD_POINT);
+                    }));
+                }
+                start.countDown();
+                for (Future<Boolean> future : futureList) {
+                    assertTrue(future.get(30, TimeUnit.SECONDS));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertPaymentAccount(alicePaymentAccount, Money.of(1000 - CONCURRENT_ROUNDS), 2 * CONCURRENT_ROUNDS * REWARD_POINT);
+        assertPaymentAccount(bobPaymentAccount, Money.of(1000 + 2 * CONCURRENT_ROUNDS), 0);
+    }
+
+    private void assertPaymentAccount(PaymentAccountEntity paymentAccount, Money currentBalance, int rewardPoint) {
+        PaymentAccountEntity storedPaymentAccount = paymentAccountRepository.findById(paymentAccount.getId()).orElseThrow();
+        assertEquals(currentBalance, storedPaymentAccount.getCurrentBalance(), "balance of " + paymentAccount.getAccountNumber());
+        assertEquals(rewardPoint, storedPaymentAccount.getRewardPoint(), "reward point of " + paymentAccount.getAccountNumber());
+    }
+
+    private TransactionStatus statusOf(TransactionEntity transaction) {
+        return transactionRepository.findById(transaction.getId()).orElseThrow().getTransactionStatus();
+    }
+
+    private static void assertErrorCode(ErrorCode errorCode, Runnable action) {
+        assertEquals(errorCode, assertThrows(AppException.class, action::run).getErrorCode());
+    }
+
+    private TransactionEntity savePendingTransfer(TransactionSenderType senderType, Long senderId, Long receiverId, Money amount) {
+        return transactionRepository.save(TransactionEntity.builder()
+                .transactionType(TransactionType.TRANSFER_MONEY)
+                .amountType(AmountType.MONEY)
+                .amount(amount)
+                .transactionStatus(TransactionStatus.PENDING)
+                .transactionRemark("test")
+                .senderId(senderId)
+                .transactionSenderType(senderType)
+                .receiverId(receiverId)
+                .transactionReceiverType(TransactionReceiverType.PAYMENT_ACCOUNT)
+                .receiverCustomerId(bob.getId())
+                .build());
+    }
+
+    // Creation starts an account at zero, the balance is set afterwards
+    private PaymentAccountEntity savePaymentAccount(CustomerEntity customer, String accountNumber, Money currentBalance) {
+        PaymentAccountEntity paymentAccount = paymentAccountRepository.save(PaymentAccountEntity.builder()
+                .accountNumber(accountNumber)
+                .customer(customer)
+                .build());
+        paymentAccount.setCurrentBalance(currentBalance);
+        return paymentAccountRepository.save(paymentAccount);
+    }
+
+    private BankAccountEntity saveBankAccount(PaymentAccountEntity paymentAccount, String bankAccountNumber, Money currentBalance) {
+        BankEntity bank = bankRepository.save(BankEntity.builder().name("Bank").build());
+        return bankAccountRepository.save(BankAccountEntity.builder()
+                .bankAccountNumber(bankAccountNumber)
+                .citizenId("000000000001")
+                .name("alice")
+                .phoneNumber("0900000001")
+                .currentBalance(currentBalance)
+                .bank(bank)
+                .paymentAccount(paymentAccount)
+                .build());
+    }
+
+    private static CustomerEntity newCustomer(String name, String suffix) {
+        return CustomerEntity.builder()
+                .email(name + "@example.com")
+                .name(name)
+                .password("hash")
+                .phoneNumber("090000000" + suffix)
+                .address("Somewhere")
+                .citizenId("00000000000" + suffix)
+                .dateOfBirth(Date.valueOf("1990-01-01"))
+                .active(true)
+                .imgFront("")
+                .imgBack("")
+                .imgFace("")
+                .clientSession("session-" + suffix)
+                .build();
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.onlinebankingapp.services.PasswordVerification;
+
+import com.example.onlinebankingapp.exceptions.AppException;
+import com.example.onlinebankingapp.exceptions.ErrorCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordVerificationServiceImplTest {
+    private static final String IDENTITY = "customer:someone@example.com";
+    private static final int MAX_FAILED_ATTEMPTS = 3;
+
+    // Lowest bcrypt strength: the tests check the throttling, not the hash
+    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+    private final String encodedPassword = passwordEncoder.encode("secret");
+    private PasswordVerificationServiceImpl passwordVerificationService;
+
+    @AfterEach
+    void shutdown() {
+        if (passwordVerificationService != null) {
+            passwordVerificationService.shutdown();
+        }
+    }
+
+    @Test
+    void identityIsLockedOutAfterTooManyFailedAttempts() {
+        passwordVerificationService = newService(passwordEncoder, 2, 100, 900);
+        for (int i = 0; i < MAX_FAILED_ATTEMPTS; i++) {
+            assertErrorCode(ErrorCode.PASSWORD_INCORRECT, () -> verify("wrong"));
+        }
+
+        // Even the right password is refused until the lockout ends
+        assertErrorCode(ErrorCode.LOGIN_TOO_MANY_ATTEMPTS, () -> verify("secret"));
+    }
+
+    @Test
+    void successfulLoginClearsFailedAttempts() {
+        passwordVerificationService = newService(passwordEncoder, 2, 100, 900);
+        for (int i = 0; i < MAX_FAILED_ATTEMPTS - 1; i++) {
+            assertErrorCode(ErrorCode.PASSWORD_INCORRECT, () -> verify("wrong"));
+        }
+        assertDoesNotThrow(() -> verify("secret"));
+
+        for (int i = 0; i < MAX_FAILED_ATTEMPTS; i++) {
+            assertErrorCode(ErrorCode.PASSWORD_INCORRECT, () -> verify("wrong"));
+        }
+    }
+
+    @Test
+    void lockoutExpires() throws InterruptedException {
+        passwordVerificationService = newService(passwordEncoder, 2, 100, 1);
+        for (int i = 0; i < MAX_FAILED_ATTEMPTS; i++) {
+            assertErrorCode(ErrorCode.PASSWORD_INCORRECT, () -> verify("wrong"));
+        }
+        assertErrorCode(ErrorCode.LOGIN_TOO_MANY_ATTEMPTS, () -> verify("secret"));
+
+        Thread.sleep(1100);
+        assertDoesNotThrow(() -> verify("secret"));
+    }
+
+    // Parallel guesses are counted before any of them is hashed: no more than the limit reach bcrypt
+    @Test
+    void burstOfGuessesIsCutAtTheLimit() throws Exception {
+        AtomicInteger hashCount = new AtomicInteger();
+        PasswordEncoder countingEncoder = new DelegatingTestEncoder(passwordEncoder) {
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                hashCount.incrementAndGet();
+                return super.matches(rawPassword, encodedPassword);
+            }
+        };
+        passwordVerificationService = newService(countingEncoder, 4, 100, 900);
+
+        int guesses = 20;
+        List<ErrorCode> errorCodes = runConcurrently(guesses, () -> verify("wrong"));
+
+        assertEquals(MAX_FAILED_ATTEMPTS, hashCount.get());
+        assertEquals(MAX_FAILED_ATTEMPTS, errorCodes.stream().filter(ErrorCode.PASSWORD_INCORRECT::equals).count());
+        assertEquals(guesses - MAX_FAILED_ATTEMPTS,
+                errorCodes.stream().filter(ErrorCode.LOGIN_TOO_MANY_ATTEMPTS::equals).count());
+    }
+
+    // A login refused because the workers are saturated does not count as a failed attempt
+    @Test
+    void fullQueueAnswersBusyWithoutCountingAnAttempt() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder blockingEncoder = new DelegatingTestEncoder(passwordEncoder) {
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.matches(rawPassword, encodedPassword);
+            }
+        };
+        passwordVerificationService = newService(blockingEncoder, 1, 1, 900);
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            // One login on the worker, one in the queue
+            Future<?> running = callers.submit(() -> verify("secret", "customer:a@example.com"));
+            Future<?> queued = callers.submit(() -> verify("secret", "customer:b@example.com"));
+            Thread.sleep(200);
+
+            for (int i = 0; i < MAX_FAILED_ATTEMPTS + 1; i++) {
+                assertErrorCode(ErrorCode.LOGIN_BUSY, () -> verify("wrong"));
+            }
+
+            release.countDown();
+            running.get(10, TimeUnit.SECONDS);
+            queued.get(10, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+        }
+
+        assertDoesNotThrow(() -> verify("secret"));
+    }
+
+    @Test
+    void weakHashIsReplacedInTheBackground() throws InterruptedException {
+        passwordVerificationService = newService(new BCryptPasswordEncoder(5), 2, 100, 900);
+        AtomicReference<String> rehashedPassword = new AtomicReference<>();
+        CountDownLatch saved = new CountDownLatch(1);
+
+        passwordVerificationService.verifyPassword(IDENTITY, "secret", encodedPassword, newHash -> {
+            rehashedPassword.set(newHash);
+            saved.countDown();
+        });
+
+        assertTrue(saved.await(10, TimeUnit.SECONDS));
+        assertTrue(rehashedPassword.get().startsWith("$2a$05$"));
+        assertTrue(passwordEncoder.matches("secret", rehashedPassword.get()));
+    }
+
+    @Test
+    void strongEnoughHashIsKept() throws InterruptedException {
+        passwordVerificationService = newService(passwordEncoder, 2, 100, 900);
+        AtomicReference<String> rehashedPassword = new AtomicReference<>();
+
+        passwordVerificationService.verifyPassword(IDENTITY, "secret", encodedPassword, rehashedPassword::set);
+
+        Thread.sleep(200);
+        assertNull(rehashedPassword.get());
+    }
+
+    private PasswordVerificationServiceImpl newService(
+            PasswordEncoder encoder, int hashThreads, int queueCapacity, long lockoutSeconds) {
+        return new PasswordVerificationServiceImpl(encoder, hashThreads, queueCapacity, 5000,
+                MAX_FAILED_ATTEMPTS, lockoutSeconds, 1000);
+    }
+
+    private void verify(String rawPassword) {
+        verify(rawPassword, IDENTITY);
+    }
+
+    private void verify(String rawPassword, String identity) {
+        passwordVerificationService.verifyPassword(identity, rawPassword, encodedPassword, newHash -> {
+        });
+    }
+
+    private static List<ErrorCode> runConcurrently(int callCount, Runnable call) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(callCount);
+        try {
+            List<Future<ErrorCode>> futures = new ArrayList<>();
+            for (int i = 0; i < callCount; i++) {
+                futures.add(callers.submit(() -> {
+                    start.await();
+                    try {
+                        call.run();
+                        return null;
+                    } catch (AppException e) {
+                        return e.getErrorCode();
+                    }
+                }));
+            }
+            start.countDown();
+            List<ErrorCode> errorCodes = new ArrayList<>();
+            for (Future<ErrorCode> future : futures) {
+                errorCodes.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return errorCodes;
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    private static void assertErrorCode(ErrorCode errorCode, Runnable call) {
+        assertEquals(errorCode, assertThrows(AppException.class, call::run).getErrorCode());
+    }
+
+    private static class DelegatingTestEncoder implements PasswordEncoder {
+        private final PasswordEncoder delegate;
+
+        DelegatingTestEncoder(PasswordEncoder delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return delegate.encode(rawPassword);
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return delegate.matches(rawPassword, encodedPassword);
+        }
+    }
+}
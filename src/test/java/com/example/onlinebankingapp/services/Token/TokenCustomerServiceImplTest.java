@@ -0,0 +1,171 @@
+package com.example.onlinebankingapp.services.Token;
+
+import com.example.onlinebankingapp.PostgresRepositoryTest;
+import com.example.onlinebankingapp.components.JwtTokenUtils;
+import com.example.onlinebankingapp.entities.CustomerEntity;
+import com.example.onlinebankingapp.entities.TokenCustomerEntity;
+import com.example.onlinebankingapp.exceptions.AppException;
+import com.example.onlinebankingapp.exceptions.ErrorCode;
+import com.example.onlinebankingapp.repositories.CustomerRepository;
+import com.example.onlinebankingapp.repositories.TokenCustomerRepository;
+import com.example.onlinebankingapp.services.TokenRevocation.TokenRevocationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Date;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Login eviction and refresh are single native statements, run here against PostgreSQL
+@Import(TokenCustomerServiceImpl.class)
+@TestPropertySource(properties = {"jwt.expiration=3600", "jwt.expiration-refresh-token=7200"})
+class TokenCustomerServiceImplTest extends PostgresRepositoryTest {
+    @Autowired
+    private TokenCustomerService tokenCustomerService;
+
+    @Autowired
+    private TokenCustomerRepository tokenCustomerRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @MockBean
+    private JwtTokenUtils jwtTokenUtils;
+
+    @MockBean
+    private TokenRevocationService tokenRevocationService;
+
+    private CustomerEntity customer;
+
+    @BeforeEach
+    void setUp() {
+        tokenCustomerRepository.deleteAll();
+        customerRepository.deleteAll();
+        customer = customerRepository.save(newCustomer());
+        when(jwtTokenUtils.generateTokenForCustomer(any())).thenAnswer(invocation -> UUID.randomUUID().toString());
+    }
+
+    @Test
+    void tokensBelowTheLimitAreKept() {
+        tokenCustomerService.addTokenForCustomer(customer, "web-1", false);
+        tokenCustomerService.addTokenForCustomer(customer, "web-2", false);
+        tokenCustomerService.addTokenForCustomer(customer, "web-3", false);
+
+        assertEquals(List.of("web-1", "web-2", "web-3"), tokensOfCustomer());
+        verify(tokenRevocationService, never()).revokeToken(anyString(), any());
+    }
+
+    // At the limit the oldest web token goes first, even when a mobile token is older
+    @Test
+    void oldestNonMobileTokenIsEvictedAtTheLimit() {
+        tokenCustomerService.addTokenForCustomer(customer, "mobile-1", true);
+        tokenCustomerService.addTokenForCustomer(customer, "web-1", false);
+        tokenCustomerService.addTokenForCustomer(customer, "web-2", false);
+
+        tokenCustomerService.addTokenForCustomer(customer, "web-3", false);
+
+        assertEquals(List.of("mobile-1", "web-2", "web-3"), tokensOfCustomer());
+        verify(tokenRevocationService).revokeToken(eq("web-1"), any());
+    }
+
+    @Test
+    void oldestTokenIsEvictedWhenAllAreMobile() {
+        tokenCustomerService.addTokenForCustomer(customer, "mobile-1", true);
+        tokenCustomerService.addTokenForCustomer(customer, "mobile-2", true);
+        tokenCustomerService.addTokenForCustomer(customer, "mobile-3", true);
+
+        tokenCustomerService.addTokenForCustomer(customer, "mobile-4", true);
+
+        assertEquals(List.of("mobile-2", "mobile-3", "mobile-4"), tokensOfCustomer());
+        verify(tokenRevocationService).revokeToken(eq("mobile-1"), any());
+    }
+
+    @Test
+    void refreshReplacesBothTokensAndRevokesTheOldAccessToken() {
+        TokenCustomerEntity issuedToken = tokenCustomerService.addTokenForCustomer(customer, "web-1", false);
+
+        TokenCustomerEntity refreshedToken = tokenCustomerService.refreshTokenForCustomer(issuedToken.getRefreshToken(), customer);
+
+        assertEquals(issuedToken.getId(), refreshedToken.getId());
+        assertNotEquals(issuedToken.getRefreshToken(), refreshedToken.getRefreshToken());
+        TokenCustomerEntity storedToken = tokenCustomerRepository.findById(issuedToken.getId()).orElseThrow();
+        assertEquals(refreshedToken.getToken(), storedToken.getToken());
+        assertEquals(refreshedToken.getRefreshToken(), storedToken.getRefreshToken());
+        verify(tokenRevocationService).revokeToken(eq("web-1"), any());
+
+        // The old refresh token is spent
+        assertErrorCode(ErrorCode.REFRESH_TOKEN_NOT_FOUND,
+                () -> tokenCustomerService.refreshTokenForCustomer(issuedToken.getRefreshToken(), customer));
+    }
+
+    @Test
+    void refreshOfUnknownTokenIsNotFound() {
+        assertErrorCode(ErrorCode.REFRESH_TOKEN_NOT_FOUND,
+                () -> tokenCustomerService.refreshTokenForCustomer("unknown", customer));
+        verify(tokenRevocationService, never()).revokeToken(anyString(), any());
+    }
+
+    @Test
+    void refreshOfExpiredTokenDeletesAndRevokesIt() {
+        LocalDateTime now = LocalDateTime.now();
+        tokenCustomerRepository.save(TokenCustomerEntity.builder()
+                .customer(customer)
+                .token("web-1")
+                .refreshToken("expired-refresh-token")
+                .tokenType("Bearer")
+                .expirationDate(now.minusHours(2))
+                .refreshExpirationDate(now.minusHours(1))
+                .isMobile(false)
+                .build());
+
+        assertErrorCode(ErrorCode.TOKEN_EXPIRED,
+                () -> tokenCustomerService.refreshTokenForCustomer("expired-refresh-token", customer));
+
+        assertNull(tokenCustomerRepository.findByRefreshToken("expired-refresh-token"));
+        verify(tokenRevocationService).revokeToken(eq("web-1"), any());
+    }
+
+    private List<String> tokensOfCustomer() {
+        return tokenCustomerRepository.findAll().stream()
+                .sorted((first, second) -> first.getId().compareTo(second.getId()))
+                .map(TokenCustomerEntity::getToken)
+                .toList();
+    }
+
+    private static void assertErrorCode(ErrorCode errorCode, Runnable action) {
+        assertEquals(errorCode, assertThrows(AppException.class, action::run).getErrorCode());
+    }
+
+    private static CustomerEntity newCustomer() {
+        return CustomerEntity.builder()
+                .email("someone@example.com")
+                .name("Someone")
+                .password("hash")
+                .phoneNumber("0900000000")
+                .address("Somewhere")
+                .citizenId("000000000001")
+                .dateOfBirth(Date.valueOf("1990-01-01"))
+                .active(true)
+                .imgFront("")
+                .imgBack("")
+                .imgFace("")
+                .clientSession("session")
+                .build();
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.onlinebankingapp.services.TransferLock;
+
+import com.example.onlinebankingapp.dtos.responses.TransferLock.StripeContentionResponse;
+import com.example.onlinebankingapp.entities.TransactionEntity;
+import com.example.onlinebankingapp.enums.TransactionReceiverType;
+import com.example.onlinebankingapp.enums.TransactionSenderType;
+import com.example.onlinebankingapp.exceptions.AppException;
+import com.example.onlinebankingapp.exceptions.ErrorCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Stripe locks in-JVM: ordered so opposite transfers never deadlock, bounded wait, contention counted per stripe
+class TransferLockServiceImplTest {
+    private static final long ACCOUNT_A = 1L;
+
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    // One stripe for both accounts: locked once and fully released, another thread gets it right after
+    @Test
+    void sameStripeIsLockedOnce() throws Exception {
+        TransferLockServiceImpl transferLockService = new TransferLockServiceImpl(1, 100);
+
+        assertEquals("done", transferLockService.executeWithAccountLocks(transfer(ACCOUNT_A, 2L), () -> "done"));
+        assertEquals("done", executorService.submit(() ->
+                transferLockService.executeWithAccountLocks(transfer(2L, ACCOUNT_A), () -> "done")).get(5, TimeUnit.SECONDS));
+        assertTrue(transferLockService.getStripeContention().isEmpty());
+    }
+
+    // A->B and B->A take the two stripes in opposite account order; ascending stripe order keeps them deadlock free
+    @Test
+    void oppositeTransfersDoNotDeadlock() throws Exception {
+        long accountB = accountOnAnotherStripe(256);
+        TransferLockServiceImpl transferLockService = new TransferLockServiceImpl(256, 10_000);
+
+        List<Future<?>> futures = List.of(
+                executorService.submit(() -> transferRepeatedly(transferLockService, transfer(ACCOUNT_A, accountB))),
+                executorService.submit(() -> transferRepeatedly(transferLockService, transfer(accountB, ACCOUNT_A))));
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+
+        transferLockService.getStripeContention().forEach(stripeContention ->
+                assertEquals(0L, stripeContention.getTimeoutCount()));
+    }
+
+    @Test
+    void lockTimeoutIsAccountBusy() throws Exception {
+        TransferLockServiceImpl transferLockService = new TransferLockServiceImpl(256, 50);
+        CountDownLatch release = holdLocks(transferLockService, transfer(ACCOUNT_A, ACCOUNT_A));
+
+        AppException exception = assertThrows(AppException.class, () ->
+                transferLockService.executeWithAccountLocks(transfer(ACCOUNT_A, ACCOUNT_A), () -> "done"));
+        assertEquals(ErrorCode.ACCOUNT_BUSY, exception.getErrorCode());
+        release.countDown();
+
+        StripeContentionResponse stripeContention = transferLockService.getStripeContention().get(0);
+        assertEquals(1L, stripeContention.getContendedCount());
+        assertEquals(1L, stripeContention.getTimeoutCount());
+        assertEquals(1L, stripeContention.getAcquiredCount());
+    }
+
+    // Free stripes are not reported; a wait is counted once, with its time, on the stripe it waited for
+    @Test
+    void contentionIsCountedPerStripe() throws Exception {
+        TransferLockServiceImpl transferLockService = new TransferLockServiceImpl(256, 5000);
+        transferLockService.executeWithAccountLocks(transfer(ACCOUNT_A, ACCOUNT_A), () -> "done");
+        assertTrue(transferLockService.getStripeContention().isEmpty());
+
+        CountDownLatch release = holdLocks(transferLockService, transfer(ACCOUNT_A, ACCOUNT_A));
+        Future<String> waiter = executorService.submit(() ->
+                transferLockService.executeWithAccountLocks(transfer(ACCOUNT_A, ACCOUNT_A), () -> "done"));
+        // The contended count goes up before the waiter blocks
+        while (transferLockService.getStripeContention().isEmpty()) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(50);
+        release.countDown();
+        assertEquals("done", waiter.get(5, TimeUnit.SECONDS));
+
+        List<StripeContentionResponse> stripeContentionList = transferLockService.getStripeContention();
+        assertEquals(1, stripeContentionList.size());
+        StripeContentionResponse stripeContention = stripeContentionList.get(0);
+        assertEquals(3L, stripeContention.getAcquiredCount());
+        assertEquals(1L, stripeContention.getContendedCount());
+        assertEquals(0L, stripeContention.getTimeoutCount());
+        assertTrue(stripeContention.getTotalWaitMillis() >= 50, stripeContention.toString());
+    }
+
+    // Runs a transfer on another thread that keeps its locks until the returned latch is released
+    private CountDownLatch holdLocks(TransferLockServiceImpl transferLockService, TransactionEntity transaction) throws InterruptedException {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executorService.submit(() -> transferLockService.executeWithAccountLocks(transaction, () -> {
+            locked.countDown();
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }));
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    // Finds an account whose stripe is not ACCOUNT_A's: it can be locked while ACCOUNT_A is held
+    private long accountOnAnotherStripe(int stripeCount) throws InterruptedException {
+        TransferLockServiceImpl probeService = new TransferLockServiceImpl(stripeCount, 10);
+        CountDownLatch release = holdLocks(probeService, transfer(ACCOUNT_A, ACCOUNT_A));
+        try {
+            for (long accountId = ACCOUNT_A + 1; ; accountId++) {
+                try {
+                    probeService.executeWithAccountLocks(transfer(accountId, accountId), () -> "done");
+                    return accountId;
+                } catch (AppException e) {
+                    // Same stripe as ACCOUNT_A, try the next one
+                }
+            }
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static void transferRepeatedly(TransferLockServiceImpl transferLockService, TransactionEntity transaction) {
+        for (int i = 0; i < 2000; i++) {
+            transferLockService.executeWithAccountLocks(transaction, () -> {
+                Thread.yield();
+                return null;
+            });
+        }
+    }
+
+    private static TransactionEntity transfer(Long senderId, Long receiverId) {
+        return TransactionEntity.builder()
+                .transactionSenderType(TransactionSenderType.PAYMENT_ACCOUNT)
+                .senderId(senderId)
+                .transactionReceiverType(TransactionReceiverType.PAYMENT_ACCOUNT)
+                .receiverId(receiverId)
+                .build();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.onlinebankingapp.services.VerificationServices;
+
+import com.example.onlinebankingapp.enums.OTPPurpose;
+import com.example.onlinebankingapp.exceptions.AppException;
+import com.example.onlinebankingapp.exceptions.ErrorCode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Email and SMS OTPs answer the same way: false for anything but a valid OTP, OTP_EXPIRED once expired
+class OTPServiceTest {
+    private static final int VERIFIERS = 8;
+
+    private final OTPService otpService = new OTPService(new LocalOTPStore<>(100), new LocalOTPStore<>(100), 300);
+
+    enum Channel {
+        EMAIL("someone@example.com", "", OTPPurpose.EMAIL_CUSTOMER_UPDATE_PROFILE),
+        SMS("", "0900000000", OTPPurpose.SMS_CUSTOMER_SIGN_UP);
+
+        private final String email;
+        private final String phoneNumber;
+        private final OTPPurpose otpPurpose;
+
+        Channel(String email, String phoneNumber, OTPPurpose otpPurpose) {
+            this.email = email;
+            this.phoneNumber = phoneNumber;
+            this.otpPurpose = otpPurpose;
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(Channel.class)
+    void validOTPIsConsumedOnce(Channel channel) {
+        String otp = generate(channel, 5);
+
+        assertTrue(verify(channel, otp, channel.otpPurpose));
+        assertFalse(verify(channel, otp, channel.otpPurpose));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Channel.class)
+    void unknownWrongOrMisdirectedOTPIsFalse(Channel channel) {
+        assertFalse(verify(channel, "000000", channel.otpPurpose));
+
+        String otp = generate(channel, 5);
+        assertFalse(verify(channel, otp.equals("000000") ? "111111" : "000000", channel.otpPurpose));
+        assertFalse(verify(channel, otp, OTPPurpose.SMS_TRANSFER_MONEY_TO_PA));
+
+        // Failed attempts leave the OTP usable
+        assertTrue(verify(channel, otp, channel.otpPurpose));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Channel.class)
+    void expiredOTPThrowsAndIsRemoved(Channel channel) {
+        String otp = generate(channel, 0);
+
+        AppException exception = assertThrows(AppException.class, () -> verify(channel, otp, channel.otpPurpose));
+        assertEquals(ErrorCode.OTP_EXPIRED, exception.getErrorCode());
+        assertFalse(verify(channel, otp, channel.otpPurpose));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Channel.class)
+    void concurrentVerificationsConsumeOnce(Channel channel) throws Exception {
+        String otp = generate(channel, 5);
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(VERIFIERS);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < VERIFIERS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return verify(channel, otp, channel.otpPurpose);
+                }));
+            }
+            start.countDown();
+
+            int verifiedCount = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(10, TimeUnit.SECONDS)) {
+                    verifiedCount++;
+                }
+            }
+            assertEquals(1, verifiedCount);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private String generate(Channel channel, long expirationMinute) {
+        return otpService.generateOTP(channel.email, channel.phoneNumber, expirationMinute, channel.otpPurpose);
+    }
+
+    private boolean verify(Channel channel, String otp, OTPPurpose otpPurpose) {
+        return otpService.verifyOTP(channel.email, channel.phoneNumber, otp, otpPurpose);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.onlinebankingapp.utils;
+
+import com.example.onlinebankingapp.exceptions.AppException;
+import com.example.onlinebankingapp.exceptions.ErrorCode;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpiringMapTest {
+    private static final Duration LONG_TTL = Duration.ofMinutes(5);
+
+    @Test
+    void expiredEntryIsGoneAndFreesItsSlot() throws InterruptedException {
+        ExpiringMap<String> map = ExpiringMap.refusingWhenFull(1, ErrorCode.OTP_STORE_FULL);
+        map.put("a", "1", Duration.ofMillis(20));
+        Thread.sleep(40);
+
+        assertNull(map.get("a"));
+        assertEquals(0, map.size());
+        map.put("b", "2", LONG_TTL);
+        assertEquals("2", map.get("b"));
+    }
+
+    @Test
+    void putIfAbsentKeepsTheLiveValue() {
+        ExpiringMap<String> map = ExpiringMap.refusingWhenFull(10, ErrorCode.OTP_STORE_FULL);
+
+        assertNull(map.putIfAbsent("a", "1", LONG_TTL));
+        assertEquals("1", map.putIfAbsent("a", "2", LONG_TTL));
+        assertEquals("1", map.get("a"));
+    }
+
+    @Test
+    void computeKeepsTheExpiryOfAnUpdatedEntry() throws InterruptedException {
+        ExpiringMap<Integer> map = ExpiringMap.evictingWhenFull(10);
+        map.compute("a", count -> count == null ? 1 : count + 1, Duration.ofMillis(200));
+        Thread.sleep(120);
+        assertEquals(2, map.compute("a", count -> count == null ? 1 : count + 1, Duration.ofMillis(200)));
+        Thread.sleep(120);
+
+        assertNull(map.get("a"));
+    }
+
+    @Test
+    void removeByValueOnlyRemovesTheSameInstance() {
+        ExpiringMap<String> map = ExpiringMap.refusingWhenFull(10, ErrorCode.OTP_STORE_FULL);
+        String value = new String("1");
+        map.put("a", value, LONG_TTL);
+
+        assertFalse(map.remove("a", new String("1")));
+        assertTrue(map.remove("a", value));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void fullRefusingMapRejectsNewKeysButReplacesExistingOnes() {
+        ExpiringMap<String> map = ExpiringMap.refusingWhenFull(2, ErrorCode.OTP_STORE_FULL);
+        map.put("a", "1", LONG_TTL);
+        map.put("b", "2", LONG_TTL);
+
+        AppException exception = assertThrows(AppException.class, () -> map.put("c", "3", LONG_TTL));
+        assertEquals(ErrorCode.OTP_STORE_FULL, exception.getErrorCode());
+        map.put("a", "4", LONG_TTL);
+        assertEquals("4", map.get("a"));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void fullEvictingMapForgetsAnotherEntry() {
+        ExpiringMap<String> map = ExpiringMap.evictingWhenFull(2);
+        map.put("a", "1", LONG_TTL);
+        map.put("b", "2", LONG_TTL);
+        map.put("c", "3", LONG_TTL);
+
+        assertEquals(2, map.size());
+        assertEquals("3", map.get("c"));
+    }
+
+    @Test
+    void concurrentWritersNeverExceedTheSize() throws Exception {
+        int maxSize = 50;
+        int writers = 16;
+        int keysPerWriter = 100;
+        ExpiringMap<Integer> map = ExpiringMap.refusingWhenFull(maxSize, ErrorCode.OTP_STORE_FULL);
+        AtomicInteger storedCount = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int writer = 0; writer < writers; writer++) {
+                int writerId = writer;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < keysPerWriter; i++) {
+                        try {
+                            map.put(writerId + "-" + i, i, LONG_TTL);
+                            storedCount.incrementAndGet();
+                        } catch (AppException e) {
+                            // Full
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(maxSize, storedCount.get());
+        assertEquals(maxSize, map.size());
+    }
+}